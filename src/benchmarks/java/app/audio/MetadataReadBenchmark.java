@@ -0,0 +1,93 @@
+package app.audio;
+
+import app.benchmarks.SyntheticLibrary;
+import org.jaudiotagger.audio.AudioHeader;
+import org.jaudiotagger.tag.Tag;
+import org.jaudiotagger.tag.datatype.Artwork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Reading the tags, duration and artwork of an mp3 with {@link MP3HeaderReader} against the jaudiotagger path of
+ * {@link MP3Tools} it replaced. Files are read round robin so the page cache holds them, as it does for a library
+ * scanned a second time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetadataReadBenchmark {
+    private static final int FILE_COUNT = 64;
+    // 0 writes tags without a picture
+    @Param({"0", "600"})
+    public int artworkSize;
+    private Path directory;
+    private File[] files;
+    private int next;
+
+    @Setup
+    public void writeFiles() throws IOException {
+        directory = Files.createTempDirectory("metadata-benchmark");
+        files = new File[FILE_COUNT];
+        for (int i = 0; i < FILE_COUNT; i++) {
+            byte[] artwork = artworkSize > 0 ? SyntheticLibrary.randomArtwork(i, artworkSize) : null;
+            Path path = directory.resolve("track " + i + ".mp3");
+            Files.write(path, SyntheticLibrary.mp3Stub(i, artwork));
+            files[i] = path.toFile();
+        }
+    }
+
+    @TearDown
+    public void deleteFiles() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList())
+                Files.delete(path);
+        }
+    }
+
+    @Benchmark
+    public void headerReader(Blackhole blackhole) {
+        File file = files[next++ & FILE_COUNT - 1];
+        MP3Header header = MP3HeaderReader.read(file);
+        blackhole.consume(header);
+        if (header != null)
+            blackhole.consume(MP3HeaderReader.readArtwork(file, header));
+    }
+
+    /**
+     * What AudioData did for every file before the header reader
+     */
+    @Benchmark
+    public void jaudiotagger(Blackhole blackhole) {
+        File file = files[next++ & FILE_COUNT - 1];
+        AudioHeader audioHeader = MP3Tools.getAudioHeader(file);
+        blackhole.consume(audioHeader != null ? audioHeader.getTrackLength() : 0);
+        Tag tag = MP3Tools.getTag(file);
+        if (tag != null) {
+            Artwork artwork = tag.getFirstArtwork();
+            blackhole.consume(tag);
+            blackhole.consume(artwork != null ? artwork.getBinaryData() : null);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package app.audio;
+
+import app.benchmarks.SyntheticLibrary;
+import app.settings.StartupSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading 10k tracks with and without the columnar {@link TrackStore}. The time and allocations of reading are
+ * measured by JMH, the heap the tracks keep is measured once per fork and printed with its output.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TrackStoreBenchmark {
+    private static final int TRACK_COUNT = 10_000;
+    @Param({"false", "true"})
+    public boolean isColumnar;
+    private List<File> files;
+
+    @Setup(Level.Trial)
+    public void measureRetainedHeap() {
+        StartupSettings.COLUMNAR_TRACK_STORE_ENABLED = isColumnar;
+        files = SyntheticLibrary.mp3Stubs(TRACK_COUNT);
+        // everything read once, so only the tracks are left between the two measurements
+        readTracks();
+        SyntheticLibrary.resetSingleton(TrackStore.class);
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long before = heapUsedAfterGC(memory);
+        List<AudioData> tracks = readTracks();
+        long after = heapUsedAfterGC(memory);
+        System.out.printf("Retained heap of %d tracks, columnar store %s: %.1f KB, %d bytes per track%n", tracks.size(),
+                isColumnar ? "on" : "off", (after - before) / 1024.0, (after - before) / tracks.size());
+    }
+
+    @Setup(Level.Iteration)
+    public void emptyStore() {
+        SyntheticLibrary.resetSingleton(TrackStore.class);
+    }
+
+    @Benchmark
+    public List<AudioData> readTracks() {
+        List<AudioData> tracks = new ArrayList<>(TRACK_COUNT);
+        for (File file : files)
+            tracks.add(new AudioData(file));
+        return tracks;
+    }
+
+    private static long heapUsedAfterGC(MemoryMXBean memory) {
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
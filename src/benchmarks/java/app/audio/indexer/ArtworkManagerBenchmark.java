@@ -0,0 +1,96 @@
+package app.audio.indexer;
+
+import app.audio.AudioData;
+import app.benchmarks.SyntheticLibrary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registering the embedded artwork of a track: a cover seen for the first time is decoded, hashed, cropped and
+ * scaled, a cover already shared by another track is only decoded and hashed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArtworkManagerBenchmark {
+    private static final int ARTWORK_COUNT = 32;
+    @Param({"300", "600", "1200"})
+    public int artworkSize;
+    private List<AudioData> tracks;
+    private byte[][] artworks;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void createArtworks() {
+        tracks = SyntheticLibrary.tracks(ARTWORK_COUNT);
+        artworks = new byte[ARTWORK_COUNT][];
+        for (int i = 0; i < ARTWORK_COUNT; i++)
+            artworks[i] = SyntheticLibrary.randomArtwork(i, artworkSize);
+    }
+
+    /**
+     * Forgets every artwork but the default one before each call, so the next registrations are new covers
+     */
+    @State(Scope.Benchmark)
+    public static class NewArtwork {
+        @Setup(Level.Invocation)
+        public void forgetArtworks() throws ReflectiveOperationException {
+            Field artworks = ArtworkManager.class.getDeclaredField("ARTWORKS");
+            artworks.setAccessible(true);
+            ((Map<?, ?>) artworks.get(null)).keySet().removeIf(hash -> !hash.equals(ArtworkManager.DEFAULT_ARTWORK_POINTER));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ARTWORK_COUNT)
+    public void registerNewThumbnail(NewArtwork newArtwork) {
+        registerAll();
+    }
+
+    private void registerAll() {
+        ArtworkManager manager = ArtworkManager.getInstance();
+        for (int i = 0; i < ARTWORK_COUNT; i++)
+            manager.registerThumbnail(tracks.get(i), artworks[i]);
+    }
+
+    /**
+     * Covers are registered once by the trial setup
+     */
+    @State(Scope.Benchmark)
+    public static class SharedArtwork {
+        @Setup(Level.Trial)
+        public void registerOnce(ArtworkManagerBenchmark benchmark) {
+            benchmark.registerAll();
+        }
+    }
+
+    @Benchmark
+    public void registerSharedThumbnail(SharedArtwork sharedArtwork) {
+        int i = next++ & ARTWORK_COUNT - 1;
+        ArtworkManager.getInstance().registerThumbnail(tracks.get(i), artworks[i]);
+    }
+
+    @Benchmark
+    public void registerNoThumbnail() {
+        ArtworkManager.getInstance().registerThumbnail(tracks.get(next++ & ARTWORK_COUNT - 1), null);
+    }
+}
@@ -0,0 +1,73 @@
+package app.audio.indexer;
+
+import app.audio.AudioData;
+import app.benchmarks.SyntheticLibrary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the index of a whole library: adding every track, then grouping them into artists, folders and albums.
+ * Every iteration starts from an empty index with tracks that were read once per trial, so only indexing is timed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class AudioDataIndexerBenchmark {
+    @Param({"1000", "10000", "100000", "200000"})
+    public int librarySize;
+    private List<AudioData> tracks;
+
+    @Setup(Level.Trial)
+    public void readLibrary() {
+        tracks = SyntheticLibrary.tracks(librarySize);
+    }
+
+    @Setup(Level.Iteration)
+    public void emptyIndex() {
+        SyntheticLibrary.resetIndex();
+    }
+
+    @Benchmark
+    public int addAudioFile() {
+        AudioDataIndexer indexer = AudioDataIndexer.getInstance();
+        for (AudioData track : tracks)
+            indexer.addAudioFile(track);
+        return indexer.getTotalAudioFiles();
+    }
+
+    /**
+     * Tracks are added by the iteration setup, only grouping is timed
+     */
+    @State(Scope.Benchmark)
+    public static class FilledIndex {
+        @Setup(Level.Iteration)
+        public void addTracks(AudioDataIndexerBenchmark library) {
+            AudioDataIndexer indexer = AudioDataIndexer.getInstance();
+            for (AudioData track : library.tracks)
+                indexer.addAudioFile(track);
+        }
+    }
+
+    @Benchmark
+    public int indexGroups(FilledIndex index) {
+        AudioDataIndexer indexer = AudioDataIndexer.getInstance();
+        indexer.indexGroups();
+        return indexer.getAllArtists().size();
+    }
+}
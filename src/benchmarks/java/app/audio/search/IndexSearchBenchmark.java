@@ -0,0 +1,62 @@
+package app.audio.search;
+
+import app.audio.AudioData;
+import app.audio.indexer.AudioDataIndexer;
+import app.benchmarks.SyntheticLibrary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search box queries over an indexed library. A word found in many titles, a rare one and a query matching
+ * nothing, so both a full result list and a bare scan are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndexSearchBenchmark {
+    @Param({"1000", "10000", "100000", "200000"})
+    public int librarySize;
+    @Param({"love", "Silver Moon", "no such track"})
+    public String query;
+    private PrintStream output;
+
+    @Setup
+    public void indexLibrary() {
+        List<AudioData> tracks = SyntheticLibrary.tracks(librarySize);
+        SyntheticLibrary.resetIndex();
+        AudioDataIndexer indexer = AudioDataIndexer.getInstance();
+        for (AudioData track : tracks)
+            indexer.addAudioFile(track);
+        indexer.indexAndSortAudioFiles();
+        // every search is logged
+        output = SyntheticLibrary.silenceOutput();
+    }
+
+    @TearDown
+    public void restoreOutput() {
+        System.setOut(output);
+    }
+
+    @Benchmark
+    public ArrayList<AudioData> searchString() {
+        return IndexSearch.getInstance().searchString(query);
+    }
+}
@@ -0,0 +1,226 @@
+package app.benchmarks;
+
+import app.audio.AudioData;
+import app.audio.indexer.AudioDataIndexer;
+import app.audio.indexer.AudioSortIndex;
+import org.jetbrains.annotations.NotNull;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic data for the benchmarks, the same seed always gives the same data.
+ * <p>
+ * The library is made of mp3 stubs: an ID3v2.3 tag followed by a Xing frame and one silent frame, which every
+ * reader of the app parses like a real file. Stubs are written once under {@code library/} of the working
+ * directory and shared by every benchmark, a library of n tracks is the first n stubs. Tracks are spread over
+ * folders of {@link #TRACKS_PER_FOLDER}, with an artist for every 20 tracks and an album for every 10.
+ */
+public final class SyntheticLibrary {
+    public static final int TRACKS_PER_FOLDER = 100;
+    private static final Path LIBRARY_PATH = Path.of("library");
+    private static final long SEED = 0x51554152L;
+    private static final String[] WORDS = {"love", "night", "fire", "blue", "dream", "heart", "road", "light", "rain",
+            "gold", "city", "river", "summer", "shadow", "echo", "storm", "wild", "home", "star", "ocean", "dance",
+            "stone", "silver", "moon", "ghost", "paper", "sugar", "winter", "garden", "electric"};
+    // MPEG 1 layer III, 128 kbps, 44.1 kHz, stereo
+    private static final int FRAME_HEADER = 0xFFFB9000;
+    private static final int FRAME_LENGTH = 417;
+    private static final int XING_OFFSET = 4 + 32;
+
+    private SyntheticLibrary() {
+    }
+
+    /**
+     * @return the first count stubs of the library, missing ones are written first
+     */
+    public static synchronized @NotNull List<File> mp3Stubs(int count) {
+        List<File> files = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                Path path = LIBRARY_PATH.resolve("folder " + i / TRACKS_PER_FOLDER).resolve("track " + i + ".mp3");
+                if (!Files.exists(path)) {
+                    Files.createDirectories(path.getParent());
+                    Files.write(path, mp3Stub(i, null));
+                }
+                files.add(path.toFile().getAbsoluteFile());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't write the synthetic library: " + e, e);
+        }
+        return files;
+    }
+
+    /**
+     * Reads the first count stubs of the library into tracks
+     */
+    public static @NotNull List<AudioData> tracks(int count) {
+        List<AudioData> tracks = new ArrayList<>(count);
+        for (File file : mp3Stubs(count))
+            tracks.add(new AudioData(file));
+        return tracks;
+    }
+
+    /**
+     * Stub of the i-th track of the library
+     *
+     * @param artwork embedded as the front cover if not null
+     */
+    public static byte @NotNull [] mp3Stub(int index, byte[] artwork) {
+        Random random = new Random(SEED + index);
+        int artist = index / 20;
+        int album = index / 10;
+        String title = phrase(random, 1 + random.nextInt(4));
+        String artistName = phrase(new Random(SEED ^ artist), 2) + " " + artist;
+        String albumName = phrase(new Random(SEED ^ (album * 31L)), 2) + " " + album;
+
+        ByteArrayOutputStream frames = new ByteArrayOutputStream(256);
+        writeTextFrame(frames, "TIT2", title);
+        writeTextFrame(frames, "TPE1", artistName);
+        writeTextFrame(frames, "TALB", albumName);
+        writeTextFrame(frames, "TRCK", (index % 10 + 1) + "/10");
+        writeTextFrame(frames, "TPOS", "1/1");
+        if (artwork != null) {
+            byte[] header = "\0image/jpeg\0\3\0".getBytes(StandardCharsets.ISO_8859_1);
+            writeFrameHeader(frames, "APIC", header.length + artwork.length);
+            frames.writeBytes(header);
+            frames.writeBytes(artwork);
+        }
+
+        int tagSize = frames.size();
+        // three to five minutes of audio
+        int frameCount = (int) ((180 + random.nextInt(120)) * 44100L / 1152);
+        ByteBuffer buffer = ByteBuffer.allocate(10 + tagSize + 2 * FRAME_LENGTH);
+        buffer.put("ID3".getBytes(StandardCharsets.ISO_8859_1)).put((byte) 3).put((byte) 0).put((byte) 0);
+        buffer.put((byte) (tagSize >> 21 & 0x7F)).put((byte) (tagSize >> 14 & 0x7F)).put((byte) (tagSize >> 7 & 0x7F)).put((byte) (tagSize & 0x7F));
+        buffer.put(frames.toByteArray());
+        int audioStart = buffer.position();
+        buffer.putInt(audioStart, FRAME_HEADER);
+        buffer.put(audioStart + XING_OFFSET, "Xing".getBytes(StandardCharsets.ISO_8859_1));
+        buffer.putInt(audioStart + XING_OFFSET + 4, 1);
+        buffer.putInt(audioStart + XING_OFFSET + 8, frameCount);
+        buffer.putInt(audioStart + FRAME_LENGTH, FRAME_HEADER);
+        return buffer.array();
+    }
+
+    private static String phrase(Random random, int words) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0)
+                builder.append(' ');
+            String word = WORDS[random.nextInt(WORDS.length)];
+            builder.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+        }
+        return builder.toString();
+    }
+
+    private static void writeTextFrame(ByteArrayOutputStream out, String id, String value) {
+        byte[] text = value.getBytes(StandardCharsets.ISO_8859_1);
+        writeFrameHeader(out, id, text.length + 1);
+        out.write(0);
+        out.writeBytes(text);
+    }
+
+    private static void writeFrameHeader(ByteArrayOutputStream out, String id, int size) {
+        out.writeBytes(id.getBytes(StandardCharsets.ISO_8859_1));
+        out.writeBytes(ByteBuffer.allocate(4).putInt(size).array());
+        out.write(0);
+        out.write(0);
+    }
+
+    /**
+     * Random blocks of colour over a gradient, close enough to a cover for decoding and scaling
+     */
+    public static @NotNull BufferedImage randomImage(long seed, int width, int height, int type) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(width, height, type);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setPaint(new GradientPaint(0, 0, new Color(random.nextInt()), width, height, new Color(random.nextInt())));
+        g2d.fillRect(0, 0, width, height);
+        for (int i = 0; i < 40; i++) {
+            g2d.setColor(new Color(random.nextInt(), true));
+            g2d.fillRect(random.nextInt(width), random.nextInt(height), 1 + random.nextInt(width / 2 + 1), 1 + random.nextInt(height / 2 + 1));
+        }
+        g2d.dispose();
+        return image;
+    }
+
+    /**
+     * @return a random square cover encoded as jpeg, like the artworks embedded in tags
+     */
+    public static byte @NotNull [] randomArtwork(long seed, int size) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(randomImage(seed, size, size, BufferedImage.TYPE_3BYTE_BGR), "jpg", out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Spectrum frames in the range the painters get from the player: louder low bands, every band moving
+     * smoothly from one frame to the next
+     */
+    public static float @NotNull [][] magnitudeStream(long seed, int frames, int bands, float maxDecibels) {
+        Random random = new Random(seed);
+        float[][] stream = new float[frames][bands];
+        float[] level = new float[bands];
+        for (int frame = 0; frame < frames; frame++) {
+            for (int band = 0; band < bands; band++) {
+                float ceiling = maxDecibels * (1 - 0.6f * band / bands);
+                level[band] = Math.max(0, Math.min(ceiling, level[band] + (random.nextFloat() - 0.45f) * 12));
+                stream[frame][band] = level[band];
+            }
+        }
+        return stream;
+    }
+
+    /**
+     * Drops the instance of a singleton, so the next getInstance starts empty
+     */
+    public static void resetSingleton(@NotNull Class<?> singletonClass) {
+        try {
+            Field instance = singletonClass.getDeclaredField("instance");
+            instance.setAccessible(true);
+            synchronized (singletonClass) {
+                instance.set(null, null);
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(singletonClass + " can't be reset: " + e, e);
+        }
+    }
+
+    /**
+     * Starts an empty library index, tracks are kept by their readers
+     */
+    public static void resetIndex() {
+        resetSingleton(AudioDataIndexer.class);
+        resetSingleton(AudioSortIndex.class);
+    }
+
+    /**
+     * Drops whatever is printed to the standard output, for code that logs on every call
+     *
+     * @return the previous output, to be restored afterwards
+     */
+    public static @NotNull PrintStream silenceOutput() {
+        PrintStream output = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return output;
+    }
+}
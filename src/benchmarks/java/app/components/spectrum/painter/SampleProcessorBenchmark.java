@@ -0,0 +1,53 @@
+package app.components.spectrum.painter;
+
+import app.benchmarks.SyntheticLibrary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mirroring the magnitudes of a spectrum frame, once into the array painters keep between frames and once into a
+ * new array every frame
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SampleProcessorBenchmark {
+    private static final int FRAME_COUNT = 256;
+    @Param({"64", "128", "512", "2048"})
+    public int bands;
+    @Param({"false", "true"})
+    public boolean isSorted;
+    private float[][] frames;
+    private float[] mirrored;
+    private int next;
+
+    @Setup
+    public void createFrames() {
+        frames = SyntheticLibrary.magnitudeStream(bands, FRAME_COUNT, bands, 110);
+        mirrored = new float[bands * 2];
+    }
+
+    @Benchmark
+    public float[] mirrorMagnitudes() {
+        return SampleProcessor.mirrorMagnitudes(frames[next++ & FRAME_COUNT - 1], mirrored, isSorted);
+    }
+
+    @Benchmark
+    public float[] mirrorMagnitudesAllocating() {
+        return SampleProcessor.mirrorMagnitudes(frames[next++ & FRAME_COUNT - 1], null, isSorted);
+    }
+}
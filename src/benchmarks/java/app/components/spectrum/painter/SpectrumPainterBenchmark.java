@@ -0,0 +1,88 @@
+package app.components.spectrum.painter;
+
+import app.benchmarks.SyntheticLibrary;
+import app.components.spectrum.Spectrum;
+import app.components.spectrum.SpectrumType;
+import app.settings.StartupSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.*;
+import java.awt.image.VolatileImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to render one spectrum frame of each painter into an accelerated image of the component's size, the way the
+ * painter timer does. Spectrums are components, so this needs a display.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpectrumPainterBenchmark {
+    private static final int FRAME_COUNT = 256;
+    @Param({"BAR", "WAVY", "CIRCULAR"})
+    public SpectrumType spectrumType;
+    @Param({"800x200", "1920x1080"})
+    public String size;
+    private SpectrumPainter painter;
+    private GraphicsConfiguration graphicsConfiguration;
+    private VolatileImage frame;
+    private float[][] magnitudes;
+    private int width, height;
+    private int next;
+
+    @Setup
+    public void createPainter() {
+        if (GraphicsEnvironment.isHeadless())
+            throw new HeadlessException("Spectrum painters need a display");
+        String[] dimensions = size.split("x");
+        width = Integer.parseInt(dimensions[0]);
+        height = Integer.parseInt(dimensions[1]);
+        Spectrum spectrum = new Spectrum(spectrumType) {
+        };
+        spectrum.setSize(width, height);
+        painter = spectrum.getActivePainter();
+        // frames are rendered by the benchmark only
+        SharedPainterTimer.getInstance().removeAll();
+        magnitudes = SyntheticLibrary.magnitudeStream(spectrumType.ordinal(), FRAME_COUNT, StartupSettings.SPECTRUM_BANDS_NUM, painter.MAX_DECIBELS);
+        graphicsConfiguration = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        frame = graphicsConfiguration.createCompatibleVolatileImage(width, height);
+    }
+
+    @TearDown
+    public void flushFrame() {
+        frame.flush();
+    }
+
+    @Benchmark
+    public VolatileImage renderFrame() {
+        painter.setMagnitudes(magnitudes[next++ & FRAME_COUNT - 1]);
+        painter.tick(1000f / SharedPainterTimer.FPS);
+        if (frame.validate(graphicsConfiguration) == VolatileImage.IMAGE_INCOMPATIBLE)
+            frame = graphicsConfiguration.createCompatibleVolatileImage(width, height);
+        Graphics2D g = frame.createGraphics();
+        try {
+            g.setColor(Color.BLACK);
+            g.fillRect(0, 0, width, height);
+            painter.paint(g, width, height);
+        } finally {
+            g.dispose();
+        }
+        // drawing may only be queued, the frame is done once the pipeline is flushed
+        Toolkit.getDefaultToolkit().sync();
+        return frame;
+    }
+}
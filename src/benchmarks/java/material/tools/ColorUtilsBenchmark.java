@@ -0,0 +1,46 @@
+package material.tools;
+
+import app.benchmarks.SyntheticLibrary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Average colour of an artwork thumbnail and of larger images, in the layout thumbnails use and in plain ints
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorUtilsBenchmark {
+    @Param({"200", "600", "1920"})
+    public int imageSize;
+    @Param({"TYPE_3BYTE_BGR", "TYPE_INT_ARGB"})
+    public String imageType;
+    private BufferedImage image;
+
+    @Setup
+    public void createImage() throws ReflectiveOperationException {
+        int type = BufferedImage.class.getField(imageType).getInt(null);
+        image = SyntheticLibrary.randomImage(imageSize, imageSize, imageSize, type);
+    }
+
+    @Benchmark
+    public Color getAverageColor() {
+        return ColorUtils.getAverageColor(image);
+    }
+}
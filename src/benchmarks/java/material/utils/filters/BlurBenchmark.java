@@ -0,0 +1,111 @@
+package material.utils.filters;
+
+import app.benchmarks.SyntheticLibrary;
+import com.jhlabs.image.GaussianFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ConvolveOp;
+import java.awt.image.Kernel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FastGaussianBlur} and the gaussian of {@link BlurEngine} against the blurs they replaced: the previous box
+ * blur, the averaging loop of GraphicsUtils, jhlabs' GaussianFilter, and a separable {@link ConvolveOp} for
+ * reference. The engine splits large images across cores, the others run on the calling thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlurBenchmark {
+    @Param({"200x200", "800x800", "1920x1080"})
+    public String size;
+    @Param({"5", "20"})
+    public int radius;
+    private BufferedImage source;
+    private BufferedImage destination;
+    private BufferedImage rgbImage;
+    private FastGaussianBlur fastGaussianBlur;
+    private BlurEngine gaussianEngine;
+    private GaussianFilter gaussianFilter;
+    private ConvolveOp horizontalConvolution;
+    private ConvolveOp verticalConvolution;
+    private BufferedImage convolutionTemp;
+
+    @Setup
+    public void createImages() {
+        String[] dimensions = size.split("x");
+        int width = Integer.parseInt(dimensions[0]);
+        int height = Integer.parseInt(dimensions[1]);
+        source = SyntheticLibrary.randomImage(radius, width, height, BufferedImage.TYPE_INT_ARGB);
+        destination = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        rgbImage = SyntheticLibrary.randomImage(radius, width, height, BufferedImage.TYPE_INT_RGB);
+        convolutionTemp = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+        fastGaussianBlur = new FastGaussianBlur(radius);
+        // same spread as a gaussian kernel of the radius, as the spectrum uses it
+        gaussianEngine = BlurEngine.gaussian(radius / 3f, 3);
+        gaussianFilter = new GaussianFilter(radius);
+        float[] kernel = gaussianKernel(radius);
+        horizontalConvolution = new ConvolveOp(new Kernel(kernel.length, 1, kernel), ConvolveOp.EDGE_NO_OP, null);
+        verticalConvolution = new ConvolveOp(new Kernel(1, kernel.length, kernel), ConvolveOp.EDGE_NO_OP, null);
+    }
+
+    private static float[] gaussianKernel(int radius) {
+        float sigma = radius / 3f;
+        float[] kernel = new float[radius * 2 + 1];
+        float sum = 0;
+        for (int i = -radius; i <= radius; i++) {
+            kernel[i + radius] = (float) Math.exp(-(i * i) / (2 * sigma * sigma));
+            sum += kernel[i + radius];
+        }
+        for (int i = 0; i < kernel.length; i++)
+            kernel[i] /= sum;
+        return kernel;
+    }
+
+    @Benchmark
+    public BufferedImage fastGaussianBlur() {
+        return fastGaussianBlur.filter(source, destination);
+    }
+
+    @Benchmark
+    public BufferedImage previousFastGaussianBlur() {
+        return ReferenceBlurs.boxBlur(source, destination, radius);
+    }
+
+    @Benchmark
+    public BufferedImage blurEngineGaussian() {
+        gaussianEngine.filter(source, destination);
+        return destination;
+    }
+
+    @Benchmark
+    public BufferedImage jhlabsGaussianFilter() {
+        return gaussianFilter.filter(source, destination);
+    }
+
+    @Benchmark
+    public BufferedImage convolveOp() {
+        horizontalConvolution.filter(source, convolutionTemp);
+        return verticalConvolution.filter(convolutionTemp, destination);
+    }
+
+    @Benchmark
+    public BufferedImage previousAverageBlur() {
+        return ReferenceBlurs.averageBlur(rgbImage, radius);
+    }
+}
@@ -0,0 +1,172 @@
+package material.utils.filters;
+
+import material.utils.GraphicsUtils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+
+/**
+ * Blurs the app used before {@link BlurEngine}, kept as they were to compare against
+ */
+final class ReferenceBlurs {
+    private ReferenceBlurs() {
+    }
+
+    /**
+     * FastGaussianBlur before it ran on the engine: two new pixel arrays and lookup tables on every call
+     */
+    static BufferedImage boxBlur(BufferedImage src, BufferedImage dst, int radius) {
+        int width = src.getWidth();
+        int height = src.getHeight();
+
+        int[] srcPixels = new int[width * height];
+        int[] dstPixels = new int[width * height];
+
+        GraphicsUtils.getPixels(src, 0, 0, width, height, srcPixels);
+        // horizontal pass
+        blur(srcPixels, dstPixels, width, height, radius);
+        // vertical pass
+        blur(dstPixels, srcPixels, height, width, radius);
+        // the result is now stored in srcPixels due to the 2nd pass
+        GraphicsUtils.setPixels(dst, 0, 0, width, height, srcPixels);
+
+        return dst;
+    }
+
+    private static void blur(int[] srcPixels, int[] dstPixels,
+                             int width, int height, int radius) {
+        final int windowSize = radius * 2 + 1;
+        final int radiusPlusOne = radius + 1;
+
+        int sumAlpha;
+        int sumRed;
+        int sumGreen;
+        int sumBlue;
+
+        int srcIndex = 0;
+        int dstIndex;
+        int pixel;
+
+        int[] sumLookupTable = new int[256 * windowSize];
+        for (int i = 0; i < sumLookupTable.length; i++) {
+            sumLookupTable[i] = i / windowSize;
+        }
+
+        int[] indexLookupTable = new int[radiusPlusOne];
+        if (radius < width) {
+            for (int i = 0; i < indexLookupTable.length; i++) {
+                indexLookupTable[i] = i;
+            }
+        } else {
+            for (int i = 0; i < width; i++) {
+                indexLookupTable[i] = i;
+            }
+            for (int i = width; i < indexLookupTable.length; i++) {
+                indexLookupTable[i] = width - 1;
+            }
+        }
+
+        for (int y = 0; y < height; y++) {
+            sumAlpha = sumRed = sumGreen = sumBlue = 0;
+            dstIndex = y;
+
+            pixel = srcPixels[srcIndex];
+            sumAlpha += radiusPlusOne * ((pixel >> 24) & 0xFF);
+            sumRed   += radiusPlusOne * ((pixel >> 16) & 0xFF);
+            sumGreen += radiusPlusOne * ((pixel >>  8) & 0xFF);
+            sumBlue  += radiusPlusOne * ( pixel        & 0xFF);
+
+            for (int i = 1; i <= radius; i++) {
+                pixel = srcPixels[srcIndex + indexLookupTable[i]];
+                sumAlpha += (pixel >> 24) & 0xFF;
+                sumRed   += (pixel >> 16) & 0xFF;
+                sumGreen += (pixel >>  8) & 0xFF;
+                sumBlue  +=  pixel        & 0xFF;
+            }
+
+            for  (int x = 0; x < width; x++) {
+                dstPixels[dstIndex] = sumLookupTable[sumAlpha] << 24 |
+                        sumLookupTable[sumRed]   << 16 |
+                        sumLookupTable[sumGreen] <<  8 |
+                        sumLookupTable[sumBlue];
+                dstIndex += height;
+
+                int nextPixelIndex = x + radiusPlusOne;
+                if (nextPixelIndex >= width) {
+                    nextPixelIndex = width - 1;
+                }
+
+                int previousPixelIndex = x - radius;
+                if (previousPixelIndex < 0) {
+                    previousPixelIndex = 0;
+                }
+
+                int nextPixel = srcPixels[srcIndex + nextPixelIndex];
+                int previousPixel = srcPixels[srcIndex + previousPixelIndex];
+
+                sumAlpha += (nextPixel     >> 24) & 0xFF;
+                sumAlpha -= (previousPixel >> 24) & 0xFF;
+
+                sumRed += (nextPixel     >> 16) & 0xFF;
+                sumRed -= (previousPixel >> 16) & 0xFF;
+
+                sumGreen += (nextPixel     >> 8) & 0xFF;
+                sumGreen -= (previousPixel >> 8) & 0xFF;
+
+                sumBlue += nextPixel & 0xFF;
+                sumBlue -= previousPixel & 0xFF;
+            }
+
+            srcIndex += width;
+        }
+    }
+
+    /**
+     * GraphicsUtils.blur before it ran on the engine: the average of every pixel's square window, read through the
+     * data buffer. Drawing from and back to the volatile image is left out.
+     *
+     * @param image of type INT_RGB, blurred in place
+     */
+    static BufferedImage averageBlur(BufferedImage image, int blurRadius) {
+        DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int redSum = 0;
+                int greenSum = 0;
+                int blueSum = 0;
+                int pixelCount = 0;
+
+                for (int blurY = -blurRadius; blurY <= blurRadius; blurY++) {
+                    int newY = y + blurY;
+
+                    if (newY >= 0 && newY < image.getHeight()) {
+                        for (int blurX = -blurRadius; blurX <= blurRadius; blurX++) {
+                            int newX = x + blurX;
+
+                            if (newX >= 0 && newX < image.getWidth()) {
+                                int pixel = dataBuffer.getElem(newY * image.getWidth() + newX);
+
+                                int red = (pixel >> 16) & 0xFF;
+                                int green = (pixel >> 8) & 0xFF;
+                                int blue = pixel & 0xFF;
+
+                                redSum += red;
+                                greenSum += green;
+                                blueSum += blue;
+                                pixelCount++;
+                            }
+                        }
+                    }
+                }
+
+                int averagedRed = redSum / pixelCount;
+                int averagedGreen = greenSum / pixelCount;
+                int averagedBlue = blueSum / pixelCount;
+
+                int blurredPixel = (averagedRed << 16) | (averagedGreen << 8) | averagedBlue;
+                dataBuffer.setElem(y * image.getWidth() + x, blurredPixel);
+            }
+        }
+        return image;
+    }
+}
@@ -1,4 +1,112 @@
 package app.audio;
 
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+
+/**
+ * Tracks sharing an album name and artist, built by {@link app.audio.indexer.AudioDataIndexer} while it groups the
+ * library. The tracks are kept in disc and track number order, tracks without a number go after the numbered ones.
+ */
 public class Album {
+    private static final Comparator<AudioData> TRACK_ORDER = Comparator
+            .comparingInt(AudioData::getDiscNumber)
+            .thenComparingInt(audioData -> audioData.getTrackNumber() == 0 ? Integer.MAX_VALUE : audioData.getTrackNumber())
+            .thenComparing(AudioData::getName);
+    private final ArrayList<AudioData> audioData = new ArrayList<>();
+    private final HashSet<AudioData> members = new HashSet<>();
+    private final String name;
+    private final String artist;
+    // both are worked out when next needed after the tracks change
+    private boolean isOrdered = true;
+    private long durationInMs = -1;
+
+    public Album(@NotNull String name, @NotNull String artist) {
+        this.name = name;
+        this.artist = artist;
+    }
+
+    public synchronized void addAudioData(@NotNull AudioData audioData) {
+        if (members.add(audioData)) {
+            this.audioData.add(audioData);
+            isOrdered = false;
+            durationInMs = -1;
+        }
+    }
+
+    public synchronized void removeAudioData(@NotNull AudioData audioData) {
+        if (members.remove(audioData)) {
+            this.audioData.remove(audioData);
+            durationInMs = -1;
+        }
+    }
+
+    /**
+     * @return the tracks in disc and track number order
+     */
+    public synchronized @NotNull ArrayList<AudioData> getAudioDataList() {
+        if (!isOrdered) {
+            audioData.sort(TRACK_ORDER);
+            isOrdered = true;
+        }
+        return new ArrayList<>(audioData);
+    }
+
+    public synchronized int getTrackCount() {
+        return audioData.size();
+    }
+
+    /**
+     * @return total duration of the tracks
+     */
+    public synchronized long getDurationInMs() {
+        if (durationInMs < 0) {
+            long total = 0;
+            for (AudioData track : audioData)
+                total += track.getDurationInMs();
+            durationInMs = total;
+        }
+        return durationInMs;
+    }
+
+    public synchronized boolean isEmpty() {
+        return audioData.isEmpty();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getArtist() {
+        return artist;
+    }
+
+    /**
+     * @return artwork of the first track or null if the album is empty
+     */
+    public @Nullable BufferedImage getArtwork() {
+        ArrayList<AudioData> tracks = getAudioDataList();
+        return tracks.isEmpty() ? null : tracks.get(0).getArtwork();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Album album)) return false;
+        return name.equalsIgnoreCase(album.name) && artist.equalsIgnoreCase(album.artist);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * name.toLowerCase().hashCode() + artist.toLowerCase().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "Album: " + name + "| artist: " + artist;
+    }
 }
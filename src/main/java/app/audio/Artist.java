@@ -9,9 +9,12 @@ import material.utils.StringUtils;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.HashSet;
 
 public class Artist {
     private final ArrayList<AudioData> audioData = new ArrayList<>();
+    // same tracks as audioData, for constant time membership checks
+    private final HashSet<AudioData> members = new HashSet<>();
     private final String name;
     private BufferedImage defaultArtistImage;
     private BufferedImage lastBufferedImage;
@@ -28,21 +31,24 @@ public class Artist {
     }
 
     public void addAudioDataList(ArrayList<AudioData> audioData) {
-        this.audioData.clear();
-        this.audioData.addAll(audioData);
+        removeAllAudioDatas();
+        for (AudioData data : audioData)
+            addAudioData(data);
     }
 
     public void addAudioData(AudioData audioData) {
-        if(!this.audioData.contains(audioData))
+        if (members.add(audioData))
             this.audioData.add(audioData);
     }
 
     public void removeAudioData(AudioData audioData) {
-        this.audioData.remove(audioData);
+        if (members.remove(audioData))
+            this.audioData.remove(audioData);
     }
 
     public void removeAllAudioDatas() {
         audioData.clear();
+        members.clear();
     }
 
     public String getName() {
@@ -59,7 +65,7 @@ public class Artist {
                         images[i] = audioData.get(i).getArtwork();
                     }
 
-                    lastBufferedImage = GraphicsUtils.imageMerger(ArtworkManager.getInstance().getArtworkSize().getWidthInt(),images);
+                    lastBufferedImage = GraphicsUtils.imageMerger(ArtworkManager.getInstance().getArtworkSize(),images);
                 }
                 return lastBufferedImage;
             }
@@ -1,6 +1,9 @@
 package app.audio;
 
+import app.audio.format.AudioFormatRegistry;
+import app.audio.format.AudioMetadata;
 import app.audio.indexer.ArtworkManager;
+import app.local.cache.FileCacheManager;
 import app.settings.StartupSettings;
 import org.jaudiotagger.audio.AudioHeader;
 import org.jaudiotagger.audio.mp3.MP3AudioHeader;
@@ -8,6 +11,7 @@ import org.jaudiotagger.tag.FieldKey;
 import org.jaudiotagger.tag.Tag;
 import org.jaudiotagger.tag.datatype.Artwork;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import material.utils.Log;
 import material.utils.StringUtils;
 
@@ -18,7 +22,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Locale;
-import java.util.Objects;
+import java.util.function.BiConsumer;
 
 /**
  * AudioData class used for storing and getting necessary data used by app.main.Quartz Project
@@ -26,23 +30,111 @@ import java.util.Objects;
 
 
 public final class AudioData implements Serializable, Comparable<AudioData> {
-    private @NotNull File file;
-    private @NotNull String name;
-    private @NotNull String[] artists;
-    private @NotNull String artistsConcatenated;
-    private @NotNull String album;
-    private @NotNull String folderPath;
-    private long durationInMs;
-    private boolean isFavorite;
-    private boolean isBroken = false;
-    private ArrayList<Playlist> playlists;
+    private static final double REFERENCE_LOUDNESS = -18; // ReplayGain 2.0 reference level in LUFS
+    // Id in the TrackStore, the fields are then held by the store and this is only a view of them
+    private final int trackId;
+    private final @Nullable Fields fields;
+
+    /**
+     * Data of a track when the columnar {@link TrackStore} is disabled
+     */
+    private static final class Fields implements Serializable {
+        private @NotNull File file;
+        private @NotNull String name;
+        private @NotNull String[] artists;
+        private @NotNull String artistsConcatenated;
+        private @NotNull String album;
+        private @NotNull String folderPath;
+        private long durationInMs;
+        private int trackNumber;
+        private int discNumber;
+        private boolean isFavorite;
+        private boolean isBroken = false;
+        private ArrayList<Playlist> playlists;
+        private double integratedLoudness = Double.NaN;
+        private double truePeak = Double.NaN;
+
+        private Fields(@NotNull File file) {
+            this.file = file;
+            this.folderPath = file.getParentFile().getAbsolutePath();
+        }
+    }
 
     public AudioData(@NotNull File file) {
-        this.file = file;
-        this.folderPath = file.getParentFile().getAbsolutePath();
+        this(file, ArtworkManager.getInstance()::registerThumbnail);
+    }
+
+    /**
+     * @param artworkConsumer receives the embedded artwork once the track is created, null if the file has none
+     */
+    public AudioData(@NotNull File file, @NotNull BiConsumer<AudioData, byte[]> artworkConsumer) {
+        // tags are read into fields, which are moved to the store afterwards if it's enabled
+        Fields fields = new Fields(file.getAbsoluteFile());
+        AudioMetadata metadata = AudioFormatRegistry.getInstance().readMetadata(file);
+        byte[] artwork = metadata != null ? applyMetadata(fields, metadata) : readTagsWithJAudioTagger(fields);
+
+        if (TrackStore.isEnabled()) {
+            trackId = TrackStore.getInstance().add(fields.file, fields.name, fields.artistsConcatenated, fields.album, fields.durationInMs, fields.trackNumber, fields.discNumber);
+            this.fields = null;
+        } else {
+            trackId = -1;
+            this.fields = fields;
+        }
+        artworkConsumer.accept(this, artwork);
+    }
+
+    /**
+     * Restores a track from the tags cached by the last search, the file isn't read. The thumbnail must have been
+     * loaded by {@link ArtworkManager#loadThumbnail} first.
+     */
+    public AudioData(@NotNull File file, @NotNull FileCacheManager.CachedTrack cachedTrack) {
+        Fields fields = new Fields(file.getAbsoluteFile());
+        fields.name = cachedTrack.getTitle();
+        fields.artistsConcatenated = cachedTrack.getArtists();
+        fields.artists = fields.artistsConcatenated.split("/");
+        fields.album = cachedTrack.getAlbum();
+        fields.durationInMs = cachedTrack.getDurationInMs();
+        fields.trackNumber = cachedTrack.getTrackNumber();
+        fields.discNumber = cachedTrack.getDiscNumber();
+
+        if (TrackStore.isEnabled()) {
+            trackId = TrackStore.getInstance().add(fields.file, fields.name, fields.artistsConcatenated, fields.album, fields.durationInMs, fields.trackNumber, fields.discNumber);
+            this.fields = null;
+        } else {
+            trackId = -1;
+            this.fields = fields;
+        }
+        ArtworkManager.getInstance().setThumbnail(this, cachedTrack.getArtworkHash());
+    }
+
+    /**
+     * Applies metadata read by the fast {@link AudioFormatRegistry} path
+     *
+     * @return the embedded artwork
+     */
+    private static byte @Nullable [] applyMetadata(@NotNull Fields fields, @NotNull AudioMetadata metadata) {
+        fields.durationInMs = metadata.getDurationInMs();
+        fields.trackNumber = metadata.getTrackNumber();
+        fields.discNumber = metadata.getDiscNumber();
+        if (!metadata.hasTags()) {
+            applyDefaultTags(fields);
+            return null;
+        }
+        fields.name = formatStringData(metadata.getTitle());
+        fields.artistsConcatenated = formatStringData(metadata.getArtist());
+        fields.artists = fields.artistsConcatenated.split("/");
+        fields.album = formatStringData(metadata.getAlbum());
+        return metadata.readArtwork(fields.file);
+    }
 
+    /**
+     * Slow path used for files which no {@link app.audio.format.AudioFormatProbe} can parse
+     *
+     * @return the embedded artwork
+     */
+    private static byte @Nullable [] readTagsWithJAudioTagger(@NotNull Fields fields) {
         try {
-            AudioHeader audioHeader = MP3Tools.getAudioHeader(file);
+            AudioHeader audioHeader = MP3Tools.getAudioHeader(fields.file);
             if (audioHeader != null) {
                 double durationInSecs;
                 if (audioHeader instanceof MP3AudioHeader) {
@@ -50,38 +142,35 @@ public final class AudioData implements Serializable, Comparable<AudioData> {
                 } else {
                     durationInSecs = audioHeader.getTrackLength();
                 }
-                durationInMs = (long) Math.floor(durationInSecs * 1000);
+                fields.durationInMs = (long) Math.floor(durationInSecs * 1000);
             }
 
-            Tag tag = MP3Tools.getTag(file);
+            Tag tag = MP3Tools.getTag(fields.file);
             if (tag != null) {
-                name = formatStringData(tag.getFirst(FieldKey.TITLE));
-                artistsConcatenated = formatStringData(tag.getFirst(FieldKey.ARTIST));
-                artists = artistsConcatenated.split("/");
+                fields.name = formatStringData(tag.getFirst(FieldKey.TITLE));
+                fields.artistsConcatenated = formatStringData(tag.getFirst(FieldKey.ARTIST));
+                fields.artists = fields.artistsConcatenated.split("/");
 
-                album = formatStringData(tag.getFirst(FieldKey.ALBUM));
+                fields.album = formatStringData(tag.getFirst(FieldKey.ALBUM));
+                fields.trackNumber = AudioMetadata.parsePosition(tag.getFirst(FieldKey.TRACK));
+                fields.discNumber = AudioMetadata.parsePosition(tag.getFirst(FieldKey.DISC_NO));
                 Artwork artwork = tag.getFirstArtwork();
-                if (artwork != null)
-                    ArtworkManager.getInstance().registerThumbnail(this, artwork.getBinaryData());
-                else
-                    ArtworkManager.getInstance().registerThumbnail(this, null);
-
+                return artwork != null ? artwork.getBinaryData() : null;
             } else {
-                applyDefaultTags();
+                applyDefaultTags(fields);
             }
         } catch (Exception e) {
             //Set everything to defaults if any exception occurs
-            applyDefaultTags();
+            applyDefaultTags(fields);
             Log.error(e);
         }
-
+        return null;
     }
 
-    private void applyDefaultTags() {
-        name = StringUtils.removeFileExtension(file.getName(), true);
-        artists = new String[]{"Unknown"};
-        artistsConcatenated = album = "Unknown";
-        ArtworkManager.getInstance().registerThumbnail(this, null);
+    private static void applyDefaultTags(Fields fields) {
+        fields.name = StringUtils.removeFileExtension(fields.file.getName(), true);
+        fields.artists = new String[]{"Unknown"};
+        fields.artistsConcatenated = fields.album = "Unknown";
     }
 
     private static String formatStringData(String s) {
@@ -91,21 +180,26 @@ public final class AudioData implements Serializable, Comparable<AudioData> {
             return s;
     }
 
+    /**
+     * Two tracks are equal if they're the same file
+     */
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         AudioData that = (AudioData) o;
-        return file.getPath().equals(that.file.getPath()) || (Double.compare(that.durationInMs, durationInMs) == 0 && name.equals(that.name) && artists.equals(that.artists));
+        if (fields == null && that.fields == null)
+            return TrackStore.getInstance().isSameFile(trackId, that.trackId);
+        return getFile().getPath().equals(that.getFile().getPath());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(file, name, artistsConcatenated, durationInMs);
+        return fields != null ? fields.file.getPath().hashCode() : TrackStore.getInstance().fileHashCode(trackId);
     }
 
     public boolean containsString(String s) {
-        return name.toLowerCase(Locale.ROOT).contains(s) || artistsConcatenated.toLowerCase(Locale.ROOT).contains(s);
+        return getName().toLowerCase(Locale.ROOT).contains(s) || getArtistsConcatenated().toLowerCase(Locale.ROOT).contains(s);
     }
 
     @Override
@@ -117,13 +211,13 @@ public final class AudioData implements Serializable, Comparable<AudioData> {
                 Artist: %s
                 Path: %s
                 ---------------------------------------------------------------------------------------------------
-                """).formatted(name, durationInMs, artists, getFile().getPath());
+                """).formatted(getName(), getDurationInMs(), getArtistsConcatenated(), getFile().getPath());
     }
 
     public static boolean isValidAudio(Path path) {
-        boolean isMP3 = path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".mp3");
+        boolean isSupported = AudioFormatRegistry.getInstance().isSupported(path.getFileName().toString());
         boolean isValidSize = false;
-        if (isMP3) {
+        if (isSupported) {
             try {
                 isValidSize = Files.size(path) > StartupSettings.MINIMUM_FILE_SIZE;
             } catch (Exception e) {
@@ -131,117 +225,196 @@ public final class AudioData implements Serializable, Comparable<AudioData> {
                 e.printStackTrace();
             }
         }
-        return isMP3 && isValidSize;
+        return isSupported && isValidSize;
     }
 
     //
     //SETTERS
     //
     public void setDurationInMs(double durationInMs) {
-        setDurationInMs(Math.floor(durationInMs));
+        setDurationInMs((long) Math.floor(durationInMs));
     }
 
     public void setDurationInMs(long durationInMs) {
-        this.durationInMs = (long) durationInMs;
+        if (fields != null)
+            fields.durationInMs = durationInMs;
+        else
+            TrackStore.getInstance().setDurationInMs(trackId, durationInMs);
     }
 
     public void setFile(@NotNull File file) {
-        this.file = file;
+        if (fields != null)
+            fields.file = file;
+        else
+            TrackStore.getInstance().setFile(trackId, file);
     }
 
     public void setName(@NotNull String name) {
-        this.name = name;
+        if (fields != null)
+            fields.name = name;
+        else
+            TrackStore.getInstance().setTitle(trackId, name);
     }
 
     public void setArtists(@NotNull String[] artists) {
-        this.artists = artists;
+        if (fields != null)
+            fields.artists = artists;
+        else
+            TrackStore.getInstance().setArtists(trackId, artists);
     }
 
     public void setAlbum(@NotNull String album) {
-        this.album = album;
+        if (fields != null)
+            fields.album = album;
+        else
+            TrackStore.getInstance().setAlbum(trackId, album);
     }
 
     public void setFavorite(boolean favorite) {
-        isFavorite = favorite;
+        if (fields != null)
+            fields.isFavorite = favorite;
+        else
+            TrackStore.getInstance().setFavorite(trackId, favorite);
     }
 
     public void setPlaylists(ArrayList<Playlist> playlists) {
-        this.playlists = playlists;
+        if (fields != null)
+            fields.playlists = playlists;
+        else
+            TrackStore.getInstance().setPlaylists(trackId, playlists);
     }
 
     //
     // GETTERS
     //
     public @NotNull BufferedImage getArtwork() {
-//        Tag tag = MP3Tools.getTag(file);
-//        return tag != null ? tag.getFirstArtwork() != null ? tag.getFirstArtwork().getBinaryData() : null : null;
         return ArtworkManager.getInstance().getArtwork(this);
     }
 
     public @NotNull File getFile() {
-        return file;
+        return fields != null ? fields.file : TrackStore.getInstance().getFile(trackId);
     }
 
     public @NotNull String getName() {
-        return name;
+        return fields != null ? fields.name : TrackStore.getInstance().getTitle(trackId);
     }
 
     public @NotNull String[] getArtists() {
-        return artists;
+        return fields != null ? fields.artists : TrackStore.getInstance().getArtists(trackId);
     }
 
     public @NotNull String getArtistsConcatenated() {
-        return artistsConcatenated;
+        return fields != null ? fields.artistsConcatenated : TrackStore.getInstance().getArtistsConcatenated(trackId);
     }
 
     public @NotNull String getAlbum() {
-        return album;
+        return fields != null ? fields.album : TrackStore.getInstance().getAlbum(trackId);
     }
 
-    public @NotNull long getDurationInMs() {
-        return durationInMs;
+    public long getDurationInMs() {
+        return fields != null ? fields.durationInMs : TrackStore.getInstance().getDurationInMs(trackId);
     }
 
+    /**
+     * @return number of the track on its disc, 0 if unknown
+     */
+    public int getTrackNumber() {
+        return fields != null ? fields.trackNumber : TrackStore.getInstance().getTrackNumber(trackId);
+    }
+
+    /**
+     * @return number of the disc the track is on, 0 if unknown
+     */
+    public int getDiscNumber() {
+        return fields != null ? fields.discNumber : TrackStore.getInstance().getDiscNumber(trackId);
+    }
 
     public boolean isFavorite() {
-        return isFavorite;
+        return fields != null ? fields.isFavorite : TrackStore.getInstance().isFavorite(trackId);
     }
 
     public ArrayList<Playlist> getPlaylists() {
-        return playlists;
-    }
-//
-//    public static @NotNull BufferedImage getDefaultArtwork() {
-//        if (artworkAltImageData == null) {
-//            try {
-//                BufferedImage artworkAltImage = ImageIO.read(Objects.requireNonNull(AudioData.class.getClassLoader().getResource("images/artwork.jpg"), "Artwork.jpg not found"));
-//                artworkAltImageData = GraphicsUtils.resize(artworkAltImage, artworkSize,artworkSize);
-//            } catch (Exception e) {
-//                Log.error(e.toString());
-//                artworkAltImageData = new BufferedImage(artworkSize,artworkSize,BufferedImage.TYPE_INT_RGB);
-//            }
-//        }
-//        return artworkAltImageData;
-//    }
+        return fields != null ? fields.playlists : TrackStore.getInstance().getPlaylists(trackId);
+    }
+
+    /**
+     * Marks the track removed in the {@link TrackStore}, called by the indexer once the track is removed from the
+     * library. The view stays valid for whoever still holds it.
+     */
+    public void removeFromStore() {
+        if (fields == null)
+            TrackStore.getInstance().remove(trackId);
+    }
+
+    /**
+     * @return id of the track in the {@link TrackStore}, -1 if the store is disabled
+     */
+    public int getTrackId() {
+        return trackId;
+    }
 
     @Override
     public int compareTo(@NotNull AudioData o) {
-        return file.getPath().compareTo(o.getFile().getPath());
+        return getFile().getPath().compareTo(o.getFile().getPath());
     }
 
     public void setBroken(boolean broken) {
-        isBroken = broken;
+        if (fields != null)
+            fields.isBroken = broken;
+        else
+            TrackStore.getInstance().setBroken(trackId, broken);
     }
 
     public String getFolderPath() {
-        return folderPath;
+        return fields != null ? fields.folderPath : TrackStore.getInstance().getFolderPath(trackId);
     }
 
     public void setFolderPath(String folderPath) {
-        this.folderPath = folderPath;
+        if (fields != null)
+            fields.folderPath = folderPath;
+        else
+            TrackStore.getInstance().setFolderPath(trackId, folderPath);
     }
 
     public boolean isBroken() {
-        return isBroken;
+        return fields != null ? fields.isBroken : TrackStore.getInstance().isBroken(trackId);
+    }
+
+    public void setLoudness(double integratedLoudness, double truePeak) {
+        if (fields != null) {
+            fields.integratedLoudness = integratedLoudness;
+            fields.truePeak = truePeak;
+        } else
+            TrackStore.getInstance().setLoudness(trackId, integratedLoudness, truePeak);
+    }
+
+    /**
+     * @return integrated loudness in LUFS, NaN if it hasn't been analyzed yet
+     */
+    public double getIntegratedLoudness() {
+        return fields != null ? fields.integratedLoudness : TrackStore.getInstance().getIntegratedLoudness(trackId);
+    }
+
+    /**
+     * @return linear true peak, NaN if it hasn't been analyzed yet
+     */
+    public double getTruePeak() {
+        return fields != null ? fields.truePeak : TrackStore.getInstance().getTruePeak(trackId);
+    }
+
+    /**
+     * Linear gain that brings this audio to the reference loudness without pushing its true peak above full scale
+     *
+     * @return 1 if the loudness hasn't been analyzed yet
+     */
+    public double getReplayGain() {
+        double integratedLoudness = getIntegratedLoudness();
+        if (!Double.isFinite(integratedLoudness))
+            return 1;
+        double gain = Math.pow(10, (REFERENCE_LOUDNESS - integratedLoudness) / 20);
+        double truePeak = getTruePeak();
+        if (truePeak > 0)
+            gain = Math.min(gain, 1 / truePeak);
+        return gain;
     }
-}
\ No newline at end of file
+}
@@ -1,13 +1,22 @@
 package app.audio;
 
 import material.utils.Log;
+import material.utils.OsInfo;
 import material.utils.StringUtils;
+import material.utils.enums.OsType;
+import org.jetbrains.annotations.NotNull;
 
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Locale;
 
 public class Folder {
+    // Windows and macOS file systems ignore case by default, elsewhere /music/Rock and /music/rock are two folders
+    private static final boolean IS_CASE_INSENSITIVE = OsInfo.getOsType() == OsType.WINDOWS || OsInfo.getOsType() == OsType.MAC;
     private final ArrayList<AudioData> audioData = new ArrayList<>();
+    // same tracks as audioData, for constant time membership checks
+    private final HashSet<AudioData> members = new HashSet<>();
     private final String name;
     private final String path;
     private BufferedImage defaultArtistImage;
@@ -21,27 +30,44 @@ public class Folder {
         Log.info("Folder created path:"+path + "|name: " + name);
     }
 
+    /**
+     * @return the key folders are told apart by, the path itself unless the file system ignores case
+     */
+    public static @NotNull String pathKey(@NotNull String folderPath) {
+        return IS_CASE_INSENSITIVE ? folderPath.toLowerCase(Locale.ROOT) : folderPath;
+    }
+
     public ArrayList<AudioData> getAudioDatas() {
 //        Log.info(name +":\n" + audioData);
         return audioData;//I know its modifiable so don't modify it plzz
     }
 
     public void setAudioDatas(ArrayList<AudioData> audioData) {
-        this.audioData.clear();
-        this.audioData.addAll(audioData.stream().filter((audio)->name.equals(audio.getFile().getParent())).toList());
+        removeAllAudioDatas();
+        for (AudioData audio : audioData)
+            addAudioData(audio);
     }
 
+    /**
+     * Adds a track listed under this folder, a track of another folder is refused with a warning
+     */
     public void addAudioData(AudioData audioData) {
-        if(!this.audioData.contains(audioData) && path.equals(audioData.getFolderPath()))
+        if (!pathKey(path).equals(pathKey(audioData.getFolderPath()))) {
+            Log.warn("Not adding " + audioData.getFile() + " to folder " + path + ", it's listed under " + audioData.getFolderPath());
+            return;
+        }
+        if (members.add(audioData))
             this.audioData.add(audioData);
     }
 
     public void removeAudioData(AudioData audioData) {
-        this.audioData.remove(audioData);
+        if (members.remove(audioData))
+            this.audioData.remove(audioData);
     }
 
     public void removeAllAudioDatas() {
         audioData.clear();
+        members.clear();
     }
 
     public String getName() {
@@ -61,7 +87,7 @@ public class Folder {
 //                        images[i] = audioData.get(i).getArtwork();
 //                    }
 //
-//                    lastBufferedImage = GraphicsUtils.imageMerger(ArtworkManager.getInstance().getArtworkSize().getWidth(),images);
+//                    lastBufferedImage = GraphicsUtils.imageMerger(ArtworkManager.getInstance().getArtworkSize(),images);
 //                }
 //                return lastBufferedImage;
 //            }
@@ -0,0 +1,89 @@
+package app.audio;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Metadata read by {@link MP3HeaderReader}. Artwork is not loaded, only its position in the file is stored
+ * so that it can be read later with a single positional read.
+ */
+public final class MP3Header {
+    private final @Nullable String title;
+    private final @Nullable String artist;
+    private final @Nullable String album;
+    private final long artworkOffset;
+    private final int artworkLength;
+    private final long durationInMs;
+    private final int trackNumber;
+    private final int discNumber;
+
+    MP3Header(@Nullable String title, @Nullable String artist, @Nullable String album, long artworkOffset, int artworkLength, long durationInMs, int trackNumber, int discNumber) {
+        this.title = title;
+        this.artist = artist;
+        this.album = album;
+        this.artworkOffset = artworkOffset;
+        this.artworkLength = artworkLength;
+        this.durationInMs = durationInMs;
+        this.trackNumber = trackNumber;
+        this.discNumber = discNumber;
+    }
+
+    public @Nullable String getTitle() {
+        return title;
+    }
+
+    public @Nullable String getArtist() {
+        return artist;
+    }
+
+    public @Nullable String getAlbum() {
+        return album;
+    }
+
+    /**
+     * @return byte offset of the picture data of the first APIC frame or -1 if the file has no artwork
+     */
+    public long getArtworkOffset() {
+        return artworkOffset;
+    }
+
+    public int getArtworkLength() {
+        return artworkLength;
+    }
+
+    public boolean hasArtwork() {
+        return artworkOffset >= 0 && artworkLength > 0;
+    }
+
+    public long getDurationInMs() {
+        return durationInMs;
+    }
+
+    /**
+     * @return TRCK or the ID3v1.1 track number, 0 if unknown
+     */
+    public int getTrackNumber() {
+        return trackNumber;
+    }
+
+    /**
+     * @return TPOS, 0 if unknown
+     */
+    public int getDiscNumber() {
+        return discNumber;
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "MP3Header{" +
+                "title='" + title + '\'' +
+                ", artist='" + artist + '\'' +
+                ", album='" + album + '\'' +
+                ", artworkOffset=" + artworkOffset +
+                ", artworkLength=" + artworkLength +
+                ", durationInMs=" + durationInMs +
+                ", trackNumber=" + trackNumber +
+                ", discNumber=" + discNumber +
+                '}';
+    }
+}
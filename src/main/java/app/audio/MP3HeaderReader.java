@@ -0,0 +1,333 @@
+package app.audio;
+
+import app.audio.format.AudioMetadata;
+import material.utils.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Fast path for reading the metadata of an mp3 file. Only the ID3v2 tag region (without the picture data),
+ * the first audio frame and the ID3v1 trailer are read. Duration is taken from the Xing/Info or VBRI header
+ * of the first frame and estimated from the bitrate for CBR files, so no audio frames are scanned.
+ * <p>
+ * Files that can't be handled here (unsynchronised tags, ID3v2.2, missing frame sync...) return null and
+ * should be read with {@link MP3Tools} instead.
+ */
+public final class MP3HeaderReader {
+    private static final int WINDOW_SIZE = 64 * 1024;
+    private static final int MAX_SYNC_SEARCH = 64 * 1024;
+    private static final int MAX_ARTWORK_SIZE = 16 * 1024 * 1024;
+    private static final int APIC_DESCRIPTOR_SIZE = 512;
+    private static final int ID3V1_SIZE = 128;
+
+    private static final int[][] BITRATES = {
+            {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448}, // MPEG 1 Layer I
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},    // MPEG 1 Layer II
+            {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},     // MPEG 1 Layer III
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},    // MPEG 2/2.5 Layer I
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}          // MPEG 2/2.5 Layer II & III
+    };
+    private static final int[][] SAMPLE_RATES = {
+            {11025, 12000, 8000},  // MPEG 2.5
+            {0, 0, 0},             // reserved
+            {22050, 24000, 16000}, // MPEG 2
+            {44100, 48000, 32000}  // MPEG 1
+    };
+
+    private MP3HeaderReader() {
+    }
+
+    /**
+     * @return header of the file or null if the file is malformed or uses a layout this reader doesn't support
+     */
+    public static @Nullable MP3Header read(@NotNull File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return read(channel);
+        } catch (Exception e) {
+            Log.warn("Fast header read failed for " + file + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads the picture data located by {@link #read(File)}
+     */
+    public static byte @Nullable [] readArtwork(@NotNull File file, @NotNull MP3Header header) {
+        if (!header.hasArtwork() || header.getArtworkLength() > MAX_ARTWORK_SIZE)
+            return null;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(header.getArtworkLength());
+            if (readFully(channel, buffer, header.getArtworkOffset()) != header.getArtworkLength())
+                return null;
+            return buffer.array();
+        } catch (IOException e) {
+            Log.error("Couldn't read artwork of " + file + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Same as {@link #read(File)} on an already opened channel, IO errors are left to the caller
+     */
+    public static @Nullable MP3Header read(@NotNull FileChannel channel) throws IOException {
+        final long fileSize = channel.size();
+        ByteBuffer window = ByteBuffer.allocate((int) Math.min(WINDOW_SIZE, fileSize));
+        readFully(channel, window, 0);
+        window.flip();
+        if (window.remaining() < 10)
+            return null;
+
+        TagFields fields = new TagFields();
+        long audioStart = 0;
+
+        if (window.get(0) == 'I' && window.get(1) == 'D' && window.get(2) == '3') {
+            int majorVersion = window.get(3);
+            int flags = window.get(5) & 0xFF;
+            int tagSize = synchsafe(window, 6);
+            if (tagSize < 0 || (majorVersion != 3 && majorVersion != 4) || (flags & 0x80) != 0)
+                return null; // ID3v2.2 or unsynchronised tag
+            long tagEnd = 10L + tagSize;
+            if ((flags & 0x10) != 0)
+                tagEnd += 10; // v2.4 footer
+            audioStart = tagEnd;
+
+            long pos = 10;
+            if ((flags & 0x40) != 0) {
+                int extSize = majorVersion == 4 ? synchsafe(window, 10) : window.getInt(10) + 4;
+                if (extSize < 0)
+                    return null;
+                pos += extSize;
+            }
+            readFrames(channel, window, majorVersion, pos, 10L + tagSize, fields);
+        }
+
+        // ID3v1 trailer, used both for tag fallback and to exclude it from the audio size
+        long audioEnd = fileSize;
+        if (fileSize > ID3V1_SIZE) {
+            ByteBuffer trailer = ByteBuffer.allocate(ID3V1_SIZE);
+            if (readFully(channel, trailer, fileSize - ID3V1_SIZE) == ID3V1_SIZE
+                    && trailer.get(0) == 'T' && trailer.get(1) == 'A' && trailer.get(2) == 'G') {
+                audioEnd -= ID3V1_SIZE;
+                if (fields.title == null)
+                    fields.title = latin1(trailer, 3, 30);
+                if (fields.artist == null)
+                    fields.artist = latin1(trailer, 33, 30);
+                if (fields.album == null)
+                    fields.album = latin1(trailer, 63, 30);
+                // ID3v1.1 keeps the track number in the last byte of a zero terminated comment
+                if (fields.trackNumber == 0 && trailer.get(125) == 0)
+                    fields.trackNumber = trailer.get(126) & 0xFF;
+            }
+        }
+
+        long durationMs = readDuration(channel, window, audioStart, audioEnd);
+        if (durationMs <= 0)
+            return null;
+        return new MP3Header(fields.title, fields.artist, fields.album, fields.artworkOffset, fields.artworkLength, durationMs, fields.trackNumber, fields.discNumber);
+    }
+
+    private static void readFrames(FileChannel channel, ByteBuffer window, int majorVersion, long pos, long tagEnd, TagFields fields) throws IOException {
+        long windowStart = 0;
+        while (pos + 10 <= tagEnd && !fields.isComplete()) {
+            if (pos < windowStart || pos + 10 > windowStart + window.limit()) {
+                windowStart = refill(channel, window, pos);
+                if (window.limit() < 10)
+                    return;
+            }
+            int i = (int) (pos - windowStart);
+            if (window.get(i) == 0)
+                return; // padding
+            String id = latin1(window, i, 4);
+            int size = majorVersion == 4 ? synchsafe(window, i + 4) : window.getInt(i + 4);
+            int formatFlags = window.get(i + 9) & 0xFF;
+            long dataStart = pos + 10;
+            if (size <= 0 || dataStart + size > tagEnd)
+                return;
+
+            boolean isEncoded = majorVersion == 4 ? (formatFlags & 0x0F) != 0 : (formatFlags & 0xE0) != 0;
+            if (!isEncoded) {
+                switch (id) {
+                    case "TIT2", "TPE1", "TALB", "TRCK", "TPOS" -> {
+                        if (dataStart + size > windowStart + window.limit())
+                            windowStart = refill(channel, window, dataStart);
+                        int offset = (int) (dataStart - windowStart);
+                        String value = decodeText(window, offset, Math.min(size, window.limit() - offset));
+                        switch (id) {
+                            case "TIT2" -> fields.title = value;
+                            case "TPE1" -> fields.artist = value;
+                            case "TALB" -> fields.album = value;
+                            case "TRCK" -> fields.trackNumber = AudioMetadata.parsePosition(value);
+                            default -> fields.discNumber = AudioMetadata.parsePosition(value);
+                        }
+                    }
+                    case "APIC" -> {
+                        if (fields.artworkOffset < 0) {
+                            int descriptorSize = Math.min(size, APIC_DESCRIPTOR_SIZE);
+                            if (dataStart + descriptorSize > windowStart + window.limit())
+                                windowStart = refill(channel, window, dataStart);
+                            int offset = (int) (dataStart - windowStart);
+                            int skipped = pictureDataStart(window, offset, Math.min(descriptorSize, window.limit() - offset));
+                            if (skipped > 0 && skipped < size) {
+                                fields.artworkOffset = dataStart + skipped;
+                                fields.artworkLength = size - skipped;
+                            }
+                        }
+                    }
+                }
+            }
+            pos = dataStart + size;
+        }
+    }
+
+    /**
+     * Finds the first valid MPEG audio frame after the tag and calculates the duration from its Xing/Info/VBRI
+     * header, or from the bitrate if the file is CBR.
+     */
+    private static long readDuration(FileChannel channel, ByteBuffer window, long audioStart, long audioEnd) throws IOException {
+        long windowStart = refill(channel, window, audioStart);
+        int searchLimit = Math.min(window.limit() - 4, MAX_SYNC_SEARCH);
+        for (int i = 0; i < searchLimit; i++) {
+            if ((window.get(i) & 0xFF) != 0xFF || (window.get(i + 1) & 0xE0) != 0xE0)
+                continue;
+            int b1 = window.get(i + 1) & 0xFF;
+            int b2 = window.get(i + 2) & 0xFF;
+            int b3 = window.get(i + 3) & 0xFF;
+
+            int versionBits = (b1 >> 3) & 3;
+            int layerBits = (b1 >> 1) & 3;
+            int bitrateIndex = (b2 >> 4) & 0xF;
+            int sampleRateIndex = (b2 >> 2) & 3;
+            if (versionBits == 1 || layerBits == 0 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3)
+                continue;
+
+            boolean isMpeg1 = versionBits == 3;
+            int layer = 4 - layerBits;
+            int bitrate = BITRATES[isMpeg1 ? layer - 1 : (layer == 1 ? 3 : 4)][bitrateIndex] * 1000;
+            int sampleRate = SAMPLE_RATES[versionBits][sampleRateIndex];
+            int samplesPerFrame = layer == 1 ? 384 : (layer == 3 && !isMpeg1 ? 576 : 1152);
+            int padding = (b2 >> 1) & 1;
+            int frameLength = layer == 1
+                    ? (12 * bitrate / sampleRate + padding) * 4
+                    : samplesPerFrame / 8 * bitrate / sampleRate + padding;
+
+            // Require the next frame to sync too, otherwise this was a false sync inside garbage data
+            int next = i + frameLength;
+            if (next + 1 < window.limit() && ((window.get(next) & 0xFF) != 0xFF || (window.get(next + 1) & 0xE0) != 0xE0))
+                continue;
+
+            boolean isMono = ((b3 >> 6) & 3) == 3;
+            int xingOffset = i + 4 + (isMpeg1 ? (isMono ? 17 : 32) : (isMono ? 9 : 17));
+            long frames = -1;
+            if (xingOffset + 12 <= window.limit()) {
+                String xingId = latin1(window, xingOffset, 4);
+                if (xingId.equals("Xing") || xingId.equals("Info")) {
+                    int xingFlags = window.getInt(xingOffset + 4);
+                    if ((xingFlags & 1) != 0)
+                        frames = window.getInt(xingOffset + 8) & 0xFFFFFFFFL;
+                }
+            }
+            int vbriOffset = i + 36;
+            if (frames < 0 && vbriOffset + 18 <= window.limit() && latin1(window, vbriOffset, 4).equals("VBRI"))
+                frames = window.getInt(vbriOffset + 14) & 0xFFFFFFFFL;
+
+            if (frames > 0)
+                return frames * samplesPerFrame * 1000 / sampleRate;
+
+            long audioBytes = audioEnd - (windowStart + i);
+            return audioBytes * 8 * 1000 / bitrate;
+        }
+        return -1;
+    }
+
+    /**
+     * @return number of bytes before the picture data in an APIC frame, or -1 if the descriptor doesn't fit
+     */
+    private static int pictureDataStart(ByteBuffer buffer, int offset, int length) {
+        int end = offset + length;
+        int encoding = buffer.get(offset);
+        int i = offset + 1;
+        while (i < end && buffer.get(i) != 0) i++; // MIME type
+        i += 2; // null terminator and picture type
+        if (encoding == 1 || encoding == 2) {
+            while (i + 1 < end && (buffer.get(i) != 0 || buffer.get(i + 1) != 0)) i += 2;
+            i += 2;
+        } else {
+            while (i < end && buffer.get(i) != 0) i++;
+            i += 1;
+        }
+        return i <= end ? i - offset : -1;
+    }
+
+    private static @Nullable String decodeText(ByteBuffer buffer, int offset, int length) {
+        if (length <= 1 || offset + length > buffer.limit())
+            return null;
+        Charset charset = switch (buffer.get(offset)) {
+            case 1 -> StandardCharsets.UTF_16;
+            case 2 -> StandardCharsets.UTF_16BE;
+            case 3 -> StandardCharsets.UTF_8;
+            default -> StandardCharsets.ISO_8859_1;
+        };
+        String value = new String(buffer.array(), buffer.arrayOffset() + offset + 1, length - 1, charset);
+        // v2.4 separates multiple values with null characters
+        value = value.replaceAll("\u0000+$", "").replace('\u0000', '/').strip();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static @NotNull String latin1(ByteBuffer buffer, int offset, int length) {
+        String value = new String(buffer.array(), buffer.arrayOffset() + offset, length, StandardCharsets.ISO_8859_1);
+        int nul = value.indexOf('\u0000');
+        if (nul >= 0)
+            value = value.substring(0, nul);
+        return value.strip();
+    }
+
+    private static int synchsafe(ByteBuffer buffer, int offset) {
+        int b0 = buffer.get(offset), b1 = buffer.get(offset + 1), b2 = buffer.get(offset + 2), b3 = buffer.get(offset + 3);
+        if (((b0 | b1 | b2 | b3) & 0x80) != 0)
+            return -1;
+        return (b0 << 21) | (b1 << 14) | (b2 << 7) | b3;
+    }
+
+    private static long refill(FileChannel channel, ByteBuffer window, long position) throws IOException {
+        window.clear();
+        readFully(channel, window, position);
+        window.flip();
+        return position;
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0)
+                break;
+            total += read;
+        }
+        return total;
+    }
+
+    private static final class TagFields {
+        private String title;
+        private String artist;
+        private String album;
+        private long artworkOffset = -1;
+        private int artworkLength;
+        private int trackNumber;
+        private int discNumber;
+
+        /**
+         * Track and disc numbers are missing from most tags, waiting for them would read every frame of those
+         */
+        boolean isComplete() {
+            return title != null && artist != null && album != null && artworkOffset >= 0;
+        }
+    }
+}
@@ -1,7 +1,12 @@
 package app.audio;
 
+import app.local.LocalSettings;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 public class Playlist implements Comparable<Playlist> {
     private String name;
     private byte[] thumbnail;
@@ -57,9 +62,27 @@ public class Playlist implements Comparable<Playlist> {
     }
 
     public void remove(AudioData audioData) {
+        LocalSettings.getInstance().removeFromPlaylist(this, List.of(audioData.getFile().getAbsolutePath()));
     }
 
     public void add(AudioData audioData) {
+        LocalSettings.getInstance().addToPlaylist(this, List.of(audioData.getFile().getAbsolutePath()));
+    }
+
+    /**
+     * Adds the tracks with a single journal record
+     */
+    public void addAll(Collection<AudioData> audioData) {
+        List<String> paths = new ArrayList<>(audioData.size());
+        for (AudioData audio : audioData)
+            paths.add(audio.getFile().getAbsolutePath());
+        LocalSettings.getInstance().addToPlaylist(this, paths);
+    }
 
+    /**
+     * @return paths of the tracks in the order they were added
+     */
+    public List<String> getTrackPaths() {
+        return LocalSettings.getInstance().getPlaylistTracks(this);
     }
 }
@@ -0,0 +1,311 @@
+package app.audio;
+
+import app.settings.StartupSettings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Struct of arrays library store, enabled with {@link StartupSettings#COLUMNAR_TRACK_STORE_ENABLED}. Every track is
+ * an int id into primitive columns, artists, albums and folders are dictionary encoded so the strings of an album
+ * are held once, and paths are a folder id plus the file name. {@link AudioData} is then a view holding only the
+ * track id.
+ * <p>
+ * A track keeps its id for the life of the store. Removing a track leaves a tombstone: its columns keep their
+ * values because playlists, the queue and caches may still hold its {@link AudioData}, and ids are never reused so
+ * such a view can't start reading another track. Tombstones are dropped when the store is rebuilt at the next start.
+ */
+public class TrackStore {
+    private static final int INITIAL_CAPACITY = 256;
+    private static final byte FAVORITE = 1;
+    private static final byte BROKEN = 1 << 1;
+    private static final byte REMOVED = 1 << 2;
+    private static TrackStore instance;
+    private final Dictionary artistNames = new Dictionary();
+    // artist names of every artist id split as AudioData.getArtists returns them, shared between tracks
+    private final ArrayList<String[]> artistSplits = new ArrayList<>();
+    private final Dictionary albums = new Dictionary();
+    private final Dictionary folders = new Dictionary();
+    // few tracks are in playlists, they're kept out of the columns
+    private final HashMap<Integer, ArrayList<Playlist>> playlists = new HashMap<>();
+    // folder a track is listed under when it isn't the folder of its file, which is rare
+    private final HashMap<Integer, Integer> folderPathIds = new HashMap<>();
+    private int[] folderIds = new int[INITIAL_CAPACITY];
+    private String[] fileNames = new String[INITIAL_CAPACITY];
+    private String[] titles = new String[INITIAL_CAPACITY];
+    private int[] artistIds = new int[INITIAL_CAPACITY];
+    private int[] albumIds = new int[INITIAL_CAPACITY];
+    private long[] durations = new long[INITIAL_CAPACITY];
+    // disc number in the high 16 bits, track number in the low 16 bits
+    private int[] positions = new int[INITIAL_CAPACITY];
+    private byte[] flags = new byte[INITIAL_CAPACITY];
+    private double[] loudness = new double[INITIAL_CAPACITY];
+    private double[] truePeaks = new double[INITIAL_CAPACITY];
+    private int removedCount;
+    private int trackCount;
+
+    private TrackStore() {
+        Arrays.fill(loudness, Double.NaN);
+        Arrays.fill(truePeaks, Double.NaN);
+    }
+
+    public static boolean isEnabled() {
+        return StartupSettings.COLUMNAR_TRACK_STORE_ENABLED;
+    }
+
+    public static synchronized TrackStore getInstance() {
+        if (instance == null)
+            instance = new TrackStore();
+        return instance;
+    }
+
+    /**
+     * @return id of the new track
+     */
+    synchronized int add(@NotNull File file, @NotNull String title, @NotNull String artists, @NotNull String album, long durationInMs, int trackNumber, int discNumber) {
+        int id = trackCount++;
+        if (id == titles.length)
+            grow();
+        setLocation(id, file);
+        titles[id] = title;
+        artistIds[id] = getArtistId(artists);
+        albumIds[id] = albums.idOf(album);
+        durations[id] = durationInMs;
+        positions[id] = discNumber << 16 | trackNumber & 0xFFFF;
+        return id;
+    }
+
+    /**
+     * Marks the track removed, its id isn't reused and views still held keep reading it
+     */
+    synchronized void remove(int id) {
+        if ((flags[id] & REMOVED) != 0)
+            return;
+        flags[id] |= REMOVED;
+        removedCount++;
+    }
+
+    /**
+     * @return tracks which weren't removed
+     */
+    public synchronized int size() {
+        return trackCount - removedCount;
+    }
+
+    /*
+    Columns
+     */
+
+    synchronized @NotNull File getFile(int id) {
+        return new File(folders.get(folderIds[id]), fileNames[id]);
+    }
+
+    /**
+     * Moves the track, it stays listed under the folder it was in, see {@link #getFolderPath(int)}
+     */
+    synchronized void setFile(int id, @NotNull File file) {
+        int folderId = folderIds[id];
+        setLocation(id, file);
+        if (folderIds[id] != folderId)
+            folderPathIds.putIfAbsent(id, folderId);
+    }
+
+    private void setLocation(int id, File file) {
+        File absoluteFile = file.getAbsoluteFile();
+        folderIds[id] = folders.idOf(absoluteFile.getParent());
+        fileNames[id] = absoluteFile.getName();
+    }
+
+    /**
+     * @return hash of the path {@link #getFile(int)} would return, without building it
+     */
+    synchronized int fileHashCode(int id) {
+        String folder = folders.get(folderIds[id]);
+        String name = fileNames[id];
+        // String.hashCode continued over the separator and the name
+        int hash = folder.hashCode();
+        if (!folder.isEmpty() && folder.charAt(folder.length() - 1) != File.separatorChar)
+            hash = 31 * hash + File.separatorChar;
+        for (int i = 0; i < name.length(); i++)
+            hash = 31 * hash + name.charAt(i);
+        return hash;
+    }
+
+    synchronized boolean isSameFile(int id, int otherId) {
+        return folderIds[id] == folderIds[otherId] && fileNames[id].equals(fileNames[otherId]);
+    }
+
+    /**
+     * @return folder the track is listed under, the folder of the file it was created with unless it was set
+     */
+    synchronized @NotNull String getFolderPath(int id) {
+        return folders.get(folderPathIds.getOrDefault(id, folderIds[id]));
+    }
+
+    /**
+     * Lists the track under another folder, the file and so its identity are unchanged
+     */
+    synchronized void setFolderPath(int id, @NotNull String folderPath) {
+        int folderId = folders.idOf(folderPath);
+        if (folderId == folderIds[id])
+            folderPathIds.remove(id);
+        else
+            folderPathIds.put(id, folderId);
+    }
+
+    synchronized @NotNull String getTitle(int id) {
+        return titles[id];
+    }
+
+    synchronized void setTitle(int id, @NotNull String title) {
+        titles[id] = title;
+    }
+
+    synchronized @NotNull String getArtistsConcatenated(int id) {
+        return artistNames.get(artistIds[id]);
+    }
+
+    /**
+     * @return the artists, the array is shared by every track of the same artists and must not be modified
+     */
+    synchronized @NotNull String[] getArtists(int id) {
+        return artistSplits.get(artistIds[id]);
+    }
+
+    synchronized void setArtists(int id, @NotNull String[] artists) {
+        artistIds[id] = getArtistId(String.join("/", artists));
+    }
+
+    synchronized @NotNull String getAlbum(int id) {
+        return albums.get(albumIds[id]);
+    }
+
+    synchronized void setAlbum(int id, @NotNull String album) {
+        albumIds[id] = albums.idOf(album);
+    }
+
+    synchronized long getDurationInMs(int id) {
+        return durations[id];
+    }
+
+    synchronized void setDurationInMs(int id, long durationInMs) {
+        durations[id] = durationInMs;
+    }
+
+    synchronized int getTrackNumber(int id) {
+        return positions[id] & 0xFFFF;
+    }
+
+    synchronized int getDiscNumber(int id) {
+        return positions[id] >>> 16;
+    }
+
+    synchronized boolean isFavorite(int id) {
+        return (flags[id] & FAVORITE) != 0;
+    }
+
+    synchronized void setFavorite(int id, boolean isFavorite) {
+        flags[id] = (byte) (isFavorite ? flags[id] | FAVORITE : flags[id] & ~FAVORITE);
+    }
+
+    synchronized boolean isBroken(int id) {
+        return (flags[id] & BROKEN) != 0;
+    }
+
+    synchronized void setBroken(int id, boolean isBroken) {
+        flags[id] = (byte) (isBroken ? flags[id] | BROKEN : flags[id] & ~BROKEN);
+    }
+
+    synchronized double getIntegratedLoudness(int id) {
+        return loudness[id];
+    }
+
+    synchronized double getTruePeak(int id) {
+        return truePeaks[id];
+    }
+
+    synchronized void setLoudness(int id, double integratedLoudness, double truePeak) {
+        loudness[id] = integratedLoudness;
+        truePeaks[id] = truePeak;
+    }
+
+    synchronized @Nullable ArrayList<Playlist> getPlaylists(int id) {
+        return playlists.get(id);
+    }
+
+    synchronized void setPlaylists(int id, @Nullable ArrayList<Playlist> playlists) {
+        if (playlists == null)
+            this.playlists.remove(id);
+        else
+            this.playlists.put(id, playlists);
+    }
+
+    /*
+    Dictionary ids, equal ids mean equal values
+     */
+
+    public synchronized int getArtistId(int id) {
+        return artistIds[id];
+    }
+
+    public synchronized int getAlbumId(int id) {
+        return albumIds[id];
+    }
+
+    /**
+     * @return id of the folder of the file
+     */
+    public synchronized int getFolderId(int id) {
+        return folderIds[id];
+    }
+
+    private int getArtistId(String artists) {
+        int artistId = artistNames.idOf(artists);
+        if (artistId == artistSplits.size())
+            artistSplits.add(artists.split("/"));
+        return artistId;
+    }
+
+    private void grow() {
+        int capacity = titles.length * 2;
+        folderIds = Arrays.copyOf(folderIds, capacity);
+        fileNames = Arrays.copyOf(fileNames, capacity);
+        titles = Arrays.copyOf(titles, capacity);
+        artistIds = Arrays.copyOf(artistIds, capacity);
+        albumIds = Arrays.copyOf(albumIds, capacity);
+        durations = Arrays.copyOf(durations, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        int oldCapacity = loudness.length;
+        loudness = Arrays.copyOf(loudness, capacity);
+        truePeaks = Arrays.copyOf(truePeaks, capacity);
+        Arrays.fill(loudness, oldCapacity, capacity, Double.NaN);
+        Arrays.fill(truePeaks, oldCapacity, capacity, Double.NaN);
+    }
+
+    /**
+     * Distinct strings numbered in the order they were first seen
+     */
+    private static final class Dictionary {
+        private final ArrayList<String> values = new ArrayList<>();
+        private final HashMap<String, Integer> ids = new HashMap<>();
+
+        private int idOf(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                values.add(value);
+                ids.put(value, id);
+            }
+            return id;
+        }
+
+        private String get(int id) {
+            return values.get(id);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package app.audio.duplicates;
+
+import material.utils.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Payload position and hash of every file keyed by absolute path. An entry is only used while the size and the last
+ * modified time of the file still match, so unchanged files are never read again.
+ * <pre>
+ * int magic, byte version, int count, count x (UTF path, long size, long lastModified, long offset, long length, boolean hashed, long hash)
+ * </pre>
+ */
+final class DuplicateCache {
+    private static final String CACHE_FILE_PATH = "cache/duplicates.bin";
+    private static final int MAGIC = 0x51445550; // QDUP
+    private static final byte VERSION = 1;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean isDirty;
+
+    /**
+     * @param hash valid if {@code isHashed}
+     */
+    record Entry(long size, long lastModified, long offset, long length, boolean isHashed, long hash) {
+        boolean matches(File file) {
+            return size == file.length() && lastModified == file.lastModified();
+        }
+
+        Entry withHash(long hash) {
+            return new Entry(size, lastModified, offset, length, true, hash);
+        }
+    }
+
+    DuplicateCache() {
+        load();
+    }
+
+    @Nullable Entry get(@NotNull File file) {
+        Entry entry = entries.get(file.getAbsolutePath());
+        return entry != null && entry.matches(file) ? entry : null;
+    }
+
+    void put(@NotNull File file, @NotNull Entry entry) {
+        entries.put(file.getAbsolutePath(), entry);
+        isDirty = true;
+    }
+
+    /**
+     * Drops the entries of files that aren't among the paths
+     */
+    void retain(@NotNull Set<String> paths) {
+        if (entries.keySet().retainAll(paths))
+            isDirty = true;
+    }
+
+    private void load() {
+        File file = new File(CACHE_FILE_PATH);
+        if (!file.exists())
+            return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION)
+                return;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                entries.put(path, new Entry(in.readLong(), in.readLong(), in.readLong(), in.readLong(), in.readBoolean(), in.readLong()));
+            }
+        } catch (IOException e) {
+            Log.error("Couldn't read duplicate cache: " + e);
+            entries.clear();
+        }
+    }
+
+    void save() {
+        if (!isDirty)
+            return;
+        Path path = Path.of(CACHE_FILE_PATH);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(path.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                List<Map.Entry<String, Entry>> snapshot = new ArrayList<>(entries.entrySet());
+                out.writeInt(snapshot.size());
+                for (Map.Entry<String, Entry> mapping : snapshot) {
+                    Entry entry = mapping.getValue();
+                    out.writeUTF(mapping.getKey());
+                    out.writeLong(entry.size);
+                    out.writeLong(entry.lastModified);
+                    out.writeLong(entry.offset);
+                    out.writeLong(entry.length);
+                    out.writeBoolean(entry.isHashed);
+                    out.writeLong(entry.hash);
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            isDirty = false;
+        } catch (IOException e) {
+            Log.error("Couldn't save duplicate cache: " + e);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package app.audio.duplicates;
+
+import app.audio.AudioData;
+import app.audio.format.AudioFormatRegistry;
+import app.audio.format.AudioPayload;
+import app.settings.StartupSettings;
+import material.utils.Log;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+/**
+ * Finds copies of the same track in the library.
+ * <p>
+ * Exact duplicates have the same encoded audio: only the payload found by {@link AudioFormatRegistry#findPayload(File)}
+ * is hashed, so copies with different tags or artwork still match. Copies must have payloads of the same length, so
+ * only files sharing their payload length with another file are hashed at all. Payloads are read in blocks into a
+ * direct buffer each worker reuses and hashed with CRC32 and CRC32C together, both computed by the CPU, into a 64 bit
+ * hash. Nothing is mapped, so large searches don't hold address space until the mappings are collected.
+ * <p>
+ * Similar duplicates have the same normalized title and first artist and durations within
+ * {@link #SIMILAR_DURATION_TOLERANCE_MS} of each other, but different audio.
+ * <p>
+ * Both steps run in parallel on their own pool. Payload positions and hashes are cached by path, size and last
+ * modified time, so a second search reads nothing but the files that changed.
+ */
+public class DuplicateFinder {
+    private static final long SIMILAR_DURATION_TOLERANCE_MS = 2000;
+    // both checksums run over a block while it's still in the cpu cache
+    private static final int HASH_BLOCK_SIZE = 256 * 1024;
+    private static final ThreadLocal<ByteBuffer> HASH_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(HASH_BLOCK_SIZE));
+    private static DuplicateFinder instance;
+    private final DuplicateCache cache = new DuplicateCache();
+    private final ForkJoinPool pool;
+
+    private DuplicateFinder() {
+        pool = new ForkJoinPool(Math.max(1, Math.min(StartupSettings.PARALLEL_THREAD_COUNT, Runtime.getRuntime().availableProcessors())));
+    }
+
+    public static synchronized DuplicateFinder getInstance() {
+        if (instance == null)
+            instance = new DuplicateFinder();
+        return instance;
+    }
+
+    public @NotNull CompletableFuture<List<DuplicateGroup>> findAsync(@NotNull List<AudioData> tracks) {
+        CompletableFuture<List<DuplicateGroup>> future = new CompletableFuture<>();
+        Thread.startVirtualThread(() -> {
+            try {
+                future.complete(find(tracks));
+            } catch (Throwable e) {
+                Log.error("Duplicate search failed: " + e);
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @return exact groups first, then similar ones
+     */
+    public @NotNull List<DuplicateGroup> find(@NotNull List<AudioData> tracks) {
+        long t1 = System.nanoTime();
+        List<Candidate> candidates;
+        try {
+            candidates = pool.submit(() -> tracks.parallelStream().map(this::locate).filter(Objects::nonNull).toList()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new ArrayList<>(0);
+        } catch (ExecutionException e) {
+            Log.error("Duplicate search failed: " + e.getCause());
+            return new ArrayList<>(0);
+        }
+
+        // only payloads of the same length can be the same
+        HashMap<Long, List<Candidate>> byLength = new HashMap<>();
+        for (Candidate candidate : candidates)
+            byLength.computeIfAbsent(candidate.entry.length(), key -> new ArrayList<>(2)).add(candidate);
+        List<Candidate> toHash = new ArrayList<>();
+        for (List<Candidate> sameLength : byLength.values()) {
+            if (sameLength.size() > 1)
+                toHash.addAll(sameLength);
+        }
+        try {
+            pool.submit(() -> toHash.parallelStream().forEach(this::hash)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new ArrayList<>(0);
+        } catch (ExecutionException e) {
+            Log.error("Duplicate search failed: " + e.getCause());
+            return new ArrayList<>(0);
+        }
+
+        List<DuplicateGroup> groups = new ArrayList<>();
+        HashMap<PayloadKey, List<AudioData>> byPayload = new HashMap<>();
+        for (Candidate candidate : toHash) {
+            if (candidate.entry.isHashed())
+                byPayload.computeIfAbsent(new PayloadKey(candidate.entry.length(), candidate.entry.hash()), key -> new ArrayList<>(2)).add(candidate.track);
+        }
+        // a copy that is also exact isn't reported as similar
+        HashMap<AudioData, List<AudioData>> exactGroupOf = new HashMap<>();
+        for (List<AudioData> sameAudio : byPayload.values()) {
+            if (sameAudio.size() > 1) {
+                groups.add(newGroup(DuplicateGroup.Kind.EXACT, sameAudio));
+                for (AudioData track : sameAudio)
+                    exactGroupOf.put(track, sameAudio);
+            }
+        }
+        int exactCount = groups.size();
+        groups.addAll(findSimilar(tracks, exactGroupOf));
+
+        cache.retain(tracks.stream().map(track -> track.getFile().getAbsolutePath()).collect(Collectors.toSet()));
+        cache.save();
+        Log.info("Duplicate search of %d files done in %dms: %d sharing a payload length, %d exact and %d similar groups".formatted(
+                tracks.size(), (System.nanoTime() - t1) / 1_000_000, toHash.size(), exactCount, groups.size() - exactCount));
+        return groups;
+    }
+
+    private static final class Candidate {
+        final AudioData track;
+        DuplicateCache.Entry entry;
+
+        Candidate(AudioData track, DuplicateCache.Entry entry) {
+            this.track = track;
+            this.entry = entry;
+        }
+    }
+
+    private record PayloadKey(long length, long hash) {
+    }
+
+    private Candidate locate(AudioData track) {
+        File file = track.getFile();
+        DuplicateCache.Entry entry = cache.get(file);
+        if (entry == null) {
+            try {
+                long size = file.length();
+                long lastModified = file.lastModified();
+                AudioPayload payload = AudioFormatRegistry.getInstance().findPayload(file);
+                entry = new DuplicateCache.Entry(size, lastModified, payload.offset(), payload.length(), false, 0);
+                cache.put(file, entry);
+            } catch (IOException e) {
+                Log.warn("Couldn't read " + file + " to find duplicates: " + e);
+                return null;
+            }
+        }
+        return new Candidate(track, entry);
+    }
+
+    /**
+     * Hashes the payload unless the cached entry already has its hash, the hash goes to the candidate and the cache
+     */
+    private void hash(Candidate candidate) {
+        if (candidate.entry.isHashed())
+            return;
+        File file = candidate.track.getFile();
+        CRC32 crc32 = new CRC32();
+        CRC32C crc32c = new CRC32C();
+        ByteBuffer block = HASH_BUFFER.get();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long end = candidate.entry.offset() + candidate.entry.length();
+            for (long pos = candidate.entry.offset(); pos < end; ) {
+                block.clear().limit((int) Math.min(HASH_BLOCK_SIZE, end - pos));
+                while (block.hasRemaining()) {
+                    if (channel.read(block, pos + block.position()) < 0)
+                        throw new IOException("File is shorter than its cached payload");
+                }
+                block.flip();
+                crc32.update(block.duplicate());
+                crc32c.update(block);
+                pos += block.limit();
+            }
+        } catch (IOException e) {
+            Log.warn("Couldn't hash " + file + ": " + e);
+            return;
+        }
+        DuplicateCache.Entry hashed = candidate.entry.withHash(crc32.getValue() << 32 | crc32c.getValue());
+        cache.put(file, hashed);
+        candidate.entry = hashed;
+    }
+
+    private static List<DuplicateGroup> findSimilar(List<AudioData> tracks, HashMap<AudioData, List<AudioData>> exactGroupOf) {
+        HashMap<String, List<AudioData>> byName = new HashMap<>();
+        for (AudioData track : tracks) {
+            String[] artists = track.getArtists();
+            String key = normalize(track.getName()) + '\0' + (artists.length > 0 ? normalize(artists[0]) : "");
+            byName.computeIfAbsent(key, k -> new ArrayList<>(2)).add(track);
+        }
+        List<DuplicateGroup> groups = new ArrayList<>();
+        for (List<AudioData> sameName : byName.values()) {
+            if (sameName.size() < 2)
+                continue;
+            // runs of durations with no gap wider than the tolerance
+            sameName.sort(Comparator.comparingLong(AudioData::getDurationInMs));
+            int start = 0;
+            for (int i = 1; i <= sameName.size(); i++) {
+                if (i == sameName.size() || sameName.get(i).getDurationInMs() - sameName.get(i - 1).getDurationInMs() > SIMILAR_DURATION_TOLERANCE_MS) {
+                    List<AudioData> run = sameName.subList(start, i);
+                    if (run.size() > 1 && !isOneExactGroup(run, exactGroupOf))
+                        groups.add(newGroup(DuplicateGroup.Kind.SIMILAR, run));
+                    start = i;
+                }
+            }
+        }
+        return groups;
+    }
+
+    private static boolean isOneExactGroup(List<AudioData> run, HashMap<AudioData, List<AudioData>> exactGroupOf) {
+        List<AudioData> exactGroup = exactGroupOf.get(run.get(0));
+        return exactGroup != null && new HashSet<>(exactGroup).containsAll(run);
+    }
+
+    private static DuplicateGroup newGroup(DuplicateGroup.Kind kind, List<AudioData> tracks) {
+        List<AudioData> sorted = new ArrayList<>(tracks);
+        sorted.sort(Comparator.comparing(track -> track.getFile().getAbsolutePath()));
+        return new DuplicateGroup(kind, List.copyOf(sorted));
+    }
+
+    /**
+     * Lower cased letters and digits with single spaces between words, so punctuation and spacing don't matter
+     */
+    private static String normalize(String name) {
+        String normalized = Normalizer.normalize(name, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder builder = new StringBuilder(normalized.length());
+        boolean isSpace = true;
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                builder.append(c);
+                isSpace = false;
+            } else if (!isSpace) {
+                builder.append(' ');
+                isSpace = true;
+            }
+        }
+        int length = builder.length();
+        if (length > 0 && builder.charAt(length - 1) == ' ')
+            builder.setLength(length - 1);
+        return builder.toString();
+    }
+}
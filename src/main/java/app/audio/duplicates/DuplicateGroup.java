@@ -0,0 +1,25 @@
+package app.audio.duplicates;
+
+import app.audio.AudioData;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Tracks found to be copies of each other
+ *
+ * @param kind   how they were found
+ * @param tracks two or more tracks in path order
+ */
+public record DuplicateGroup(@NotNull Kind kind, @NotNull List<AudioData> tracks) {
+    public enum Kind {
+        /**
+         * Same encoded audio, the tags may differ
+         */
+        EXACT,
+        /**
+         * Same title and artist and about the same duration, but different audio, e.g. another encoding
+         */
+        SIMILAR
+    }
+}
@@ -0,0 +1,47 @@
+package app.audio.format;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * One audio container format known to the library scanner. Probes are registered in the {@link AudioFormatRegistry}.
+ */
+public interface AudioFormatProbe {
+    /**
+     * Number of bytes from the start of the file which {@link #matchesMagic(ByteBuffer)} needs
+     */
+    int MAGIC_SIZE = 12;
+
+    @NotNull String getName();
+
+    /**
+     * @return lower case file extensions without the dot
+     */
+    @NotNull String[] getExtensions();
+
+    /**
+     * @param head the first {@link #MAGIC_SIZE} bytes of the file (fewer if the file is shorter), position 0
+     */
+    boolean matchesMagic(@NotNull ByteBuffer head);
+
+    /**
+     * Reads tags and duration without decoding any audio
+     *
+     * @return metadata or null if the file is malformed or uses a layout this probe doesn't support
+     */
+    @Nullable AudioMetadata readMetadata(@NotNull File file, @NotNull FileChannel channel) throws IOException;
+
+    /**
+     * Finds the encoded audio by the container's headers, skipping the tags
+     *
+     * @return the payload or null if this probe can't tell where it is
+     */
+    default @Nullable AudioPayload findPayload(@NotNull FileChannel channel) throws IOException {
+        return null;
+    }
+}
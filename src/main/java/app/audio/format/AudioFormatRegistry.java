@@ -0,0 +1,108 @@
+package app.audio.format;
+
+import material.utils.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Known audio formats. The scanner only checks the extension, which costs no IO, while the metadata read
+ * opens the file once, confirms the format by its magic bytes and lets the matching probe read the tags.
+ * A file whose content doesn't match its extension (e.g. an m4a renamed to mp3) is handed to the probe
+ * that recognizes the content.
+ */
+public class AudioFormatRegistry {
+    private static AudioFormatRegistry instance;
+    private final List<AudioFormatProbe> probes = new CopyOnWriteArrayList<>();
+    private volatile HashMap<String, AudioFormatProbe> probesByExtension = new HashMap<>();
+
+    private AudioFormatRegistry() {
+        register(new Mp3Probe());
+        register(new FlacProbe());
+        register(new OggProbe());
+        register(new Mp4Probe());
+        register(new WavProbe());
+    }
+
+    public static AudioFormatRegistry getInstance() {
+        if (instance == null)
+            instance = new AudioFormatRegistry();
+        return instance;
+    }
+
+    public synchronized void register(@NotNull AudioFormatProbe probe) {
+        probes.add(probe);
+        HashMap<String, AudioFormatProbe> byExtension = new HashMap<>(probesByExtension);
+        for (String extension : probe.getExtensions())
+            byExtension.put(extension, probe);
+        probesByExtension = byExtension;
+    }
+
+    /**
+     * @return true if a registered format uses the extension of the file name
+     */
+    public boolean isSupported(@NotNull String fileName) {
+        return getProbeByExtension(fileName) != null;
+    }
+
+    public @Nullable AudioFormatProbe getProbeByExtension(@NotNull String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0)
+            return null;
+        return probesByExtension.get(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Reads tags and duration with the probe matching the content of the file
+     *
+     * @return metadata or null if no probe recognizes the file or the probe couldn't parse it
+     */
+    public @Nullable AudioMetadata readMetadata(@NotNull File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer head = ProbeIO.read(channel, 0, AudioFormatProbe.MAGIC_SIZE, ByteOrder.BIG_ENDIAN);
+            AudioFormatProbe probe = getProbeByExtension(file.getName());
+            if (probe == null || !probe.matchesMagic(head))
+                probe = getProbeByMagic(head);
+            if (probe == null)
+                return null;
+            return probe.readMetadata(file, channel);
+        } catch (Exception e) {
+            Log.warn("Fast metadata read failed for " + file + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Finds the encoded audio of the file with the probe matching its content
+     *
+     * @return the payload, the whole file if no probe can tell where the audio is
+     */
+    public @NotNull AudioPayload findPayload(@NotNull File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer head = ProbeIO.read(channel, 0, AudioFormatProbe.MAGIC_SIZE, ByteOrder.BIG_ENDIAN);
+            AudioFormatProbe probe = getProbeByExtension(file.getName());
+            if (probe == null || !probe.matchesMagic(head))
+                probe = getProbeByMagic(head);
+            AudioPayload payload = probe == null ? null : probe.findPayload(channel);
+            return payload != null ? payload : new AudioPayload(0, channel.size());
+        }
+    }
+
+    private @Nullable AudioFormatProbe getProbeByMagic(ByteBuffer head) {
+        for (AudioFormatProbe probe : probes) {
+            if (probe.matchesMagic(head))
+                return probe;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,142 @@
+package app.audio.format;
+
+import material.utils.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Metadata read by an {@link AudioFormatProbe}. Like {@link app.audio.MP3Header} the artwork isn't loaded,
+ * only the position of the raw picture data is stored so it can be read later with one positional read. Artwork
+ * that is encoded in the tags, and so can't be read as is, is decoded by the probe and kept instead.
+ */
+public final class AudioMetadata {
+    private static final int MAX_ARTWORK_SIZE = 16 * 1024 * 1024;
+    private final @Nullable String title;
+    private final @Nullable String artist;
+    private final @Nullable String album;
+    private final long artworkOffset;
+    private final int artworkLength;
+    private final byte @Nullable [] artwork;
+    private final long durationInMs;
+    private final int trackNumber;
+    private final int discNumber;
+
+    AudioMetadata(@Nullable String title, @Nullable String artist, @Nullable String album, long artworkOffset, int artworkLength, long durationInMs, int trackNumber, int discNumber) {
+        this(title, artist, album, artworkOffset, artworkLength, null, durationInMs, trackNumber, discNumber);
+    }
+
+    AudioMetadata(@Nullable String title, @Nullable String artist, @Nullable String album, byte @Nullable [] artwork, long durationInMs, int trackNumber, int discNumber) {
+        this(title, artist, album, -1, 0, artwork, durationInMs, trackNumber, discNumber);
+    }
+
+    private AudioMetadata(@Nullable String title, @Nullable String artist, @Nullable String album, long artworkOffset, int artworkLength, byte @Nullable [] artwork, long durationInMs, int trackNumber, int discNumber) {
+        this.title = title;
+        this.artist = artist;
+        this.album = album;
+        this.artworkOffset = artworkOffset;
+        this.artworkLength = artworkLength;
+        this.artwork = artwork;
+        this.durationInMs = durationInMs;
+        this.trackNumber = trackNumber;
+        this.discNumber = discNumber;
+    }
+
+    /**
+     * Parses a track or disc number as tags store it, either "3" or "3/12"
+     *
+     * @return the number or 0 if it's missing or malformed
+     */
+    public static int parsePosition(@Nullable String value) {
+        if (value == null)
+            return 0;
+        int number = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9')
+                return c == '/' || (c == ' ' && number > 0) ? number : 0;
+            number = number * 10 + (c - '0');
+            if (number > 9999)
+                return 0;
+        }
+        return number;
+    }
+
+    public @Nullable String getTitle() {
+        return title;
+    }
+
+    public @Nullable String getArtist() {
+        return artist;
+    }
+
+    public @Nullable String getAlbum() {
+        return album;
+    }
+
+    public long getDurationInMs() {
+        return durationInMs;
+    }
+
+    /**
+     * @return number of the track on its disc, 0 if unknown
+     */
+    public int getTrackNumber() {
+        return trackNumber;
+    }
+
+    /**
+     * @return number of the disc the track is on, 0 if unknown
+     */
+    public int getDiscNumber() {
+        return discNumber;
+    }
+
+    public boolean hasArtwork() {
+        return artwork != null || (artworkOffset >= 0 && artworkLength > 0);
+    }
+
+    public boolean hasTags() {
+        return title != null || artist != null || album != null || hasArtwork();
+    }
+
+    /**
+     * Reads the picture data located by the probe
+     *
+     * @return encoded image bytes or null if there is no artwork or it couldn't be read
+     */
+    public byte @Nullable [] readArtwork(@NotNull File file) {
+        if (artwork != null)
+            return artwork;
+        if (!hasArtwork() || artworkLength > MAX_ARTWORK_SIZE)
+            return null;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(artworkLength);
+            if (ProbeIO.readFully(channel, buffer, artworkOffset) != artworkLength)
+                return null;
+            return buffer.array();
+        } catch (Exception e) {
+            Log.warn("Couldn't read artwork of " + file + ": " + e);
+            return null;
+        }
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "AudioMetadata{" +
+                "title='" + title + '\'' +
+                ", artist='" + artist + '\'' +
+                ", album='" + album + '\'' +
+                ", artworkOffset=" + artworkOffset +
+                ", artworkLength=" + artworkLength +
+                ", decodedArtworkLength=" + (artwork != null ? artwork.length : 0) +
+                ", durationInMs=" + durationInMs +
+                ", trackNumber=" + trackNumber +
+                ", discNumber=" + discNumber +
+                '}';
+    }
+}
@@ -0,0 +1,11 @@
+package app.audio.format;
+
+/**
+ * Region of an audio file holding the encoded audio, without the tags around it. Copies of a track that only differ
+ * in their tags have payloads with the same bytes.
+ *
+ * @param offset position of the first byte
+ * @param length number of bytes
+ */
+public record AudioPayload(long offset, long length) {
+}
@@ -0,0 +1,133 @@
+package app.audio.format;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * FLAC: duration from STREAMINFO, tags from the VORBIS_COMMENT block and artwork from the first PICTURE block.
+ * Blocks other than these are skipped by their header, so only the metadata region is read.
+ */
+final class FlacProbe implements AudioFormatProbe {
+    private static final int STREAMINFO = 0;
+    private static final int VORBIS_COMMENT = 4;
+    private static final int PICTURE = 6;
+    private static final int MAX_COMMENT_SIZE = 1024 * 1024;
+
+    @Override
+    public @NotNull String getName() {
+        return "FLAC";
+    }
+
+    @Override
+    public @NotNull String[] getExtensions() {
+        return new String[]{"flac"};
+    }
+
+    @Override
+    public boolean matchesMagic(@NotNull ByteBuffer head) {
+        return ProbeIO.startsWith(head, 0, "fLaC");
+    }
+
+    @Override
+    public @Nullable AudioMetadata readMetadata(@NotNull File file, @NotNull FileChannel channel) throws IOException {
+        long pos = 4;
+        long durationInMs = -1;
+        VorbisComments comments = null;
+        long artworkOffset = -1;
+        int artworkLength = 0;
+        boolean isLast = false;
+        while (!isLast) {
+            ByteBuffer header = ProbeIO.read(channel, pos, 4, ByteOrder.BIG_ENDIAN);
+            if (header.remaining() < 4)
+                return null;
+            int first = header.get(0) & 0xFF;
+            isLast = (first & 0x80) != 0;
+            int type = first & 0x7F;
+            int length = ((header.get(1) & 0xFF) << 16) | ((header.get(2) & 0xFF) << 8) | (header.get(3) & 0xFF);
+            long body = pos + 4;
+            if (type == STREAMINFO) {
+                ByteBuffer info = ProbeIO.read(channel, body, 18, ByteOrder.BIG_ENDIAN);
+                if (info.remaining() < 18)
+                    return null;
+                // 20 bits sample rate, 3 bits channels, 5 bits bits per sample, 36 bits total samples
+                long packed = info.getLong(10);
+                int sampleRate = (int) (packed >>> 44);
+                long totalSamples = packed & 0xF_FFFF_FFFFL;
+                if (sampleRate > 0)
+                    durationInMs = totalSamples * 1000 / sampleRate;
+            } else if (type == VORBIS_COMMENT && comments == null) {
+                int size = Math.min(length, MAX_COMMENT_SIZE);
+                comments = VorbisComments.parse(ProbeIO.read(channel, body, size, ByteOrder.LITTLE_ENDIAN), 0, size);
+            } else if (type == PICTURE && artworkOffset < 0) {
+                long[] picture = locatePicture(channel, body, length);
+                if (picture != null) {
+                    artworkOffset = picture[0];
+                    artworkLength = (int) picture[1];
+                }
+            }
+            pos = body + length;
+        }
+        if (durationInMs < 0)
+            return null;
+        if (comments == null)
+            comments = new VorbisComments();
+        return new AudioMetadata(comments.title, comments.artist, comments.album, artworkOffset, artworkLength, durationInMs, comments.trackNumber, comments.discNumber);
+    }
+
+    /**
+     * The frames after the last metadata block, where the tags and the artwork are
+     */
+    @Override
+    public @Nullable AudioPayload findPayload(@NotNull FileChannel channel) throws IOException {
+        long size = channel.size();
+        long pos = 4;
+        boolean isLast = false;
+        while (!isLast) {
+            ByteBuffer header = ProbeIO.read(channel, pos, 4, ByteOrder.BIG_ENDIAN);
+            if (header.remaining() < 4)
+                return null;
+            isLast = (header.get(0) & 0x80) != 0;
+            pos += 4 + (((header.get(1) & 0xFF) << 16) | ((header.get(2) & 0xFF) << 8) | (header.get(3) & 0xFF));
+        }
+        if (pos >= size)
+            return null;
+        return new AudioPayload(pos, size - pos);
+    }
+
+    /**
+     * @return offset and length of the picture data or null if the block is malformed
+     */
+    static long @Nullable [] locatePicture(FileChannel channel, long body, int blockLength) throws IOException {
+        ByteBuffer buffer = ProbeIO.read(channel, body, Math.min(blockLength, ProbeIO.WINDOW_SIZE), ByteOrder.BIG_ENDIAN);
+        int[] data = locatePictureData(buffer, blockLength);
+        return data == null ? null : new long[]{body + data[0], data[1]};
+    }
+
+    /**
+     * @param buffer start of a PICTURE block, big endian, at least up to the picture data
+     * @return offset in the block and length of the picture data or null if the block is malformed
+     */
+    static int @Nullable [] locatePictureData(ByteBuffer buffer, int blockLength) {
+        // u32 type, u32 mime length, mime, u32 description length, description, 4 x u32 dimensions, u32 data length
+        int pos = 4;
+        if (pos + 4 > buffer.limit())
+            return null;
+        pos += 4 + buffer.getInt(pos);
+        if (pos < 0 || pos + 4 > buffer.limit())
+            return null;
+        pos += 4 + buffer.getInt(pos) + 16;
+        if (pos < 0 || pos + 4 > buffer.limit())
+            return null;
+        int dataLength = buffer.getInt(pos);
+        pos += 4;
+        if (dataLength <= 0 || pos + (long) dataLength > blockLength)
+            return null;
+        return new int[]{pos, dataLength};
+    }
+}
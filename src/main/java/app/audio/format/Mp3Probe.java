@@ -0,0 +1,96 @@
+package app.audio.format;
+
+import app.audio.MP3Header;
+import app.audio.MP3HeaderReader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * MP3 through {@link MP3HeaderReader}
+ */
+final class Mp3Probe implements AudioFormatProbe {
+    private static final int ID3V2_HEADER_SIZE = 10;
+    private static final int ID3V1_SIZE = 128;
+    private static final int APE_FOOTER_SIZE = 32;
+    private static final int LYRICS3_FOOTER_SIZE = 15;
+    private static final int MAX_SYNC_SEARCH = 64 * 1024;
+
+    @Override
+    public @NotNull String getName() {
+        return "MP3";
+    }
+
+    @Override
+    public @NotNull String[] getExtensions() {
+        return new String[]{"mp3"};
+    }
+
+    @Override
+    public boolean matchesMagic(@NotNull ByteBuffer head) {
+        if (ProbeIO.startsWith(head, 0, "ID3"))
+            return true;
+        // bare frame sync
+        return head.limit() >= 2 && (head.get(0) & 0xFF) == 0xFF && (head.get(1) & 0xE0) == 0xE0;
+    }
+
+    @Override
+    public @Nullable AudioMetadata readMetadata(@NotNull File file, @NotNull FileChannel channel) throws IOException {
+        MP3Header header = MP3HeaderReader.read(channel);
+        if (header == null)
+            return null;
+        return new AudioMetadata(header.getTitle(), header.getArtist(), header.getAlbum(), header.getArtworkOffset(), header.getArtworkLength(), header.getDurationInMs(), header.getTrackNumber(), header.getDiscNumber());
+    }
+
+    /**
+     * The frames between the ID3v2 tags at the start, padding included, and the ID3v1, Lyrics3v2 and APEv2 tags at
+     * the end
+     */
+    @Override
+    public @Nullable AudioPayload findPayload(@NotNull FileChannel channel) throws IOException {
+        long size = channel.size();
+        long start = 0;
+        // some taggers stack a new tag in front of the old one
+        while (true) {
+            ByteBuffer header = ProbeIO.read(channel, start, ID3V2_HEADER_SIZE, ByteOrder.BIG_ENDIAN);
+            if (header.limit() < ID3V2_HEADER_SIZE || !ProbeIO.startsWith(header, 0, "ID3"))
+                break;
+            int tagSize = ((header.get(6) & 0x7F) << 21) | ((header.get(7) & 0x7F) << 14) | ((header.get(8) & 0x7F) << 7) | (header.get(9) & 0x7F);
+            start += ID3V2_HEADER_SIZE + tagSize + ((header.get(5) & 0x10) != 0 ? ID3V2_HEADER_SIZE : 0);
+        }
+        ByteBuffer window = ProbeIO.read(channel, start, (int) Math.min(MAX_SYNC_SEARCH, Math.max(0, size - start)), ByteOrder.BIG_ENDIAN);
+        int sync = 0;
+        while (sync + 1 < window.limit() && ((window.get(sync) & 0xFF) != 0xFF || (window.get(sync + 1) & 0xE0) != 0xE0))
+            sync++;
+        if (sync + 1 >= window.limit())
+            return null;
+        start += sync;
+
+        long end = size;
+        ByteBuffer trailer = ProbeIO.read(channel, Math.max(start, end - ID3V1_SIZE), ID3V1_SIZE, ByteOrder.BIG_ENDIAN);
+        if (trailer.limit() == ID3V1_SIZE && ProbeIO.startsWith(trailer, 0, "TAG"))
+            end -= ID3V1_SIZE;
+        ByteBuffer lyrics = ProbeIO.read(channel, Math.max(start, end - LYRICS3_FOOTER_SIZE), LYRICS3_FOOTER_SIZE, ByteOrder.BIG_ENDIAN);
+        if (lyrics.limit() == LYRICS3_FOOTER_SIZE && ProbeIO.startsWith(lyrics, 6, "LYRICS200")) {
+            // six digit size of the tag, not counting the footer
+            try {
+                end -= LYRICS3_FOOTER_SIZE + Long.parseLong(ProbeIO.ascii(lyrics, 0, 6));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        ByteBuffer ape = ProbeIO.read(channel, Math.max(start, end - APE_FOOTER_SIZE), APE_FOOTER_SIZE, ByteOrder.LITTLE_ENDIAN);
+        if (ape.limit() == APE_FOOTER_SIZE && ProbeIO.startsWith(ape, 0, "APETAGEX")) {
+            // the size counts the items and the footer, the header is there if the top flag is set
+            long tagSize = ape.getInt(12) & 0xFFFFFFFFL;
+            end -= tagSize + (ape.getInt(20) < 0 ? APE_FOOTER_SIZE : 0);
+        }
+        if (end <= start)
+            return null;
+        return new AudioPayload(start, end - start);
+    }
+}
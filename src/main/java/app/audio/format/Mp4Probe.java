@@ -0,0 +1,190 @@
+package app.audio.format;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * MP4/M4A (AAC and ALAC). Walks the atom tree by headers only: duration comes from moov/mvhd and tags from
+ * moov/udta/meta/ilst. The mdat atom is never read, so files with moov at the end are as cheap as the others.
+ */
+final class Mp4Probe implements AudioFormatProbe {
+    private static final int MOOV = 0x6D6F6F76;
+    private static final int MDAT = 0x6D646174;
+    private static final int MVHD = 0x6D766864;
+    private static final int UDTA = 0x75647461;
+    private static final int META = 0x6D657461;
+    private static final int ILST = 0x696C7374;
+    private static final int DATA = 0x64617461;
+    private static final int TITLE = 0xA96E616D;  // 0xA9 "nam"
+    private static final int ARTIST = 0xA9415254; // 0xA9 "ART"
+    private static final int ALBUM = 0xA9616C62;  // 0xA9 "alb"
+    private static final int COVER = 0x636F7672;  // "covr"
+    private static final int TRACK = 0x74726B6E;  // "trkn"
+    private static final int DISC = 0x6469736B;   // "disk"
+    private static final int MAX_TEXT_SIZE = 4096;
+
+    @Override
+    public @NotNull String getName() {
+        return "MP4";
+    }
+
+    @Override
+    public @NotNull String[] getExtensions() {
+        return new String[]{"m4a", "mp4", "m4b"};
+    }
+
+    @Override
+    public boolean matchesMagic(@NotNull ByteBuffer head) {
+        return ProbeIO.startsWith(head, 4, "ftyp");
+    }
+
+    @Override
+    public @Nullable AudioMetadata readMetadata(@NotNull File file, @NotNull FileChannel channel) throws IOException {
+        Mp4Fields fields = new Mp4Fields();
+        walk(channel, 0, channel.size(), fields, 0);
+        if (fields.durationInMs < 0)
+            return null;
+        return new AudioMetadata(fields.title, fields.artist, fields.album, fields.artworkOffset, fields.artworkLength, fields.durationInMs, fields.trackNumber, fields.discNumber);
+    }
+
+    /**
+     * The body of the largest top level mdat atom, the tags are in moov
+     */
+    @Override
+    public @Nullable AudioPayload findPayload(@NotNull FileChannel channel) throws IOException {
+        long end = channel.size();
+        long pos = 0;
+        AudioPayload largest = null;
+        while (pos + 8 <= end) {
+            ByteBuffer header = ProbeIO.read(channel, pos, 16, ByteOrder.BIG_ENDIAN);
+            if (header.limit() < 8)
+                break;
+            long size = header.getInt(0) & 0xFFFFFFFFL;
+            int headerSize = 8;
+            if (size == 1) {
+                if (header.limit() < 16)
+                    break;
+                size = header.getLong(8);
+                headerSize = 16;
+            } else if (size == 0) {
+                size = end - pos;
+            }
+            if (size < headerSize || pos + size > end)
+                break;
+            if (header.getInt(4) == MDAT && (largest == null || size - headerSize > largest.length()))
+                largest = new AudioPayload(pos + headerSize, size - headerSize);
+            pos += size;
+        }
+        return largest;
+    }
+
+    private static void walk(FileChannel channel, long start, long end, Mp4Fields fields, int depth) throws IOException {
+        long pos = start;
+        while (pos + 8 <= end) {
+            ByteBuffer header = ProbeIO.read(channel, pos, 16, ByteOrder.BIG_ENDIAN);
+            if (header.limit() < 8)
+                return;
+            long size = header.getInt(0) & 0xFFFFFFFFL;
+            int type = header.getInt(4);
+            int headerSize = 8;
+            if (size == 1) {
+                if (header.limit() < 16)
+                    return;
+                size = header.getLong(8);
+                headerSize = 16;
+            } else if (size == 0) {
+                size = end - pos;
+            }
+            if (size < headerSize || pos + size > end)
+                return;
+            long body = pos + headerSize;
+            long atomEnd = pos + size;
+            switch (type) {
+                case MOOV, UDTA, ILST -> walk(channel, body, atomEnd, fields, depth + 1);
+                case META -> walk(channel, body + 4, atomEnd, fields, depth + 1); // full box: version and flags
+                case MVHD -> readDuration(channel, body, fields);
+                case TITLE, ARTIST, ALBUM, COVER, TRACK, DISC -> {
+                    if (depth > 0)
+                        readItem(channel, type, body, atomEnd, fields);
+                }
+            }
+            pos = atomEnd;
+        }
+    }
+
+    private static void readDuration(FileChannel channel, long body, Mp4Fields fields) throws IOException {
+        ByteBuffer mvhd = ProbeIO.read(channel, body, 32, ByteOrder.BIG_ENDIAN);
+        if (mvhd.limit() < 20)
+            return;
+        int version = mvhd.get(0);
+        long timescale;
+        long duration;
+        if (version == 1) {
+            if (mvhd.limit() < 32)
+                return;
+            timescale = mvhd.getInt(20) & 0xFFFFFFFFL;
+            duration = mvhd.getLong(24);
+        } else {
+            timescale = mvhd.getInt(12) & 0xFFFFFFFFL;
+            duration = mvhd.getInt(16) & 0xFFFFFFFFL;
+        }
+        if (timescale > 0)
+            fields.durationInMs = duration * 1000 / timescale;
+    }
+
+    /**
+     * Reads the data atom of an ilst item: u32 size, "data", u32 type, u32 locale, payload
+     */
+    private static void readItem(FileChannel channel, int type, long body, long end, Mp4Fields fields) throws IOException {
+        ByteBuffer data = ProbeIO.read(channel, body, 16, ByteOrder.BIG_ENDIAN);
+        if (data.limit() < 16 || data.getInt(4) != DATA)
+            return;
+        long payloadSize = Math.min(data.getInt(0) & 0xFFFFFFFFL, end - body) - 16;
+        long payload = body + 16;
+        if (payloadSize <= 0)
+            return;
+        if (type == COVER) {
+            if (fields.artworkOffset < 0 && payloadSize <= Integer.MAX_VALUE) {
+                fields.artworkOffset = payload;
+                fields.artworkLength = (int) payloadSize;
+            }
+            return;
+        }
+        if (type == TRACK || type == DISC) {
+            // binary payload: u16 reserved, u16 number, u16 total
+            ByteBuffer position = ProbeIO.read(channel, payload, 4, ByteOrder.BIG_ENDIAN);
+            if (position.limit() < 4)
+                return;
+            int number = position.getShort(2) & 0xFFFF;
+            if (type == TRACK)
+                fields.trackNumber = number;
+            else
+                fields.discNumber = number;
+            return;
+        }
+        int length = (int) Math.min(payloadSize, MAX_TEXT_SIZE);
+        String value = ProbeIO.utf8(ProbeIO.read(channel, payload, length, ByteOrder.BIG_ENDIAN), 0, length);
+        switch (type) {
+            case TITLE -> fields.title = value;
+            case ARTIST -> fields.artist = value;
+            case ALBUM -> fields.album = value;
+        }
+    }
+
+    private static final class Mp4Fields {
+        String title;
+        String artist;
+        String album;
+        long artworkOffset = -1;
+        int artworkLength;
+        long durationInMs = -1;
+        int trackNumber;
+        int discNumber;
+    }
+}
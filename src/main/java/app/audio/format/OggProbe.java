@@ -0,0 +1,164 @@
+package app.audio.format;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Ogg Vorbis and Opus. Tags come from the comment packet, the second packet of the stream, and the duration
+ * from the granule position of the last page, so only the first pages and the tail of the file are read.
+ * Artwork is stored as a base64 METADATA_BLOCK_PICTURE comment, a FLAC PICTURE block, which can't be read by offset,
+ * so it's decoded from the comment packet already in memory.
+ */
+final class OggProbe implements AudioFormatProbe {
+    private static final int PAGE_HEADER_SIZE = 27;
+    private static final int MAX_HEADER_PACKET_SIZE = 1024 * 1024;
+    private static final int OPUS_SAMPLE_RATE = 48_000;
+
+    @Override
+    public @NotNull String getName() {
+        return "Ogg";
+    }
+
+    @Override
+    public @NotNull String[] getExtensions() {
+        return new String[]{"ogg", "oga", "opus"};
+    }
+
+    @Override
+    public boolean matchesMagic(@NotNull ByteBuffer head) {
+        return ProbeIO.startsWith(head, 0, "OggS");
+    }
+
+    @Override
+    public @Nullable AudioMetadata readMetadata(@NotNull File file, @NotNull FileChannel channel) throws IOException {
+        ByteBuffer[] packets = readHeaderPackets(channel);
+        if (packets == null)
+            return null;
+        ByteBuffer identification = packets[0];
+        ByteBuffer comment = packets[1];
+
+        int sampleRate;
+        long preSkip = 0;
+        VorbisComments comments;
+        if (ProbeIO.startsWith(identification, 0, "\u0001vorbis") && identification.limit() >= 16) {
+            sampleRate = identification.getInt(12);
+            comments = ProbeIO.startsWith(comment, 0, "\u0003vorbis") ? VorbisComments.parse(comment, 7, comment.limit()) : new VorbisComments();
+        } else if (ProbeIO.startsWith(identification, 0, "OpusHead") && identification.limit() >= 12) {
+            sampleRate = OPUS_SAMPLE_RATE;
+            preSkip = identification.getShort(10) & 0xFFFF;
+            comments = ProbeIO.startsWith(comment, 0, "OpusTags") ? VorbisComments.parse(comment, 8, comment.limit()) : new VorbisComments();
+        } else {
+            return null; // FLAC in Ogg, Speex...
+        }
+        if (sampleRate <= 0)
+            return null;
+
+        long granule = readLastGranule(channel);
+        if (granule < 0)
+            return null;
+        long durationInMs = Math.max(0, granule - preSkip) * 1000 / sampleRate;
+        byte[] artwork = comments.picture != null ? decodePicture(comments.picture) : null;
+        return new AudioMetadata(comments.title, comments.artist, comments.album, artwork, durationInMs, comments.trackNumber, comments.discNumber);
+    }
+
+    /**
+     * @return picture data of a base64 PICTURE block or null if it's malformed
+     */
+    private static byte @Nullable [] decodePicture(@NotNull String base64) {
+        byte[] block;
+        try {
+            block = Base64.getMimeDecoder().decode(base64);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        int[] data = FlacProbe.locatePictureData(ByteBuffer.wrap(block), block.length);
+        return data == null ? null : Arrays.copyOfRange(block, data[0], data[0] + data[1]);
+    }
+
+    /**
+     * Reassembles the first two packets from the segment tables of the first pages
+     */
+    private static ByteBuffer @Nullable [] readHeaderPackets(FileChannel channel) throws IOException {
+        ByteBuffer[] packets = new ByteBuffer[2];
+        ByteArrayOutputStream packet = new ByteArrayOutputStream();
+        int packetIndex = 0;
+        long pos = 0;
+        while (packetIndex < 2) {
+            ByteBuffer header = ProbeIO.read(channel, pos, PAGE_HEADER_SIZE + 255, ByteOrder.LITTLE_ENDIAN);
+            if (header.limit() < PAGE_HEADER_SIZE || !ProbeIO.startsWith(header, 0, "OggS"))
+                return null;
+            int segments = header.get(26) & 0xFF;
+            if (header.limit() < PAGE_HEADER_SIZE + segments)
+                return null;
+            int bodySize = 0;
+            for (int i = 0; i < segments; i++)
+                bodySize += header.get(PAGE_HEADER_SIZE + i) & 0xFF;
+            long bodyStart = pos + PAGE_HEADER_SIZE + segments;
+            ByteBuffer body = ProbeIO.read(channel, bodyStart, bodySize, ByteOrder.LITTLE_ENDIAN);
+            int offset = 0;
+            for (int i = 0; i < segments && packetIndex < 2; i++) {
+                int lacing = header.get(PAGE_HEADER_SIZE + i) & 0xFF;
+                int length = Math.min(lacing, body.limit() - offset);
+                if (length < 0)
+                    return null;
+                if (packet.size() + length <= MAX_HEADER_PACKET_SIZE)
+                    packet.write(body.array(), offset, length);
+                offset += lacing;
+                if (lacing < 255) {
+                    packets[packetIndex++] = ByteBuffer.wrap(packet.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+                    packet.reset();
+                }
+            }
+            pos = bodyStart + bodySize;
+        }
+        return packets;
+    }
+
+    /**
+     * The pages from the first one with a granule position, the header pages before it hold the comments. The page
+     * headers are part of the payload, so a comment spanning another number of pages changes it.
+     */
+    @Override
+    public @Nullable AudioPayload findPayload(@NotNull FileChannel channel) throws IOException {
+        long size = channel.size();
+        long pos = 0;
+        while (pos + PAGE_HEADER_SIZE <= size) {
+            ByteBuffer header = ProbeIO.read(channel, pos, PAGE_HEADER_SIZE + 255, ByteOrder.LITTLE_ENDIAN);
+            if (header.limit() < PAGE_HEADER_SIZE || !ProbeIO.startsWith(header, 0, "OggS"))
+                return null;
+            if (header.getLong(6) > 0)
+                return new AudioPayload(pos, size - pos);
+            int segments = header.get(26) & 0xFF;
+            if (header.limit() < PAGE_HEADER_SIZE + segments)
+                return null;
+            int bodySize = 0;
+            for (int i = 0; i < segments; i++)
+                bodySize += header.get(PAGE_HEADER_SIZE + i) & 0xFF;
+            pos += PAGE_HEADER_SIZE + segments + bodySize;
+        }
+        return null;
+    }
+
+    private static long readLastGranule(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int tailSize = (int) Math.min(size, ProbeIO.WINDOW_SIZE);
+        ByteBuffer tail = ProbeIO.read(channel, size - tailSize, tailSize, ByteOrder.LITTLE_ENDIAN);
+        for (int i = tail.limit() - PAGE_HEADER_SIZE; i >= 0; i--) {
+            if (ProbeIO.startsWith(tail, i, "OggS")) {
+                long granule = tail.getLong(i + 6);
+                if (granule >= 0)
+                    return granule;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,61 @@
+package app.audio.format;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Shared helpers of the probes
+ */
+final class ProbeIO {
+    static final int WINDOW_SIZE = 64 * 1024;
+
+    private ProbeIO() {
+    }
+
+    static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0)
+                break;
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Reads up to {@code size} bytes at {@code position} into a new buffer which is flipped for reading
+     */
+    static @NotNull ByteBuffer read(FileChannel channel, long position, int size, ByteOrder order) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(order);
+        readFully(channel, buffer, position);
+        return buffer.flip();
+    }
+
+    static boolean startsWith(ByteBuffer buffer, int offset, String ascii) {
+        if (buffer.limit() < offset + ascii.length())
+            return false;
+        for (int i = 0; i < ascii.length(); i++) {
+            if (buffer.get(offset + i) != (byte) ascii.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    static @NotNull String utf8(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static @NotNull String ascii(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+}
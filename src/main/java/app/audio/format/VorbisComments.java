@@ -0,0 +1,68 @@
+package app.audio.format;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Locale;
+
+/**
+ * Vorbis comment block shared by FLAC, Ogg Vorbis and Opus. Only the fields the library shows are kept.
+ * <pre>
+ * u32 vendor length, vendor, u32 comment count, (u32 length, "KEY=value")*
+ * </pre>
+ */
+final class VorbisComments {
+    @Nullable String title;
+    @Nullable String artist;
+    @Nullable String album;
+    int trackNumber;
+    int discNumber;
+    // base64 FLAC PICTURE block, the artwork of Ogg files
+    @Nullable String picture;
+
+    /**
+     * Parses as many comments as fit into the buffer, a truncated block keeps the comments read so far
+     */
+    static VorbisComments parse(ByteBuffer buffer, int offset, int end) {
+        VorbisComments comments = new VorbisComments();
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            end = Math.min(end, buffer.limit());
+            if (offset + 4 > end)
+                return comments;
+            int pos = offset + 4 + buffer.getInt(offset);
+            if (pos < 0 || pos + 4 > end)
+                return comments;
+            int count = buffer.getInt(pos);
+            pos += 4;
+            for (int i = 0; i < count && pos + 4 <= end; i++) {
+                int length = buffer.getInt(pos);
+                pos += 4;
+                if (length < 0 || pos + length > end)
+                    break;
+                comments.add(ProbeIO.utf8(buffer, pos, length));
+                pos += length;
+            }
+            return comments;
+        } finally {
+            buffer.order(order);
+        }
+    }
+
+    private void add(String comment) {
+        int separator = comment.indexOf('=');
+        if (separator <= 0)
+            return;
+        String value = comment.substring(separator + 1);
+        switch (comment.substring(0, separator).toUpperCase(Locale.ROOT)) {
+            case "TITLE" -> title = title == null ? value : title;
+            case "ARTIST" -> artist = artist == null ? value : artist + "/" + value;
+            case "ALBUM" -> album = album == null ? value : album;
+            case "TRACKNUMBER" -> trackNumber = trackNumber == 0 ? AudioMetadata.parsePosition(value) : trackNumber;
+            case "DISCNUMBER" -> discNumber = discNumber == 0 ? AudioMetadata.parsePosition(value) : discNumber;
+            case "METADATA_BLOCK_PICTURE" -> picture = picture == null ? value : picture;
+        }
+    }
+}
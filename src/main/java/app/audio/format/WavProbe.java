@@ -0,0 +1,100 @@
+package app.audio.format;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * RIFF WAVE: duration from the byte rate of the fmt chunk and the size of the data chunk,
+ * tags from the LIST INFO chunk if there is one. WAV has no standard artwork.
+ */
+final class WavProbe implements AudioFormatProbe {
+    private static final int MAX_INFO_SIZE = 64 * 1024;
+
+    @Override
+    public @NotNull String getName() {
+        return "WAV";
+    }
+
+    @Override
+    public @NotNull String[] getExtensions() {
+        return new String[]{"wav", "wave"};
+    }
+
+    @Override
+    public boolean matchesMagic(@NotNull ByteBuffer head) {
+        return ProbeIO.startsWith(head, 0, "RIFF") && ProbeIO.startsWith(head, 8, "WAVE");
+    }
+
+    @Override
+    public @Nullable AudioMetadata readMetadata(@NotNull File file, @NotNull FileChannel channel) throws IOException {
+        long size = channel.size();
+        long pos = 12;
+        long byteRate = 0;
+        long dataSize = -1;
+        String title = null, artist = null, album = null;
+        int trackNumber = 0;
+        while (pos + 8 <= size) {
+            ByteBuffer header = ProbeIO.read(channel, pos, 12, ByteOrder.LITTLE_ENDIAN);
+            String id = ProbeIO.ascii(header, 0, 4);
+            long length = header.getInt(4) & 0xFFFFFFFFL;
+            long body = pos + 8;
+            switch (id) {
+                case "fmt " -> {
+                    ByteBuffer fmt = ProbeIO.read(channel, body, 12, ByteOrder.LITTLE_ENDIAN);
+                    if (fmt.limit() >= 12)
+                        byteRate = fmt.getInt(8) & 0xFFFFFFFFL;
+                }
+                case "data" -> dataSize = Math.min(length, size - body);
+                case "LIST" -> {
+                    if (header.limit() >= 12 && ProbeIO.startsWith(header, 8, "INFO")) {
+                        int infoSize = (int) Math.min(length, MAX_INFO_SIZE);
+                        ByteBuffer info = ProbeIO.read(channel, body, infoSize, ByteOrder.LITTLE_ENDIAN);
+                        int p = 4;
+                        while (p + 8 <= info.limit()) {
+                            String key = ProbeIO.ascii(info, p, 4);
+                            int valueLength = info.getInt(p + 4);
+                            if (valueLength < 0 || p + 8 + valueLength > info.limit())
+                                break;
+                            String value = ProbeIO.utf8(info, p + 8, valueLength).replace("\0", "").trim();
+                            switch (key) {
+                                case "INAM" -> title = value;
+                                case "IART" -> artist = value;
+                                case "IPRD" -> album = value;
+                                case "ITRK" -> trackNumber = AudioMetadata.parsePosition(value);
+                            }
+                            p += 8 + valueLength + (valueLength & 1);
+                        }
+                    }
+                }
+            }
+            pos = body + length + (length & 1); // chunks are word aligned
+        }
+        if (byteRate <= 0 || dataSize < 0)
+            return null;
+        return new AudioMetadata(title, artist, album, -1, 0, dataSize * 1000 / byteRate, trackNumber, 0);
+    }
+
+    /**
+     * The body of the data chunk
+     */
+    @Override
+    public @Nullable AudioPayload findPayload(@NotNull FileChannel channel) throws IOException {
+        long size = channel.size();
+        long pos = 12;
+        while (pos + 8 <= size) {
+            ByteBuffer header = ProbeIO.read(channel, pos, 8, ByteOrder.LITTLE_ENDIAN);
+            long length = header.getInt(4) & 0xFFFFFFFFL;
+            long body = pos + 8;
+            if (ProbeIO.startsWith(header, 0, "data"))
+                return new AudioPayload(body, Math.min(length, size - body));
+            pos = body + length + (length & 1);
+        }
+        return null;
+    }
+}
@@ -2,7 +2,6 @@ package app.audio.indexer;
 
 import app.audio.AudioData;
 import app.comparators.ImageComparator;
-import material.constants.Size;
 import material.utils.GraphicsUtils;
 import material.utils.Log;
 import org.jetbrains.annotations.NotNull;
@@ -11,15 +10,27 @@ import org.jetbrains.annotations.Nullable;
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.util.HashMap;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
 import java.util.Objects;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Square thumbnails of the embedded artworks, shared by every track with the same image. Only plain images are used
+ * here, so tracks can be indexed without a display. Each thumbnail is also written to the disk keyed by its hash, so
+ * tracks restored from the file cache get theirs without reading the audio file again.
+ */
 public class ArtworkManager {
     private static BufferedImage DEFAULT_ARTWORK;
-    private static final Size ARTWORK_SIZE = new Size(200);
-    private static final HashMap<Integer, BufferedImage> ARTWORKS = new HashMap<>();
-    private static final TreeMap<AudioData, Integer> ARTWORKS_POINTER = new TreeMap<>();
+    private static final int ARTWORK_SIZE = 200;
+    private static final String CACHE_DIR = "cache/artworks";
+    private static final File CACHE_DIRECTORY = new File(CACHE_DIR);
+    // tracks are read by several threads at once
+    private static final Map<Integer, BufferedImage> ARTWORKS = new ConcurrentHashMap<>();
+    private static final Map<AudioData, Integer> ARTWORKS_POINTER = new ConcurrentHashMap<>();
     private static ArtworkManager instance;
 
     public static int DEFAULT_ARTWORK_POINTER;
@@ -28,10 +39,10 @@ public class ArtworkManager {
         if (DEFAULT_ARTWORK == null) {
             try {
                 BufferedImage artworkAltImage = ImageIO.read(Objects.requireNonNull(AudioData.class.getClassLoader().getResource("images/artwork.jpg"), "Artwork.jpg not found"));
-                DEFAULT_ARTWORK = GraphicsUtils.resize(artworkAltImage, ARTWORK_SIZE.getWidthInt(), ARTWORK_SIZE.getHeightInt());
+                DEFAULT_ARTWORK = GraphicsUtils.resize(artworkAltImage, ARTWORK_SIZE, ARTWORK_SIZE);
             } catch (Exception e) {
                 Log.error(e.toString());
-                DEFAULT_ARTWORK = new BufferedImage(ARTWORK_SIZE.getWidthInt(), ARTWORK_SIZE.getHeightInt(), BufferedImage.TYPE_INT_RGB);
+                DEFAULT_ARTWORK = new BufferedImage(ARTWORK_SIZE, ARTWORK_SIZE, BufferedImage.TYPE_INT_RGB);
             }
             DEFAULT_ARTWORK.setAccelerationPriority(1f);
             DEFAULT_ARTWORK_POINTER = ImageComparator.calculateMurmurHash(DEFAULT_ARTWORK);
@@ -56,14 +67,16 @@ public class ArtworkManager {
                 }
                 int hash = ImageComparator.calculateMurmurHash(artwork);
                 if (!ARTWORKS.containsKey(hash)) {
+                    // two threads may resize the same image, either result is kept
                     int w = artwork.getWidth(null);
                     int h = artwork.getHeight(null);
                     int maxSize = Math.min(w, h);
                     int x = (w - maxSize) / 2;
                     int y = (h - maxSize) / 2;
-                    artwork = GraphicsUtils.resize(artwork.getSubimage(x, y, maxSize, maxSize), ARTWORK_SIZE.getWidthInt(), ARTWORK_SIZE.getHeightInt());
+                    artwork = GraphicsUtils.resize(artwork.getSubimage(x, y, maxSize, maxSize), ARTWORK_SIZE, ARTWORK_SIZE);
                     artwork.setAccelerationPriority(1f);
                     ARTWORKS.put(hash, artwork);
+                    saveThumbnail(hash, artwork);
                 }
                 ARTWORKS_POINTER.put(audio, hash);
             }
@@ -79,15 +92,79 @@ public class ArtworkManager {
         });
     }
 
+    /**
+     * Makes the thumbnail available to {@link #setThumbnail}, reading it from the disk cache if it isn't loaded yet
+     *
+     * @return false if the thumbnail was never written or can't be read
+     */
+    public boolean loadThumbnail(int hash) {
+        if (ARTWORKS.containsKey(hash))
+            return true;
+        File file = getCacheFile(hash);
+        if (!file.exists())
+            return false;
+        try {
+            // two threads may read the same thumbnail, either result is kept
+            BufferedImage artwork = ImageIO.read(file);
+            if (artwork == null)
+                return false;
+            artwork.setAccelerationPriority(1f);
+            ARTWORKS.put(hash, artwork);
+            return true;
+        } catch (IOException e) {
+            Log.error("Couldn't read cached artwork " + file + ": " + e);
+            return false;
+        }
+    }
+
+    /**
+     * Points the track to a thumbnail already loaded by {@link #loadThumbnail}
+     */
+    public void setThumbnail(@NotNull AudioData audio, int hash) {
+        ARTWORKS_POINTER.put(audio, ARTWORKS.containsKey(hash) ? hash : DEFAULT_ARTWORK_POINTER);
+    }
+
+    /**
+     * @return hash of the thumbnail of the track, the default artwork's if it has none
+     */
+    public int getThumbnailHash(@NotNull AudioData audio) {
+        return ARTWORKS_POINTER.getOrDefault(audio, DEFAULT_ARTWORK_POINTER);
+    }
+
+    private void saveThumbnail(int hash, @NotNull BufferedImage artwork) {
+        File file = getCacheFile(hash);
+        if (file.exists())
+            return;
+        if (!CACHE_DIRECTORY.exists() && !CACHE_DIRECTORY.mkdirs()) {
+            Log.error("Couldn't create artwork cache directory: " + CACHE_DIRECTORY.getAbsolutePath());
+            return;
+        }
+        // per thread, two of them may write the same thumbnail
+        File tempFile = new File(CACHE_DIRECTORY, file.getName() + "." + Thread.currentThread().threadId() + ".tmp");
+        try {
+            ImageIO.write(artwork, "png", tempFile);
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Log.error("Couldn't write artwork cache " + file + ": " + e);
+        }
+    }
+
+    private static @NotNull File getCacheFile(int hash) {
+        return new File(CACHE_DIRECTORY, "%08x.png".formatted(hash));
+    }
+
     public @NotNull BufferedImage getArtwork(AudioData audio) {
         return ARTWORKS.get(ARTWORKS_POINTER.get(audio));
     }
 
-    public @NotNull Size getArtworkSize() {
+    /**
+     * @return width and height of the thumbnails
+     */
+    public int getArtworkSize() {
         return ARTWORK_SIZE;
     }
 
-    public static ArtworkManager getInstance() {
+    public static synchronized ArtworkManager getInstance() {
         if (instance == null)
             instance = new ArtworkManager();
         return instance;
@@ -1,38 +1,53 @@
 package app.audio.indexer;
 
+import app.audio.Album;
 import app.audio.Artist;
 import app.audio.AudioData;
 import app.audio.Folder;
 import app.audio.Playlist;
 import app.audio.search.SystemSearch;
+import app.local.LocalSettings;
+import app.components.enums.SortingPolicy;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.text.Normalizer;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class AudioDataIndexer {
     private static ArrayList<Runnable> indexUpdatedListeners = new ArrayList<>();
+    private final CopyOnWriteArrayList<AudioFileListener> audioFileListeners = new CopyOnWriteArrayList<>();
     private static final int InitialCapacity = 50;
     private static AudioDataIndexer instance;
-    private final ArrayList<String> audioFilePath = new ArrayList<>(InitialCapacity);
+    private final HashMap<String, AudioData> audioFilesByPath = new HashMap<>(InitialCapacity);
     private final ArrayList<AudioData> allAudioFiles = new ArrayList<>(InitialCapacity);
     private final ArrayList<Artist> audioFilesByArtist = new ArrayList<>(InitialCapacity);
     private final ArrayList<Folder> audioFilesByFolder = new ArrayList<>(InitialCapacity);
+    private final ArrayList<Album> albums = new ArrayList<>(InitialCapacity);
+    // groups by normalized name, see normalize
+    private final HashMap<String, Artist> artistsByName = new HashMap<>(InitialCapacity);
+    private final HashMap<String, Folder> foldersByPath = new HashMap<>(InitialCapacity);
+    private final HashMap<String, Album> albumsByName = new HashMap<>(InitialCapacity);
+    // tracks already added to their artists, folder and album
+    private final HashSet<AudioData> groupedAudioFiles = new HashSet<>(InitialCapacity);
     private final ArrayList<Playlist> playlists = new ArrayList<>(5);
     private final ArrayList<AudioData> favoriteAudioData = new ArrayList<>(5);
     private static IndexerSortingPolicy indexerSortingPolicy = IndexerSortingPolicy.ASCENDING;
     private boolean isSorted = false;
+    // files added or removed since the index was created
+    private int modificationCount;
 
     /**********************************************
                      ALL AUDIO FILES
      *********************************************/
     public synchronized void indexAndSortAudioFiles() {
-        var temp = allAudioFiles.stream().sorted(AudioFileComparators.getAscendingComparator()).toList();
-        allAudioFiles.clear();
-        allAudioFiles.addAll(temp);
-        indexAudioTilesByArtists();
-        indexAudioTilesByFolders();
+        AudioSortIndex.getInstance().sort(allAudioFiles, SortingPolicy.TITLE);
+        indexGroups();
         isSorted = true;
     }
 
@@ -47,9 +62,25 @@ public class AudioDataIndexer {
         Thread.startVirtualThread(() -> addAudioFile(audioData));
     }
 
-    public synchronized void addAudioFile(@NotNull AudioData audioData) {
-        if(!allAudioFiles.contains(audioData)) {
+    public void addAudioFile(@NotNull AudioData audioData) {
+        if (addToIndex(audioData)) {
+            for (AudioFileListener listener : audioFileListeners)
+                listener.audioFileAdded(audioData);
+        }
+    }
+
+    private synchronized boolean addToIndex(@NotNull AudioData audioData) {
+        String path = audioData.getFile().getAbsolutePath();
+        if (audioFilesByPath.putIfAbsent(path, audioData) == null) {
             allAudioFiles.add(audioData);
+            // under the same lock as removeFromIndex, so a track can't be removed before it's sorted
+            AudioSortIndex.getInstance().add(audioData);
+            // favorites and playlists saved by the user
+            LocalSettings settings = LocalSettings.getInstance();
+            if (settings.isFavorite(path))
+                audioData.setFavorite(true);
+            if (audioData.getPlaylists() == null)
+                audioData.setPlaylists(settings.getPlaylistsContaining(path));
             var playlists = audioData.getPlaylists();
             if (playlists != null) {
                 for (Playlist playlist : playlists) {
@@ -61,48 +92,136 @@ public class AudioDataIndexer {
             }
             if (audioData.isFavorite())
                 addAudioFileToFavorites(audioData);
-            audioFilePath.add(audioData.getFile().getAbsolutePath());
+            modificationCount++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes a file which no longer exists from every index
+     */
+    public void removeAudioFile(@NotNull String path) {
+        AudioData removed = removeFromIndex(path);
+        if (removed != null) {
+            for (AudioFileListener listener : audioFileListeners)
+                listener.audioFileRemoved(removed);
+            removed.removeFromStore();
         }
     }
+
+    private synchronized @Nullable AudioData removeFromIndex(@NotNull String path) {
+        AudioData removed = audioFilesByPath.remove(path);
+        if (removed == null)
+            return null;
+        allAudioFiles.remove(removed);
+        AudioSortIndex.getInstance().remove(removed);
+        // playlists keep the path, the file may only be on a drive that isn't mounted
+        favoriteAudioData.remove(removed);
+        if (groupedAudioFiles.remove(removed))
+            ungroup(removed);
+        modificationCount++;
+        return removed;
+    }
+
+    public synchronized int getModificationCount() {
+        return modificationCount;
+    }
     /**********************************************
-                        ARTISTS
+                        GROUPS
      *********************************************/
 
-    public void indexAudioFileByArtistsAsync() {
-        Thread.startVirtualThread(this::indexAudioTilesByArtists);
+    public void indexGroupsAsync() {
+        Thread.startVirtualThread(this::indexGroups);
+    }
+
+    /**
+     * Adds every track which isn't grouped yet to its artists, folder and album in one pass over the library.
+     * Groups are found by normalized name in hash maps, so the pass is linear in the number of tracks.
+     */
+    public synchronized void indexGroups() {
+        for (AudioData audioData : allAudioFiles) {
+            if (groupedAudioFiles.add(audioData))
+                group(audioData);
+        }
+    }
+
+    private void group(AudioData audioData) {
+        String[] artistNames = audioData.getArtists();
+        for (String artistName : artistNames)
+            createOrGetArtist(artistName).addAudioData(audioData);
+        createOrGetFolder(audioData.getFolderPath()).addAudioData(audioData);
+        if (hasAlbum(audioData))
+            createOrGetAlbum(audioData.getAlbum(), artistNames[0]).addAudioData(audioData);
     }
 
-    public synchronized void indexAudioTilesByArtists() {
-        for (AudioData audioData : getAllAudioFiles()) {
-            String[] artistNames = audioData.getArtists();
-            for(String artistName : artistNames) {
-                Artist artist = createOrGetArtist(artistName);
-                artist.addAudioData(audioData);
+    /**
+     * Removes the track from its groups, groups left empty are dropped
+     */
+    private void ungroup(AudioData audioData) {
+        String[] artistNames = audioData.getArtists();
+        for (String artistName : artistNames) {
+            String key = normalize(artistName);
+            Artist artist = artistsByName.get(key);
+            if (artist != null) {
+                artist.removeAudioData(audioData);
+                if (artist.getAudioDataList().isEmpty()) {
+                    artistsByName.remove(key);
+                    audioFilesByArtist.remove(artist);
+                }
+            }
+        }
+        String folderKey = Folder.pathKey(audioData.getFolderPath());
+        Folder folder = foldersByPath.get(folderKey);
+        if (folder != null) {
+            folder.removeAudioData(audioData);
+            if (folder.getAudioDatas().isEmpty()) {
+                foldersByPath.remove(folderKey);
+                audioFilesByFolder.remove(folder);
+            }
+        }
+        if (hasAlbum(audioData)) {
+            String albumKey = albumKey(audioData.getAlbum(), artistNames[0]);
+            Album album = albumsByName.get(albumKey);
+            if (album != null) {
+                album.removeAudioData(audioData);
+                if (album.isEmpty()) {
+                    albumsByName.remove(albumKey);
+                    albums.remove(album);
+                }
             }
         }
     }
 
-    private @NotNull synchronized Artist createOrGetArtist(String name) {
+    /**
+     * Names are compared after stripping, case folding and unicode compatibility normalization, so names which only
+     * differ in case, surrounding spaces or how their accents are encoded are one group
+     */
+    private static String normalize(String name) {
         name = name.strip();
-        for(Artist artist : audioFilesByArtist){
-            if(artist.getName().equalsIgnoreCase(name)){
-                return artist;
-            }
+        // NFKC leaves ascii as it is, most names skip the normalizer
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) >= 0x80)
+                return Normalizer.normalize(name, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
         }
-        //If it's a new artist then add it to the array
-        audioFilesByArtist.add(new Artist(name));
-        return createOrGetArtist(name);
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**********************************************
+                        ARTISTS
+     *********************************************/
+
+    private @NotNull synchronized Artist createOrGetArtist(String name) {
+        return artistsByName.computeIfAbsent(normalize(name), key -> {
+            Artist artist = new Artist(name.strip());
+            audioFilesByArtist.add(artist);
+            return artist;
+        });
     }
-    public @Nullable Artist getArtistByName(String name){
+    public synchronized @Nullable Artist getArtistByName(String name){
         if(name == null)
             return null;
-        name = name.strip();
-        for(Artist artist : audioFilesByArtist){
-            if(artist.getName().equalsIgnoreCase(name)){
-                return artist;
-            }
-        }
-        return null;
+        return artistsByName.get(normalize(name));
     }
     public final ArrayList<Artist> getAllArtists() {
         return audioFilesByArtist;
@@ -113,10 +232,14 @@ public class AudioDataIndexer {
     public synchronized void addAudioFileToFavorites(@NotNull AudioData audio) {
         if (!favoriteAudioData.contains(audio))
             favoriteAudioData.add(audio);
+        audio.setFavorite(true);
+        LocalSettings.getInstance().setFavorite(audio.getFile().getAbsolutePath(), true);
     }
 
     public synchronized void removeAudioFileFromFavorites(@NotNull AudioData audio) {
         favoriteAudioData.remove(audio);
+        audio.setFavorite(false);
+        LocalSettings.getInstance().setFavorite(audio.getFile().getAbsolutePath(), false);
     }
     public ArrayList<AudioData> getAudioFilesByFavorites() {
         return favoriteAudioData;
@@ -134,45 +257,67 @@ public class AudioDataIndexer {
     public synchronized void addPlaylist(Playlist playlist) {
         if (!playlists.contains(playlist))
             playlists.add(playlist);
+        LocalSettings.getInstance().createPlaylist(playlist);
     }
 
     /**********************************************
                         FOLDERS
      *********************************************/
-    public void indexAudioFileByFoldersAsync() {
-        Thread.startVirtualThread(this::indexAudioTilesByFolders);
-    }
-
-    public synchronized void indexAudioTilesByFolders() {
-        for (AudioData audioData : getAllAudioFiles()) {
-            String folderPath = audioData.getFolderPath();
-            Folder folder = createOrGetFolder(folderPath);
-            folder.addAudioData(audioData);
-        }
-    }
 
     /**
      * Saves the audio to  in memory if that folder already exists otherwise create  a new one
      */
     private synchronized Folder createOrGetFolder(String folderPath){
-        String path = folderPath.strip();
-        for(Folder folder : audioFilesByFolder){
-            if(folder.getPath().equalsIgnoreCase(path)){
-                return folder;
-            }
-        }
-        //If it's a new folder then add it to the array
-        audioFilesByFolder.add(new Folder(folderPath));
-        return createOrGetFolder(folderPath);
+        return foldersByPath.computeIfAbsent(Folder.pathKey(folderPath), key -> {
+            Folder folder = new Folder(folderPath);
+            audioFilesByFolder.add(folder);
+            return folder;
+        });
     }
     public final ArrayList<Folder> getAllFolders(){
         return audioFilesByFolder;
     }
 
+    /**********************************************
+                        ALBUMS
+     *********************************************/
+
+    /**
+     * Tracks without an album tag aren't part of any album
+     */
+    private static boolean hasAlbum(AudioData audioData) {
+        return !audioData.getAlbum().equals("Unknown");
+    }
+
+    /**
+     * Albums are told apart by name and first artist, there's no album artist tag to tell compilations apart
+     */
+    private static String albumKey(String name, String artist) {
+        return normalize(name) + '\0' + normalize(artist);
+    }
+
+    private synchronized Album createOrGetAlbum(String name, String artist) {
+        return albumsByName.computeIfAbsent(albumKey(name, artist), key -> {
+            Album album = new Album(name.strip(), artist.strip());
+            albums.add(album);
+            return album;
+        });
+    }
+
+    public synchronized @Nullable Album getAlbum(String name, String artist) {
+        if (name == null || artist == null)
+            return null;
+        return albumsByName.get(albumKey(name, artist));
+    }
+
+    public final ArrayList<Album> getAllAlbums() {
+        return albums;
+    }
+
     /**********************************************
                         UTILITY FUNCTIONS
      *********************************************/
-    public static AudioDataIndexer getInstance() {
+    public static synchronized AudioDataIndexer getInstance() {
         if (instance == null)
             instance = new AudioDataIndexer();
         return instance;
@@ -199,6 +344,24 @@ public class AudioDataIndexer {
             indexUpdatedListeners.add(r);
     }
 
+    /**
+     * Notified of every file added to or removed from the library, on the thread that changed it and without the
+     * index locked
+     */
+    public interface AudioFileListener {
+        void audioFileAdded(@NotNull AudioData audioData);
+
+        void audioFileRemoved(@NotNull AudioData audioData);
+    }
+
+    public void addAudioFileListener(@NotNull AudioFileListener listener) {
+        audioFileListeners.add(listener);
+    }
+
+    public void removeAudioFileListener(@NotNull AudioFileListener listener) {
+        audioFileListeners.remove(listener);
+    }
+
     public synchronized void removeIndexUpdatedListener(Runnable r) {
         indexUpdatedListeners.remove(r);
         if(indexUpdatedListeners.isEmpty())
@@ -215,7 +378,7 @@ public class AudioDataIndexer {
 
 
     public boolean isIndexed() {
-        return isSorted && SystemSearch.getInstance().isSearchOnceComplete();
+        return isSorted && (SystemSearch.getInstance().isSearchOnceComplete() || SystemSearch.getInstance().isIndexRestored());
     }
 
     public void getAudioFilesByArtist() {
@@ -224,7 +387,14 @@ public class AudioDataIndexer {
     public boolean isFileLoaded(File file) {
         return isFileLoaded(file.getAbsolutePath());
     }
-    public boolean isFileLoaded(String path) {
-        return audioFilePath.contains(path);
+    public synchronized boolean isFileLoaded(String path) {
+        return audioFilesByPath.containsKey(path);
+    }
+
+    /**
+     * @return the indexed track at the absolute path or null if there's none
+     */
+    public synchronized @Nullable AudioData getAudioFile(@NotNull String path) {
+        return audioFilesByPath.get(path);
     }
 }
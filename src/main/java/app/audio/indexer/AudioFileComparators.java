@@ -1,16 +1,23 @@
 package app.audio.indexer;
 
 import app.audio.AudioData;
+import java.text.Collator;
 import java.util.Comparator;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
+/**
+ * Locale aware title comparators, sorting the library should go through {@link AudioSortIndex} which compares
+ * precomputed keys instead
+ */
 public class AudioFileComparators {
     @Contract(value = " -> new", pure = true)
     public static @NotNull Comparator<AudioData> getAscendingComparator() {
-        return Comparator.comparing(AudioData::getName);
+        Collator collator = Collator.getInstance();
+        collator.setStrength(Collator.SECONDARY);
+        return Comparator.comparing(AudioData::getName, collator);
     }
     public static @NotNull Comparator<AudioData> getDescendingComparator() {
-        return (o1, o2) -> o2.getName().compareTo(o1.getName());
+        return getAscendingComparator().reversed();
     }
 }
@@ -0,0 +1,283 @@
+package app.audio.indexer;
+
+import app.audio.AudioData;
+import app.components.enums.SortingPolicy;
+import material.utils.Log;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Sort keys of every indexed track, read once when the track is indexed: locale aware collation keys of the title
+ * and artists, the duration and the file's creation time. The library is kept sorted by every
+ * {@link SortingPolicy} as a permutation of track ids, so sorting any list of tracks compares two ints and never
+ * touches the file system.
+ * <p>
+ * Tracks added since the last sort are sorted among themselves and merged into each permutation the next time it's
+ * needed, a permutation costs nothing until its policy is used.
+ */
+public class AudioSortIndex {
+    private static final int INITIAL_CAPACITY = 64;
+    // pending tracks up to this count are inserted one by one, more are sorted and merged
+    private static final int INSERTION_LIMIT = 16;
+    private static final int UNKNOWN_RANK = Integer.MAX_VALUE;
+    private static AudioSortIndex instance;
+    private final Collator collator = Collator.getInstance();
+    private final Map<AudioData, Integer> ids = new IdentityHashMap<>();
+    private final Map<SortingPolicy, Permutation> permutations = new EnumMap<>(SortingPolicy.class);
+    private AudioData[] tracks = new AudioData[INITIAL_CAPACITY];
+    private CollationKey[] titleKeys = new CollationKey[INITIAL_CAPACITY];
+    private CollationKey[] artistKeys = new CollationKey[INITIAL_CAPACITY];
+    private long[] durations = new long[INITIAL_CAPACITY];
+    private long[] creationTimes = new long[INITIAL_CAPACITY];
+    private int trackCount;
+
+    private AudioSortIndex() {
+        // case insensitive, accents still matter
+        collator.setStrength(Collator.SECONDARY);
+        for (SortingPolicy policy : SortingPolicy.values())
+            permutations.put(policy, new Permutation(policy));
+    }
+
+    public static synchronized AudioSortIndex getInstance() {
+        if (instance == null)
+            instance = new AudioSortIndex();
+        return instance;
+    }
+
+    /**
+     * Reads the sort keys of the track, called once when it's indexed
+     */
+    public void add(@NotNull AudioData audioData) {
+        // the only I/O, done before locking so indexing threads don't wait on each other's disk reads
+        long creationTime = readCreationTime(audioData);
+        synchronized (this) {
+            if (ids.containsKey(audioData))
+                return;
+            int id = trackCount++;
+            if (id == tracks.length)
+                grow();
+            tracks[id] = audioData;
+            titleKeys[id] = collator.getCollationKey(audioData.getName());
+            artistKeys[id] = collator.getCollationKey(audioData.getArtistsConcatenated());
+            durations[id] = audioData.getDurationInMs();
+            creationTimes[id] = creationTime;
+            ids.put(audioData, id);
+            for (Permutation permutation : permutations.values())
+                permutation.add(id);
+        }
+    }
+
+    public synchronized void remove(@NotNull AudioData audioData) {
+        Integer id = ids.remove(audioData);
+        if (id == null)
+            return;
+        tracks[id] = null;
+        titleKeys[id] = artistKeys[id] = null;
+        for (Permutation permutation : permutations.values())
+            permutation.remove(id);
+    }
+
+    /**
+     * Sorts the tracks in place, tracks which aren't indexed go last in their current order
+     */
+    public void sort(@NotNull List<AudioData> audioData, @NotNull SortingPolicy policy) {
+        AudioData[] sorted = audioData.toArray(new AudioData[0]);
+        sort(sorted, Function.identity(), policy);
+        for (int i = 0; i < sorted.length; i++)
+            audioData.set(i, sorted[i]);
+    }
+
+    /**
+     * Sorts items by the track each one shows, tracks which aren't indexed go last in their current order
+     */
+    public synchronized <T> void sort(T @NotNull [] items, @NotNull Function<T, AudioData> trackOf, @NotNull SortingPolicy policy) {
+        int[] ranks = permutations.get(policy).getRanks();
+        // rank in the high bits, current position in the low bits: a plain long sort is stable and allocation free
+        long[] keys = new long[items.length];
+        for (int i = 0; i < items.length; i++) {
+            Integer id = ids.get(trackOf.apply(items[i]));
+            long rank = id == null ? UNKNOWN_RANK : ranks[id];
+            keys[i] = rank << 32 | i;
+        }
+        Arrays.sort(keys);
+        T[] copy = items.clone();
+        for (int i = 0; i < keys.length; i++)
+            items[i] = copy[(int) keys[i]];
+    }
+
+    /**
+     * @return the whole library in the policy's order
+     */
+    public synchronized @NotNull AudioData[] getSorted(@NotNull SortingPolicy policy) {
+        Permutation permutation = permutations.get(policy);
+        permutation.flush();
+        AudioData[] sorted = new AudioData[permutation.size];
+        for (int i = 0; i < sorted.length; i++)
+            sorted[i] = tracks[permutation.sortedIds[i]];
+        return sorted;
+    }
+
+    public synchronized int size() {
+        return ids.size();
+    }
+
+    private void grow() {
+        int capacity = tracks.length * 2;
+        tracks = Arrays.copyOf(tracks, capacity);
+        titleKeys = Arrays.copyOf(titleKeys, capacity);
+        artistKeys = Arrays.copyOf(artistKeys, capacity);
+        durations = Arrays.copyOf(durations, capacity);
+        creationTimes = Arrays.copyOf(creationTimes, capacity);
+    }
+
+    private static long readCreationTime(AudioData audioData) {
+        try {
+            return Files.readAttributes(audioData.getFile().toPath(), BasicFileAttributes.class).creationTime().toMillis();
+        } catch (IOException | UnsupportedOperationException | InvalidPathException e) {
+            Log.error("Couldn't read creation time of " + audioData.getFile() + ": " + e);
+            return 0;
+        }
+    }
+
+    private static int removeId(int[] array, int length, int id) {
+        int kept = 0;
+        for (int i = 0; i < length; i++) {
+            if (array[i] != id)
+                array[kept++] = array[i];
+        }
+        return kept;
+    }
+
+    /**
+     * Orders two tracks by the policy, ties are broken by title and then by the order they were indexed in
+     */
+    private int compare(SortingPolicy policy, int a, int b) {
+        int result = switch (policy) {
+            case TITLE, UNKNOWN -> 0;
+            case ARTIST -> artistKeys[a].compareTo(artistKeys[b]);
+            case DURATION -> Long.compare(durations[a], durations[b]);
+            case DATE_ADDED -> Long.compare(creationTimes[a], creationTimes[b]);
+        };
+        if (result == 0 && policy != SortingPolicy.UNKNOWN)
+            result = titleKeys[a].compareTo(titleKeys[b]);
+        return result != 0 ? result : Integer.compare(a, b);
+    }
+
+    /**
+     * Track ids sorted by one policy, with tracks added since the last flush waiting unsorted
+     */
+    private final class Permutation {
+        private final SortingPolicy policy;
+        private int[] sortedIds = new int[INITIAL_CAPACITY];
+        private int size;
+        private int[] pending = new int[INITIAL_CAPACITY];
+        private int pendingSize;
+        // position of every track id in the permutation, rebuilt after it changes
+        private int[] ranks = new int[0];
+        private boolean isRanksValid = true;
+
+        private Permutation(SortingPolicy policy) {
+            this.policy = policy;
+        }
+
+        private void add(int id) {
+            if (pendingSize == pending.length)
+                pending = Arrays.copyOf(pending, pendingSize * 2);
+            pending[pendingSize++] = id;
+            isRanksValid = false;
+        }
+
+        private void remove(int id) {
+            size = removeId(sortedIds, size, id);
+            pendingSize = removeId(pending, pendingSize, id);
+            isRanksValid = false;
+        }
+
+        private int[] getRanks() {
+            flush();
+            if (!isRanksValid) {
+                if (ranks.length < trackCount)
+                    ranks = new int[tracks.length];
+                Arrays.fill(ranks, UNKNOWN_RANK);
+                for (int i = 0; i < size; i++)
+                    ranks[sortedIds[i]] = i;
+                isRanksValid = true;
+            }
+            return ranks;
+        }
+
+        private void flush() {
+            if (pendingSize == 0)
+                return;
+            if (sortedIds.length < size + pendingSize)
+                sortedIds = Arrays.copyOf(sortedIds, Math.max(sortedIds.length * 2, size + pendingSize));
+            if (pendingSize <= INSERTION_LIMIT) {
+                for (int i = 0; i < pendingSize; i++)
+                    insert(pending[i]);
+            } else {
+                int[] sortedPending = Arrays.copyOf(pending, pendingSize);
+                mergeSort(sortedPending, new int[pendingSize], 0, pendingSize);
+                merge(sortedPending);
+            }
+            pendingSize = 0;
+        }
+
+        private void insert(int id) {
+            int low = 0, high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compare(policy, sortedIds[mid], id) < 0)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            System.arraycopy(sortedIds, low, sortedIds, low + 1, size - low);
+            sortedIds[low] = id;
+            size++;
+        }
+
+        /**
+         * Merges sorted ids into the permutation from the back, so it's done in place
+         */
+        private void merge(int[] sorted) {
+            int i = size - 1, j = sorted.length - 1, k = size + sorted.length - 1;
+            while (j >= 0) {
+                if (i >= 0 && compare(policy, sortedIds[i], sorted[j]) > 0)
+                    sortedIds[k--] = sortedIds[i--];
+                else
+                    sortedIds[k--] = sorted[j--];
+            }
+            size += sorted.length;
+        }
+
+        private void mergeSort(int[] a, int[] temp, int from, int to) {
+            if (to - from < 2)
+                return;
+            int mid = (from + to) >>> 1;
+            mergeSort(a, temp, from, mid);
+            mergeSort(a, temp, mid, to);
+            if (compare(policy, a[mid - 1], a[mid]) <= 0)
+                return;
+            System.arraycopy(a, from, temp, from, to - from);
+            int i = from, j = mid;
+            for (int k = from; k < to; k++) {
+                if (j >= to || (i < mid && compare(policy, temp[i], temp[j]) <= 0))
+                    a[k] = temp[i++];
+                else
+                    a[k] = temp[j++];
+            }
+        }
+    }
+}
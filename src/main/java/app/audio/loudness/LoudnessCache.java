@@ -0,0 +1,80 @@
+package app.audio.loudness;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import material.utils.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loudness values of the library keyed by absolute path, stored next to the file cache.
+ * An entry is only used while the last modified time of the file still matches.
+ */
+final class LoudnessCache {
+    private static final String CACHE_FILE_PATH = "loudness_cache.json";
+    private final ConcurrentHashMap<String, Entry> entries;
+    private volatile boolean isDirty;
+
+    static final class Entry {
+        long lastModified;
+        double integratedLoudness;
+        double truePeak;
+
+        Entry(long lastModified, double integratedLoudness, double truePeak) {
+            this.lastModified = lastModified;
+            this.integratedLoudness = integratedLoudness;
+            this.truePeak = truePeak;
+        }
+    }
+
+    LoudnessCache() {
+        entries = new ConcurrentHashMap<>(loadCache());
+    }
+
+    @Nullable Entry get(@NotNull File file) {
+        Entry entry = entries.get(file.getAbsolutePath());
+        if (entry == null || entry.lastModified != file.lastModified())
+            return null;
+        return entry;
+    }
+
+    void put(@NotNull File file, double integratedLoudness, double truePeak) {
+        entries.put(file.getAbsolutePath(), new Entry(file.lastModified(), integratedLoudness, truePeak));
+        isDirty = true;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private Map<String, Entry> loadCache() {
+        try (Reader reader = new FileReader(CACHE_FILE_PATH)) {
+            Type mapType = new TypeToken<HashMap<String, Entry>>() {
+            }.getType();
+            Map<String, Entry> map = new Gson().fromJson(reader, mapType);
+            return map == null ? new HashMap<>(0) : map;
+        } catch (Exception e) {
+            // Cache file does not exist yet
+            return new HashMap<>(0);
+        }
+    }
+
+    void saveCacheToStorage() {
+        if (!isDirty)
+            return;
+        try (Writer writer = new FileWriter(CACHE_FILE_PATH)) {
+            Gson gson = new GsonBuilder().serializeSpecialFloatingPointValues().create();
+            gson.toJson(entries, writer);
+            isDirty = false;
+        } catch (IOException e) {
+            Log.error("Couldn't save loudness cache: " + e);
+        }
+    }
+}
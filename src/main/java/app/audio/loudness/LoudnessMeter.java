@@ -0,0 +1,140 @@
+package app.audio.loudness;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Streaming ITU-R BS.1770 / EBU R128 meter for interleaved stereo float samples at 48 kHz.
+ * <p>
+ * Samples are K-weighted and squared into 100ms sub-blocks, four of which form one 400ms gating block
+ * (75% overlap). Integrated loudness uses the absolute -70 LUFS gate followed by the relative -10 LU gate.
+ * True peak is estimated by 4x oversampling with linear interpolation between samples, which is close enough
+ * for clip prevention but slightly lower than a polyphase oversampled peak.
+ */
+final class LoudnessMeter {
+    static final int SAMPLE_RATE = 48_000;
+    static final int CHANNELS = 2;
+    private static final int SUB_BLOCK_SAMPLES = SAMPLE_RATE / 10;
+    private static final double ABSOLUTE_GATE_LUFS = -70;
+    private static final double RELATIVE_GATE_LU = -10;
+    private static final int OVERSAMPLING = 4;
+
+    // K-weighting at 48 kHz, stage 1 high shelf
+    private static final double S1_B0 = 1.53512485958697, S1_B1 = -2.69169618940638, S1_B2 = 1.19839281085285;
+    private static final double S1_A1 = -1.69065929318241, S1_A2 = 0.73248077421585;
+    // stage 2 high pass
+    private static final double S2_B0 = 1.0, S2_B1 = -2.0, S2_B2 = 1.0;
+    private static final double S2_A1 = -1.99004745483398, S2_A2 = 0.99007225036621;
+
+    // per channel filter state: x1, x2, y1, y2 of both stages
+    private final double[][] state = new double[CHANNELS][8];
+    private final float[] previousSample = new float[CHANNELS];
+    private final double[] subBlocks = new double[4];
+    private double subBlockSum;
+    private int subBlockSamples;
+    private int subBlockCount;
+    private double[] blockPowers = new double[256];
+    private int blockCount;
+    private double truePeak;
+    private long totalFrames;
+
+    void process(ByteBuffer samples) {
+        FloatBuffer floats = samples.asFloatBuffer();
+        while (floats.remaining() >= CHANNELS) {
+            double sum = 0;
+            for (int c = 0; c < CHANNELS; c++) {
+                float sample = floats.get();
+                trackPeak(c, sample);
+                double weighted = kWeight(state[c], sample);
+                sum += weighted * weighted;
+            }
+            subBlockSum += sum;
+            totalFrames++;
+            if (++subBlockSamples == SUB_BLOCK_SAMPLES)
+                finishSubBlock();
+        }
+    }
+
+    private void trackPeak(int channel, float sample) {
+        float previous = previousSample[channel];
+        for (int i = 1; i < OVERSAMPLING; i++) {
+            double interpolated = previous + (sample - previous) * i / (double) OVERSAMPLING;
+            truePeak = Math.max(truePeak, Math.abs(interpolated));
+        }
+        truePeak = Math.max(truePeak, Math.abs(sample));
+        previousSample[channel] = sample;
+    }
+
+    private static double kWeight(double[] s, double x) {
+        double y = S1_B0 * x + S1_B1 * s[0] + S1_B2 * s[1] - S1_A1 * s[2] - S1_A2 * s[3];
+        s[1] = s[0];
+        s[0] = x;
+        s[3] = s[2];
+        s[2] = y;
+        double z = S2_B0 * y + S2_B1 * s[4] + S2_B2 * s[5] - S2_A1 * s[6] - S2_A2 * s[7];
+        s[5] = s[4];
+        s[4] = y;
+        s[7] = s[6];
+        s[6] = z;
+        return z;
+    }
+
+    private void finishSubBlock() {
+        subBlocks[subBlockCount++ % 4] = subBlockSum / SUB_BLOCK_SAMPLES;
+        subBlockSum = 0;
+        subBlockSamples = 0;
+        if (subBlockCount >= 4) {
+            if (blockCount == blockPowers.length)
+                blockPowers = Arrays.copyOf(blockPowers, blockCount * 2);
+            blockPowers[blockCount++] = (subBlocks[0] + subBlocks[1] + subBlocks[2] + subBlocks[3]) / 4;
+        }
+    }
+
+    /**
+     * @return integrated loudness in LUFS or {@link Double#NEGATIVE_INFINITY} if everything was gated
+     */
+    double getIntegratedLoudness() {
+        double absoluteGate = toPower(ABSOLUTE_GATE_LUFS);
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i < blockCount; i++) {
+            if (blockPowers[i] > absoluteGate) {
+                sum += blockPowers[i];
+                count++;
+            }
+        }
+        if (count == 0)
+            return Double.NEGATIVE_INFINITY;
+
+        double relativeGate = toPower(toLoudness(sum / count) + RELATIVE_GATE_LU);
+        sum = 0;
+        count = 0;
+        for (int i = 0; i < blockCount; i++) {
+            if (blockPowers[i] > absoluteGate && blockPowers[i] > relativeGate) {
+                sum += blockPowers[i];
+                count++;
+            }
+        }
+        return count == 0 ? Double.NEGATIVE_INFINITY : toLoudness(sum / count);
+    }
+
+    /**
+     * @return linear true peak, 1.0 is full scale
+     */
+    double getTruePeak() {
+        return truePeak;
+    }
+
+    double getDurationInSeconds() {
+        return totalFrames / (double) SAMPLE_RATE;
+    }
+
+    private static double toLoudness(double power) {
+        return -0.691 + 10 * Math.log10(power);
+    }
+
+    private static double toPower(double loudness) {
+        return Math.pow(10, (loudness + 0.691) / 10);
+    }
+}
@@ -0,0 +1,119 @@
+package app.audio.loudness;
+
+import app.audio.AudioData;
+import app.audio.player.PcmDecoder;
+import app.audio.player.QuartzAudioController;
+import app.settings.StartupSettings;
+import material.utils.Log;
+import org.freedesktop.gstreamer.Gst;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures integrated loudness and true peak of the library so playback can be normalized.
+ * <p>
+ * Cached values are applied to every {@link AudioData} right away, only new or modified files are decoded.
+ * Analysis runs on a bounded pool of low priority workers which wait while audio is playing, so a scan
+ * started at startup never takes decoding time away from playback.
+ */
+public class LoudnessScanner {
+    private static final long PLAYBACK_WAIT_MS = 500;
+    private static LoudnessScanner instance;
+    private final LoudnessCache cache = new LoudnessCache();
+    private final ExecutorService pool;
+
+    private LoudnessScanner() {
+        int workers = Math.max(1, Math.min(StartupSettings.PARALLEL_THREAD_COUNT, Runtime.getRuntime().availableProcessors() / 2));
+        pool = Executors.newFixedThreadPool(workers, Thread.ofPlatform()
+                .name("Loudness scanner ", 0)
+                .daemon(true)
+                .priority(Thread.MIN_PRIORITY)
+                .factory());
+    }
+
+    public static LoudnessScanner getInstance() {
+        if (instance == null)
+            instance = new LoudnessScanner();
+        return instance;
+    }
+
+    /**
+     * Applies cached loudness values and queues every file without one for analysis
+     */
+    public void scan(@NotNull List<AudioData> audios) {
+        List<AudioData> pending = new ArrayList<>();
+        for (AudioData audio : audios) {
+            LoudnessCache.Entry entry = cache.get(audio.getFile());
+            if (entry != null)
+                audio.setLoudness(entry.integratedLoudness, entry.truePeak);
+            else
+                pending.add(audio);
+        }
+        Log.info("Loudness values cached: " + (audios.size() - pending.size()) + ", files to analyze: " + pending.size());
+        if (pending.isEmpty())
+            return;
+
+        long t1 = System.nanoTime();
+        AtomicInteger remaining = new AtomicInteger(pending.size());
+        AtomicInteger analyzed = new AtomicInteger();
+        AtomicLong analyzedAudioMs = new AtomicLong();
+        for (AudioData audio : pending) {
+            pool.execute(() -> {
+                double seconds = analyze(audio);
+                if (seconds > 0) {
+                    analyzed.incrementAndGet();
+                    analyzedAudioMs.addAndGet((long) (seconds * 1000));
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    cache.saveCacheToStorage();
+                    double elapsed = Math.max(1, System.nanoTime() - t1) / 1e9;
+                    Log.success("Loudness analysis of %d files done in %.1fs: %.1f files/s, %.0fx realtime".formatted(
+                            analyzed.get(), elapsed, analyzed.get() / elapsed, analyzedAudioMs.get() / 1000.0 / elapsed));
+                }
+            });
+        }
+    }
+
+    /**
+     * @return seconds of audio analyzed, 0 if analysis failed
+     */
+    private double analyze(@NotNull AudioData audio) {
+        File file = audio.getFile();
+        if (!Gst.isInitialized() || audio.isBroken())
+            return 0;
+        LoudnessMeter meter = new LoudnessMeter();
+        try {
+            boolean decoded = PcmDecoder.decode(file, PcmDecoder.SampleFormat.F32LE, LoudnessMeter.CHANNELS, LoudnessMeter.SAMPLE_RATE, samples -> {
+                meter.process(samples);
+                while (QuartzAudioController.getInstance().isPlaying())
+                    Thread.sleep(PLAYBACK_WAIT_MS);
+                return true;
+            });
+            if (!decoded)
+                return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (Exception e) {
+            Log.error("Couldn't analyze loudness of " + file + ": " + e);
+            return 0;
+        }
+        double loudness = meter.getIntegratedLoudness();
+        double truePeak = meter.getTruePeak();
+        audio.setLoudness(loudness, truePeak);
+        cache.put(file, loudness, truePeak);
+        return meter.getDurationInSeconds();
+    }
+
+    public void dispose() {
+        pool.shutdownNow();
+        cache.saveCacheToStorage();
+    }
+}
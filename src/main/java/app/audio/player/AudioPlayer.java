@@ -1,6 +1,7 @@
 package app.audio.player;
 
 import app.audio.AudioData;
+import material.utils.Log;
 import material.utils.OsInfo;
 import org.freedesktop.gstreamer.*;
 import org.freedesktop.gstreamer.elements.PlayBin;
@@ -34,6 +35,11 @@ class AudioPlayer implements AudioPlayerModel {
     private long lastExecutionTime = 0;
     private static final short THROTTLE_INTERVAL = (short) ((short) 1000 / OsInfo.getRefreshRate()); // Adjust this value as needed
     private boolean isVisualizerSamplingEnabled;
+    private double volume = 1;
+    private double replayGain = 1;
+    private boolean isFreshlyLoaded;
+    private boolean isLoadPrefetched;
+    private volatile long playRequestTime;
 
     //JNA uses the platform specific encoding by default so to allow UTF-8, encoding needs to be set manually
     static {
@@ -43,26 +49,17 @@ class AudioPlayer implements AudioPlayerModel {
     private boolean isDisposed;
 
     public AudioPlayer() {
-        /*
-         * Set up paths to native GStreamer libraries - see adjacent file.
-         */
-        GStreamerConfig.configurePaths();
-
-        /*
-         * Initialize GStreamer. Always pass the lowest version you require -
-         * Version.BASELINE is GStreamer 1.8. Use Version.of() for higher.
-         * Features requiring later versions of GStreamer than passed here will
-         * throw an exception in the bindings even if the actual native library
-         * is a higher version.
-         */
-
-        Gst.init(Version.BASELINE, "Quartz");
+        initGStreamer();
         this.SPECTRUM = ElementFactory.make(SPECTRUM_ELEMENT_NAME, SPECTRUM_ELEMENT_NAME);
         PLAY_BIN = new PlayBin("Quartz-Playbin");
         PLAY_BIN.set("audio-filter", SPECTRUM);
 //        PLAY_BIN.getBus().connect((Bus.ASYNC_DONE) source -> setVolume(VOLUME));
         PLAY_BIN.getBus().connect((Bus.ERROR) (source, code, message) -> handleError(code, message));
         PLAY_BIN.getBus().connect((Bus.EOS) source -> handleMediaEnd());
+        PLAY_BIN.getBus().connect((Bus.STATE_CHANGED) (source, old, current, pending) -> {
+            if (current == State.PLAYING && PLAY_BIN.equals(source))
+                logTimeToFirstAudio();
+        });
 
         PLAY_BIN.getBus().connect("element", (bus, message) -> {
             if (isVisualizerSamplingEnabled) {
@@ -88,6 +85,28 @@ class AudioPlayer implements AudioPlayerModel {
     }
 
 
+    /**
+     * Loads the native GStreamer libraries once, startup calls this in the background before the first player is
+     * created
+     */
+    static synchronized void initGStreamer() {
+        if (Gst.isInitialized())
+            return;
+        /*
+         * Set up paths to native GStreamer libraries - see adjacent file.
+         */
+        GStreamerConfig.configurePaths();
+
+        /*
+         * Initialize GStreamer. Always pass the lowest version you require -
+         * Version.BASELINE is GStreamer 1.8. Use Version.of() for higher.
+         * Features requiring later versions of GStreamer than passed here will
+         * throw an exception in the bindings even if the actual native library
+         * is a higher version.
+         */
+        Gst.init(Version.BASELINE, "Quartz");
+    }
+
     /*
     Data handlers
      */
@@ -121,6 +140,8 @@ class AudioPlayer implements AudioPlayerModel {
     public void load(AudioData audio) throws FileNotFoundException {
         if (audio != null) {
             CURRENT_AUDIO = audio;
+            isFreshlyLoaded = true;
+            isLoadPrefetched = AudioPrefetcher.getInstance().isWarmed(audio);
             PLAY_BIN.stop();
             if (audio.getFile().exists())
                 PLAY_BIN.setURI(audio.getFile().toURI());
@@ -131,6 +152,10 @@ class AudioPlayer implements AudioPlayerModel {
     @Override
     public void play() {
         if (CURRENT_AUDIO != null) {
+            if (isFreshlyLoaded) {
+                isFreshlyLoaded = false;
+                playRequestTime = System.nanoTime();
+            }
             PLAY_BIN.play();
         }
     }
@@ -164,13 +189,27 @@ class AudioPlayer implements AudioPlayerModel {
 
     @Override
     public double getVolume() {
-        return PLAY_BIN.getVolume();
+        return volume;
     }
 
     @Override
     public void setVolume(double newVolume) {
-        if (newVolume != PLAY_BIN.getVolume())
-            PLAY_BIN.setVolume(newVolume);
+        volume = newVolume;
+        applyVolume();
+    }
+
+    /**
+     * Sets the linear gain applied on top of the user volume to normalize loudness between tracks
+     */
+    public void setReplayGain(double replayGain) {
+        this.replayGain = replayGain;
+        applyVolume();
+    }
+
+    private void applyVolume() {
+        double effectiveVolume = volume * replayGain;
+        if (effectiveVolume != PLAY_BIN.getVolume())
+            PLAY_BIN.setVolume(effectiveVolume);
     }
 
     @Override
@@ -185,6 +224,18 @@ class AudioPlayer implements AudioPlayerModel {
     }
 
 
+    /**
+     * Logs the time from the first play request of a loaded audio until the playbin reaches PLAYING.
+     * Opening and probing the file happens during this transition, so it is where slow storage shows up.
+     */
+    private void logTimeToFirstAudio() {
+        long start = playRequestTime;
+        if (start != 0) {
+            playRequestTime = 0;
+            Log.info("Time to first audio: " + (System.nanoTime() - start) / 1_000_000 + "ms" + (isLoadPrefetched ? " (prefetched)" : ""));
+        }
+    }
+
     /*
     LISTENERS HANDLING
      */
@@ -262,8 +313,12 @@ class AudioPlayer implements AudioPlayerModel {
         return SPECTRUM_BANDS;
     }
 
+    /**
+     * Turns spectrum messages of the pipeline on or off, the spectrum element doesn't post anything while it's off
+     */
     public void enableVisualizerSampling(boolean b) {
         this.isVisualizerSamplingEnabled = b;
+        this.SPECTRUM.set("post-messages", b);
     }
 
     public boolean isVisualizerSamplingEnabled() {
@@ -0,0 +1,132 @@
+package app.audio.player;
+
+import app.audio.AudioData;
+import material.utils.Log;
+import org.freedesktop.gstreamer.Gst;
+import org.freedesktop.gstreamer.Pipeline;
+import org.freedesktop.gstreamer.State;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warms the upcoming tracks of the {@link AudioQueue} while the current one plays so loading them
+ * doesn't block on slow storage.
+ * <p>
+ * The head of every file is read sequentially into the OS page cache and a throwaway decodebin pipeline is
+ * prerolled on it, which makes GStreamer find the type and load the decoder plugin ahead of time.
+ * A newer request cancels the previous one between reads.
+ */
+public class AudioPrefetcher {
+    public static final int PREFETCH_TRACK_COUNT = 2;
+    private static final long PREFETCH_BYTES_PER_TRACK = 4L * 1024 * 1024;
+    private static final long MAX_PREFETCH_BYTES = 8L * 1024 * 1024;
+    private static final int READ_CHUNK_SIZE = 256 * 1024;
+    private static final int REMEMBERED_TRACKS = 8;
+    private static final long PREROLL_TIMEOUT_MS = 2000;
+    private static final String PREROLL_PIPELINE = "filesrc name=src ! decodebin ! fakesink";
+    private static AudioPrefetcher instance;
+    private final AtomicInteger generation = new AtomicInteger();
+    // path -> last modified of the warmed file, so a track isn't read twice
+    private final Map<String, Long> warmedFiles = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > REMEMBERED_TRACKS;
+        }
+    };
+
+    private AudioPrefetcher() {
+    }
+
+    public static AudioPrefetcher getInstance() {
+        if (instance == null)
+            instance = new AudioPrefetcher();
+        return instance;
+    }
+
+    /**
+     * Starts warming the given audios in order, cancelling any prefetch that is still running
+     */
+    public void prefetch(@NotNull List<AudioData> upcoming) {
+        int requestGeneration = generation.incrementAndGet();
+        if (upcoming.isEmpty())
+            return;
+        Thread.startVirtualThread(() -> {
+            long budget = MAX_PREFETCH_BYTES;
+            for (AudioData audio : upcoming) {
+                if (generation.get() != requestGeneration || budget <= 0)
+                    return;
+                budget -= warm(audio.getFile(), Math.min(budget, PREFETCH_BYTES_PER_TRACK), requestGeneration);
+            }
+        });
+    }
+
+    public boolean isWarmed(@NotNull AudioData audio) {
+        synchronized (warmedFiles) {
+            Long lastModified = warmedFiles.get(audio.getFile().getAbsolutePath());
+            return lastModified != null && lastModified == audio.getFile().lastModified();
+        }
+    }
+
+    /**
+     * @return bytes read from the file
+     */
+    private long warm(@NotNull File file, long maxBytes, int requestGeneration) {
+        String path = file.getAbsolutePath();
+        long lastModified = file.lastModified();
+        synchronized (warmedFiles) {
+            Long warmed = warmedFiles.get(path);
+            if (warmed != null && warmed == lastModified)
+                return 0;
+        }
+        long t1 = System.nanoTime();
+        long bytesRead = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK_SIZE);
+            long limit = Math.min(maxBytes, channel.size());
+            while (bytesRead < limit) {
+                if (generation.get() != requestGeneration)
+                    return bytesRead;
+                buffer.clear().limit((int) Math.min(READ_CHUNK_SIZE, limit - bytesRead));
+                int read = channel.read(buffer, bytesRead);
+                if (read < 0)
+                    break;
+                bytesRead += read;
+            }
+        } catch (IOException e) {
+            Log.warn("Couldn't prefetch " + file + ": " + e);
+            return bytesRead;
+        }
+        preroll(file);
+        synchronized (warmedFiles) {
+            warmedFiles.put(path, lastModified);
+        }
+        Log.info("Prefetched " + bytesRead / 1024 + "KB of " + file.getName() + " in " + (System.nanoTime() - t1) / 1_000_000 + "ms");
+        return bytesRead;
+    }
+
+    private static void preroll(@NotNull File file) {
+        if (!Gst.isInitialized())
+            return;
+        Pipeline pipeline = (Pipeline) Gst.parseLaunch(PREROLL_PIPELINE);
+        try {
+            pipeline.getElementByName("src").set("location", file.getAbsolutePath());
+            pipeline.pause();
+            pipeline.getState(TimeUnit.MILLISECONDS.toNanos(PREROLL_TIMEOUT_MS));
+        } catch (Exception e) {
+            Log.warn("Couldn't preroll " + file + ": " + e);
+        } finally {
+            pipeline.setState(State.NULL);
+            pipeline.dispose();
+        }
+    }
+}
@@ -8,6 +8,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 public class AudioQueue {
@@ -130,6 +131,21 @@ public class AudioQueue {
             return null;
     }
 
+    /**
+     * Returns the audios that follow the current one without moving the queue position
+     *
+     * @param count maximum number of audios returned
+     */
+    public @NotNull List<AudioData> getUpcomingAudios(int count) {
+        ArrayList<AudioData> upcoming = new ArrayList<>(count);
+        for (int i = currentAudioIndex + 1; i < queue.size() && upcoming.size() < count; i++) {
+            AudioData audioData = queue.get(i);
+            if (!audioData.equals(currentAudioData))
+                upcoming.add(audioData);
+        }
+        return upcoming;
+    }
+
     public @Nullable AudioData getPrevAudio() {
         if (queue.size() > 0) {
             currentAudioIndex = Math.max(Math.min(currentAudioIndex - 1, queue.size()), 0);
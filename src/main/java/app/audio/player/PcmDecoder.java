@@ -0,0 +1,78 @@
+package app.audio.player;
+
+import org.freedesktop.gstreamer.*;
+import org.freedesktop.gstreamer.elements.AppSink;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Decodes a file to raw PCM outside of playback. GStreamer converts the decoded audio to the requested format
+ * before it is handed over, so consumers only ever see one sample layout.
+ */
+public class PcmDecoder {
+    // the sink holds a few buffers and blocks the decoder until they're pulled, so a slow consumer slows decoding
+    // instead of the whole file piling up in native memory
+    private static final int MAX_QUEUED_BUFFERS = 4;
+    private static final String PIPELINE = "filesrc name=src ! decodebin ! audioconvert ! audioresample ! audio/x-raw,format=%s,layout=interleaved,channels=%d,rate=%d ! appsink name=sink sync=false emit-signals=false max-buffers=" + MAX_QUEUED_BUFFERS + " drop=false";
+
+    public interface PcmConsumer {
+        /**
+         * @param samples little endian interleaved samples of one decoded buffer, only valid during the call
+         * @return false to stop decoding
+         */
+        boolean consume(@NotNull ByteBuffer samples) throws InterruptedException;
+    }
+
+    public enum SampleFormat {
+        S16LE,
+        F32LE
+    }
+
+    private PcmDecoder() {
+    }
+
+    /**
+     * Decodes the whole file on the calling thread
+     *
+     * @return true if the file was decoded until the end, false if decoding failed or the consumer stopped it
+     * @throws IllegalStateException if GStreamer hasn't been initialized by the audio player yet
+     */
+    public static boolean decode(@NotNull File file, @NotNull SampleFormat format, int channels, int sampleRate, @NotNull PcmConsumer consumer) throws InterruptedException {
+        if (!Gst.isInitialized())
+            throw new IllegalStateException("GStreamer is not initialized");
+        Pipeline pipeline = (Pipeline) Gst.parseLaunch(PIPELINE.formatted(format.name(), channels, sampleRate));
+        pipeline.getElementByName("src").set("location", file.getAbsolutePath());
+        AppSink sink = (AppSink) pipeline.getElementByName("sink");
+        final boolean[] failed = {false};
+        pipeline.getBus().connect((Bus.ERROR) (source, code, message) -> {
+            failed[0] = true;
+            pipeline.setState(State.NULL); // unblocks pullSample
+        });
+        try {
+            pipeline.play();
+            Sample sample;
+            while ((sample = sink.pullSample()) != null) {
+                Buffer buffer = sample.getBuffer();
+                ByteBuffer bytes = buffer.map(false);
+                boolean shouldContinue = true;
+                if (bytes != null) {
+                    try {
+                        shouldContinue = consumer.consume(bytes.order(ByteOrder.LITTLE_ENDIAN));
+                    } finally {
+                        buffer.unmap();
+                    }
+                }
+                sample.dispose();
+                if (!shouldContinue)
+                    return false;
+            }
+        } finally {
+            pipeline.stop();
+            pipeline.dispose();
+        }
+        return !failed[0];
+    }
+}
@@ -3,6 +3,7 @@ package app.audio.player;
 import app.audio.AudioData;
 import app.audio.PlayerComponents;
 import app.audio.indexer.AudioDataIndexer;
+import app.audio.waveform.WaveformGenerator;
 import app.colors.dynamic.DynamicColors;
 import app.components.PlaybackBar;
 import app.components.audio.AudioInfoViewer;
@@ -13,6 +14,7 @@ import app.components.buttons.playback.PlayButton;
 import app.components.buttons.playback.VolumeButton;
 import app.components.containers.FullscreenPanel;
 import app.dialogs.DialogFactory;
+import app.local.PlayStatistics;
 import app.local.notification.NotificationManager;
 import app.main.Quartz;
 import app.main.TileManager;
@@ -51,6 +53,9 @@ public class QuartzAudioController {
     private boolean isSeeking = false;
     private boolean wasPausedBeforeSeeking = false;
     private boolean isVisualizerSamplingEnabled;
+    // requested before the player was created, loaded by init
+    private AudioData pendingAudioData;
+    private boolean isPendingPlay;
 
     private QuartzAudioController() {
         super();
@@ -108,7 +113,17 @@ public class QuartzAudioController {
         }
     }
 
-    public void init() {
+    /**
+     * Loads GStreamer ahead of {@link #init()}, which is then only the cost of building the pipeline
+     */
+    public static void initGStreamer() {
+        AudioPlayer.initGStreamer();
+    }
+
+    /**
+     * Creates the player, a track requested while the window was shown without one is loaded now
+     */
+    public synchronized void init() {
         try {
 
             if (_AudioPlayer != null) {
@@ -125,6 +140,16 @@ public class QuartzAudioController {
             VOLUME = _AudioPlayer.getVolume();
         } catch (Exception e) {
             handleError(e);
+            return;
+        }
+        if (pendingAudioData != null) {
+            AudioData audioData = pendingAudioData;
+            boolean shouldPlay = isPendingPlay;
+            pendingAudioData = null;
+            isPendingPlay = false;
+            load(audioData);
+            if (shouldPlay)
+                play();
         }
     }
 
@@ -138,18 +163,25 @@ public class QuartzAudioController {
     public synchronized void load(@Nullable AudioData audioData) {
         try {
             if (_AudioPlayer == null) {
-                Log.error("call init() before loading an audio");
+                Log.warn("Audio player isn't ready yet, the audio is loaded once it is");
+                pendingAudioData = audioData;
+                isPendingPlay = false;
+                return;
             }
 
             if (audioData != null) {
                 PlayerFixedTimer.getInstance().start();
                 currentAudioData = audioData;
                 Log.success("Loading audio: " + currentAudioData.getFile().getPath());
+                PlayStatistics.getInstance().recordLoaded(audioData.getFile().getAbsolutePath());
                 _AudioPlayer.load(audioData);
+                _AudioPlayer.setReplayGain(StartupSettings.REPLAY_GAIN_ENABLED ? audioData.getReplayGain() : 1);
                 isLoaded = true;
                 currentTime = 0;
                 TileManager.setActiveAudioTiles(currentAudioData);
                 AudioQueue.getInstance().setActiveAudio(audioData);
+                AudioPrefetcher.getInstance().prefetch(AudioQueue.getInstance().getUpcomingAudios(AudioPrefetcher.PREFETCH_TRACK_COUNT));
+                loadWaveform(audioData);
                 if (!Quartz.getInstance().getWindow().isFocused())
                     NotificationManager.getInstance().notifyNewPlayback(currentAudioData);
             } else {
@@ -169,6 +201,17 @@ public class QuartzAudioController {
     }
 
 
+    private void loadWaveform(@NotNull AudioData audioData) {
+        if (playerComponents == null)
+            return;
+        PlaybackBar playbackBar = playerComponents.getPlaybackBar();
+        SwingUtilities.invokeLater(() -> playbackBar.setWaveform(null));
+        WaveformGenerator.getInstance().requestSummary(audioData, (audio, summary) -> SwingUtilities.invokeLater(() -> {
+            if (audio.equals(currentAudioData))
+                playbackBar.setWaveform(summary);
+        }));
+    }
+
     private void handleError(Exception e) {
         if (e instanceof AudioControllerException)
             DialogFactory.showErrorDialog(((AudioControllerException) e).getCode() + ":" + e.getMessage());
@@ -189,10 +232,16 @@ public class QuartzAudioController {
 
     public synchronized void play() {
         try {
+            if (_AudioPlayer == null) {
+                isPendingPlay = pendingAudioData != null;
+                return;
+            }
             if (currentAudioData != null) {
                 Log.info("playing: " + currentAudioData.getName());
                 _AudioPlayer.play();
+                PlayStatistics.getInstance().recordStarted(currentAudioData.getFile().getAbsolutePath());
                 isPaused = false;
+                PlayerFixedTimer.getInstance().start();
                 playerComponents.getPlayButton().setActive(isPaused);
             }
         } catch (Exception e) {
@@ -202,10 +251,11 @@ public class QuartzAudioController {
 
     public synchronized void pause() {
         Log.warn("Pausing music!");
-        if (isLoaded && !isPaused) {
+        if (_AudioPlayer != null && isLoaded && !isPaused) {
             try {
                 _AudioPlayer.pause();
                 isPaused = true;
+                PlayerFixedTimer.getInstance().stop();
 //              TileManager.setActiveAudioTile(null);
                 updatePlayerButtons();
                 playerComponents.getPlayButton().setActive(isPaused);
@@ -236,7 +286,12 @@ public class QuartzAudioController {
 
     public synchronized void restart() {
         try {
-            _AudioPlayer.seek(0);
+            if (_AudioPlayer != null) {
+                _AudioPlayer.seek(0);
+                // playing a track again counts as another play, as it does when it's loaded again
+                if (currentAudioData != null)
+                    PlayStatistics.getInstance().recordStarted(currentAudioData.getFile().getAbsolutePath());
+            }
         } catch (Exception e) {
             handleError(e);
         }
@@ -288,7 +343,8 @@ public class QuartzAudioController {
     }
 
     private void updateFullScreenMode() {
-        FullscreenPanel.getInstance().setAudio(getCurrentAudioData());
+        if (FullscreenPanel.isCreated())
+            FullscreenPanel.getInstance().setAudio(getCurrentAudioData());
     }
 
     private void updateUI() {
@@ -334,6 +390,8 @@ public class QuartzAudioController {
         try {
             Log.warn("Media ended");
             Log.warn("Is media Playing: " + !isPaused);
+            if (currentAudioData != null)
+                PlayStatistics.getInstance().recordEnded(currentAudioData.getFile().getAbsolutePath());
             if (!isPaused) {
                 switch (repeatMode) {
                     case REPEAT_ONE -> restart();
@@ -553,6 +611,13 @@ public class QuartzAudioController {
         return isPaused;
     }
 
+    /**
+     * @return true if an audio is loaded and not paused
+     */
+    public boolean isPlaying() {
+        return currentAudioData != null && !isPaused;
+    }
+
     public boolean isVisualizerSamplingEnabled() {
         return isVisualizerSamplingEnabled;
     }
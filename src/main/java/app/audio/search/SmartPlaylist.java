@@ -0,0 +1,186 @@
+package app.audio.search;
+
+import app.audio.AudioData;
+import app.audio.indexer.AudioDataIndexer;
+import app.audio.indexer.AudioSortIndex;
+import app.audio.player.AudioQueue;
+import app.audio.player.QuartzAudioController;
+import app.components.enums.SortingPolicy;
+import app.local.LocalSettings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Tracks of the library matching a {@link SmartQuery}, kept up to date as the library changes. The library is
+ * evaluated once, in parallel when it's large, and from then on only the added, removed or played track is tested.
+ * Queries on the play history are evaluated again once {@link #PLAY_RULES_REFRESH_MS} has passed, since time alone
+ * changes their result.
+ * <p>
+ * Call {@link #dispose()} when the playlist isn't needed anymore, it stops listening to the library.
+ */
+public class SmartPlaylist implements AudioDataIndexer.AudioFileListener {
+    // libraries larger than this are evaluated in parallel
+    private static final int PARALLEL_THRESHOLD = 10_000;
+    private static final long PLAY_RULES_REFRESH_MS = 60_000;
+    private final String name;
+    private final SmartQuery query;
+    private final HashSet<AudioData> matches = new HashSet<>();
+    private final Consumer<String> playedListener = this::trackPlayed;
+    private final ArrayList<Runnable> updateListeners = new ArrayList<>();
+    // matches in title order, rebuilt after they change
+    private @Nullable List<AudioData> sorted;
+    private long lastEvaluation;
+
+    /**
+     * @throws IllegalArgumentException if the query isn't valid
+     */
+    public SmartPlaylist(@NotNull String name, @NotNull String query) {
+        this.name = name;
+        this.query = SmartQuery.compile(query);
+        AudioDataIndexer.getInstance().addAudioFileListener(this);
+        if (this.query.isPlayDependent())
+            LocalSettings.getInstance().addPlayedListener(playedListener);
+        evaluate();
+    }
+
+    /**
+     * Evaluates the query over the whole library
+     */
+    public synchronized void evaluate() {
+        SmartQuery.Context context = SmartQuery.Context.current();
+        ArrayList<AudioData> library = AudioDataIndexer.getInstance().getAllAudioFiles();
+        Iterable<AudioData> result = library.size() > PARALLEL_THRESHOLD
+                ? library.parallelStream().filter(track -> query.test(track, context)).toList()
+                : library.stream().filter(track -> query.test(track, context)).toList();
+        matches.clear();
+        for (AudioData track : result)
+            matches.add(track);
+        sorted = null;
+        lastEvaluation = context.now();
+    }
+
+    /**
+     * @return the matching tracks in title order
+     */
+    public @NotNull List<AudioData> getTracks() {
+        synchronized (this) {
+            if (query.isPlayDependent() && System.currentTimeMillis() - lastEvaluation > PLAY_RULES_REFRESH_MS)
+                evaluate();
+            if (sorted == null) {
+                ArrayList<AudioData> list = new ArrayList<>(matches);
+                AudioSortIndex.getInstance().sort(list, SortingPolicy.TITLE);
+                sorted = list;
+            }
+            return new ArrayList<>(sorted);
+        }
+    }
+
+    public synchronized int size() {
+        return matches.size();
+    }
+
+    /**
+     * Replaces the queue with the playlist and plays its first track
+     */
+    public void play() {
+        List<AudioData> tracks = getTracks();
+        if (tracks.isEmpty())
+            return;
+        AudioData first = tracks.get(0);
+        QuartzAudioController.getInstance().load(first);
+        QuartzAudioController.getInstance().play();
+        AudioQueue.getInstance().newQueue(first, new ArrayList<>(tracks));
+    }
+
+    @Override
+    public void audioFileAdded(@NotNull AudioData audioData) {
+        test(audioData);
+    }
+
+    @Override
+    public void audioFileRemoved(@NotNull AudioData audioData) {
+        boolean isChanged;
+        synchronized (this) {
+            isChanged = matches.remove(audioData);
+            if (isChanged)
+                sorted = null;
+        }
+        if (isChanged)
+            callUpdated();
+    }
+
+    private void trackPlayed(String path) {
+        AudioData audioData = AudioDataIndexer.getInstance().getAudioFile(path);
+        if (audioData != null)
+            test(audioData);
+    }
+
+    /**
+     * Tests one track again and updates the matches
+     */
+    private void test(AudioData audioData) {
+        boolean isChanged;
+        synchronized (this) {
+            // a removal may have been announced before this track's addition
+            boolean isMatch = AudioDataIndexer.getInstance().isFileLoaded(audioData.getFile())
+                    && query.test(audioData, getContext(audioData));
+            isChanged = isMatch ? matches.add(audioData) : matches.remove(audioData);
+            if (isChanged)
+                sorted = null;
+        }
+        if (isChanged)
+            callUpdated();
+    }
+
+    /**
+     * @return context holding only what testing the track needs, rather than a copy of the whole play history
+     */
+    private SmartQuery.Context getContext(AudioData audioData) {
+        if (!query.isPlayDependent())
+            return new SmartQuery.Context(System.currentTimeMillis(), Map.of());
+        String path = audioData.getFile().getAbsolutePath();
+        long lastPlayed = LocalSettings.getInstance().getLastPlayed(path);
+        return new SmartQuery.Context(System.currentTimeMillis(), lastPlayed < 0 ? Map.of() : Map.of(path, lastPlayed));
+    }
+
+    public synchronized void addUpdateListener(@NotNull Runnable listener) {
+        updateListeners.add(listener);
+    }
+
+    public synchronized void removeUpdateListener(@NotNull Runnable listener) {
+        updateListeners.remove(listener);
+    }
+
+    private void callUpdated() {
+        ArrayList<Runnable> listeners;
+        synchronized (this) {
+            listeners = new ArrayList<>(updateListeners);
+        }
+        for (Runnable listener : listeners)
+            listener.run();
+    }
+
+    public void dispose() {
+        AudioDataIndexer.getInstance().removeAudioFileListener(this);
+        LocalSettings.getInstance().removePlayedListener(playedListener);
+    }
+
+    public @NotNull String getName() {
+        return name;
+    }
+
+    public @NotNull SmartQuery getQuery() {
+        return query;
+    }
+
+    @Override
+    public String toString() {
+        return "SmartPlaylist: " + name + "| " + query;
+    }
+}
@@ -0,0 +1,334 @@
+package app.audio.search;
+
+import app.audio.AudioData;
+import app.local.LocalSettings;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Rules of a smart playlist compiled into predicates over tracks, for example
+ * <pre>
+ * artist contains "daft punk" and duration > 6 min and not played in 30 days
+ * </pre>
+ * A rule is {@code field operator value}, optionally negated with {@code not}. Rules are joined with {@code and} and
+ * {@code or}, {@code and} binding tighter.
+ * <ul>
+ *     <li>{@code title}, {@code artist}, {@code album}, {@code folder}: {@code contains}, {@code is},
+ *     {@code starts with}, {@code ends with} followed by a quoted or bare string, compared ignoring case</li>
+ *     <li>{@code duration}: {@code > < >= <= =} followed by a number and an optional unit, seconds by default</li>
+ *     <li>{@code played in} a number of {@code hours}, {@code days} or {@code weeks}, or {@code played} alone for
+ *     tracks that were ever played</li>
+ *     <li>{@code favorite}</li>
+ * </ul>
+ * Constants are folded when compiling: strings are lower cased once, durations and time spans become milliseconds,
+ * and the rules of an {@code and} are reordered so the cheap numeric ones run before string matching.
+ */
+public final class SmartQuery {
+    private static final int NUMERIC_COST = 0;
+    private static final int LOOKUP_COST = 1;
+    private static final int STRING_COST = 2;
+    private final String source;
+    private final TrackPredicate predicate;
+    private final boolean isPlayDependent;
+
+    /**
+     * A compiled rule
+     */
+    public interface TrackPredicate {
+        boolean test(@NotNull AudioData track, @NotNull Context context);
+    }
+
+    /**
+     * State a query is evaluated against besides the track, taken once per evaluation
+     *
+     * @param now        epoch milliseconds
+     * @param lastPlayed last played time by absolute path
+     */
+    public record Context(long now, @NotNull Map<String, Long> lastPlayed) {
+        public static @NotNull Context current() {
+            return new Context(System.currentTimeMillis(), LocalSettings.getInstance().getLastPlayedTimes());
+        }
+    }
+
+    private record Rule(TrackPredicate predicate, int cost) {
+    }
+
+    private SmartQuery(String source, TrackPredicate predicate, boolean isPlayDependent) {
+        this.source = source;
+        this.predicate = predicate;
+        this.isPlayDependent = isPlayDependent;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the query isn't valid, the message tells what's wrong
+     */
+    public static @NotNull SmartQuery compile(@NotNull String query) {
+        Parser parser = new Parser(tokenize(query));
+        TrackPredicate predicate = parser.parseOr();
+        if (parser.hasNext())
+            throw new IllegalArgumentException("Unexpected \"" + parser.peek() + "\"");
+        return new SmartQuery(query, predicate, parser.isPlayDependent);
+    }
+
+    public boolean test(@NotNull AudioData track, @NotNull Context context) {
+        return predicate.test(track, context);
+    }
+
+    /**
+     * @return whether the result depends on the play history and on the current time, not only on the tracks
+     */
+    public boolean isPlayDependent() {
+        return isPlayDependent;
+    }
+
+    public @NotNull String getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    /*
+    Compilation
+     */
+
+    private static final class Parser {
+        private final List<String> tokens;
+        private int position;
+        private boolean isPlayDependent;
+
+        private Parser(List<String> tokens) {
+            this.tokens = tokens;
+        }
+
+        private TrackPredicate parseOr() {
+            List<TrackPredicate> alternatives = new ArrayList<>();
+            alternatives.add(parseAnd());
+            while (accept("or"))
+                alternatives.add(parseAnd());
+            if (alternatives.size() == 1)
+                return alternatives.get(0);
+            TrackPredicate[] array = alternatives.toArray(new TrackPredicate[0]);
+            return (track, context) -> {
+                for (TrackPredicate alternative : array) {
+                    if (alternative.test(track, context))
+                        return true;
+                }
+                return false;
+            };
+        }
+
+        private TrackPredicate parseAnd() {
+            List<Rule> rules = new ArrayList<>();
+            rules.add(parseRule());
+            while (accept("and"))
+                rules.add(parseRule());
+            if (rules.size() == 1)
+                return rules.get(0).predicate;
+            rules.sort(Comparator.comparingInt(Rule::cost));
+            TrackPredicate[] array = new TrackPredicate[rules.size()];
+            for (int i = 0; i < array.length; i++)
+                array[i] = rules.get(i).predicate;
+            return (track, context) -> {
+                for (TrackPredicate rule : array) {
+                    if (!rule.test(track, context))
+                        return false;
+                }
+                return true;
+            };
+        }
+
+        private Rule parseRule() {
+            if (accept("not")) {
+                Rule rule = parseRule();
+                TrackPredicate negated = rule.predicate;
+                return new Rule((track, context) -> !negated.test(track, context), rule.cost);
+            }
+            String field = next("a field");
+            return switch (field) {
+                case "title", "name" -> parseString(AudioData::getName);
+                case "artist" -> parseString(AudioData::getArtistsConcatenated);
+                case "album" -> parseString(AudioData::getAlbum);
+                case "folder" -> parseString(AudioData::getFolderPath);
+                case "duration" -> parseDuration();
+                case "played" -> parsePlayed();
+                case "favorite" -> new Rule((track, context) -> track.isFavorite(), NUMERIC_COST);
+                default -> throw new IllegalArgumentException("Unknown field \"" + field + "\"");
+            };
+        }
+
+        private Rule parseString(StringField field) {
+            String operator = next("an operator");
+            if ((operator.equals("starts") || operator.equals("ends")) && !accept("with"))
+                throw new IllegalArgumentException("Expected \"with\" after \"" + operator + "\"");
+            String needle = parseValue().toLowerCase(Locale.ROOT);
+            TrackPredicate predicate = switch (operator) {
+                case "contains" -> (track, context) -> containsIgnoreCase(field.get(track), needle);
+                case "is", "=" -> (track, context) -> field.get(track).equalsIgnoreCase(needle);
+                case "starts" -> (track, context) -> field.get(track).regionMatches(true, 0, needle, 0, needle.length());
+                case "ends" -> (track, context) -> {
+                    String value = field.get(track);
+                    return value.regionMatches(true, value.length() - needle.length(), needle, 0, needle.length());
+                };
+                default -> throw new IllegalArgumentException("Unknown operator \"" + operator + "\" for a text field");
+            };
+            return new Rule(predicate, STRING_COST);
+        }
+
+        private Rule parseDuration() {
+            String operator = next("a comparison");
+            long limit = parseAmount(1000, "seconds");
+            TrackPredicate predicate = switch (operator) {
+                case ">" -> (track, context) -> track.getDurationInMs() > limit;
+                case ">=" -> (track, context) -> track.getDurationInMs() >= limit;
+                case "<" -> (track, context) -> track.getDurationInMs() < limit;
+                case "<=" -> (track, context) -> track.getDurationInMs() <= limit;
+                case "=", "is" -> (track, context) -> track.getDurationInMs() / 1000 == limit / 1000;
+                default -> throw new IllegalArgumentException("Unknown comparison \"" + operator + "\" for duration");
+            };
+            return new Rule(predicate, NUMERIC_COST);
+        }
+
+        private Rule parsePlayed() {
+            isPlayDependent = true;
+            if (!accept("in"))
+                return new Rule((track, context) -> context.lastPlayed.containsKey(track.getFile().getAbsolutePath()), LOOKUP_COST);
+            long span = parseAmount(24 * 60 * 60 * 1000L, "days");
+            return new Rule((track, context) -> {
+                Long lastPlayed = context.lastPlayed.get(track.getFile().getAbsolutePath());
+                return lastPlayed != null && lastPlayed >= context.now - span;
+            }, LOOKUP_COST);
+        }
+
+        /**
+         * Reads a number with an optional unit
+         *
+         * @return the amount in milliseconds
+         */
+        private long parseAmount(long defaultUnit, String defaultUnitName) {
+            String number = next("a number");
+            double amount;
+            try {
+                amount = Double.parseDouble(number);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Expected a number of " + defaultUnitName + ", found \"" + number + "\"");
+            }
+            long unit = defaultUnit;
+            if (hasNext()) {
+                long parsedUnit = unitOf(peek());
+                if (parsedUnit > 0) {
+                    unit = parsedUnit;
+                    position++;
+                }
+            }
+            return Math.round(amount * unit);
+        }
+
+        private static long unitOf(String word) {
+            return switch (word) {
+                case "ms" -> 1;
+                case "s", "sec", "secs", "second", "seconds" -> 1000;
+                case "m", "min", "mins", "minute", "minutes" -> 60 * 1000;
+                case "h", "hour", "hours" -> 60 * 60 * 1000;
+                case "d", "day", "days" -> 24 * 60 * 60 * 1000L;
+                case "w", "week", "weeks" -> 7 * 24 * 60 * 60 * 1000L;
+                default -> -1;
+            };
+        }
+
+        /**
+         * A quoted string or the words up to the next {@code and} or {@code or}
+         */
+        private String parseValue() {
+            String first = next("a value");
+            if (first.startsWith("\""))
+                return first.substring(1);
+            StringBuilder value = new StringBuilder(first);
+            while (hasNext() && !peek().equals("and") && !peek().equals("or"))
+                value.append(' ').append(tokens.get(position++));
+            return value.toString();
+        }
+
+        private boolean accept(String keyword) {
+            if (hasNext() && peek().equals(keyword)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private String next(String expected) {
+            if (!hasNext())
+                throw new IllegalArgumentException("Expected " + expected + " at the end of the query");
+            return tokens.get(position++);
+        }
+
+        private String peek() {
+            return tokens.get(position);
+        }
+
+        private boolean hasNext() {
+            return position < tokens.size();
+        }
+    }
+
+    private interface StringField {
+        String get(AudioData track);
+    }
+
+    /**
+     * Splits the query into lower cased words and comparison operators, quoted strings are kept as they are
+     * behind a leading quote
+     */
+    private static List<String> tokenize(String query) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"' || c == '\'') {
+                int end = query.indexOf(c, i + 1);
+                if (end < 0)
+                    throw new IllegalArgumentException("Unclosed quote");
+                tokens.add('"' + query.substring(i + 1, end));
+                i = end + 1;
+            } else if (c == '<' || c == '>' || c == '=') {
+                boolean hasEquals = c != '=' && i + 1 < query.length() && query.charAt(i + 1) == '=';
+                tokens.add(query.substring(i, hasEquals ? i + 2 : i + 1));
+                i += hasEquals ? 2 : 1;
+            } else {
+                int start = i;
+                while (i < query.length() && !Character.isWhitespace(query.charAt(i)) && "<>=\"'".indexOf(query.charAt(i)) < 0)
+                    i++;
+                tokens.add(query.substring(start, i).toLowerCase(Locale.ROOT));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * @param needle lower cased
+     */
+    private static boolean containsIgnoreCase(String haystack, String needle) {
+        int length = needle.length();
+        if (length == 0)
+            return true;
+        char first = needle.charAt(0);
+        char firstUpper = Character.toUpperCase(first);
+        for (int i = 0, last = haystack.length() - length; i <= last; i++) {
+            char c = haystack.charAt(i);
+            if ((c == first || c == firstUpper || Character.toLowerCase(c) == first)
+                    && haystack.regionMatches(true, i + 1, needle, 1, length - 1))
+                return true;
+        }
+        return false;
+    }
+}
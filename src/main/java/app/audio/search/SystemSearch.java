@@ -1,6 +1,7 @@
 package app.audio.search;
 
 import app.audio.AudioData;
+import app.audio.indexer.ArtworkManager;
 import app.audio.indexer.AudioDataIndexer;
 import app.components.listeners.SearchCompletedListener;
 import app.local.cache.FileCacheManager;
@@ -8,7 +9,6 @@ import app.settings.StartupSettings;
 import material.utils.Log;
 import material.utils.OsInfo;
 
-import javax.swing.filechooser.FileSystemView;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.FileVisitOption;
@@ -16,16 +16,21 @@ import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class SystemSearch {
     private static final ArrayList<SearchCompletedListener> searchCompletedListeners = new ArrayList<>();
     private static SystemSearch instance;
-    private static FileSystemView FSV = FileSystemView.getFileSystemView();
     private int SEARCH_DEPTH = StartupSettings.SEARCH_DEPTH;
     private boolean isSearchOnceComplete = false;
     private boolean isSearching = false;
     private boolean isBackgroundSearchRunning = false;
+    private volatile boolean isIndexRestored = false;
+    private int restoredModificationCount = -1;
+    // every audio file found by the running search, files of the restored index missing from it were deleted
+    private final Set<String> scannedFiles = ConcurrentHashMap.newKeySet();
     private Thread searchThread;
     private final int ThreadCount = StartupSettings.PARALLEL_THREAD_COUNT;
 
@@ -47,12 +52,40 @@ public class SystemSearch {
         searchThread = Thread.startVirtualThread(() -> this.beginSearch(true));
     }
 
+    /**
+     * Searches the file system on the calling thread, the library is reconciled with the restored index when it
+     * completes
+     */
+    public void search() {
+        searchThread = Thread.currentThread();
+        beginSearch(true);
+    }
+
+    /**
+     * Loads the files indexed by the last search so the library can be shown before the file system is searched.
+     * Their tags are cached too, only files whose size or last modified time changed since are parsed again.
+     *
+     * @return number of files restored
+     */
+    public int restoreIndex() {
+        int restoredFiles = saveDataAsync(FileCacheManager.getInstance().getCachedFiles());
+        if (restoredFiles > 0) {
+            AudioDataIndexer indexer = AudioDataIndexer.getInstance();
+            indexer.indexAndSortAudioFiles();
+            restoredModificationCount = indexer.getModificationCount();
+            isIndexRestored = true;
+            indexer.callIndexUpdated();
+        }
+        return restoredFiles;
+    }
+
     private void beginSearch() {
         this.beginSearch(false);
     }
 
     private void beginSearch(boolean doBackgroundSearchIfCacheLoaded) {
         isSearching = true;
+        scannedFiles.clear();
 //        boolean isCacheLoaded = cacheLoaded();
 //        if (isCacheLoaded) {
 //            Log.info("CACHE LOADED");
@@ -87,11 +120,12 @@ public class SystemSearch {
 
     private void rootFSSearch() {
         Log.warn("Linux/Mac File System detected");
-        File root = FSV.getHomeDirectory();
+        File root = new File(System.getProperty("user.home"));
         AudioFileVisitor fileVisitor = new AudioFileVisitor();
         try {
             Files.walkFileTree(root.toPath(), EnumSet.of(FileVisitOption.FOLLOW_LINKS), SEARCH_DEPTH, fileVisitor);
             List<File> arr = fileVisitor.getAudioFileArrayList();
+            addScannedFiles(arr);
             saveDataAsync(arr);
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -108,7 +142,8 @@ public class SystemSearch {
                 AudioFileVisitor fileVisitor = new AudioFileVisitor();
                 Files.walkFileTree(root.toPath(), EnumSet.of(FileVisitOption.FOLLOW_LINKS), SEARCH_DEPTH, fileVisitor);
                 List<File> arr = fileVisitor.getAudioFileArrayList();
-                Log.success(arr.size() + " mp3 files found in " + root);
+                Log.success(arr.size() + " audio files found in " + root);
+                addScannedFiles(arr);
                 saveDataAsync(arr);
             } catch (IOException e) {
                 throw new RuntimeException(e);
@@ -117,6 +152,11 @@ public class SystemSearch {
         searchCompleted();
     }
 
+    private void addScannedFiles(List<File> files) {
+        for (File file : files)
+            scannedFiles.add(file.toString());
+    }
+
     private synchronized void saveData(List<File> files) {
         for (File file : files) {
             AudioDataIndexer.getInstance().addAudioFile(new AudioData(file));
@@ -139,13 +179,22 @@ public class SystemSearch {
                 threads[i] = Thread.ofVirtual().name("Audio data extractor thread " + i).start(() -> {
                     for (int j = begin; j < end; j++) {
                         File file = files.get(j);
-                        if (file.exists() && AudioData.isValidAudio(file.toPath())) {
+                        FileCacheManager.CachedTrack cachedTrack;
+                        if (AudioDataIndexer.getInstance().isFileLoaded(file)) {
+                            // restored from the last index, not read again
+                            savedFilesNumber.incrementAndGet();
+                        } else if ((cachedTrack = FileCacheManager.getInstance().getCachedTrack(file)) != null
+                                && ArtworkManager.getInstance().loadThumbnail(cachedTrack.getArtworkHash())) {
+                            // unchanged since its tags were cached
+                            AudioDataIndexer.getInstance().addAudioFile(new AudioData(file, cachedTrack));
+                            savedFilesNumber.incrementAndGet();
+                        } else if (file.exists() && AudioData.isValidAudio(file.toPath())) {
                             AudioData audioData = new AudioData(file);
                             AudioDataIndexer.getInstance().addAudioFile(audioData);
                             savedFilesNumber.incrementAndGet();
-//                        FileCacheManager.getInstance().cacheFile(file);
+                            FileCacheManager.getInstance().cacheTrack(file, audioData);
                         } else {
-//                        FileCacheManager.getInstance().deleteCacheFile(file);
+                            FileCacheManager.getInstance().deleteCacheFile(file);
                             Log.error(file + " is not valid or doesn't exist");
                         }
                     }
@@ -170,7 +219,7 @@ public class SystemSearch {
     }
 
 
-    public static SystemSearch getInstance() {
+    public static synchronized SystemSearch getInstance() {
         if (instance == null)
             instance = new SystemSearch();
         return instance;
@@ -184,7 +233,10 @@ public class SystemSearch {
 
     private synchronized void searchCompleted() {
         Log.success("SEARCH COMPLETED!");
-        AudioDataIndexer.getInstance().indexAndSortAudioFiles();
+        AudioDataIndexer indexer = AudioDataIndexer.getInstance();
+        removeDeletedFiles();
+        indexer.indexAndSortAudioFiles();
+        FileCacheManager.getInstance().saveCacheToStorage();
 
         isSearchOnceComplete = true;
         isSearching = false;
@@ -192,13 +244,39 @@ public class SystemSearch {
         for (SearchCompletedListener l : searchCompletedListeners) {
             l.searchComplete();
         }
-        AudioDataIndexer.getInstance().callIndexUpdated();
+        // views already show the restored index, they're rebuilt only if the search changed it
+        if (indexer.getModificationCount() != restoredModificationCount)
+            indexer.callIndexUpdated();
+        else
+            Log.info("Restored index is up to date");
+    }
+
+    /**
+     * Drops files of the restored index which the search didn't find
+     */
+    private void removeDeletedFiles() {
+        if (!isIndexRestored)
+            return;
+        int removedFiles = 0;
+        for (File file : FileCacheManager.getInstance().getCachedFiles()) {
+            if (!scannedFiles.contains(file.toString())) {
+                AudioDataIndexer.getInstance().removeAudioFile(file.getAbsolutePath());
+                FileCacheManager.getInstance().deleteCacheFile(file);
+                removedFiles++;
+            }
+        }
+        if (removedFiles > 0)
+            Log.info(removedFiles + " files of the restored index no longer exist");
     }
 
     public boolean isSearchOnceComplete() {
         return isSearchOnceComplete;
     }
 
+    public boolean isIndexRestored() {
+        return isIndexRestored;
+    }
+
     public boolean isBackgroundSearchRunning() {
         return isBackgroundSearchRunning;
     }
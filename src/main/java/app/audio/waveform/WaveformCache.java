@@ -0,0 +1,104 @@
+package app.audio.waveform;
+
+import material.utils.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+/**
+ * Stores one binary summary file per track. A summary is only returned if the path and the last modified time
+ * stored in it still match the audio file, so edited or replaced files are regenerated.
+ * <pre>
+ * int magic, byte version, long lastModified, UTF path, int buckets, byte[buckets] min, byte[buckets] max, byte[buckets] rms
+ * </pre>
+ */
+final class WaveformCache {
+    private static final String CACHE_DIR = "cache/waveforms";
+    private static final int MAGIC = 0x51574656; // QWFV
+    private static final byte VERSION = 1;
+    // enough for the header of most paths, longer ones are read in more than one go
+    private static final int HEADER_BUFFER_SIZE = 512;
+    private final File directory = new File(CACHE_DIR);
+
+    WaveformCache() {
+        if (!directory.exists() && !directory.mkdirs())
+            Log.error("Couldn't create waveform cache directory: " + directory.getAbsolutePath());
+    }
+
+    @Nullable WaveformSummary load(@NotNull File audioFile) {
+        File cacheFile = getCacheFile(audioFile);
+        if (!cacheFile.exists())
+            return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            if (!isCurrent(in, audioFile))
+                return null;
+            int buckets = in.readInt();
+            byte[] min = new byte[buckets];
+            byte[] max = new byte[buckets];
+            byte[] rms = new byte[buckets];
+            in.readFully(min);
+            in.readFully(max);
+            in.readFully(rms);
+            return new WaveformSummary(min, max, rms);
+        } catch (Exception e) {
+            Log.error("Couldn't read waveform cache of " + audioFile + ": " + e);
+            return null;
+        }
+    }
+
+    void save(@NotNull File audioFile, @NotNull WaveformSummary summary) {
+        File cacheFile = getCacheFile(audioFile);
+        File tempFile = new File(directory, cacheFile.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(audioFile.lastModified());
+            out.writeUTF(audioFile.getAbsolutePath());
+            out.writeInt(summary.getBucketCount());
+            out.write(summary.getMinColumn());
+            out.write(summary.getMaxColumn());
+            out.write(summary.getRmsColumn());
+        } catch (IOException e) {
+            Log.error("Couldn't write waveform cache of " + audioFile + ": " + e);
+            return;
+        }
+        try {
+            Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Log.error("Couldn't move waveform cache of " + audioFile + ": " + e);
+        }
+    }
+
+    /**
+     * Checks the header of the cached summary only, the columns aren't read
+     */
+    boolean contains(@NotNull File audioFile) {
+        File cacheFile = getCacheFile(audioFile);
+        if (!cacheFile.exists())
+            return false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile), HEADER_BUFFER_SIZE))) {
+            return isCurrent(in, audioFile);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean isCurrent(@NotNull DataInputStream in, @NotNull File audioFile) throws IOException {
+        return in.readInt() == MAGIC && in.readByte() == VERSION
+                && in.readLong() == audioFile.lastModified() && in.readUTF().equals(audioFile.getAbsolutePath());
+    }
+
+    private @NotNull File getCacheFile(@NotNull File audioFile) {
+        String path = audioFile.getAbsolutePath();
+        // Two hashes of the path keep collisions unlikely, the stored path resolves the rest
+        CRC32 crc = new CRC32();
+        crc.update(path.getBytes(StandardCharsets.UTF_8));
+        String name = "%08x%08x.wf".formatted(path.hashCode(), crc.getValue());
+        return new File(directory, name);
+    }
+}
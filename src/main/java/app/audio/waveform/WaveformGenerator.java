@@ -0,0 +1,168 @@
+package app.audio.waveform;
+
+import app.audio.AudioData;
+import app.audio.player.PcmDecoder;
+import app.audio.player.QuartzAudioController;
+import material.utils.Log;
+import org.freedesktop.gstreamer.Gst;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.nio.ShortBuffer;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decodes tracks in the background and reduces them to {@link WaveformSummary}s. Decoding is done by
+ * {@link PcmDecoder} which downmixes and resamples to 8 kHz mono before the samples reach java, summaries are written to
+ * a {@link WaveformCache} so each file is only decoded once.
+ * <p>
+ * Library wide generation runs on a pool with one worker per spare core. While audio is playing every worker
+ * sleeps between buffers so generation never competes with playback. A track is only decoded by one thread at a
+ * time, a request for a track that is being decoded waits for that decoding instead.
+ */
+public class WaveformGenerator {
+    private static final int SAMPLE_RATE = 8000;
+    private static final long THROTTLE_SLEEP_MS = 15;
+    private static WaveformGenerator instance;
+    private final WaveformCache cache = new WaveformCache();
+    private final ConcurrentHashMap<String, CompletableFuture<WaveformSummary>> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService backgroundPool;
+    private final AtomicInteger generatedSummaries = new AtomicInteger();
+
+    public interface SummaryReadyListener {
+        void summaryReady(@NotNull AudioData audio, @NotNull WaveformSummary summary);
+    }
+
+    private WaveformGenerator() {
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        backgroundPool = Executors.newFixedThreadPool(workers, Thread.ofPlatform()
+                .name("Waveform generator ", 0)
+                .daemon(true)
+                .priority(Thread.MIN_PRIORITY)
+                .factory());
+    }
+
+    public static synchronized WaveformGenerator getInstance() {
+        if (instance == null)
+            instance = new WaveformGenerator();
+        return instance;
+    }
+
+    /**
+     * Returns the cached summary of the audio without decoding anything
+     */
+    public @Nullable WaveformSummary getCachedSummary(@NotNull AudioData audio) {
+        return cache.load(audio.getFile());
+    }
+
+    /**
+     * Loads the summary from cache or, if it isn't cached yet, decodes it immediately on a separate thread.
+     * Used for the track that is about to play so it doesn't wait behind the background queue.
+     */
+    public void requestSummary(@NotNull AudioData audio, @NotNull SummaryReadyListener listener) {
+        Thread.startVirtualThread(() -> {
+            WaveformSummary cached = cache.load(audio.getFile());
+            if (cached != null) {
+                listener.summaryReady(audio, cached);
+                return;
+            }
+            generate(audio).thenAccept(summary -> {
+                if (summary != null)
+                    listener.summaryReady(audio, summary);
+            });
+        });
+    }
+
+    /**
+     * Queues every audio without a valid cached summary for generation on the background pool
+     */
+    public void generateInBackground(@NotNull List<AudioData> audios) {
+        long t1 = System.nanoTime();
+        AtomicInteger remaining = new AtomicInteger(audios.size());
+        for (AudioData audio : audios) {
+            backgroundPool.execute(() -> {
+                if (!cache.contains(audio.getFile()))
+                    generate(audio);
+                if (remaining.decrementAndGet() == 0)
+                    Log.success("Waveform summaries of " + audios.size() + " files ready in " + (System.nanoTime() - t1) / 1_000_000 + "ms, " + generatedSummaries + " generated");
+            });
+        }
+    }
+
+    /**
+     * Decodes the audio on the calling thread, or returns the future of the thread already decoding it.
+     * Completes with null if the audio can't be decoded.
+     */
+    private @NotNull CompletableFuture<WaveformSummary> generate(@NotNull AudioData audio) {
+        File file = audio.getFile();
+        String key = file.getAbsolutePath();
+        if (!Gst.isInitialized() || audio.getDurationInMs() <= 0)
+            return CompletableFuture.completedFuture(null);
+        CompletableFuture<WaveformSummary> future = new CompletableFuture<>();
+        CompletableFuture<WaveformSummary> running = inFlight.putIfAbsent(key, future);
+        if (running != null)
+            return running;
+        try {
+            WaveformSummary summary = decode(file, audio.getDurationInMs());
+            if (summary != null) {
+                cache.save(file, summary);
+                generatedSummaries.incrementAndGet();
+            }
+            future.complete(summary);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException)
+                Thread.currentThread().interrupt();
+            Log.error("Couldn't generate waveform of " + file + ": " + e);
+            future.complete(null);
+        } finally {
+            inFlight.remove(key, future);
+        }
+        return future;
+    }
+
+    private @Nullable WaveformSummary decode(@NotNull File file, long durationInMs) throws InterruptedException {
+        final int buckets = WaveformSummary.DEFAULT_BUCKETS;
+        final long expectedSamples = Math.max(1, durationInMs * SAMPLE_RATE / 1000);
+        final short[] min = new short[buckets];
+        final short[] max = new short[buckets];
+        final double[] sumOfSquares = new double[buckets];
+        final int[] counts = new int[buckets];
+        final long[] sampleIndex = {0};
+
+        boolean decoded = PcmDecoder.decode(file, PcmDecoder.SampleFormat.S16LE, 1, SAMPLE_RATE, bytes -> {
+            ShortBuffer samples = bytes.asShortBuffer();
+            while (samples.hasRemaining()) {
+                short s = samples.get();
+                int bucket = (int) Math.min(buckets - 1, sampleIndex[0] * buckets / expectedSamples);
+                if (s < min[bucket]) min[bucket] = s;
+                if (s > max[bucket]) max[bucket] = s;
+                sumOfSquares[bucket] += (double) s * s;
+                counts[bucket]++;
+                sampleIndex[0]++;
+            }
+            if (QuartzAudioController.getInstance().isPlaying())
+                Thread.sleep(THROTTLE_SLEEP_MS);
+            return true;
+        });
+        if (!decoded || sampleIndex[0] == 0)
+            return null;
+
+        byte[] minColumn = new byte[buckets];
+        byte[] maxColumn = new byte[buckets];
+        byte[] rmsColumn = new byte[buckets];
+        for (int i = 0; i < buckets; i++) {
+            minColumn[i] = (byte) (min[i] * 127 / Short.MAX_VALUE);
+            maxColumn[i] = (byte) (max[i] * 127 / Short.MAX_VALUE);
+            double rms = counts[i] == 0 ? 0 : Math.sqrt(sumOfSquares[i] / counts[i]) / Short.MAX_VALUE;
+            rmsColumn[i] = (byte) Math.min(255, Math.round(rms * 255));
+        }
+        return new WaveformSummary(minColumn, maxColumn, rmsColumn);
+    }
+
+    public void dispose() {
+        backgroundPool.shutdownNow();
+    }
+}
@@ -0,0 +1,80 @@
+package app.audio.waveform;
+
+/**
+ * Reduced overview of a track. Every bucket stores the min/max sample value and the RMS of all samples
+ * that fall into it, quantized to a byte so a whole track fits in a few kilobytes.
+ */
+public final class WaveformSummary {
+    public static final int DEFAULT_BUCKETS = 2048;
+    private final byte[] min;
+    private final byte[] max;
+    private final byte[] rms;
+
+    WaveformSummary(byte[] min, byte[] max, byte[] rms) {
+        if (min.length != max.length || min.length != rms.length)
+            throw new IllegalArgumentException("Summary columns must have the same length");
+        this.min = min;
+        this.max = max;
+        this.rms = rms;
+    }
+
+    public int getBucketCount() {
+        return min.length;
+    }
+
+    /**
+     * @return minimum sample of the bucket in range [-1, 0]
+     */
+    public float getMin(int bucket) {
+        return min[bucket] / 127f;
+    }
+
+    /**
+     * @return maximum sample of the bucket in range [0, 1]
+     */
+    public float getMax(int bucket) {
+        return max[bucket] / 127f;
+    }
+
+    /**
+     * @return root mean square of the bucket in range [0, 1]
+     */
+    public float getRms(int bucket) {
+        return (rms[bucket] & 0xFF) / 255f;
+    }
+
+    /**
+     * Reduces this summary to {@code columns} peaks, for example one per pixel of a seek bar.
+     *
+     * @param peaks array of at least {@code columns} length, filled with the largest absolute amplitude of each column
+     * @param rmsValues optional array of at least {@code columns} length, filled with the average rms of each column
+     */
+    public void resample(int columns, float[] peaks, float[] rmsValues) {
+        int buckets = getBucketCount();
+        for (int c = 0; c < columns; c++) {
+            int from = (int) ((long) c * buckets / columns);
+            int to = Math.max(from + 1, (int) ((long) (c + 1) * buckets / columns));
+            float peak = 0;
+            float rmsSum = 0;
+            for (int b = from; b < to && b < buckets; b++) {
+                peak = Math.max(peak, Math.max(getMax(b), -getMin(b)));
+                rmsSum += getRms(b);
+            }
+            peaks[c] = peak;
+            if (rmsValues != null)
+                rmsValues[c] = rmsSum / (to - from);
+        }
+    }
+
+    byte[] getMinColumn() {
+        return min;
+    }
+
+    byte[] getMaxColumn() {
+        return max;
+    }
+
+    byte[] getRmsColumn() {
+        return rms;
+    }
+}
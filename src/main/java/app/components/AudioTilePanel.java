@@ -1,12 +1,12 @@
 package app.components;
 
-import app.comparators.AudioTileComparator;
+import app.audio.indexer.AudioSortIndex;
+import app.components.audio.AudioTile;
 import app.components.containers.SelectablePanel;
 import app.components.enums.SortingPolicy;
-import app.settings.constraints.ComponentParameters;
 
 import java.awt.*;
-import java.util.Arrays;
+import java.security.InvalidParameterException;
 
 public class AudioTilePanel extends SelectablePanel {
     private SortingPolicy sortingPolicy;
@@ -32,23 +32,24 @@ public class AudioTilePanel extends SelectablePanel {
         sortTiles();
     }
 
+    /**
+     * Orders tiles by the keys indexed for their tracks and moves them in place, their layout constraints are kept
+     */
     private void sortTiles() {
+        if (sortingPolicy == null)
+            return;
         synchronized (getTreeLock()) {
             final Component[] components = getComponents();
-            switch (sortingPolicy) {
-                case TITLE -> {
-                    Arrays.sort(components, AudioTileComparator.TITLE_COMPARATOR);
-                }
-                case ARTIST -> Arrays.sort(components, AudioTileComparator.ARTIST_COMPARATOR);
-                case DURATION -> Arrays.sort(components, AudioTileComparator.DURATION_COMPARATOR);
-                case DATE_ADDED -> Arrays.sort(components, AudioTileComparator.DATE_ADDED);
+            AudioTile[] tiles = new AudioTile[components.length];
+            for (int i = 0; i < components.length; i++) {
+                if (!(components[i] instanceof AudioTile tile))
+                    throw new InvalidParameterException("Components must be " + AudioTile.class + " but found " + components[i].getClass());
+                tiles[i] = tile;
             }
-            // Remove existing components from the panel
-            removeAll();
-
-            // Re-add the components in the sorted order
-            for (Component component : components) {
-                add(component, ComponentParameters.TILE_CONSTRAINT);
+            AudioSortIndex.getInstance().sort(tiles, AudioTile::getAudioData, sortingPolicy);
+            for (int i = 0; i < tiles.length; i++) {
+                if (getComponent(i) != tiles[i])
+                    setComponentZOrder(tiles[i], i);
             }
 
             // Repaint and revalidate the panel to reflect the changes
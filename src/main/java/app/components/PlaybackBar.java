@@ -1,5 +1,6 @@
 package app.components;
 
+import app.audio.waveform.WaveformSummary;
 import material.MaterialParameters;
 import material.Padding;
 import material.component.MaterialComponent;
@@ -39,6 +40,12 @@ public class PlaybackBar extends MaterialComponent {
     private Font tooltipFont;
 
     private static   final Padding tooltipPadding = new Padding(2, 5);
+    private static final int WAVEFORM_BAR_WIDTH = 2;
+    private static final int WAVEFORM_BAR_GAP = 1;
+    private static final float WAVEFORM_HEIGHT_RATIO = 0.8f;
+    private WaveformSummary waveform;
+    private float[] waveformPeaks = new float[0];
+    private int waveformColumns = -1;
     public PlaybackBar() {
         super();
         setDoubleBuffered(true);
@@ -105,7 +112,10 @@ public class PlaybackBar extends MaterialComponent {
             y = (getHeight() - progressBarHeight) / 2; // y position of progress bar
             int pWidth = (int) (getWidth() - ((currTimeWidth + totalTimeWidth) + (gap * 2))); // width of progress bar
             _validBarPressBounds = new RoundRectangle2D.Double(x, y, pWidth, progressBarHeight, cornerRadius, cornerRadius);
-            g2d.fill(_validBarPressBounds);
+            if (waveform != null)
+                paintWaveform(g2d, x, pWidth);
+            else
+                g2d.fill(_validBarPressBounds);
             //Total time label
             g2d.setColor(getForeground());
             x = (int) (currTimeWidth + (gap * 2) + pWidth); //x position of total time text
@@ -156,12 +166,17 @@ public class PlaybackBar extends MaterialComponent {
                 }
                 //Playback position
                 g2d.setColor(_fillColor);
-                g2d.setClip(_validBarPressBounds);
-                g2d.fillRect((int) _validBarPressBounds.getX(), (int) _validBarPressBounds.getY(), fillWidth, progressBarHeight);
+                if (waveform != null) {
+                    g2d.setClip((int) _validBarPressBounds.getX(), 0, fillWidth, getHeight());
+                    paintWaveform(g2d, (int) _validBarPressBounds.getX(), (int) _validBarPressBounds.getWidth());
+                } else {
+                    g2d.setClip(_validBarPressBounds);
+                    g2d.fillRect((int) _validBarPressBounds.getX(), (int) _validBarPressBounds.getY(), fillWidth, progressBarHeight);
 
-                //Smoothen the  playback position by drawing border
-                g2d.setClip((int) _validBarPressBounds.getX(), (int) _validBarPressBounds.getY(), fillWidth, progressBarHeight);
-                g2d.draw(_validBarPressBounds);
+                    //Smoothen the  playback position by drawing border
+                    g2d.setClip((int) _validBarPressBounds.getX(), (int) _validBarPressBounds.getY(), fillWidth, progressBarHeight);
+                    g2d.draw(_validBarPressBounds);
+                }
 
 
                 g2d.dispose();
@@ -172,6 +187,27 @@ public class PlaybackBar extends MaterialComponent {
         }
     }
 
+    /**
+     * Draws the waveform summary as bars centered on the progress bar. Peaks are only resampled when the
+     * number of bars changes so painting never touches the full summary.
+     */
+    private void paintWaveform(Graphics2D g2d, int x, int width) {
+        final int step = WAVEFORM_BAR_WIDTH + WAVEFORM_BAR_GAP;
+        int columns = Math.max(0, width / step);
+        if (columns != waveformColumns) {
+            if (waveformPeaks.length < columns)
+                waveformPeaks = new float[columns];
+            waveform.resample(columns, waveformPeaks, null);
+            waveformColumns = columns;
+        }
+        final int centerY = getHeight() / 2;
+        final float maxHeight = getHeight() * WAVEFORM_HEIGHT_RATIO;
+        for (int c = 0; c < columns; c++) {
+            int h = Math.max(progressBarHeight / 4, (int) (waveformPeaks[c] * maxHeight));
+            g2d.fillRect(x + c * step, centerY - h / 2, WAVEFORM_BAR_WIDTH, h);
+        }
+    }
+
     private void addListeners() {
         this.addMouseMotionListener(new MouseAdapter() {
             @Override
@@ -283,6 +319,19 @@ public class PlaybackBar extends MaterialComponent {
         }
     }
 
+    /**
+     * Sets the waveform drawn instead of the plain bar. Passing null restores the plain bar.
+     */
+    public void setWaveform(WaveformSummary waveform) {
+        this.waveform = waveform;
+        this.waveformColumns = -1;
+        repaint();
+    }
+
+    public WaveformSummary getWaveform() {
+        return waveform;
+    }
+
     public Color getColor() {
         return _fillColor;
     }
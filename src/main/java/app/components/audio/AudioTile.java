@@ -18,6 +18,7 @@ import material.tools.ColorUtils;
 import material.utils.GraphicsUtils;
 import material.utils.Log;
 import material.utils.StringUtils;
+import material.utils.TextLayoutCache;
 import material.window.MousePointer;
 import org.jetbrains.annotations.NotNull;
 
@@ -43,6 +44,8 @@ public class AudioTile extends MaterialComponent implements MouseInputListener,
     private boolean isActive = false;
     private final int ThumbSize = 50;
     private Color actualBackgroundColor;
+    private Font artistFont;
+    private Font artistFontSource;
 //    private Rectangle2D oldBounds;
 //    private boolean isHighlighting;
     private final NavigationLink LINK;
@@ -163,37 +166,26 @@ public class AudioTile extends MaterialComponent implements MouseInputListener,
 
         //artist and duration text metrics are same
         FontMetrics fontMetrics = g2d.getFontMetrics();
-        int durationTextSize = (int) fontMetrics.getStringBounds(audioDuration, g2d).getWidth() + padding * 2;
+        int durationTextSize = TextLayoutCache.getInstance().stringWidth(g2d, audioDuration) + padding * 2;
 
 
         int availableWidth = getWidth() - iSize - padding - iX - durationTextSize;
         int tX = iX + padding + iSize;
         int tY = (getHeight() - fontMetrics.getAscent()) / 2;
 
-        //Audio name
-        g2d.setFont(getFont());
+        //Audio name, clipping and font fallback runs are cached
         g2d.setColor(audioNameColor);
         audioName = GraphicsUtils.clipString(g2d, audioName, availableWidth);
-
-        if (getFont().canDisplayUpTo(audioName) == -1)
-            g2d.drawString(audioName, tX, tY);
-        else { //If there are unsupported characters then render them using default font
-            drawLanguageCompatibleString(audioName, tX, tY, g2d, getFont());
-        }
+        drawLanguageCompatibleString(audioName, tX, tY, g2d, getFont());
 
         //artist name
-        int artistFontSize = (int) Math.round(getFontSize() * 0.8); //80% of font size
-        Font artistFont = new Font(getFont().getName(), getFont().getStyle(), artistFontSize);
+        Font artistFont = getArtistFont();
         g2d.setFont(artistFont);
         g2d.setColor(artistNameColor);
         fontMetrics = g2d.getFontMetrics();
         artistName = GraphicsUtils.clipString(g2d, artistName, availableWidth);
         tY = tY + gap + fontMetrics.getAscent();
-        if (getFont().canDisplayUpTo(audioName) == -1)
-            g2d.drawString(artistName, tX, tY);
-        else { //If there are unsupported characters then render them using default font
-            drawLanguageCompatibleString(artistName, tX, tY, g2d, artistFont);
-        }
+        drawLanguageCompatibleString(artistName, tX, tY, g2d, artistFont);
             //drawing duration
             g2d.setFont(getFont());
             fontMetrics = g2d.getFontMetrics();
@@ -204,6 +196,17 @@ public class AudioTile extends MaterialComponent implements MouseInputListener,
         Toolkit.getDefaultToolkit().sync();
     }
 
+    /**
+     * @return 80% of the tile's font, derived again only when the font changes
+     */
+    private Font getArtistFont() {
+        Font font = getFont();
+        if (artistFont == null || artistFontSource != font) {
+            artistFont = new Font(font.getName(), font.getStyle(), (int) Math.round(getFontSize() * 0.8));
+            artistFontSource = font;
+        }
+        return artistFont;
+    }
 
 
 
@@ -35,6 +35,13 @@ public class FullscreenPanel extends MaterialPanel {
     public void setAudio(AudioData currentAudioData) {
         this.currentAudioData = currentAudioData;
     }
+    /**
+     * @return if the panel has been built, it's built the first time fullscreen mode is entered
+     */
+    public static boolean isCreated() {
+        return instance != null;
+    }
+
     public static FullscreenPanel getInstance() {
         if (instance == null)
             instance = new FullscreenPanel();
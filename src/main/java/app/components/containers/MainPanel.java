@@ -1,6 +1,5 @@
 package app.components.containers;
 
-import app.audio.player.QuartzAudioController;
 import app.components.enums.ViewType;
 import app.components.spectrum.SpectrumViewer;
 import app.main.Quartz;
@@ -27,7 +26,6 @@ public class MainPanel extends MaterialPanel {
     private final SideNavigationPanel _sidePanel = SideNavigationPanel.getInstance();
 
     private final ViewManagerPanel _defaultView = ViewManagerPanel.getInstance();
-    private final SpectrumViewer _spectrumViewer = SpectrumViewer.getInstance();
     private static MainPanel instance;
     private Rectangle MouseDragArea;
 
@@ -56,7 +54,6 @@ public class MainPanel extends MaterialPanel {
     }
     public synchronized void switchView(@NotNull ViewType mainPanelView) {
         currentView = mainPanelView;
-        QuartzAudioController.getInstance().enableVisualizerSampling(mainPanelView == ViewType.SpectrumView);
 
         switch (mainPanelView) {
             case DefaultView -> switchToDefaultView();
@@ -84,14 +81,16 @@ public class MainPanel extends MaterialPanel {
 
 
     private void switchToSpectrumView() {
+        // built the first time it's shown
+        SpectrumViewer spectrumViewer = SpectrumViewer.getInstance();
         removeAll();
         if (OsInfo.isWindowsVistaOrLater()) {
-            setElevationDP(_spectrumViewer.getElevationDP());
+            setElevationDP(spectrumViewer.getElevationDP());
             initTitleBar();
         }
-        add(_spectrumViewer, "grow");
+        add(spectrumViewer, "grow");
         PlaybackControlPanel.SPECTRUM_BUTTON.setActive(true);
-        _spectrumViewer.repaint();
+        spectrumViewer.repaint();
         repaint();
         revalidate();
 
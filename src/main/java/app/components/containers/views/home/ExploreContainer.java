@@ -2,6 +2,7 @@ package app.components.containers.views.home;
 
 import app.main.TileManager;
 import app.audio.AudioData;
+import app.audio.duplicates.DuplicateGroup;
 import app.audio.indexer.AudioDataIndexer;
 import app.audio.search.IndexSearch;
 import app.components.audio.AudioTile;
@@ -10,6 +11,7 @@ import app.components.containers.ViewManagerPanel;
 import app.components.containers.views.ViewPanel;
 import app.components.enums.NavigationLink;
 import app.components.misc.ViewerStatusLabel;
+import app.local.PlayStatistics;
 import app.settings.constraints.ComponentParameters;
 import material.containers.MaterialPanel;
 import material.containers.MaterialScrollPane;
@@ -22,6 +24,7 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Stack;
 import java.util.concurrent.CompletableFuture;
 
@@ -33,6 +36,13 @@ public class ExploreContainer extends ViewPanel {
 
     private static final SelectablePanel defaultTileContainer = (SelectablePanel) new SelectablePanel(new MigLayout(ComponentParameters.VerticalTileFlow)).setElevationDP(null);
     private static final GreetingsHeader greetingsHeader = GreetingsHeader.getInstance();
+    private static final HomeSection mostPlayedSection = new HomeSection("Most played");
+    private static final HomeSection recentlyPlayedSection = new HomeSection("Recently played");
+    private static final HomeSection duplicatesSection = new HomeSection("Duplicates");
+    private static final int SECTION_SIZE = 5;
+    // copies of this many tracks are shown, exact copies first
+    private static final int DUPLICATE_GROUP_LIMIT = 10;
+    private static final String SECTION_CONSTRAINT = "growX";
     private static final ViewerStatusLabel viewerStatusLabel = new ViewerStatusLabel(ViewerStatusLabel.SEARCH_TEXT);
     private static boolean isTilesLoaded = false;
     private static final String CONTAINER_CONSTRAINT = "grow";
@@ -49,10 +59,14 @@ public class ExploreContainer extends ViewPanel {
         super(new MigLayout(ComponentParameters.VerticalTileFlow));
         add(ROOT_SCROLLPANE, "w 100%, h 100%");
         explorerContainer.add(greetingsHeader, GREETINGS_HEADER_CONSTRAINTS);
+        explorerContainer.add(mostPlayedSection, SECTION_CONSTRAINT);
+        explorerContainer.add(recentlyPlayedSection, SECTION_CONSTRAINT);
+        explorerContainer.add(duplicatesSection, SECTION_CONSTRAINT);
         explorerContainer.add(defaultTileContainer, CONTAINER_CONSTRAINT);
         getUndoButton().setEnabled(false);
         getRedoButton().setEnabled(false);
         loadTiles();
+        PlayStatistics.getInstance().addUpdateListener(this::loadSections);
 
 
     }
@@ -91,7 +105,47 @@ public class ExploreContainer extends ViewPanel {
         });
     }
 
+    /**
+     * Fills the most played and recently played sections with the tracks of the library at the top of the statistics
+     */
+    private void loadSections() {
+        PlayStatistics statistics = PlayStatistics.getInstance();
+        ArrayList<AudioData> mostPlayed = findTracks(statistics.getMostPlayed());
+        ArrayList<AudioData> recentlyPlayed = findTracks(statistics.getRecentlyPlayed());
+        SwingUtilities.invokeLater(() -> {
+            mostPlayedSection.setTracks(mostPlayed);
+            recentlyPlayedSection.setTracks(recentlyPlayed);
+        });
+    }
+
+    /**
+     * Shows the copies found by the duplicate search next to each other, the section is hidden if there are none
+     */
+    public void setDuplicates(@NotNull List<DuplicateGroup> groups) {
+        ArrayList<AudioData> tracks = new ArrayList<>();
+        for (DuplicateGroup group : groups.subList(0, Math.min(groups.size(), DUPLICATE_GROUP_LIMIT)))
+            tracks.addAll(group.tracks());
+        SwingUtilities.invokeLater(() -> duplicatesSection.setTracks(tracks));
+    }
+
+    /**
+     * @return the first tracks that are in the library, files that aren't are skipped
+     */
+    private static ArrayList<AudioData> findTracks(List<PlayStatistics.TrackStatistics> statistics) {
+        AudioDataIndexer indexer = AudioDataIndexer.getInstance();
+        ArrayList<AudioData> tracks = new ArrayList<>(SECTION_SIZE);
+        for (PlayStatistics.TrackStatistics track : statistics) {
+            AudioData audioData = indexer.getAudioFile(track.path());
+            if (audioData != null)
+                tracks.add(audioData);
+            if (tracks.size() == SECTION_SIZE)
+                break;
+        }
+        return tracks;
+    }
+
     private void createAndAddAllTiles() {
+        loadSections();
         defaultTileContainer.removeAll();
         ArrayList<AudioData> audios = AudioDataIndexer.getInstance().getAllAudioFiles();
         if (audios.isEmpty()) {
@@ -275,6 +329,9 @@ public class ExploreContainer extends ViewPanel {
                 }
             }
             explorerContainer.add(greetingsHeader, GREETINGS_HEADER_CONSTRAINTS);
+            explorerContainer.add(mostPlayedSection, SECTION_CONSTRAINT);
+            explorerContainer.add(recentlyPlayedSection, SECTION_CONSTRAINT);
+            explorerContainer.add(duplicatesSection, SECTION_CONSTRAINT);
             explorerContainer.add(defaultTileContainer, CONTAINER_CONSTRAINT);
             explorerContainer.repaint();
 
@@ -285,6 +342,9 @@ public class ExploreContainer extends ViewPanel {
     private void loadSearchResultContainer() {
         SwingUtilities.invokeLater(() -> {
             explorerContainer.remove(greetingsHeader);
+            explorerContainer.remove(mostPlayedSection);
+            explorerContainer.remove(recentlyPlayedSection);
+            explorerContainer.remove(duplicatesSection);
             explorerContainer.remove(defaultTileContainer);
             explorerContainer.repaint();
             explorerContainer.revalidate();
@@ -0,0 +1,71 @@
+package app.components.containers.views.home;
+
+import app.audio.AudioData;
+import app.components.audio.AudioTile;
+import app.main.TileManager;
+import app.settings.constraints.ComponentParameters;
+import material.component.MaterialLabel;
+import material.component.enums.LabelStyle;
+import material.containers.MaterialPanel;
+import net.miginfocom.swing.MigLayout;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Titled row of tracks on the explore view, hidden while it has no tracks
+ */
+public class HomeSection extends MaterialPanel {
+    private static final int TITLE_FONT_SIZE = 20;
+    private final String title;
+    private final MaterialPanel tileContainer = new MaterialPanel(new MigLayout(ComponentParameters.VerticalTileFlow));
+    private List<AudioData> tracks = List.of();
+
+    public HomeSection(@NotNull String title) {
+        super(new MigLayout(ComponentParameters.VerticalTileFlow));
+        this.title = title;
+        setElevationDP(null);
+        tileContainer.setElevationDP(null);
+
+        MaterialLabel titleLabel = new MaterialLabel(title).setLabelStyle(LabelStyle.PRIMARY);
+        titleLabel.setFontSize(TITLE_FONT_SIZE);
+        add(titleLabel, "growX, h 40!, gapY 5");
+        add(tileContainer, "growX");
+        setVisible(false);
+    }
+
+    /**
+     * Replaces the tracks, called on the EDT. The tiles are kept if the tracks didn't change.
+     */
+    public void setTracks(@NotNull List<AudioData> tracks) {
+        if (hasSameTracks(tracks))
+            return;
+        this.tracks = List.copyOf(tracks);
+        TileManager.retainSectionTiles(title, tracks);
+        tileContainer.removeAll();
+        for (AudioData audioData : tracks) {
+            AudioTile audioTile = TileManager.convertToSectionTile(audioData, title);
+            tileContainer.add(audioTile, ComponentParameters.TILE_CONSTRAINT);
+        }
+        setVisible(!tracks.isEmpty());
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * @return if the same tracks are shown in the same order, compared by identity since tiles belong to the instance
+     */
+    private boolean hasSameTracks(@NotNull List<AudioData> tracks) {
+        if (tracks.size() != this.tracks.size())
+            return false;
+        for (int i = 0; i < tracks.size(); i++) {
+            if (tracks.get(i) != this.tracks.get(i))
+                return false;
+        }
+        return true;
+    }
+
+    public @NotNull String getTitle() {
+        return title;
+    }
+}
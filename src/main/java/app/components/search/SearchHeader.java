@@ -56,11 +56,11 @@ public class SearchHeader extends MaterialPanel {
                 if(startTimer != -1 && System.nanoTime() - startTimer > TYPING_DELAY) {
                     searchCallback();
                     startTimer = -1;
+                    stop();
                     Log.info("search called");
                 }
             }
         };
-        typingTimer.start();
         searchBar.addTextChangedListener(newText -> accumulateTime());
     }
 
@@ -68,6 +68,7 @@ public class SearchHeader extends MaterialPanel {
         synchronized (typingTimer) {
             startTimer = System.nanoTime();
         }
+        typingTimer.start();
     }
 
     public Elevation getScrollingElevation() {
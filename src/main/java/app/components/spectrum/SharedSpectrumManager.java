@@ -1,5 +1,6 @@
 package app.components.spectrum;
 
+import java.awt.event.HierarchyEvent;
 import java.util.ArrayList;
 
 public class SharedSpectrumManager {
@@ -8,6 +9,10 @@ public class SharedSpectrumManager {
     public static synchronized Spectrum createSpectrum(){
         Spectrum spectrum = new Spectrum();
         spectrumList.add(spectrum);
+        spectrum.addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0)
+                SpectrumRenderPolicy.getInstance().update();
+        });
         return spectrum;
     }
 
@@ -18,6 +23,7 @@ public class SharedSpectrumManager {
     }
     public static synchronized void removeSpectrum(Spectrum spectrum){
         spectrumList.remove(spectrum);
+        SpectrumRenderPolicy.getInstance().update();
     }
     public static boolean isMagnitudesRequired(){
         for(Spectrum spectrum : spectrumList)
@@ -46,19 +46,20 @@ public class Spectrum extends MaterialComponent {
     @Override
     public void paint(Graphics g) {
         super.paint(g);
-        activePainter.paintInVolatileImage(g);
+        activePainter.paintFrame(g);
     }
 
 
     public void setMagnitudes(float[] magnitudes) {
-        if(this.isVisible()) {
+        // frames are rendered and repainted by the painter timer
+        if(this.isVisible())
             activePainter.setMagnitudes(magnitudes);
-            repaint();
-        }
     }
 
     public void setSpectrumType(SpectrumType spectrumType) {
         this.spectrumType = spectrumType;
+        if (activePainter != null)
+            activePainter.flushBuffer();
         switch (spectrumType) {
             case BAR -> activePainter = barSpectrum;
             case WAVY -> activePainter = wavySpectrum;
@@ -67,6 +68,10 @@ public class Spectrum extends MaterialComponent {
         repaint();
     }
 
+    public SpectrumPainter getActivePainter() {
+        return activePainter;
+    }
+
     public SpectrumType getSpectrumType() {
         return spectrumType;
     }
@@ -0,0 +1,125 @@
+package app.components.spectrum;
+
+import app.audio.player.QuartzAudioController;
+import app.components.spectrum.painter.SharedPainterTimer;
+import material.animation.MaterialFixedTimer;
+import material.utils.Log;
+import material.utils.PowerStatus;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.AWTEventListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+
+/**
+ * Decides how often spectrums are rendered. Nothing is rendered and the player stops posting spectrum messages
+ * while no spectrum is showing or the window is minimized, so background playback costs no visualizer CPU.
+ * An unfocused window, battery power and an idle user each halve the frame rate.
+ */
+public class SpectrumRenderPolicy {
+    private static final int MINIMUM_FPS = 8;
+    private static final long IDLE_TIMEOUT_MS = 5 * 60_000;
+    private static final long HINT_CHECK_INTERVAL_MS = 5_000;
+    private static final long INPUT_EVENT_MASK = AWTEvent.KEY_EVENT_MASK | AWTEvent.MOUSE_EVENT_MASK
+            | AWTEvent.MOUSE_MOTION_EVENT_MASK | AWTEvent.MOUSE_WHEEL_EVENT_MASK;
+    private static SpectrumRenderPolicy instance;
+    private final MaterialFixedTimer hintTimer;
+    private volatile long lastInputTime = System.currentTimeMillis();
+    private boolean isWindowIconified;
+    private boolean isWindowFocused = true;
+    private boolean isUserIdle;
+    private boolean isSavingPower;
+    private int appliedFps = -1;
+
+    private SpectrumRenderPolicy() {
+        // battery and idle state have no events, they're polled while a spectrum is rendered
+        hintTimer = new MaterialFixedTimer(HINT_CHECK_INTERVAL_MS) {
+            @Override
+            public void tick(float deltaMillis) {
+                SwingUtilities.invokeLater(SpectrumRenderPolicy.this::update);
+            }
+        };
+    }
+
+    public static SpectrumRenderPolicy getInstance() {
+        if (instance == null)
+            instance = new SpectrumRenderPolicy();
+        return instance;
+    }
+
+    /**
+     * Follows iconified and focus state of the window and the user's input in it
+     */
+    public void install(@NotNull Window window) {
+        window.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowIconified(WindowEvent e) {
+                isWindowIconified = true;
+                update();
+            }
+
+            @Override
+            public void windowDeiconified(WindowEvent e) {
+                isWindowIconified = false;
+                update();
+            }
+        });
+        window.addWindowFocusListener(new WindowAdapter() {
+            @Override
+            public void windowGainedFocus(WindowEvent e) {
+                isWindowFocused = true;
+                update();
+            }
+
+            @Override
+            public void windowLostFocus(WindowEvent e) {
+                isWindowFocused = false;
+                update();
+            }
+        });
+        AWTEventListener inputListener = event -> {
+            lastInputTime = System.currentTimeMillis();
+            if (isUserIdle)
+                update();
+        };
+        Toolkit.getDefaultToolkit().addAWTEventListener(inputListener, INPUT_EVENT_MASK);
+        isWindowFocused = window.isFocused();
+        update();
+    }
+
+    /**
+     * Re-evaluates the frame rate, called on the EDT whenever visibility of a spectrum or the window changes
+     */
+    public void update() {
+        boolean isRendering = !isWindowIconified && SharedSpectrumManager.isMagnitudesRequired();
+        if (isRendering) {
+            isUserIdle = System.currentTimeMillis() - lastInputTime > IDLE_TIMEOUT_MS;
+            isSavingPower = PowerStatus.isSavingPower();
+            hintTimer.start();
+        } else {
+            hintTimer.stop();
+        }
+        int fps = isRendering ? getFps() : 0;
+        if (fps == appliedFps)
+            return;
+        appliedFps = fps;
+        SharedPainterTimer.getInstance().setFps(fps);
+        QuartzAudioController.getInstance().enableVisualizerSampling(fps > 0);
+        Log.info("Spectrum rendering at " + fps + " FPS" + (fps > 0
+                ? " (focused: " + isWindowFocused + ", idle: " + isUserIdle + ", saving power: " + isSavingPower + ")"
+                : ", spectrum sampling off"));
+    }
+
+    private int getFps() {
+        int fps = SharedPainterTimer.FPS;
+        if (!isWindowFocused)
+            fps /= 2;
+        if (isUserIdle)
+            fps /= 2;
+        if (isSavingPower)
+            fps /= 2;
+        return Math.max(fps, MINIMUM_FPS);
+    }
+}
@@ -4,7 +4,6 @@ import app.components.spectrum.Spectrum;
 import material.utils.Log;
 
 import java.awt.*;
-import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 
 public class BarSpectrum extends SpectrumPainter {
@@ -17,7 +16,10 @@ public class BarSpectrum extends SpectrumPainter {
     //    private final LinkedList<BufferedImage> _ambientImageBackgroundBuffer = new LinkedList<>();
     private BufferedImage bufferedImage;
     private Color oldAmbientFg;
-    private float[] reversedMag;
+    private int[] barX = new int[0];
+    private int barWidth;
+    private int maxBarHeight;
+    private int layoutWidth = -1, layoutHeight = -1;
 
     public BarSpectrum(Spectrum spectrum) {
         super(spectrum);
@@ -25,19 +27,15 @@ public class BarSpectrum extends SpectrumPainter {
     }
 
 
-    public void paint(Graphics g) {
+    @Override
+    public void paint(Graphics2D g2d, int width, int height) {
         try {
-            Graphics2D g2d = (Graphics2D) g;
 //            drawAmbientBlur((Graphics2D) g2d.create());
 
-
             //Drawing visualizer
-            if (getMagnitudes() != null)
-                drawBars(g2d, getMirroredMagnitudes());
-
-            //Releasing graphic resources
-            Toolkit.getDefaultToolkit().sync();
-            g2d.dispose();
+            float[] magnitudes = getMirroredMagnitudes();
+            if (magnitudes != null)
+                drawBars(g2d, magnitudes, width, height);
         } catch (Exception e) {
             Log.error("Error while painting spectrum: " + e);
             e.printStackTrace();
@@ -63,33 +61,34 @@ public class BarSpectrum extends SpectrumPainter {
 //    }
 
 
-    private void drawBars(Graphics2D g2d, float[] magnitudes) {
-        double x, y;
-        final double barNumber = magnitudes.length;
-        final double width = spectrum.getWidth();
-        final double maxSize = (int) (spectrum.getHeight() * BAR_HEIGHT_RATIO);
-        final double barWidth = width / barNumber;
+    private void drawBars(Graphics2D g2d, float[] magnitudes, int width, int height) {
+        if (width != layoutWidth || height != layoutHeight || magnitudes.length != barX.length)
+            layoutBars(magnitudes.length, width, height);
         //Horizontal bar in the center
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
-
-        int i = 0; // Index of bars
         g2d.setColor(spectrum.getForeground());
-        g2d.setStroke(new BasicStroke(1f));
-
-        g2d.fillRect(0, (spectrum.getHeight() - MINIMUM_HEIGHT) / 2, spectrum.getWidth(), MINIMUM_HEIGHT);
-        while (i < barNumber) {
-            double ratio = magnitudes[i] / MAX_DECIBELS;
-            double height = (ratio * maxSize);
-            x = ((int) (i * barWidth));
-            y = ((spectrum.getHeight() - height) / 2D);
-//                k += Math.ceil(magnitudes.length / (barNumber));
-            Rectangle2D bar = new Rectangle2D.Double(Math.ceil(x), Math.ceil(y), Math.ceil(barWidth), height);
-            g2d.fill(bar);
-            i++;
-
+        g2d.fillRect(0, (height - MINIMUM_HEIGHT) / 2, width, MINIMUM_HEIGHT);
+        for (int i = 0; i < magnitudes.length; i++) {
+            int barHeight = (int) (magnitudes[i] / MAX_DECIBELS * maxBarHeight);
+            g2d.fillRect(barX[i], (height - barHeight) / 2, barWidth, barHeight);
         }
     }
 
+    /**
+     * Bar positions only depend on the size and the number of bars, they're computed once per resize
+     */
+    private void layoutBars(int barNumber, int width, int height) {
+        final double exactBarWidth = width / (double) barNumber;
+        if (barX.length != barNumber)
+            barX = new int[barNumber];
+        for (int i = 0; i < barNumber; i++)
+            barX[i] = (int) (i * exactBarWidth);
+        barWidth = (int) Math.ceil(exactBarWidth);
+        maxBarHeight = (int) (height * BAR_HEIGHT_RATIO);
+        layoutWidth = width;
+        layoutHeight = height;
+    }
+
 //    protected void createAmbientImage() {
 //        try {
 //            if (oldAmbientFg != null && oldAmbientFg.getRGB() == spectrum.getForeground().getRGB() && !forceAmbientUpdate) {
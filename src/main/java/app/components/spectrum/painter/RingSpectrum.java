@@ -17,6 +17,11 @@ public class RingSpectrum extends SpectrumPainter {
 //    private final LinkedList<BufferedImage> _ambientImageBackgroundBuffer = new LinkedList<>();
     private BufferedImage bufferedImage;
     private Color oldAmbientFg;
+    private double[] barCos = new double[0];
+    private double[] barSin = new double[0];
+    private BasicStroke barStroke;
+    private int maxRadius;
+    private int layoutWidth = -1, layoutHeight = -1;
 
     public RingSpectrum(Spectrum spectrum) {
         super(spectrum);
@@ -26,20 +31,17 @@ public class RingSpectrum extends SpectrumPainter {
     }
 
 
-    public void paint(Graphics g) {
+    @Override
+    public void paint(Graphics2D g2d, int width, int height) {
         try {
-            Graphics2D g2d = (Graphics2D) g;
 //            drawAmbientBlur((Graphics2D) g2d.create());
 
             g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
             //Drawing visualizer
-            if(getMagnitudes() != null)
-                drawCircularVisualizer(g2d, super.getMagnitudes());
-
-            //Releasing graphic resources
-            Toolkit.getDefaultToolkit().sync();
-            g2d.dispose();
+            float[] magnitudes = getMagnitudes();
+            if (magnitudes != null)
+                drawCircularVisualizer(g2d, magnitudes, width, height);
         } catch (Exception e) {
             Log.error("Error while painting spectrum: " + e);
         }
@@ -64,41 +66,55 @@ public class RingSpectrum extends SpectrumPainter {
 //    }
 
 
-    private void drawCircularVisualizer(Graphics2D g2d, float[] magnitudes) {
-        // Define visualizer properties
-        int centerX = spectrum.getWidth() / 2;    // X-coordinate of the center of the visualizer
-        int centerY = spectrum.getHeight()/ 2;   // Y-coordinate of the center of the visualizer
-        int maxRadius = (int) (Math.min(centerX, centerY) * 0.8);  // Maximum radius based on available space
-        int numBars = magnitudes.length;   // Number of bars
-        int barWidth = (int) Math.ceil((2 * Math.PI * maxRadius) / numBars); // Dynamic bar width
+    private void drawCircularVisualizer(Graphics2D g2d, float[] magnitudes, int width, int height) {
+        if (width != layoutWidth || height != layoutHeight || magnitudes.length != barCos.length)
+            layoutRing(magnitudes.length, width, height);
+        int centerX = width / 2;    // X-coordinate of the center of the visualizer
+        int centerY = height / 2;   // Y-coordinate of the center of the visualizer
 
         // Set the rendering properties
         g2d.setColor(ThemeColors.getAccent());
-        g2d.setStroke(new BasicStroke(barWidth));
-
-        // Calculate the angle increment for each bar
-        double angleIncrement = (2 * Math.PI) / numBars;
+        g2d.setStroke(barStroke);
 
         // Iterate through the magnitudes and draw the circular visualizer
-        for (int i = 0; i < numBars; i++) {
-            // Calculate the angle for the current bar
-            double angle = i * angleIncrement;
-
+        for (int i = 0; i < magnitudes.length; i++) {
             // Calculate the magnitude-based height for the current bar
-            float magnitude = magnitudes[i];
-            int height = (int) (magnitude * maxRadius / 150.0); // Adjust the denominator based on the maximum magnitude
+            int barHeight = (int) (magnitudes[i] * maxRadius / 150.0); // Adjust the denominator based on the maximum magnitude
 
             // Calculate the starting and ending coordinates for the current bar
-            double x1 = centerX + (maxRadius - height) * Math.cos(angle - Math.PI / 2);
-            double y1 = centerY + (maxRadius - height) * Math.sin(angle - Math.PI / 2);
-            double x2 = centerX + maxRadius * Math.cos(angle - Math.PI / 2);
-            double y2 = centerY + maxRadius * Math.sin(angle - Math.PI / 2);
+            double x1 = centerX + (maxRadius - barHeight) * barCos[i];
+            double y1 = centerY + (maxRadius - barHeight) * barSin[i];
+            double x2 = centerX + maxRadius * barCos[i];
+            double y2 = centerY + maxRadius * barSin[i];
 
             // Draw the bar
             g2d.drawLine((int) x1, (int) y1, (int) x2, (int) y2);
         }
     }
 
+    /**
+     * Bar directions, radius and stroke only depend on the size and the number of bars, they're computed once
+     * per resize
+     */
+    private void layoutRing(int numBars, int width, int height) {
+        maxRadius = (int) (Math.min(width / 2, height / 2) * 0.8);  // Maximum radius based on available space
+        int barWidth = (int) Math.ceil((2 * Math.PI * maxRadius) / numBars); // Dynamic bar width
+        if (barStroke == null || barStroke.getLineWidth() != barWidth)
+            barStroke = new BasicStroke(barWidth);
+        if (barCos.length != numBars) {
+            barCos = new double[numBars];
+            barSin = new double[numBars];
+            // Bars start at the top and go clockwise
+            double angleIncrement = (2 * Math.PI) / numBars;
+            for (int i = 0; i < numBars; i++) {
+                double angle = i * angleIncrement - Math.PI / 2;
+                barCos[i] = Math.cos(angle);
+                barSin[i] = Math.sin(angle);
+            }
+        }
+        layoutWidth = width;
+        layoutHeight = height;
+    }
 
 
 
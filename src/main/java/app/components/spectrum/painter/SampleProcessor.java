@@ -10,21 +10,21 @@ public class SampleProcessor {
      * Magnitudes are mirrored like 1,2,3,3,2,1
      *
      * @param magnitudes  These magnitudes are mirrored
+     * @param arrayToFill Reused when it's twice as long as magnitudes, otherwise a new array is returned
      */
     public static float @NotNull [] mirrorMagnitudes(float @NotNull [] magnitudes, float @Nullable [] arrayToFill, boolean isSorted){
-        float[] copy = new float[magnitudes.length];
-        System.arraycopy(magnitudes,0,copy,0,copy.length);
-        if(arrayToFill == null){
-            arrayToFill = new float[magnitudes.length * 2];
+        int n = magnitudes.length;
+        if(arrayToFill == null || arrayToFill.length != n * 2){
+            arrayToFill = new float[n * 2];
         }
+        // second half holds the magnitudes, first half the same values reversed
+        System.arraycopy(magnitudes,0,arrayToFill,n,n);
         if(isSorted){
-            Arrays.sort(copy);
+            Arrays.sort(arrayToFill,n,n * 2);
+        }
+        for (int i = 0; i < n; i++) {
+            arrayToFill[n - 1 - i] = arrayToFill[n + i];
         }
-        System.arraycopy(copy,0,arrayToFill,copy.length,copy.length);
-        reverse(copy);
-        System.arraycopy(copy,0,arrayToFill,0,copy.length);
-
-
         return arrayToFill;
     }
 
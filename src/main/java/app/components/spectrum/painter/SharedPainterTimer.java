@@ -9,6 +9,7 @@ public class SharedPainterTimer extends MaterialFixedTimer {
     private static final int DELAY = 1000/FPS;
     private static SharedPainterTimer instance;
     private final ArrayList<SpectrumPainter> painters = new ArrayList<>(5);
+    private int fps = FPS;
     public SharedPainterTimer() {
         super(DELAY);
     }
@@ -32,9 +33,27 @@ public class SharedPainterTimer extends MaterialFixedTimer {
         painters.clear();
         paintersUpdated();
     }
+    /**
+     * Changes the rate painters are ticked at, the timer stays stopped at 0 FPS
+     */
+    public synchronized void setFps(int fps) {
+        if (this.fps == fps)
+            return;
+        this.fps = fps;
+        if (fps > 0)
+            setDelay(1000f / fps);
+        paintersUpdated();
+    }
+
+    public int getFps() {
+        return fps;
+    }
+
     private void paintersUpdated() {
-        if(!painters.isEmpty())
+        if(!painters.isEmpty() && fps > 0)
             start();
+        else
+            stop();
     }
 
     @Override
@@ -0,0 +1,98 @@
+package app.components.spectrum.painter;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.*;
+import java.awt.image.VolatileImage;
+
+/**
+ * Two accelerated images of the component's size, frames are rendered into the back one and swapped to the
+ * front, so painting the spectrum on the EDT is a single blit.
+ * <p>
+ * Images are recreated only when the component is resized or moved to an incompatible screen, content which
+ * the OS dropped is rendered again.
+ */
+final class SpectrumBuffer {
+    private VolatileImage front;
+    private VolatileImage back;
+
+    interface Renderer {
+        void render(@NotNull Graphics2D g, int width, int height);
+    }
+
+    /**
+     * Renders a frame into the back image and makes it the front one
+     *
+     * @return false if the component can't be rendered yet
+     */
+    synchronized boolean render(@NotNull Component component, @NotNull Renderer renderer) {
+        int width = component.getWidth(), height = component.getHeight();
+        GraphicsConfiguration gc = getGraphicsConfiguration(component);
+        if (width <= 0 || height <= 0)
+            return false;
+        back = renderInto(back, gc, width, height, component.getBackground(), renderer);
+        VolatileImage rendered = back;
+        back = front;
+        front = rendered;
+        return true;
+    }
+
+    /**
+     * Draws the last rendered frame, the frame is rendered again if it doesn't fit or was lost. A component which
+     * isn't showing (e.g. one painted by a layer) gets no frames from the timer and is rendered on every call.
+     */
+    synchronized void show(@NotNull Graphics g, @NotNull Component component, @NotNull Renderer renderer) {
+        int width = component.getWidth(), height = component.getHeight();
+        GraphicsConfiguration gc = getGraphicsConfiguration(component);
+        if (width <= 0 || height <= 0)
+            return;
+        if (!component.isShowing() || !isValid(front, gc, width, height))
+            front = renderInto(front, gc, width, height, component.getBackground(), renderer);
+        g.drawImage(front, 0, 0, null);
+    }
+
+    synchronized void flush() {
+        if (front != null)
+            front.flush();
+        if (back != null)
+            back.flush();
+        front = back = null;
+    }
+
+    private static @NotNull GraphicsConfiguration getGraphicsConfiguration(@NotNull Component component) {
+        GraphicsConfiguration gc = component.getGraphicsConfiguration();
+        if (gc == null)
+            gc = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        return gc;
+    }
+
+    private static boolean isValid(@Nullable VolatileImage image, GraphicsConfiguration gc, int width, int height) {
+        return image != null && image.getWidth() == width && image.getHeight() == height
+                && image.validate(gc) == VolatileImage.IMAGE_OK && !image.contentsLost();
+    }
+
+    private static @NotNull VolatileImage renderInto(@Nullable VolatileImage image, GraphicsConfiguration gc, int width, int height,
+                                                     Color background, Renderer renderer) {
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            if (image != null)
+                image.flush();
+            image = gc.createCompatibleVolatileImage(width, height);
+        }
+        do {
+            if (image.validate(gc) == VolatileImage.IMAGE_INCOMPATIBLE) {
+                image.flush();
+                image = gc.createCompatibleVolatileImage(width, height);
+            }
+            Graphics2D g = image.createGraphics();
+            try {
+                g.setColor(background);
+                g.fillRect(0, 0, width, height);
+                renderer.render(g, width, height);
+            } finally {
+                g.dispose();
+            }
+        } while (image.contentsLost());
+        return image;
+    }
+}
@@ -2,38 +2,45 @@ package app.components.spectrum.painter;
 
 import app.components.spectrum.Spectrum;
 import app.settings.StartupSettings;
-import com.jhlabs.image.GaussianFilter;
+import material.animation.FrameScheduler;
 import material.utils.Log;
-import material.utils.OsInfo;
+import material.utils.filters.BlurEngine;
 
-import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.awt.image.VolatileImage;
 
+/**
+ * Renders a spectrum frame on the painter timer thread into a {@link SpectrumBuffer} sized to the component,
+ * the EDT only blits the latest frame. Painters keep their geometry until the component is resized and
+ * must not allocate per frame.
+ */
 public abstract class SpectrumPainter {
-    private final GaussianFilter gaussianFilter = new GaussianFilter(20);
+    // same spread as a gaussian kernel of radius 20
+    private final BlurEngine backgroundBlur = BlurEngine.gaussian(20 / 3f, 3);
     private final Spectrum spectrum;
     public final int MAX_DECIBELS = 110;
     private float[] processedMagnitudes;
     private float[] magnitudes;
+    private float[] mirroredMagnitudes;
     private float timePassed = 0.0f;
-    private VolatileImage volatileImage;
+    private final SpectrumBuffer buffer = new SpectrumBuffer();
+    private final SpectrumBuffer.Renderer renderer = this::paint;
 
     public SpectrumPainter(Spectrum spectrum) {
         this.spectrum = spectrum;
         SharedPainterTimer.getInstance().add(this);
     }
-    public void paintInVolatileImage(Graphics spectrumGraphicsObj){
-        if(volatileImage == null)
-            volatileImage = spectrum.createVolatileImage(OsInfo.getScreenSize().width, OsInfo.getScreenSize().height);
-        Graphics2D g = (Graphics2D) volatileImage.getGraphics();
-        g.setColor(spectrum.getBackground());
-        g.fillRect(0, 0, OsInfo.getScreenSize().width, OsInfo.getScreenSize().height);
-        paint(g);
-        spectrumGraphicsObj.drawImage(volatileImage,0,0,null);
+    /**
+     * Draws the last rendered frame on the spectrum
+     */
+    public void paintFrame(Graphics spectrumGraphicsObj) {
+        buffer.show(spectrumGraphicsObj, spectrum, renderer);
     }
-    public abstract void paint(Graphics g);
+
+    /**
+     * Paints the spectrum into a cleared buffer of the given size. The graphics belong to the buffer, don't dispose them.
+     */
+    public abstract void paint(Graphics2D g, int width, int height);
 
     public synchronized void setMagnitudes(float[] magnitudes) {
         //            Arrays.sort(magnitudes);
@@ -54,30 +61,38 @@ public abstract class SpectrumPainter {
             if (processedMagnitudes != null) {
                 this.timePassed += dt;
                 SampleProcessor.calculateAvgMagnitudes(processedMagnitudes, magnitudes, processedMagnitudes);
-                SwingUtilities.invokeLater(spectrum::repaint);
+                if (spectrum.getActivePainter() == this && spectrum.isShowing() && buffer.render(spectrum, renderer))
+                    FrameScheduler.getInstance().requestRepaint(spectrum);
             }
         } catch (Exception e) {
             Log.error(e);
         }
     }
 
-    ;
+    /**
+     * Releases the buffer images, they're created again on the next frame
+     */
+    public void flushBuffer() {
+        buffer.flush();
+    }
 
 //    abstract void createAmbientImage();
 
+    /**
+     * @return smoothed magnitudes of the current frame, the array is reused and must not be modified
+     */
     protected float[] getMagnitudes() {
-        if (processedMagnitudes != null) {
-            float[] magnitudesToReturn = new float[processedMagnitudes.length];
-            System.arraycopy(processedMagnitudes, 0, magnitudesToReturn, 0, magnitudesToReturn.length);
-            return magnitudesToReturn;
-        }
-        return null;
+        return processedMagnitudes;
     }
 
+    /**
+     * @return smoothed magnitudes mirrored like 1,2,3,3,2,1, the array is reused between frames
+     */
     protected float[] getMirroredMagnitudes() {
         if (processedMagnitudes == null)
             return null;
-        return SampleProcessor.mirrorMagnitudes(processedMagnitudes, null, false);
+        mirroredMagnitudes = SampleProcessor.mirrorMagnitudes(processedMagnitudes, mirroredMagnitudes, false);
+        return mirroredMagnitudes;
     }
 
     private final int maxCircleSize = 400;
@@ -96,7 +111,7 @@ public abstract class SpectrumPainter {
             g2d.fillRect(0, 0, w, h);
             g2d.setColor(spectrum.getForeground());
             g2d.dispose();
-            gaussianFilter.filter(background, background);
+            backgroundBlur.filter(background, background);
         }
     }
 }
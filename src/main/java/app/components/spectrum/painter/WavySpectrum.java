@@ -20,6 +20,9 @@ public class WavySpectrum extends SpectrumPainter {
 //    private final LinkedList<BufferedImage> _ambientImageBackgroundBuffer = new LinkedList<>();
 
     private short[][] reflectionCoordinates = new short[StartupSettings.SPECTRUM_BANDS_NUM * 2][2];
+    private float[] pointX = new float[0];
+    private int maxWaveHeight;
+    private int layoutWidth = -1, layoutHeight = -1;
     private final Path2D wavePath2D = new Path2D.Float();
     private Color borderColor = Color.BLACK;
 
@@ -43,13 +46,10 @@ public class WavySpectrum extends SpectrumPainter {
 
 
     @Override
-    public void paint(Graphics g) {
-        Graphics2D g2d = (Graphics2D) g;
+    public void paint(Graphics2D g2d, int width, int height) {
 //        drawAmbientBlur(g2d);
 
-        drawWaves(g2d);
-        g2d.dispose();
-        Toolkit.getDefaultToolkit().sync();
+        drawWaves(g2d, width, height);
     }
 
 
@@ -72,42 +72,31 @@ public class WavySpectrum extends SpectrumPainter {
 //            g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1f));
 //        }
 //    }
-    private void drawWaves(Graphics2D g2d) {
+    private void drawWaves(Graphics2D g2d, int width, int height) {
         float[] magnitudes = getMirroredMagnitudes();
         if (magnitudes != null) {
-            if (reflectionCoordinates.length != magnitudes.length)
-                reflectionCoordinates = new short[magnitudes.length][];
-            final float width = spectrum.getWidth();
-            final float maxSize = (int) (spectrum.getHeight() * BAR_HEIGHT_RATIO);
-            final short totalPoints = (short) magnitudes.length;
-            final double gap = width / (totalPoints);
+            if (width != layoutWidth || height != layoutHeight || magnitudes.length != pointX.length)
+                layoutWaves(magnitudes.length, width, height);
             g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
             g2d.setColor(spectrum.getForeground());
 
-            float midScreen = spectrum.getHeight() / 2F;
-            float cx = (float) gap;
-            short lastIndex = (short) (totalPoints - 1);
+            final float midScreen = height / 2F;
+            final short totalPoints = (short) magnitudes.length;
+            final short lastIndex = (short) (totalPoints - 1);
             short i = 1; // beginning index of bars, i am using 1 because starting at 0 breaks symmetry and forcefully fixing the coordinates for i = 0
-            reflectionCoordinates[lastIndex][0] = 0;
             reflectionCoordinates[lastIndex][1] = (short) midScreen;
 
             wavePath2D.moveTo(0, midScreen);
             while (i < totalPoints) {
-                double ratio = magnitudes[i] / MAX_DECIBELS;
-                short height = (short) (Math.max((ratio * maxSize), MINIMUM_HEIGHT) * 0.5F);
-                float y = (float) Math.floor(midScreen - height);
-                short index = (short) (lastIndex - i);
-//                if(reflectionCoordinates[index] == null)
-//                    reflectionCoordinates[index] = new Point2D(cx, y + height * 2);
-//                else
-                reflectionCoordinates[index][0] = (short) Math.ceil(cx);
-                reflectionCoordinates[index][1] = (short) (y + height * 2);
-                wavePath2D.lineTo(cx, y);
-                cx +=  gap;
+                float ratio = magnitudes[i] / MAX_DECIBELS;
+                short waveHeight = (short) (Math.max((ratio * maxWaveHeight), MINIMUM_HEIGHT) * 0.5F);
+                float y = (float) Math.floor(midScreen - waveHeight);
+                reflectionCoordinates[lastIndex - i][1] = (short) (y + waveHeight * 2);
+                wavePath2D.lineTo(pointX[i], y);
                 i++;
             }
             i = 0;
-            wavePath2D.lineTo(spectrum.getWidth(),midScreen);
+            wavePath2D.lineTo(width, midScreen);
             while (i < reflectionCoordinates.length) {
                 short[] point = reflectionCoordinates[i];
                 wavePath2D.lineTo(point[0], point[1]);
@@ -122,6 +111,28 @@ public class WavySpectrum extends SpectrumPainter {
         }
     }
 
+    /**
+     * X coordinates of the wave points only depend on the width and the number of points, they're computed once
+     * per resize. Reflected points reuse the x of the point they mirror.
+     */
+    private void layoutWaves(int totalPoints, int width, int height) {
+        final double gap = width / (double) totalPoints;
+        if (pointX.length != totalPoints) {
+            pointX = new float[totalPoints];
+            reflectionCoordinates = new short[totalPoints][2];
+        }
+        float cx = 0;
+        for (int i = 0; i < totalPoints; i++) {
+            pointX[i] = cx;
+            reflectionCoordinates[totalPoints - 1 - i][0] = (short) Math.ceil(cx);
+            cx += gap;
+        }
+        reflectionCoordinates[totalPoints - 1][0] = 0;
+        maxWaveHeight = (int) (height * BAR_HEIGHT_RATIO);
+        layoutWidth = width;
+        layoutHeight = height;
+    }
+
     private final static float[] radialPaintFractions = {0f, 1.0f};
 
 
@@ -1,7 +1,7 @@
 package app.components.ui;
 
 import app.components.spectrum.Spectrum;
-import com.jhlabs.image.GaussianFilter;
+import material.utils.filters.BlurEngine;
 
 import javax.swing.*;
 import javax.swing.plaf.LayerUI;
@@ -13,7 +13,8 @@ public class SpectrumBlurUI extends LayerUI<Spectrum> {
     //    private BufferedImage mOffscreenImage;
 //    private final BufferedImageOp imgOperation;
     private static final int BLUR_RADIUS = 9;
-    private static final GaussianFilter gaussianFilter = new GaussianFilter(BLUR_RADIUS);
+    private static final BlurEngine blurEngine = BlurEngine.gaussian(BLUR_RADIUS / 3f, 3);
+    private BufferedImage snapshot;
     private static final Composite COMPOSITE = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.2f);
 
     public SpectrumBlurUI() {
@@ -33,17 +34,20 @@ public class SpectrumBlurUI extends LayerUI<Spectrum> {
 //        if (mOffscreenImage == null || mOffscreenImage.getWidth() != w
 //                || mOffscreenImage.getHeight() != h) {
 //        }
-        var snapshot = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-        var blurredImage = new BufferedImage(w,h,BufferedImage.TYPE_INT_ARGB);
+        if (snapshot == null || snapshot.getWidth() != w || snapshot.getHeight() != h)
+            snapshot = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
         Graphics2D ig2 = snapshot.createGraphics();
+        ig2.setComposite(AlphaComposite.Clear);
+        ig2.fillRect(0, 0, w, h);
+        ig2.setComposite(AlphaComposite.SrcOver);
         ig2.setClip(g.getClip());
         super.paint(ig2, c);
         ig2.dispose();
 
         Graphics2D g2d  = (Graphics2D) g;
         g2d.setComposite(COMPOSITE);
-        gaussianFilter.filter(snapshot, blurredImage);
-        g2d.drawImage(blurredImage, null, 0, 0);
+        blurEngine.filter(snapshot, snapshot);
+        g2d.drawImage(snapshot, null, 0, 0);
     }
 
 }
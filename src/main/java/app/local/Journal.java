@@ -0,0 +1,347 @@
+package app.local;
+
+import material.utils.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Append only log of binary records. Appending only copies the record into a memory buffer, a single writer thread
+ * writes everything appended since its last write and syncs it to disk in one go, so records appended while a sync
+ * is running are committed together by the next one.
+ * <p>
+ * A record is laid out as
+ * <pre>
+ * u32 payload length, u8 type, payload, u32 crc32 of type and payload
+ * </pre>
+ * A torn or corrupt record at the end of the file, left by a crash during a write, is cut off when the journal is
+ * opened. {@link #compact(byte[], int)} hands over a snapshot, the writer thread replaces the whole log with it
+ * before it writes anything appended afterwards.
+ */
+final class Journal {
+    private static final int MAGIC = 0x514A4E4C; // "QJNL"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_OVERHEAD = 9;
+    private static final int MAX_PAYLOAD_SIZE = 64 * 1024 * 1024;
+    private final Path path;
+    // serializes writes to the file between the writer thread and compaction
+    private final Object writeLock = new Object();
+    private FileChannel channel;
+    private Records pending = new Records();
+    // handed over by compact() and not written yet, pending records are appended after it
+    private byte @Nullable [] snapshot;
+    // appendedSequence when the last snapshot was handed over
+    private long snapshotSequence;
+    // sequence numbers of the last record appended and of the last one synced to disk
+    private long appendedSequence;
+    private long durableSequence;
+    private int recordCount;
+    private boolean isClosed;
+
+    /**
+     * Receives the records read back when the journal is opened
+     */
+    interface Replayer {
+        void replay(byte type, @NotNull ByteBuffer payload);
+    }
+
+    /**
+     * Opens the journal, creating it if it doesn't exist, and replays every record in it
+     */
+    Journal(@NotNull Path path, @NotNull Replayer replayer) throws IOException {
+        this.path = path;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long validSize = replay(replayer);
+        if (validSize < channel.size()) {
+            Log.warn("Journal " + path + " has a damaged tail, dropped " + (channel.size() - validSize) + " bytes");
+            channel.truncate(validSize);
+        }
+        if (validSize == 0)
+            writeHeader(channel);
+        channel.position(channel.size());
+        Thread.ofVirtual().name("Journal writer").start(this::writeLoop);
+    }
+
+    /**
+     * Adds a record, it's written to disk shortly after by the writer thread
+     *
+     * @return sequence number of the record, see {@link #awaitDurable(long)}
+     */
+    synchronized long append(byte type, byte @NotNull [] payload) {
+        if (isClosed)
+            throw new IllegalStateException("Journal is closed");
+        pending.add(type, payload);
+        recordCount++;
+        notifyAll();
+        return ++appendedSequence;
+    }
+
+    /**
+     * Blocks until the record and every record before it are synced to disk
+     */
+    synchronized void awaitDurable(long sequence) throws InterruptedException {
+        while (durableSequence < sequence && !isClosed)
+            wait();
+    }
+
+    /**
+     * @return records in the log, snapshot records included
+     */
+    synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Hands over a snapshot made of {@link Records}, which must already include the effect of every record appended
+     * so far. It's written to a new file by the writer thread, the log is replaced once the file is in place and
+     * records appended from now on are written after the snapshot. A failed write is retried like any other.
+     */
+    synchronized void compact(byte @NotNull [] snapshot, int snapshotRecordCount) {
+        if (isClosed)
+            throw new IllegalStateException("Journal is closed");
+        this.snapshot = snapshot;
+        snapshotSequence = appendedSequence;
+        // everything pending is in the snapshot
+        pending = new Records();
+        recordCount = snapshotRecordCount;
+        notifyAll();
+    }
+
+    /**
+     * @return whether a snapshot was handed over and the log isn't replaced yet
+     */
+    synchronized boolean isCompacting() {
+        return snapshot != null;
+    }
+
+    /**
+     * Writes what's pending and closes the file
+     */
+    void close() {
+        synchronized (this) {
+            if (isClosed)
+                return;
+            isClosed = true;
+            notifyAll();
+        }
+        synchronized (writeLock) {
+            try {
+                writeSnapshot();
+                writeBatch();
+            } catch (IOException e) {
+                Log.error("Couldn't write journal " + path + " before closing: " + e);
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                Log.error("Couldn't close journal " + path + ": " + e);
+            }
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            synchronized (this) {
+                while (pending.size == 0 && snapshot == null && !isClosed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (isClosed)
+                    return;
+            }
+            synchronized (writeLock) {
+                try {
+                    // pending records follow the snapshot, they can't be written before it's in place
+                    writeSnapshot();
+                    writeBatch();
+                } catch (IOException e) {
+                    Log.error("Couldn't write journal " + path + ": " + e);
+                    try {
+                        Thread.sleep(1000);
+                    } catch (InterruptedException ignored) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the handed over snapshot to a temporary file, syncs it and moves it over the log, called with the write
+     * lock held. Appends aren't blocked meanwhile.
+     */
+    private void writeSnapshot() throws IOException {
+        byte[] bytes;
+        long sequence;
+        synchronized (this) {
+            if (snapshot == null)
+                return;
+            bytes = snapshot;
+            sequence = snapshotSequence;
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeHeader(out);
+            writeFully(out, ByteBuffer.wrap(bytes));
+            out.force(true);
+        }
+        // the channel is only used with the write lock held
+        channel.close();
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+        }
+        synchronized (this) {
+            // a newer snapshot may have been handed over while this one was written
+            if (snapshot == bytes)
+                snapshot = null;
+            durableSequence = Math.max(durableSequence, sequence);
+            notifyAll();
+        }
+    }
+
+    /**
+     * Writes and syncs everything appended so far, called with the write lock held
+     */
+    private void writeBatch() throws IOException {
+        Records batch;
+        long batchSequence;
+        synchronized (this) {
+            if (pending.size == 0)
+                return;
+            batch = pending;
+            batchSequence = appendedSequence;
+            pending = new Records();
+        }
+        long start = channel.position();
+        try {
+            writeFully(channel, ByteBuffer.wrap(batch.bytes, 0, batch.size));
+            channel.force(false);
+        } catch (IOException e) {
+            // drop whatever part of the batch made it to the file and keep the batch for the next write
+            channel.truncate(start);
+            channel.position(start);
+            synchronized (this) {
+                // a snapshot handed over meanwhile already has the batch
+                if (batchSequence > snapshotSequence) {
+                    batch.addAll(pending);
+                    pending = batch;
+                }
+            }
+            throw e;
+        }
+        synchronized (this) {
+            durableSequence = Math.max(durableSequence, batchSequence);
+            notifyAll();
+        }
+    }
+
+    /**
+     * @return size of the valid part of the file
+     */
+    private long replay(Replayer replayer) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE)
+            return 0;
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("Journal " + path + " is too large");
+        // read rather than mapped, a mapped file can't be truncated on Windows
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0)
+                break;
+        }
+        buffer.flip();
+        size = buffer.limit();
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            Log.error("Journal " + path + " has an unknown format, starting a new one");
+            return 0;
+        }
+        CRC32 crc = new CRC32();
+        int pos = HEADER_SIZE;
+        while (pos + RECORD_OVERHEAD <= size) {
+            int length = buffer.getInt(pos);
+            if (length < 0 || length > MAX_PAYLOAD_SIZE || pos + RECORD_OVERHEAD + (long) length > size)
+                break;
+            crc.reset();
+            crc.update(buffer.slice(pos + 4, length + 1));
+            if ((int) crc.getValue() != buffer.getInt(pos + 5 + length))
+                break;
+            byte type = buffer.get(pos + 4);
+            try {
+                replayer.replay(type, buffer.slice(pos + 5, length));
+            } catch (RuntimeException e) {
+                Log.error("Skipped malformed journal record of type " + type + ": " + e);
+            }
+            recordCount++;
+            pos += RECORD_OVERHEAD + length;
+        }
+        return pos;
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+        writeFully(channel, header);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    /**
+     * Encoded records, used both for pending appends and for building snapshots
+     */
+    static final class Records {
+        private final CRC32 crc = new CRC32();
+        private byte[] bytes = new byte[256];
+        private int size;
+        private int count;
+
+        void add(byte type, byte @NotNull [] payload) {
+            ensureCapacity(size + RECORD_OVERHEAD + payload.length);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, size, RECORD_OVERHEAD + payload.length);
+            buffer.putInt(payload.length).put(type).put(payload);
+            crc.reset();
+            crc.update(bytes, size + 4, payload.length + 1);
+            buffer.putInt((int) crc.getValue());
+            size += RECORD_OVERHEAD + payload.length;
+            count++;
+        }
+
+        void addAll(@NotNull Records records) {
+            ensureCapacity(size + records.size);
+            System.arraycopy(records.bytes, 0, bytes, size, records.size);
+            size += records.size;
+            count += records.count;
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        byte @NotNull [] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+        }
+    }
+}
@@ -1,4 +1,507 @@
 package app.local;
 
+import app.audio.Playlist;
+import material.utils.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * State the user creates: favorites, playlists and play history, keyed by absolute path. Every change is appended to
+ * a {@link Journal} as it happens and the state is rebuilt by replaying it at startup. Paths are written once and
+ * referred to by id afterwards, so adding a thousand tracks to a playlist is one record of a thousand ints.
+ * <p>
+ * When the journal holds much more than the state it describes it's compacted into a snapshot in the background.
+ */
 public class LocalSettings {
+    private static final String JOURNAL_FILE_PATH = "user_state.journal";
+    public static final int MAX_HISTORY_SIZE = 1000;
+    // journals smaller than this are never compacted
+    private static final int COMPACTION_MIN_RECORDS = 4096;
+    // compact once the journal has this many records per record of a snapshot
+    private static final int COMPACTION_RATIO = 4;
+
+    private static final byte PATH = 1;
+    private static final byte FAVORITE = 2;
+    private static final byte PLAYLIST_CREATE = 3;
+    private static final byte PLAYLIST_DELETE = 4;
+    private static final byte PLAYLIST_RENAME = 5;
+    private static final byte PLAYLIST_PIN = 6;
+    private static final byte PLAYLIST_ADD = 7;
+    private static final byte PLAYLIST_REMOVE = 8;
+    private static final byte PLAYED = 9;
+    private static final byte LAST_PLAYED = 10;
+
+    private static LocalSettings instance;
+    private final LinkedHashSet<String> favorites = new LinkedHashSet<>();
+    private final LinkedHashMap<String, PlaylistTracks> playlists = new LinkedHashMap<>();
+    // oldest first
+    private final ArrayDeque<HistoryEntry> history = new ArrayDeque<>();
+    // when every track was last played, unlike the history it isn't trimmed
+    private final HashMap<String, Long> lastPlayed = new HashMap<>();
+    private final ArrayList<Consumer<String>> playedListeners = new ArrayList<>();
+    // path dictionary of the journal, ids are the order paths were first written in
+    private HashMap<String, Integer> pathIds = new HashMap<>();
+    private ArrayList<String> paths = new ArrayList<>();
+    private @Nullable Journal journal;
+    private boolean isCompacting;
+
+    /**
+     * A played track and when it started playing, in epoch milliseconds
+     */
+    public record HistoryEntry(@NotNull String path, long time) {
+    }
+
+    private record PlaylistTracks(@NotNull Playlist playlist, @NotNull LinkedHashSet<String> paths) {
+    }
+
+    private LocalSettings() {
+        long t1 = System.nanoTime();
+        try {
+            journal = new Journal(Path.of(JOURNAL_FILE_PATH), this::replay);
+        } catch (IOException e) {
+            Log.error("Couldn't open " + JOURNAL_FILE_PATH + ", changes won't be saved: " + e);
+        }
+        Log.info("User state replayed in %dms: %d favorites, %d playlists, %d played".formatted(
+                (System.nanoTime() - t1) / 1_000_000, favorites.size(), playlists.size(), history.size()));
+    }
+
+    public static synchronized LocalSettings getInstance() {
+        if (instance == null)
+            instance = new LocalSettings();
+        return instance;
+    }
+
+    /**********************************************
+                        FAVORITES
+     *********************************************/
+
+    public synchronized boolean isFavorite(@NotNull String path) {
+        return favorites.contains(path);
+    }
+
+    public synchronized void setFavorite(@NotNull String path, boolean isFavorite) {
+        if (isFavorite ? favorites.add(path) : favorites.remove(path))
+            append(FAVORITE, new Payload().putInt(pathId(path)).putBoolean(isFavorite));
+    }
+
+    public synchronized @NotNull List<String> getFavorites() {
+        return new ArrayList<>(favorites);
+    }
+
+    /**********************************************
+                        PLAYLISTS
+     *********************************************/
+
+    /**
+     * Adds the playlist, playlists are told apart by name
+     */
+    public synchronized void createPlaylist(@NotNull Playlist playlist) {
+        if (playlists.containsKey(playlist.getName()))
+            return;
+        playlists.put(playlist.getName(), new PlaylistTracks(playlist, new LinkedHashSet<>()));
+        append(PLAYLIST_CREATE, encodePlaylist(playlist));
+    }
+
+    public synchronized void deletePlaylist(@NotNull String name) {
+        if (playlists.remove(name) != null)
+            append(PLAYLIST_DELETE, new Payload().putString(name));
+    }
+
+    public synchronized void renamePlaylist(@NotNull Playlist playlist, @NotNull String newName) {
+        String oldName = playlist.getName();
+        PlaylistTracks tracks = playlists.get(oldName);
+        if (tracks == null || playlists.containsKey(newName))
+            return;
+        playlists.remove(oldName);
+        tracks.playlist.setName(newName);
+        playlists.put(newName, tracks);
+        append(PLAYLIST_RENAME, new Payload().putString(oldName).putString(newName));
+    }
+
+    public synchronized void setPinned(@NotNull Playlist playlist, boolean isPinned) {
+        PlaylistTracks tracks = playlists.get(playlist.getName());
+        if (tracks == null || tracks.playlist.isPinned() == isPinned)
+            return;
+        tracks.playlist.setPinned(isPinned);
+        append(PLAYLIST_PIN, new Payload().putString(playlist.getName()).putBoolean(isPinned));
+    }
+
+    /**
+     * Appends the tracks which aren't in the playlist yet, creating the playlist if needed
+     */
+    public synchronized void addToPlaylist(@NotNull Playlist playlist, @NotNull Collection<String> paths) {
+        createPlaylist(playlist);
+        LinkedHashSet<String> tracks = playlists.get(playlist.getName()).paths;
+        int[] ids = new int[paths.size()];
+        int added = 0;
+        for (String path : paths) {
+            if (tracks.add(path))
+                ids[added++] = pathId(path);
+        }
+        if (added > 0)
+            append(PLAYLIST_ADD, new Payload().putString(playlist.getName()).putIds(ids, added));
+    }
+
+    public synchronized void removeFromPlaylist(@NotNull Playlist playlist, @NotNull Collection<String> paths) {
+        PlaylistTracks tracks = playlists.get(playlist.getName());
+        if (tracks == null)
+            return;
+        int[] ids = new int[paths.size()];
+        int removed = 0;
+        for (String path : paths) {
+            if (tracks.paths.remove(path))
+                ids[removed++] = pathId(path);
+        }
+        if (removed > 0)
+            append(PLAYLIST_REMOVE, new Payload().putString(playlist.getName()).putIds(ids, removed));
+    }
+
+    public synchronized @NotNull List<Playlist> getPlaylists() {
+        List<Playlist> list = new ArrayList<>(playlists.size());
+        for (PlaylistTracks tracks : playlists.values())
+            list.add(tracks.playlist);
+        return list;
+    }
+
+    /**
+     * @return paths of the playlist's tracks in the order they were added
+     */
+    public synchronized @NotNull List<String> getPlaylistTracks(@NotNull Playlist playlist) {
+        PlaylistTracks tracks = playlists.get(playlist.getName());
+        return tracks == null ? new ArrayList<>(0) : new ArrayList<>(tracks.paths);
+    }
+
+    /**
+     * @return playlists containing the track, null if there are none
+     */
+    public synchronized @Nullable ArrayList<Playlist> getPlaylistsContaining(@NotNull String path) {
+        ArrayList<Playlist> containing = null;
+        for (PlaylistTracks tracks : playlists.values()) {
+            if (tracks.paths.contains(path)) {
+                if (containing == null)
+                    containing = new ArrayList<>(2);
+                containing.add(tracks.playlist);
+            }
+        }
+        return containing;
+    }
+
+    /**********************************************
+                        HISTORY
+     *********************************************/
+
+    public void addToHistory(@NotNull String path) {
+        addToHistory(path, System.currentTimeMillis());
+    }
+
+    /**
+     * @param time when the track started playing, in epoch milliseconds
+     */
+    public void addToHistory(@NotNull String path, long time) {
+        ArrayList<Consumer<String>> listeners;
+        synchronized (this) {
+            HistoryEntry entry = new HistoryEntry(path, time);
+            addHistoryEntry(entry);
+            append(PLAYED, new Payload().putInt(pathId(path)).putLong(entry.time));
+            listeners = new ArrayList<>(playedListeners);
+        }
+        for (Consumer<String> listener : listeners)
+            listener.accept(path);
+    }
+
+    /**
+     * @return when the track was last played in epoch milliseconds, -1 if it never was
+     */
+    public synchronized long getLastPlayed(@NotNull String path) {
+        return lastPlayed.getOrDefault(path, -1L);
+    }
+
+    /**
+     * @return copy of the last played time of every track that was played
+     */
+    public synchronized @NotNull HashMap<String, Long> getLastPlayedTimes() {
+        return new HashMap<>(lastPlayed);
+    }
+
+    /**
+     * @param listener called with the path of every track added to the history
+     */
+    public synchronized void addPlayedListener(@NotNull Consumer<String> listener) {
+        playedListeners.add(listener);
+    }
+
+    public synchronized void removePlayedListener(@NotNull Consumer<String> listener) {
+        playedListeners.remove(listener);
+    }
+
+    /**
+     * @return the last {@link #MAX_HISTORY_SIZE} played tracks, most recent first
+     */
+    public synchronized @NotNull List<HistoryEntry> getHistory() {
+        List<HistoryEntry> list = new ArrayList<>(history.size());
+        for (Iterator<HistoryEntry> iterator = history.descendingIterator(); iterator.hasNext(); )
+            list.add(iterator.next());
+        return list;
+    }
+
+    private void addHistoryEntry(HistoryEntry entry) {
+        lastPlayed.merge(entry.path, entry.time, Math::max);
+        history.addLast(entry);
+        if (history.size() > MAX_HISTORY_SIZE)
+            history.removeFirst();
+    }
+
+    /**********************************************
+                        JOURNAL
+     *********************************************/
+
+    /**
+     * Waits for every change to reach the disk and closes the journal
+     */
+    public synchronized void close() {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    private void append(byte type, Payload payload) {
+        if (journal == null)
+            return;
+        journal.append(type, payload.toByteArray());
+        if (!isCompacting && !journal.isCompacting() && journal.getRecordCount() > COMPACTION_MIN_RECORDS
+                && journal.getRecordCount() > COMPACTION_RATIO * getSnapshotSize()) {
+            isCompacting = true;
+            Thread.ofVirtual().name("Journal compaction").start(this::compact);
+        }
+    }
+
+    /**
+     * @return id of the path, its PATH record is appended the first time it's used
+     */
+    private int pathId(String path) {
+        Integer id = pathIds.get(path);
+        if (id == null) {
+            id = paths.size();
+            paths.add(path);
+            pathIds.put(path, id);
+            if (journal != null)
+                journal.append(PATH, new Payload().putString(path).toByteArray());
+        }
+        return id;
+    }
+
+    /**
+     * Records a snapshot would have, paths included
+     */
+    private int getSnapshotSize() {
+        int size = favorites.size() * 2 + history.size() * 2 + lastPlayed.size() * 2;
+        for (PlaylistTracks tracks : playlists.values())
+            size += 2 + tracks.paths.size();
+        return size;
+    }
+
+    /**
+     * Hands a snapshot of the current state over to the journal, which replaces its file with it on its own thread.
+     * Paths no longer used are dropped from the dictionary, changes made from now on use the snapshot's ids.
+     */
+    private synchronized void compact() {
+        try {
+            if (journal == null)
+                return;
+            long t1 = System.nanoTime();
+            Journal.Records snapshot = new Journal.Records();
+            HashMap<String, Integer> snapshotIds = new HashMap<>();
+            ArrayList<String> snapshotPaths = new ArrayList<>();
+            for (String path : favorites)
+                snapshot.add(FAVORITE, new Payload().putInt(snapshotId(path, snapshot, snapshotIds, snapshotPaths)).putBoolean(true).toByteArray());
+            for (PlaylistTracks tracks : playlists.values()) {
+                snapshot.add(PLAYLIST_CREATE, encodePlaylist(tracks.playlist).toByteArray());
+                if (tracks.paths.isEmpty())
+                    continue;
+                int[] ids = new int[tracks.paths.size()];
+                int i = 0;
+                for (String path : tracks.paths)
+                    ids[i++] = snapshotId(path, snapshot, snapshotIds, snapshotPaths);
+                snapshot.add(PLAYLIST_ADD, new Payload().putString(tracks.playlist.getName()).putIds(ids, ids.length).toByteArray());
+            }
+            for (var entry : lastPlayed.entrySet())
+                snapshot.add(LAST_PLAYED, new Payload().putInt(snapshotId(entry.getKey(), snapshot, snapshotIds, snapshotPaths)).putLong(entry.getValue()).toByteArray());
+            for (HistoryEntry entry : history)
+                snapshot.add(PLAYED, new Payload().putInt(snapshotId(entry.path, snapshot, snapshotIds, snapshotPaths)).putLong(entry.time).toByteArray());
+            int before = journal.getRecordCount();
+            journal.compact(snapshot.toByteArray(), snapshot.getCount());
+            pathIds = snapshotIds;
+            paths = snapshotPaths;
+            Log.info("Compacting %s from %d to %d records, snapshot taken in %dms".formatted(JOURNAL_FILE_PATH, before, snapshot.getCount(), (System.nanoTime() - t1) / 1_000_000));
+        } finally {
+            isCompacting = false;
+        }
+    }
+
+    private static int snapshotId(String path, Journal.Records snapshot, HashMap<String, Integer> ids, ArrayList<String> paths) {
+        Integer id = ids.get(path);
+        if (id == null) {
+            id = paths.size();
+            paths.add(path);
+            ids.put(path, id);
+            snapshot.add(PATH, new Payload().putString(path).toByteArray());
+        }
+        return id;
+    }
+
+    private static Payload encodePlaylist(Playlist playlist) {
+        byte[] thumbnail = playlist.getThumbnail();
+        return new Payload()
+                .putString(playlist.getName())
+                .putString(playlist.getDateCreated())
+                .putBoolean(playlist.isPinned())
+                .putBytes(thumbnail);
+    }
+
+    /**
+     * Applies a record read back from the journal, called by the journal before it accepts appends
+     */
+    private void replay(byte type, ByteBuffer payload) {
+        switch (type) {
+            case PATH -> {
+                String path = Payload.getString(payload);
+                pathIds.put(path, paths.size());
+                paths.add(path);
+            }
+            case FAVORITE -> {
+                String path = paths.get(payload.getInt());
+                if (payload.get() != 0)
+                    favorites.add(path);
+                else
+                    favorites.remove(path);
+            }
+            case PLAYLIST_CREATE -> {
+                String name = Payload.getString(payload);
+                String dateCreated = Payload.getString(payload);
+                boolean isPinned = payload.get() != 0;
+                byte[] thumbnail = Payload.getBytes(payload);
+                playlists.putIfAbsent(name, new PlaylistTracks(new Playlist(name, thumbnail, dateCreated, isPinned), new LinkedHashSet<>()));
+            }
+            case PLAYLIST_DELETE -> playlists.remove(Payload.getString(payload));
+            case PLAYLIST_RENAME -> {
+                PlaylistTracks tracks = playlists.remove(Payload.getString(payload));
+                String newName = Payload.getString(payload);
+                if (tracks != null) {
+                    tracks.playlist.setName(newName);
+                    playlists.put(newName, tracks);
+                }
+            }
+            case PLAYLIST_PIN -> {
+                PlaylistTracks tracks = playlists.get(Payload.getString(payload));
+                boolean isPinned = payload.get() != 0;
+                if (tracks != null)
+                    tracks.playlist.setPinned(isPinned);
+            }
+            case PLAYLIST_ADD, PLAYLIST_REMOVE -> {
+                PlaylistTracks tracks = playlists.get(Payload.getString(payload));
+                int count = payload.getInt();
+                for (int i = 0; i < count; i++) {
+                    String path = paths.get(payload.getInt());
+                    if (tracks == null)
+                        continue;
+                    if (type == PLAYLIST_ADD)
+                        tracks.paths.add(path);
+                    else
+                        tracks.paths.remove(path);
+                }
+            }
+            case PLAYED -> {
+                String path = paths.get(payload.getInt());
+                addHistoryEntry(new HistoryEntry(path, payload.getLong()));
+            }
+            case LAST_PLAYED -> {
+                String path = paths.get(payload.getInt());
+                lastPlayed.merge(path, payload.getLong(), Math::max);
+            }
+            default -> Log.warn("Skipped journal record of unknown type " + type);
+        }
+    }
+
+    /**
+     * Big endian payload of a record, strings and byte arrays are length prefixed with -1 for null
+     */
+    private static final class Payload {
+        private ByteBuffer buffer = ByteBuffer.allocate(32);
+
+        Payload putInt(int value) {
+            ensureRemaining(4).putInt(value);
+            return this;
+        }
+
+        Payload putLong(long value) {
+            ensureRemaining(8).putLong(value);
+            return this;
+        }
+
+        Payload putBoolean(boolean value) {
+            ensureRemaining(1).put((byte) (value ? 1 : 0));
+            return this;
+        }
+
+        Payload putBytes(byte @Nullable [] bytes) {
+            if (bytes == null)
+                return putInt(-1);
+            ensureRemaining(4 + bytes.length).putInt(bytes.length).put(bytes);
+            return this;
+        }
+
+        Payload putString(@Nullable String value) {
+            return putBytes(value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        Payload putIds(int[] ids, int count) {
+            ensureRemaining(4 + count * 4).putInt(count);
+            for (int i = 0; i < count; i++)
+                buffer.putInt(ids[i]);
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        }
+
+        static byte @Nullable [] getBytes(ByteBuffer payload) {
+            int length = payload.getInt();
+            if (length < 0)
+                return null;
+            byte[] bytes = new byte[length];
+            payload.get(bytes);
+            return bytes;
+        }
+
+        static @Nullable String getString(ByteBuffer payload) {
+            byte[] bytes = getBytes(payload);
+            return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private ByteBuffer ensureRemaining(int size) {
+            if (buffer.remaining() < size) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + size));
+                grown.put(buffer.flip());
+                buffer = grown;
+            }
+            return buffer;
+        }
+    }
 }
@@ -0,0 +1,102 @@
+package app.local;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded ring buffer of playback events, any number of threads can add to it and a single thread takes from it.
+ * Neither side ever locks or waits: a producer claims a slot with a compare and set and publishes it by bumping the
+ * slot's sequence number, an event that finds the buffer full is dropped.
+ */
+final class PlayEventBuffer {
+    private final int mask;
+    // sequence number of every slot, tells whose turn it is to use the slot
+    private final AtomicLongArray sequences;
+    private final byte[] types;
+    private final String[] paths;
+    private final long[] times;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    // only touched by the consumer
+    private long head;
+
+    /**
+     * Receives the events taken from the buffer
+     */
+    interface Consumer {
+        void accept(byte type, @NotNull String path, long time);
+    }
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    PlayEventBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = size - 1;
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++)
+            sequences.set(i, i);
+        types = new byte[size];
+        paths = new String[size];
+        times = new long[size];
+    }
+
+    /**
+     * @return false if the buffer was full and the event was dropped
+     */
+    boolean offer(byte type, @NotNull String path, long time) {
+        long position = tail.get();
+        while (true) {
+            int slot = (int) (position & mask);
+            long difference = sequences.get(slot) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1))
+                    break;
+                position = tail.get();
+            } else if (difference < 0) {
+                // the consumer hasn't freed this slot since the last lap
+                dropped.incrementAndGet();
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+        int slot = (int) (position & mask);
+        types[slot] = type;
+        paths[slot] = path;
+        times[slot] = time;
+        sequences.lazySet(slot, position + 1);
+        return true;
+    }
+
+    /**
+     * Takes every published event, only called from the consumer thread
+     *
+     * @return number of events taken
+     */
+    int drain(@NotNull Consumer consumer) {
+        int count = 0;
+        while (true) {
+            int slot = (int) (head & mask);
+            if (sequences.get(slot) != head + 1)
+                return count;
+            byte type = types[slot];
+            String path = paths[slot];
+            long time = times[slot];
+            paths[slot] = null;
+            sequences.lazySet(slot, head + mask + 1);
+            head++;
+            count++;
+            consumer.accept(type, path, time);
+        }
+    }
+
+    /**
+     * @return events dropped since the last call
+     */
+    long takeDroppedCount() {
+        return dropped.getAndSet(0);
+    }
+}
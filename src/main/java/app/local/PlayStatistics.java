@@ -0,0 +1,396 @@
+package app.local;
+
+import material.utils.Log;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Play and skip counts and last played time of every track, with the most played and the recently played tracks kept
+ * ready to show.
+ * <p>
+ * The player only adds events to a {@link PlayEventBuffer}, which never locks, so recording can't hold up playback or
+ * the EDT. A single aggregator thread applies the events to counts held in arrays indexed by track id, keeps the top
+ * tracks in heaps updated one track at a time, adds loaded tracks to the {@link LocalSettings} history, and saves a
+ * snapshot of the counts every {@link #SAVE_BATCH_EVENTS} events or {@link #SAVE_INTERVAL_MS} after the first unsaved
+ * one.
+ * <p>
+ * A track counts as played when it starts playing after being loaded, and as skipped when another track is loaded
+ * less than {@link #SKIP_WINDOW_MS} after it started.
+ */
+public class PlayStatistics {
+    private static final String SNAPSHOT_FILE_PATH = "play_statistics.bin";
+    private static final int MAGIC = 0x51505354; // "QPST"
+    private static final int VERSION = 1;
+    public static final int TOP_TRACKS_SIZE = 50;
+    private static final int BUFFER_CAPACITY = 1024;
+    private static final long SKIP_WINDOW_MS = 30_000;
+    private static final int SAVE_BATCH_EVENTS = 64;
+    private static final long SAVE_INTERVAL_MS = 30_000;
+    private static final long CLOSE_TIMEOUT_MS = 2000;
+
+    private static final byte LOADED = 1;
+    private static final byte STARTED = 2;
+    private static final byte ENDED = 3;
+
+    private static PlayStatistics instance;
+    private final PlayEventBuffer events = new PlayEventBuffer(BUFFER_CAPACITY);
+    private final CopyOnWriteArrayList<Runnable> updateListeners = new CopyOnWriteArrayList<>();
+    private final Thread aggregator;
+    private volatile boolean isClosed;
+    private volatile Views views = new Views(List.of(), List.of());
+
+    // owned by the aggregator thread
+    private final HashMap<String, Integer> ids = new HashMap<>();
+    private final ArrayList<String> paths = new ArrayList<>();
+    private int[] playCounts = new int[256];
+    private int[] skipCounts = new int[256];
+    private long[] lastPlayed = new long[256];
+    private final TopTracks mostPlayed = new TopTracks(TOP_TRACKS_SIZE, (a, b) -> {
+        int compare = Integer.compare(playCounts[a], playCounts[b]);
+        return compare != 0 ? compare : Long.compare(lastPlayed[a], lastPlayed[b]);
+    });
+    private final TopTracks recentlyPlayed = new TopTracks(TOP_TRACKS_SIZE, (a, b) -> Long.compare(lastPlayed[a], lastPlayed[b]));
+    private int currentId = -1;
+    // when the current track started playing, -1 until it does
+    private long currentStart = -1;
+    private int unsavedEvents;
+    private long firstUnsavedTime;
+
+    /**
+     * Counts of a track, times are in epoch milliseconds
+     */
+    public record TrackStatistics(@NotNull String path, int playCount, int skipCount, long lastPlayed) {
+    }
+
+    private record Views(List<TrackStatistics> mostPlayed, List<TrackStatistics> recentlyPlayed) {
+    }
+
+    private PlayStatistics() {
+        aggregator = Thread.ofVirtual().name("Play statistics").start(this::aggregate);
+    }
+
+    public static synchronized PlayStatistics getInstance() {
+        if (instance == null)
+            instance = new PlayStatistics();
+        return instance;
+    }
+
+    /**********************************************
+                        RECORDING
+     *********************************************/
+
+    public void recordLoaded(@NotNull String path) {
+        record(LOADED, path);
+    }
+
+    public void recordStarted(@NotNull String path) {
+        record(STARTED, path);
+    }
+
+    public void recordEnded(@NotNull String path) {
+        record(ENDED, path);
+    }
+
+    private void record(byte type, String path) {
+        if (events.offer(type, path, System.currentTimeMillis()))
+            LockSupport.unpark(aggregator);
+    }
+
+    /**********************************************
+                          VIEWS
+     *********************************************/
+
+    /**
+     * @return up to {@link #TOP_TRACKS_SIZE} tracks, most played first
+     */
+    public @NotNull List<TrackStatistics> getMostPlayed() {
+        return views.mostPlayed;
+    }
+
+    /**
+     * @return up to {@link #TOP_TRACKS_SIZE} tracks, most recently played first
+     */
+    public @NotNull List<TrackStatistics> getRecentlyPlayed() {
+        return views.recentlyPlayed;
+    }
+
+    /**
+     * @param listener called from the aggregator thread after the views change
+     */
+    public void addUpdateListener(@NotNull Runnable listener) {
+        updateListeners.add(listener);
+    }
+
+    public void removeUpdateListener(@NotNull Runnable listener) {
+        updateListeners.remove(listener);
+    }
+
+    /**
+     * Applies the events still in the buffer and saves the snapshot
+     */
+    public void close() {
+        isClosed = true;
+        LockSupport.unpark(aggregator);
+        try {
+            aggregator.join(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Log.error("Interrupted while saving play statistics");
+        }
+    }
+
+    /**********************************************
+                        AGGREGATION
+     *********************************************/
+
+    private void aggregate() {
+        load();
+        publish();
+        while (!isClosed) {
+            int count = events.drain(this::apply);
+            if (count > 0)
+                publish();
+            long dropped = events.takeDroppedCount();
+            if (dropped > 0)
+                Log.warn("Play statistics buffer was full, dropped " + dropped + " events");
+            if (unsavedEvents >= SAVE_BATCH_EVENTS
+                    || (unsavedEvents > 0 && System.currentTimeMillis() - firstUnsavedTime >= SAVE_INTERVAL_MS))
+                save();
+            if (count == 0)
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(SAVE_INTERVAL_MS));
+        }
+        if (events.drain(this::apply) > 0)
+            publish();
+        if (unsavedEvents > 0)
+            save();
+    }
+
+    private void apply(byte type, String path, long time) {
+        switch (type) {
+            case LOADED -> {
+                if (currentStart >= 0 && time - currentStart < SKIP_WINDOW_MS)
+                    skipCounts[currentId]++;
+                currentId = idOf(path);
+                currentStart = -1;
+                LocalSettings.getInstance().addToHistory(path, time);
+            }
+            case STARTED -> {
+                int id = idOf(path);
+                if (id != currentId) {
+                    // the load event was dropped
+                    currentId = id;
+                    currentStart = -1;
+                }
+                // resuming after a pause isn't another play
+                if (currentStart >= 0)
+                    return;
+                currentStart = time;
+                playCounts[id]++;
+                lastPlayed[id] = Math.max(lastPlayed[id], time);
+                mostPlayed.update(id);
+                recentlyPlayed.update(id);
+            }
+            case ENDED -> {
+                if (idOf(path) == currentId)
+                    currentStart = -1;
+            }
+            default -> {
+                return;
+            }
+        }
+        if (unsavedEvents++ == 0)
+            firstUnsavedTime = System.currentTimeMillis();
+    }
+
+    private int idOf(String path) {
+        Integer id = ids.get(path);
+        if (id == null) {
+            id = paths.size();
+            paths.add(path);
+            ids.put(path, id);
+            if (id == playCounts.length) {
+                int capacity = id * 2;
+                playCounts = Arrays.copyOf(playCounts, capacity);
+                skipCounts = Arrays.copyOf(skipCounts, capacity);
+                lastPlayed = Arrays.copyOf(lastPlayed, capacity);
+            }
+        }
+        return id;
+    }
+
+    private void publish() {
+        views = new Views(toStatistics(mostPlayed.toSortedArray()), toStatistics(recentlyPlayed.toSortedArray()));
+        for (Runnable listener : updateListeners)
+            listener.run();
+    }
+
+    private List<TrackStatistics> toStatistics(int[] trackIds) {
+        List<TrackStatistics> list = new ArrayList<>(trackIds.length);
+        for (int id : trackIds)
+            list.add(new TrackStatistics(paths.get(id), playCounts[id], skipCounts[id], lastPlayed[id]));
+        return List.copyOf(list);
+    }
+
+    /**********************************************
+                        SNAPSHOT
+     *********************************************/
+
+    private void load() {
+        Path path = Path.of(SNAPSHOT_FILE_PATH);
+        if (!Files.exists(path)) {
+            // last played times recorded before there were statistics
+            for (Map.Entry<String, Long> entry : LocalSettings.getInstance().getLastPlayedTimes().entrySet()) {
+                int id = idOf(entry.getKey());
+                lastPlayed[id] = entry.getValue();
+                recentlyPlayed.update(id);
+            }
+            return;
+        }
+        long t1 = System.nanoTime();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                Log.error(SNAPSHOT_FILE_PATH + " has an unknown format, starting over");
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int id = idOf(in.readUTF());
+                playCounts[id] = in.readInt();
+                skipCounts[id] = in.readInt();
+                lastPlayed[id] = in.readLong();
+                if (playCounts[id] > 0)
+                    mostPlayed.update(id);
+                recentlyPlayed.update(id);
+            }
+            Log.info("Play statistics of %d tracks loaded in %dms".formatted(count, (System.nanoTime() - t1) / 1_000_000));
+        } catch (IOException e) {
+            Log.error("Couldn't read " + SNAPSHOT_FILE_PATH + ": " + e);
+        }
+    }
+
+    /**
+     * Writes every count to a temporary file which then replaces the snapshot, a crash never leaves half a snapshot
+     */
+    private void save() {
+        Path path = Path.of(SNAPSHOT_FILE_PATH);
+        Path temp = path.resolveSibling(SNAPSHOT_FILE_PATH + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(paths.size());
+                for (int id = 0; id < paths.size(); id++) {
+                    out.writeUTF(paths.get(id));
+                    out.writeInt(playCounts[id]);
+                    out.writeInt(skipCounts[id]);
+                    out.writeLong(lastPlayed[id]);
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            unsavedEvents = 0;
+        } catch (IOException e) {
+            Log.error("Couldn't save " + SNAPSHOT_FILE_PATH + ": " + e);
+            // retried after the next interval rather than on every event
+            firstUnsavedTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * The tracks ranking highest, a track's key may only grow between two updates of it. Tracks are kept in a min
+     * heap so the lowest one is known, and every track remembers where it is in the heap so an update only sifts it.
+     */
+    private static final class TopTracks {
+        private final IdComparator comparator;
+        private final int[] heap;
+        private int size;
+        // heap position + 1 of every track id, 0 if it isn't in the heap
+        private int[] positions = new int[256];
+
+        private interface IdComparator {
+            int compare(int a, int b);
+        }
+
+        private TopTracks(int capacity, IdComparator comparator) {
+            this.comparator = comparator;
+            heap = new int[capacity];
+        }
+
+        void update(int id) {
+            if (id >= positions.length)
+                positions = Arrays.copyOf(positions, Math.max(id + 1, positions.length * 2));
+            int position = positions[id] - 1;
+            if (position >= 0) {
+                siftDown(position);
+            } else if (size < heap.length) {
+                set(size, id);
+                siftUp(size++);
+            } else if (comparator.compare(id, heap[0]) > 0) {
+                positions[heap[0]] = 0;
+                set(0, id);
+                siftDown(0);
+            }
+        }
+
+        /**
+         * @return ids of the tracks, highest first
+         */
+        int[] toSortedArray() {
+            Integer[] sorted = new Integer[size];
+            for (int i = 0; i < size; i++)
+                sorted[i] = heap[i];
+            Arrays.sort(sorted, (a, b) -> comparator.compare(b, a));
+            int[] ids = new int[size];
+            for (int i = 0; i < size; i++)
+                ids[i] = sorted[i];
+            return ids;
+        }
+
+        private void siftUp(int position) {
+            int id = heap[position];
+            while (position > 0) {
+                int parent = (position - 1) >>> 1;
+                if (comparator.compare(id, heap[parent]) >= 0)
+                    break;
+                set(position, heap[parent]);
+                position = parent;
+            }
+            set(position, id);
+        }
+
+        private void siftDown(int position) {
+            int id = heap[position];
+            while (true) {
+                int child = 2 * position + 1;
+                if (child >= size)
+                    break;
+                if (child + 1 < size && comparator.compare(heap[child + 1], heap[child]) < 0)
+                    child++;
+                if (comparator.compare(heap[child], id) >= 0)
+                    break;
+                set(position, heap[child]);
+                position = child;
+            }
+            set(position, id);
+        }
+
+        private void set(int position, int id) {
+            heap[position] = id;
+            positions[id] = position + 1;
+        }
+    }
+}
@@ -1,37 +1,123 @@
 package app.local.cache;
 
+import app.audio.AudioData;
+import app.audio.indexer.ArtworkManager;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 import material.utils.Log;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 public class FileCacheManager {
     private static FileCacheManager instance;
     private static final String CACHE_FILE_PATH = "file_cache.json";
+    private static final String TRACK_CACHE_FILE_PATH = "track_cache.json";
 
-    private final ArrayList<String> cachedFiles;
+    // indexed files in scan order, written by the extractor threads
+    private final LinkedHashSet<String> cachedFiles;
+    // tags of the indexed files keyed like cachedFiles, so the next start doesn't read them again
+    private final HashMap<String, CachedTrack> cachedTracks;
+
+    /**
+     * Tags of a file as they were read, only used while its size and last modified time still match
+     */
+    public static final class CachedTrack {
+        private long size;
+        private long lastModified;
+        private String title;
+        private String artists;
+        private String album;
+        private long durationInMs;
+        private int trackNumber;
+        private int discNumber;
+        private int artworkHash;
+
+        private CachedTrack(@NotNull File file, @NotNull AudioData audioData) {
+            size = file.length();
+            lastModified = file.lastModified();
+            title = audioData.getName();
+            artists = audioData.getArtistsConcatenated();
+            album = audioData.getAlbum();
+            durationInMs = audioData.getDurationInMs();
+            trackNumber = audioData.getTrackNumber();
+            discNumber = audioData.getDiscNumber();
+            artworkHash = ArtworkManager.getInstance().getThumbnailHash(audioData);
+        }
+
+        private boolean isUpToDate(@NotNull File file) {
+            // entries of an older cache may lack the tags
+            return title != null && artists != null && album != null
+                    && size == file.length() && lastModified == file.lastModified();
+        }
+
+        public @NotNull String getTitle() {
+            return title;
+        }
+
+        public @NotNull String getArtists() {
+            return artists;
+        }
+
+        public @NotNull String getAlbum() {
+            return album;
+        }
+
+        public long getDurationInMs() {
+            return durationInMs;
+        }
+
+        public int getTrackNumber() {
+            return trackNumber;
+        }
+
+        public int getDiscNumber() {
+            return discNumber;
+        }
+
+        public int getArtworkHash() {
+            return artworkHash;
+        }
+    }
 
     private FileCacheManager() {
-        cachedFiles = loadCache();
-        Log.info("Cache files found: " + cachedFiles.size());
+        cachedFiles = new LinkedHashSet<>(loadCache());
+        cachedTracks = new HashMap<>(loadTrackCache());
+        Log.info("Cache files found: " + cachedFiles.size() + ", with tags: " + cachedTracks.size());
     }
 
-    public void cacheFile(File file) {
-        if (!cachedFiles.contains(file.toString())) {
+    /**
+     * Caches the file with the tags read into the track
+     */
+    public void cacheTrack(@NotNull File file, @NotNull AudioData audioData) {
+        // stat the file and look up the artwork outside the lock
+        CachedTrack cachedTrack = new CachedTrack(file, audioData);
+        synchronized (this) {
             cachedFiles.add(file.toString());
-//            Log.cache("File cached successfully: " + file.getAbsolutePath());
+            cachedTracks.put(file.toString(), cachedTrack);
+        }
+    }
+
+    /**
+     * @return the cached tags of the file, null if it wasn't cached or has changed since
+     */
+    public @Nullable CachedTrack getCachedTrack(@NotNull File file) {
+        CachedTrack cachedTrack;
+        synchronized (this) {
+            cachedTrack = cachedTracks.get(file.toString());
         }
-//        else {
-//            Log.cache("File already exists in the cache: " + file.getAbsolutePath());
-//        }
+        return cachedTrack != null && cachedTrack.isUpToDate(file) ? cachedTrack : null;
     }
 
-    public List<File> getCachedFiles() {
+    public synchronized List<File> getCachedFiles() {
         List<File> l= new ArrayList<>(cachedFiles.size());
         for(String str: cachedFiles){
             l.add(new File(str));
@@ -45,20 +131,38 @@ public class FileCacheManager {
             Type listType = new TypeToken<List<String>>() {
             }.getType();
 
-            return gson.fromJson(reader, listType);
+            List<String> files = gson.fromJson(reader, listType);
+            return files == null ? new ArrayList<>(0) : new ArrayList<>(files);
         } catch (Exception e) {
             // Cache file does not exist yet, return an empty list
             return new ArrayList<>(0);
         }
     }
 
-    public void saveCacheToStorage() {
+    private Map<String, CachedTrack> loadTrackCache() {
+        try (Reader reader = new FileReader(TRACK_CACHE_FILE_PATH)) {
+            Type mapType = new TypeToken<HashMap<String, CachedTrack>>() {
+            }.getType();
+            Map<String, CachedTrack> tracks = new Gson().fromJson(reader, mapType);
+            return tracks == null ? new HashMap<>(0) : tracks;
+        } catch (Exception e) {
+            // Written by an older version or not at all, the files are read again
+            return new HashMap<>(0);
+        }
+    }
+
+    public synchronized void saveCacheToStorage() {
+        Gson gson = new GsonBuilder().create();
         try (Writer writer = new FileWriter(CACHE_FILE_PATH)) {
-            Gson gson = new GsonBuilder().create();
             gson.toJson(cachedFiles, writer);
         } catch (IOException e) {
             Log.error("Couldn't save cache: " + e);
         }
+        try (Writer writer = new FileWriter(TRACK_CACHE_FILE_PATH)) {
+            gson.toJson(cachedTracks, writer);
+        } catch (IOException e) {
+            Log.error("Couldn't save track cache: " + e);
+        }
     }
 
     public void deleteCacheFileAsync(File file) {
@@ -67,12 +171,13 @@ public class FileCacheManager {
         });
     }
 
-    public void deleteCacheFile(File file) {
+    public synchronized void deleteCacheFile(File file) {
+        cachedTracks.remove(file.toString());
         if (cachedFiles.remove(file.toString()))
             Log.cache("Removed file from cache: " + file.getAbsolutePath());
     }
 
-    public static FileCacheManager getInstance() {
+    public static synchronized FileCacheManager getInstance() {
         if (instance == null)
             instance = new FileCacheManager();
         return instance;
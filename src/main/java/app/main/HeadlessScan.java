@@ -0,0 +1,232 @@
+package app.main;
+
+import app.audio.AudioData;
+import app.audio.indexer.ArtworkManager;
+import app.audio.indexer.AudioDataIndexer;
+import app.audio.search.AudioFileVisitor;
+import app.local.LocalSettings;
+import app.settings.StartupSettings;
+import material.utils.Log;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+/**
+ * Runs the library search of one folder without a display: scan, parse, index, sort and artwork stages run one
+ * after the other, each with the threads the app would use for it. No component is created, so it works on a
+ * server with {@code java.awt.headless} set.
+ * <pre>
+ * --scan &lt;dir&gt; [--report]
+ * </pre>
+ * With {@code --report} the throughput, latency percentiles and heap after a GC of every stage are printed.
+ */
+final class HeadlessScan {
+    private static final String SCAN_ARGUMENT = "--scan";
+    private static final String REPORT_ARGUMENT = "--report";
+    private final File root;
+    private final boolean isReportEnabled;
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final List<StageReport> reports = new ArrayList<>(5);
+    private long lastHeapUsed;
+
+    /**
+     * @param latencies nanoseconds of every item, empty if the stage is a single step
+     */
+    private record StageReport(String name, int items, int failures, long wallNanos, long[] latencies,
+                               long heapUsed, long heapDelta) {
+    }
+
+    private HeadlessScan(@NotNull File root, boolean isReportEnabled) {
+        this.root = root;
+        this.isReportEnabled = isReportEnabled;
+    }
+
+    static boolean isRequested(String @NotNull [] args) {
+        return Arrays.asList(args).contains(SCAN_ARGUMENT);
+    }
+
+    /**
+     * @return exit code of the process
+     */
+    static int run(String @NotNull [] args) {
+        System.setProperty("java.awt.headless", "true");
+        List<String> arguments = Arrays.asList(args);
+        int scanIndex = arguments.indexOf(SCAN_ARGUMENT);
+        if (scanIndex + 1 >= args.length) {
+            System.err.println("Usage: " + SCAN_ARGUMENT + " <dir> [" + REPORT_ARGUMENT + "]");
+            return 2;
+        }
+        File root = new File(args[scanIndex + 1]).getAbsoluteFile();
+        if (!root.isDirectory()) {
+            System.err.println(root + " is not a directory");
+            return 2;
+        }
+        HeadlessScan scan = new HeadlessScan(root, arguments.contains(REPORT_ARGUMENT));
+        try {
+            return scan.run();
+        } finally {
+            LocalSettings.getInstance().close();
+        }
+    }
+
+    private int run() {
+        lastHeapUsed = heapUsedAfterGC();
+        long t1 = System.nanoTime();
+
+        List<File> files = scan();
+        if (files == null)
+            return 1;
+
+        // artworks are kept aside so reading them is measured on its own
+        AudioData[] tracks = new AudioData[files.size()];
+        byte[][] artworks = new byte[files.size()][];
+        measure("parse", files.size(), i -> {
+            try {
+                tracks[i] = new AudioData(files.get(i), (track, artwork) -> artworks[i] = artwork);
+                return true;
+            } catch (Exception e) {
+                Log.error("Couldn't read " + files.get(i) + ": " + e);
+                return false;
+            }
+        });
+
+        AudioDataIndexer indexer = AudioDataIndexer.getInstance();
+        measure("index", tracks.length, i -> {
+            if (tracks[i] == null)
+                return false;
+            indexer.addAudioFile(tracks[i]);
+            return true;
+        });
+
+        long sortStart = System.nanoTime();
+        indexer.indexAndSortAudioFiles();
+        addReport("sort", 1, 0, System.nanoTime() - sortStart, new long[0]);
+
+        ArtworkManager artworkManager = ArtworkManager.getInstance();
+        measure("artwork", tracks.length, i -> {
+            if (tracks[i] == null)
+                return false;
+            artworkManager.registerThumbnail(tracks[i], artworks[i]);
+            // only the thumbnail is kept, like in the app
+            artworks[i] = null;
+            return true;
+        });
+
+        long totalNanos = System.nanoTime() - t1;
+        if (isReportEnabled)
+            printReport(totalNanos);
+        else
+            Log.success("Indexed %d of %d files in %s in %dms".formatted(indexer.getTotalAudioFiles(), files.size(), root, totalNanos / 1_000_000));
+        return 0;
+    }
+
+    private List<File> scan() {
+        AudioFileVisitor visitor = new AudioFileVisitor();
+        long t1 = System.nanoTime();
+        try {
+            Files.walkFileTree(root.toPath(), EnumSet.of(FileVisitOption.FOLLOW_LINKS), StartupSettings.SEARCH_DEPTH, visitor);
+        } catch (IOException e) {
+            Log.error("Couldn't scan " + root + ": " + e);
+            return null;
+        }
+        List<File> files = visitor.getAudioFileArrayList();
+        addReport("scan", files.size(), 0, System.nanoTime() - t1, new long[0]);
+        return files;
+    }
+
+    /**
+     * Runs the stage over every item split between {@link StartupSettings#PARALLEL_THREAD_COUNT} threads, the same
+     * way the library search does
+     *
+     * @param stage returns false if the item failed
+     */
+    private void measure(String name, int items, IntPredicate stage) {
+        long[] latencies = new long[items];
+        AtomicInteger failures = new AtomicInteger();
+        int threadCount = Math.max(1, StartupSettings.PARALLEL_THREAD_COUNT);
+        int stackSize = (int) Math.ceil((double) items / threadCount);
+        Thread[] threads = new Thread[threadCount];
+        long t1 = System.nanoTime();
+        for (int i = 0; i < threads.length; i++) {
+            int begin = i * stackSize;
+            int end = Math.min(begin + stackSize, items);
+            threads[i] = Thread.ofVirtual().name("Headless " + name + " thread " + i).start(() -> {
+                for (int j = begin; j < end; j++) {
+                    long start = System.nanoTime();
+                    if (!stage.test(j))
+                        failures.incrementAndGet();
+                    latencies[j] = System.nanoTime() - start;
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Log.error("Headless " + name + " stage was interrupted");
+                break;
+            }
+        }
+        addReport(name, items, failures.get(), System.nanoTime() - t1, latencies);
+    }
+
+    private void addReport(String name, int items, int failures, long wallNanos, long[] latencies) {
+        long heapUsed = heapUsedAfterGC();
+        reports.add(new StageReport(name, items, failures, wallNanos, latencies, heapUsed, heapUsed - lastHeapUsed));
+        lastHeapUsed = heapUsed;
+        if (!isReportEnabled)
+            Log.info("Headless stage %s took %dms".formatted(name, wallNanos / 1_000_000));
+    }
+
+    private long heapUsedAfterGC() {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private void printReport(long totalNanos) {
+        System.out.printf("Library report of %s%n", root);
+        System.out.printf("java %s, %d threads, %d cpus, columnar track store %s%n", Runtime.version(),
+                StartupSettings.PARALLEL_THREAD_COUNT, Runtime.getRuntime().availableProcessors(),
+                StartupSettings.COLUMNAR_TRACK_STORE_ENABLED ? "on" : "off");
+        System.out.printf("%-8s %8s %6s %10s %10s %9s %9s %9s %9s %10s %10s%n", "stage", "items", "failed",
+                "wall ms", "items/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "heap MB", "delta MB");
+        for (StageReport report : reports) {
+            long[] sorted = report.latencies().clone();
+            Arrays.sort(sorted);
+            double seconds = report.wallNanos() / 1e9;
+            System.out.printf("%-8s %8d %6d %10.1f %10.0f %9s %9s %9s %9s %10.1f %+10.1f%n", report.name(),
+                    report.items(), report.failures(), report.wallNanos() / 1e6,
+                    seconds > 0 ? report.items() / seconds : 0,
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99), percentile(sorted, 1),
+                    toMegabytes(report.heapUsed()), toMegabytes(report.heapDelta()));
+        }
+        System.out.printf("total %.1fms, heap committed %.1fMB, max %.1fMB%n", totalNanos / 1e6,
+                toMegabytes(memory.getHeapMemoryUsage().getCommitted()), toMegabytes(memory.getHeapMemoryUsage().getMax()));
+    }
+
+    /**
+     * Nearest rank percentile of the sorted latencies
+     */
+    private static String percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0)
+            return "-";
+        int rank = (int) Math.ceil(fraction * sorted.length);
+        return "%.3f".formatted(sorted[Math.max(0, rank - 1)] / 1e6);
+    }
+
+    private static double toMegabytes(long bytes) {
+        return bytes / (1024.0 * 1024.0);
+    }
+}
@@ -1,7 +1,11 @@
 package app.main;
 
+import app.audio.player.QuartzAudioController;
+import app.audio.search.SystemSearch;
+import app.local.LocalSettings;
 import app.settings.StartupSettings;
 import material.animation.MaterialFixedTimer;
+import material.fonts.MaterialFonts;
 import material.theme.ThemeManager;
 import material.utils.Log;
 
@@ -10,21 +14,22 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.LogManager;
 
 public class MainClass {
     public static void main(String[] args) {
+        disableJAudioTaggerLogs();
+        if (HeadlessScan.isRequested(args)) {
+            // nothing of the UI is loaded, see HeadlessScan
+            System.exit(HeadlessScan.run(args));
+        }
         startApp();
 //        testStartApp();
 
-        disableJAudioTaggerLogs();
 //        redirectTerminalOutput();
         if (args.length > 0 && args[0].equals("-gc:true"))
             callGCPeriodically();
-        disableJAudioTaggerLogs();
-        if (!ThemeManager.getInstance().isThemingSupported())
-            ThemeManager.getInstance().setThemeType(StartupSettings.DEFAULT_THEME_TYPE);
-        ThemeManager.getInstance().enableTintedBackground(StartupSettings.DYNAMIC_BACKGROUND_THEMING_ENABLED);
     }
 
     private static void testStartApp() {
@@ -56,8 +61,29 @@ public class MainClass {
         }
     }
 
+    /**
+     * Fonts, GStreamer and the last index load in parallel while the theme and views are built, the window is shown
+     * without waiting for the file system search
+     */
     public static synchronized void startApp() {
-        Quartz.getInstance().startApplication();
+        StartupStages stages = new StartupStages();
+        // the first component reading a font waits for them
+        stages.runAsync("fonts", MaterialFonts::getInstance);
+        CompletableFuture<Void> gstreamer = stages.runAsync("GStreamer", QuartzAudioController::initGStreamer);
+        // favorites and playlists are applied to tracks as they're indexed
+        CompletableFuture<Void> userState = stages.runAsync("user state", LocalSettings::getInstance);
+        CompletableFuture<Void> index = stages.runAfter(userState, "index restore",
+                () -> Log.info(SystemSearch.getInstance().restoreIndex() + " files restored from the last index"));
+        CompletableFuture<Void> library = stages.runAfter(index, "library reconcile", SystemSearch.getInstance()::search);
+        stages.run("theme", MainClass::applyStartupTheme);
+        stages.run("views", Quartz::getInstance);
+        Quartz.getInstance().startApplication(stages, gstreamer, library);
+    }
+
+    private static void applyStartupTheme() {
+        if (!ThemeManager.getInstance().isThemingSupported())
+            ThemeManager.getInstance().setThemeType(StartupSettings.DEFAULT_THEME_TYPE);
+        ThemeManager.getInstance().enableTintedBackground(StartupSettings.DYNAMIC_BACKGROUND_THEMING_ENABLED);
     }
 
     private static MaterialFixedTimer gcCaller;
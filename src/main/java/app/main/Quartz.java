@@ -1,16 +1,25 @@
 package app.main;
 
+import app.audio.AudioData;
+import app.audio.duplicates.DuplicateFinder;
+import app.audio.indexer.AudioDataIndexer;
 import app.audio.player.QuartzAudioController;
-import app.audio.search.SystemSearch;
+import app.audio.loudness.LoudnessScanner;
+import app.audio.waveform.WaveformGenerator;
 import app.components.buttons.control.FullScreenButton;
 import app.components.containers.FullscreenPanel;
 import app.components.containers.MainPanel;
 import app.components.containers.PlaybackControlPanel;
+import app.components.containers.views.home.ExploreContainer;
+import app.components.spectrum.SpectrumRenderPolicy;
 import app.dialogs.DialogFactory;
+import app.local.LocalSettings;
+import app.local.PlayStatistics;
 import material.animation.MaterialFixedTimer;
 import material.constants.Size;
 import material.containers.MaterialPanel;
 import material.theme.ThemeManager;
+import material.tools.RenderQuality;
 import material.utils.Log;
 import material.window.MaterialWindow;
 import net.miginfocom.swing.MigLayout;
@@ -20,6 +29,8 @@ import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 //TODO Convert all singletons into normal classes and create a tab manager to manage context switching
 // TODO Add meta tag editor
@@ -37,11 +48,11 @@ public class Quartz {
 
     private static final MainPanel MAIN_PANEL = MainPanel.getInstance();
     private static final PlaybackControlPanel PLAYBACK_CONTROL_PANEL = PlaybackControlPanel.getInstance();
-    private static final FullscreenPanel FULLSCREEN_PANEL = FullscreenPanel.getInstance();
     private Mode MODE = Mode.DEFAULT;
 
     private Quartz() {
         EventQueue.invokeLater(() -> {
+            RenderQuality.getInstance().install();
             WINDOW.setGlassPane(GLASS_PANE);
             WINDOW.setFocusable(true);
             WINDOW.pack();
@@ -61,19 +72,14 @@ public class Quartz {
     }
 
 
-    public void startApplication() {
-//        Quartz.getInstance().show();
-
-        EventQueue.invokeLater(() -> {
-            QuartzLoaderWindow aphroditeLoader = new QuartzLoaderWindow(this);
-            aphroditeLoader.setVisible(true);
-            SystemSearch.getInstance().forceSearch();
-            SystemSearch.getInstance().onSearchComplete(() -> {
-                aphroditeLoader.close();
-                showMainWindow();
-                aphroditeLoader.dispose();
-            });
-        });
+    /**
+     * Shows the window with whatever index was restored, the audio controller is created once GStreamer is loaded
+     * and the library is analyzed once it has been reconciled with the file system
+     */
+    void startApplication(StartupStages stages, CompletableFuture<Void> gstreamer, CompletableFuture<Void> library) {
+        EventQueue.invokeLater(() -> stages.run("window", this::showMainWindow));
+        gstreamer.thenRun(() -> EventQueue.invokeLater(() -> stages.run("audio controller", this::initializeAphroditeAudioController)));
+        library.thenRun(this::analyzeLibrary);
     }
 
     public void showMainWindow() {
@@ -102,7 +108,10 @@ public class Quartz {
         MODE = Mode.FULLSCREEN;
         fullscreenWindow();
         ROOT.removeAll();
-        ROOT.add(FULLSCREEN_PANEL, "grow");
+        // built on first use
+        FullscreenPanel fullscreenPanel = FullscreenPanel.getInstance();
+        fullscreenPanel.setAudio(QuartzAudioController.getInstance().getCurrentAudioData());
+        ROOT.add(fullscreenPanel, "grow");
         ROOT.repaint();
         ROOT.revalidate();
     }
@@ -137,11 +146,6 @@ public class Quartz {
 
     private void addListeners() {
         WINDOW.addWindowListener(new WindowAdapter() {
-            @Override
-            public void windowOpened(WindowEvent e) {
-                initializeAphroditeAudioController();
-            }
-
             @Override
             public void windowClosing(WindowEvent e) {
                 super.windowClosing(e);
@@ -154,6 +158,7 @@ public class Quartz {
                 Runtime.getRuntime().exit(0);
             }
         });
+        SpectrumRenderPolicy.getInstance().install(WINDOW);
     }
 
     private void initializeAphroditeAudioController() {
@@ -161,9 +166,21 @@ public class Quartz {
         QuartzAudioController.getInstance().installPlayerComponents(PLAYBACK_CONTROL_PANEL.getPlayerComponents());
     }
 
+    private void analyzeLibrary() {
+        List<AudioData> tracks = AudioDataIndexer.getInstance().getAllAudioFiles();
+        WaveformGenerator.getInstance().generateInBackground(tracks);
+        LoudnessScanner.getInstance().scan(tracks);
+        DuplicateFinder.getInstance().findAsync(tracks).thenAccept(ExploreContainer.getInstance()::setDuplicates);
+    }
+
     private void disposeEverything() {
         QuartzAudioController.getInstance().dispose();
+        WaveformGenerator.getInstance().dispose();
+        LoudnessScanner.getInstance().dispose();
         MaterialFixedTimer.disposeAll();
+        // statistics still add the last loaded tracks to the history
+        PlayStatistics.getInstance().close();
+        LocalSettings.getInstance().close();
     }
 
     public static MaterialPanel getGlassPane() {
@@ -0,0 +1,58 @@
+package app.main;
+
+import material.utils.Log;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs the stages of startup and logs how long each took and when it finished after launch. Background stages
+ * start right away on their own threads, a stage that needs another one is chained after its future.
+ */
+class StartupStages {
+    private final long launchTime = System.nanoTime();
+
+    /**
+     * Runs the stage on the calling thread
+     */
+    void run(@NotNull String name, @NotNull Runnable stage) {
+        long t1 = System.nanoTime();
+        try {
+            stage.run();
+        } catch (Throwable e) {
+            // errors too, such as a native library which couldn't be linked
+            Log.error("Startup stage " + name + " failed: " + e);
+            return;
+        }
+        log(name, t1);
+    }
+
+    /**
+     * Runs the stage on a new thread
+     *
+     * @return completes when the stage has finished, even if it failed
+     */
+    @NotNull CompletableFuture<Void> runAsync(@NotNull String name, @NotNull Runnable stage) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        Thread.ofVirtual().name("Startup " + name).start(() -> {
+            try {
+                run(name, stage);
+            } finally {
+                future.complete(null);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Runs the stage on a new thread once the other stage has finished
+     */
+    @NotNull CompletableFuture<Void> runAfter(@NotNull CompletableFuture<Void> dependency, @NotNull String name, @NotNull Runnable stage) {
+        return dependency.thenCompose(ignored -> runAsync(name, stage));
+    }
+
+    private void log(String name, long startTime) {
+        long now = System.nanoTime();
+        Log.info("Startup stage %s took %dms, %dms after launch".formatted(name, (now - startTime) / 1_000_000, (now - launchTime) / 1_000_000));
+    }
+}
@@ -23,6 +23,8 @@ public class TileManager {
     private static final TreeMap<Playlist, List<AudioTile>> playlistMap = new TreeMap<>();
     private static final TreeMap<String, ArtistTile> artistMap = new TreeMap<>();
     private static final TreeMap<String, FolderTile> folderMap = new TreeMap<>();
+    // tiles of the home sections, by section name
+    private static final HashMap<String, HashMap<AudioData, AudioTile>> sectionTilesMap = new HashMap<>();
 
 
     public static @NotNull AudioTile convertToTile(@NotNull AudioData audioData, NavigationLink link) {
@@ -38,6 +40,41 @@ public class TileManager {
         return audioTile;
     }
 
+    /**
+     * Tile of a track in a home section, apart from the tile of the same link so the track can also be in the list
+     * under the section
+     */
+    public static synchronized @NotNull AudioTile convertToSectionTile(@NotNull AudioData audioData, @NotNull String section) {
+        HashMap<AudioData, AudioTile> tiles = sectionTilesMap.computeIfAbsent(section, key -> new HashMap<>());
+        AudioTile audioTile = tiles.get(audioData);
+        if (audioTile == null) {
+            audioTile = new AudioTile(audioData, NavigationLink.EXPLORE);
+            if (audioData.equals(lastActiveAudioFile))
+                audioTile.setActive(true);
+            tiles.put(audioData, audioTile);
+        }
+        return audioTile;
+    }
+
+    /**
+     * Forgets the tiles of the section whose track isn't in it anymore
+     */
+    public static synchronized void retainSectionTiles(@NotNull String section, @NotNull Collection<AudioData> audioData) {
+        HashMap<AudioData, AudioTile> tiles = sectionTilesMap.get(section);
+        if (tiles != null)
+            tiles.keySet().retainAll(audioData);
+    }
+
+    private static synchronized @NotNull List<AudioTile> getSectionTiles(AudioData audioData) {
+        List<AudioTile> list = new ArrayList<>(sectionTilesMap.size());
+        for (HashMap<AudioData, AudioTile> tiles : sectionTilesMap.values()) {
+            AudioTile audioTile = tiles.get(audioData);
+            if (audioTile != null)
+                list.add(audioTile);
+        }
+        return list;
+    }
+
     public static AudioTile convertToPlaylistTile(@NotNull AudioData audio, @NotNull Playlist playlist) {
         for (Playlist playlistOfAudio : audio.getPlaylists()) {
             if (playlistMap.containsKey(playlistOfAudio)) {
@@ -172,9 +209,11 @@ public class TileManager {
 //        Log.info(TilesMap.keySet().toString());
         var arr1 = getMappedTiles(audioData);
         var arr2 = getPlaylistAudioTiles(audioData);
-        ArrayList<AudioTile> arr = new ArrayList<>(arr1.size() + arr2.size());
+        var arr3 = getSectionTiles(audioData);
+        ArrayList<AudioTile> arr = new ArrayList<>(arr1.size() + arr2.size() + arr3.size());
         arr.addAll(arr1);
         arr.addAll(arr2);
+        arr.addAll(arr3);
         return arr;
     }
 
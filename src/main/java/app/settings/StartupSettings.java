@@ -23,5 +23,8 @@ public class StartupSettings {
 
     public static boolean DYNAMIC_THEMING_ENABLED = true;
     public static boolean DYNAMIC_BACKGROUND_THEMING_ENABLED = false;
+    public static boolean REPLAY_GAIN_ENABLED = true;
+    // keeps the library in app.audio.TrackStore columns instead of one object graph per track
+    public static boolean COLUMNAR_TRACK_STORE_ENABLED = Boolean.getBoolean("quartz.columnarTrackStore");
 
 }
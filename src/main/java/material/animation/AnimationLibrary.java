@@ -1,126 +1,156 @@
 package material.animation;
 
-import material.utils.Log;
+import material.tools.RenderQuality;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.Collection;
-import java.util.concurrent.ConcurrentHashMap;
-
+import java.util.ArrayList;
+import java.util.WeakHashMap;
+
+/**
+ * Colour animations of components.
+ * <p>
+ * Only animations in flight are kept in the active set, an animation is retired as soon as it completes, so a
+ * frame costs O(active animations) no matter how many components have been animated before. Components are
+ * held weakly. All colour changes of a frame are applied in one EDT runnable, which lets the RepaintManager
+ * merge the dirty regions into a single paint pass.
+ */
 public class AnimationLibrary {
     private static final byte BACKGROUND_ANIMATION_INDEX = 0;
     private static final byte FOREGROUND_ANIMATION_INDEX = 1;
     private static final byte NUMBER_OF_ANIMATION_TYPES = 2;
     private static final byte FPS = 60; // Number of animation steps
-    private static MaterialFixedTimer timer;
-    private static final ConcurrentHashMap<JComponent, ColorAnimationModel[]> componentAnimations = new ConcurrentHashMap<>(0);
+    private static final MaterialFixedTimer timer;
+    // In flight animations, an animation knows its own index so it can be removed by swapping with the last one
+    private static final ArrayList<ComponentColorAnimation> activeAnimations = new ArrayList<>();
+    // Animations of components which are currently animating, entries are removed once all of them are retired
+    private static final WeakHashMap<JComponent, ComponentColorAnimation[]> componentAnimations = new WeakHashMap<>();
 
     static {
-        //A permanent running timer which increments on going animations at every tick
-
+        //Advances the active animations at every tick, stops itself once the active set is empty
         timer = new MaterialFixedTimer(1000f / FPS) {
             @Override
             public void tick(float delta) {
-                if (!componentAnimations.isEmpty()) {
-                    synchronized (componentAnimations) {
-                        Collection<ColorAnimationModel[]> animationModels = componentAnimations.values();
+                advance(delta);
+            }
+        };
+    }
 
-                        for (ColorAnimationModel[] animationsArr : animationModels) {
-                            if (animationsArr == null)
-                                continue;
-                            for (int j = animationsArr.length - 1; j >= 0; j--) {
-                                ColorAnimationModel animation = animationsArr[j];
-                                if (animation == null)
-                                    continue;
-                                animation.incrementAnimationTime(delta);
-                                if (animation.isCompleted()) {
-                                    animation.forceCompleteAnimation();
-                                }
-                            }
-                        }
-                    }
+    private static void advance(float delta) {
+        final JComponent[] components;
+        final ComponentColorAnimation[] animations;
+        final Color[] colors;
+        int count = 0;
+        synchronized (AnimationLibrary.class) {
+            int size = activeAnimations.size();
+            components = new JComponent[size];
+            animations = new ComponentColorAnimation[size];
+            colors = new Color[size];
+            for (int i = size - 1; i >= 0; i--) {
+                ComponentColorAnimation animation = activeAnimations.get(i);
+                JComponent component = animation.getComponent();
+                if (component == null) {
+                    retire(animation);
+                    continue;
                 }
+                animation.incrementAnimationTime(delta);
+                components[count] = component;
+                animations[count] = animation;
+                colors[count] = animation.getCurrentColor();
+                count++;
+                if (animation.isCompleted())
+                    retire(animation);
             }
-        };
-        timer.start();
+            if (activeAnimations.isEmpty()) {
+                timer.stop();
+                RenderQuality.getInstance().setMotion(RenderQuality.Motion.ANIMATION, false);
+            }
+        }
+        if (count == 0)
+            return;
+        final int updates = count;
+        SwingUtilities.invokeLater(() -> {
+            for (int i = 0; i < updates; i++)
+                animations[i].setColor(components[i], colors[i]);
+        });
     }
 
-    //TODO FIX THIS. IT BREAKS WHEN SAME COMPONENT IS ANIMATED MULTIPLE TIMES
     public static synchronized void animateBackground(JComponent component, Color toColor, float durationMs) {
-//        Log.info("preparing animation for " + component);
-//        if (component.isVisible() && toColor != null && component.getBackground() != null && !component.getBackground().equals(toColor)) {
-            BackgroundAnimation animation = getBackgroundAnimation(component, durationMs);
-            animation.reuse(toColor,durationMs);
-//        }
-//        else{
-//            SwingUtilities.invokeLater(()->{
-//                component.setBackground(toColor);
-//            });
-//            Log.info("[static]" + component + " to " + toColor);
-//
-//        }
+        ComponentColorAnimation animation = getAnimation(component, BACKGROUND_ANIMATION_INDEX, durationMs);
+        animation.reuse(toColor, durationMs);
+        activate(animation);
     }
 
-    private static BackgroundAnimation getBackgroundAnimation(JComponent component, float durationMs) {
-        ColorAnimationModel[] animationModels = componentAnimations.get(component);
+    public static synchronized void animateForeground(JComponent component, Color toColor, float durationMs) {
+        ComponentColorAnimation animation = getAnimation(component, FOREGROUND_ANIMATION_INDEX, durationMs);
+        animation.reuse(toColor, durationMs);
+        activate(animation);
+    }
 
-        if(animationModels != null) {
-            for (ColorAnimationModel animation : animationModels) {
-                if (animation instanceof BackgroundAnimation)
-                    return (BackgroundAnimation) animation;
-            }
-        }
-        else {
-            animationModels = new ColorAnimationModel[NUMBER_OF_ANIMATION_TYPES];
+    /**
+     * Stops the animations of the component without applying their target colours
+     */
+    public static synchronized void cancelAnimations(JComponent component) {
+        ComponentColorAnimation[] animationModels = componentAnimations.get(component);
+        if (animationModels == null)
+            return;
+        for (ComponentColorAnimation animation : animationModels) {
+            if (animation != null)
+                retire(animation);
         }
-        BackgroundAnimation animation = new BackgroundAnimation(component, durationMs);
-
-        animationModels[BACKGROUND_ANIMATION_INDEX] = animation;
-
-        componentAnimations.put(component, animationModels);
-        return animation;
     }
 
-
-    public static synchronized void animateForeground(JComponent component, Color toColor, float durationMs) {
-        ForegroundAnimation animation = getForegroundAnimation(component, durationMs);
-        animation.reuse(toColor,durationMs);
+    /**
+     * @return number of animations in flight
+     */
+    public static synchronized int getActiveAnimationCount() {
+        return activeAnimations.size();
     }
-    private static ForegroundAnimation getForegroundAnimation(JComponent component, float durationMs) {
-        ColorAnimationModel[] animationModels = componentAnimations.get(component);
 
-        if(animationModels != null) {
-            for (ColorAnimationModel animation : animationModels) {
-                if (animation instanceof ForegroundAnimation)
-                    return (ForegroundAnimation) animation;
-            }
+    private static ComponentColorAnimation getAnimation(JComponent component, byte index, float durationMs) {
+        ComponentColorAnimation[] animationModels = componentAnimations.get(component);
+        if (animationModels == null) {
+            animationModels = new ComponentColorAnimation[NUMBER_OF_ANIMATION_TYPES];
+            componentAnimations.put(component, animationModels);
         }
-        else {
-            animationModels = new ColorAnimationModel[NUMBER_OF_ANIMATION_TYPES];
+        if (animationModels[index] == null) {
+            animationModels[index] = index == BACKGROUND_ANIMATION_INDEX
+                    ? new BackgroundAnimation(component, durationMs)
+                    : new ForegroundAnimation(component, durationMs);
         }
-        ForegroundAnimation animation = new ForegroundAnimation(component, durationMs);
-
-        animationModels[FOREGROUND_ANIMATION_INDEX] = animation;
-
-        componentAnimations.put(component, animationModels);
-        return animation;
+        return animationModels[index];
     }
-    //TODO fix this unsafe code by making it safe
-//    private static <model> model getAnimation(JComponent component, Class<model> animationClass) {
-//        ArrayList<ColorAnimationModel> animations = componentAnimations.get(component);
-//        if (animations == null)
-//            return null;
-//        for (int i = animations.size() - 1; i >= 0; --i) {
-//            ColorAnimationModel animationModel = animations.get(i);
-//            if (animationModel.getClass().getSimpleName().equals(animationClass.getSimpleName()))
-//                return (model) animationModel;
-//        }
-//        return null;
-//    }
-
 
-    private static void putNewAnimation(BackgroundAnimation animation) {
+    private static void activate(ComponentColorAnimation animation) {
+        if (animation.activeIndex < 0) {
+            animation.activeIndex = activeAnimations.size();
+            activeAnimations.add(animation);
+        }
+        RenderQuality.getInstance().setMotion(RenderQuality.Motion.ANIMATION, true);
+        timer.start();
+    }
 
+    private static void retire(ComponentColorAnimation animation) {
+        int index = animation.activeIndex;
+        if (index < 0)
+            return;
+        ComponentColorAnimation last = activeAnimations.removeLast();
+        if (last != animation) {
+            activeAnimations.set(index, last);
+            last.activeIndex = index;
+        }
+        animation.activeIndex = -1;
+
+        JComponent component = animation.getComponent();
+        if (component == null)
+            return;
+        ComponentColorAnimation[] animationModels = componentAnimations.get(component);
+        if (animationModels == null)
+            return;
+        for (ComponentColorAnimation model : animationModels) {
+            if (model != null && model.activeIndex >= 0)
+                return;
+        }
+        componentAnimations.remove(component);
     }
 }
-
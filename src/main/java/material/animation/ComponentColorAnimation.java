@@ -0,0 +1,106 @@
+package material.animation;
+
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.lang.ref.WeakReference;
+
+/**
+ * Colour transition of one property of a component. The component is only referenced weakly, an animation of
+ * a component that has been garbage collected is retired by {@link AnimationLibrary} on the next frame.
+ * <p>
+ * Progress is advanced on the frame scheduler thread, the resulting colour is applied on the EDT.
+ */
+abstract class ComponentColorAnimation implements ColorAnimationModel {
+    private final WeakReference<JComponent> component;
+    private float duration;
+    private Color from;
+    private Color to;
+    private float progress;
+    private float currTime;
+    private boolean isCompleted = true;
+    // position in the active set of AnimationLibrary, -1 while not animating
+    int activeIndex = -1;
+
+    ComponentColorAnimation(JComponent component, float duration) {
+        this.component = new WeakReference<>(component);
+        this.duration = duration;
+    }
+
+    abstract Color getColor(JComponent component);
+
+    abstract void setColor(JComponent component, Color color);
+
+    public void reuse(Color toColor, float durationMs) {
+        JComponent c = component.get();
+        this.from = c == null ? null : getColor(c);
+        this.duration = durationMs;
+        this.to = toColor;
+        this.progress = 0f;
+        this.currTime = 0;
+        this.isCompleted = false;
+    }
+
+    public void setDuration(float durationMs) {
+        duration = durationMs;
+    }
+
+    @Nullable JComponent getComponent() {
+        return component.get();
+    }
+
+    /**
+     * @return colour at the current progress
+     */
+    Color getCurrentColor() {
+        if (from == null || progress >= 1f)
+            return to;
+        return Interpolator.lerpRBG(from, to, progress);
+    }
+
+    @Override
+    public float getProgress() {
+        return progress;
+    }
+
+    @Override
+    public float getDurationInMs() {
+        return duration;
+    }
+
+    @Override
+    public void forceCompleteAnimation() {
+        progress = 1f;
+        isCompleted = true;
+    }
+
+    @Override
+    public void incrementAnimationTime(float delta) {
+        if (isCompleted)
+            return;
+        if (to == null || to.equals(from) || duration <= 0) {
+            forceCompleteAnimation();
+            return;
+        }
+        currTime += delta;
+        progress = Math.min(1f, currTime / duration);
+        if (progress >= 1f)
+            isCompleted = true;
+    }
+
+    @Override
+    public boolean isCompleted() {
+        return isCompleted;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+                "component=" + component.get() +
+                ", progress=" + progress +
+                ", from=" + from +
+                ", to=" + to +
+                '}';
+    }
+}
@@ -0,0 +1,170 @@
+package material.animation;
+
+import material.utils.Log;
+import material.utils.OsInfo;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single clock for everything that animates. Frames are aligned to the display refresh rate and every
+ * {@link Subscription} runs on the frames that match its own interval, so a 20 Hz subscriber ticks on
+ * every n-th frame of the same clock as a 60 FPS one.
+ * <p>
+ * Repaints requested during a frame are collected and posted to the EDT as one runnable after the frame.
+ * When no subscription is running the scheduler thread parks until one is started, so an idle UI
+ * causes no wakeups at all.
+ */
+public class FrameScheduler {
+    private static FrameScheduler instance;
+    private final long framePeriodNanos;
+    private final long frameEpoch = System.nanoTime();
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicInteger runningSubscriptions = new AtomicInteger();
+    private final Set<JComponent> dirtyComponents = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean isRepaintPosted = new AtomicBoolean();
+    private final Thread frameThread;
+
+    public interface FrameCallback {
+        void doFrame(float deltaMillis);
+    }
+
+    private FrameScheduler() {
+        framePeriodNanos = 1_000_000_000L / OsInfo.getRefreshRate();
+        frameThread = Thread.ofPlatform()
+                .name("Frame scheduler")
+                .daemon(true)
+                .priority(Thread.NORM_PRIORITY + 1)
+                .start(this::loop);
+    }
+
+    public static synchronized FrameScheduler getInstance() {
+        if (instance == null)
+            instance = new FrameScheduler();
+        return instance;
+    }
+
+    /**
+     * Registers a callback which runs on the scheduler thread once it is started
+     *
+     * @param intervalMs minimum time between two calls, rounded to whole frames
+     */
+    public @NotNull Subscription subscribe(@NotNull FrameCallback callback, float intervalMs) {
+        Subscription subscription = new Subscription(callback, (long) (intervalMs * 1_000_000));
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Repaints the component on the EDT after the current frame, together with every other component
+     * requested during the same frame
+     */
+    public void requestRepaint(@NotNull JComponent component) {
+        dirtyComponents.add(component);
+        if (runningSubscriptions.get() == 0)
+            flushRepaints(); // no frame is coming to flush it
+    }
+
+    public long getFramePeriodNanos() {
+        return framePeriodNanos;
+    }
+
+    private void loop() {
+        while (true) {
+            if (runningSubscriptions.get() == 0) {
+                LockSupport.park(this);
+                continue;
+            }
+            long now = System.nanoTime();
+            long frameTime = frameEpoch + ((now - frameEpoch) / framePeriodNanos + 1) * framePeriodNanos;
+            while ((now = System.nanoTime()) < frameTime)
+                LockSupport.parkNanos(this, frameTime - now);
+            runFrame(frameTime);
+            flushRepaints();
+        }
+    }
+
+    private void runFrame(long frameTime) {
+        // a subscriber is due if it's less than half a frame early, so intervals snap to whole frames
+        long dueTime = frameTime + framePeriodNanos / 2;
+        for (Subscription subscription : subscriptions) {
+            if (!subscription.isRunning || dueTime < subscription.nextDue)
+                continue;
+            float delta = (frameTime - subscription.lastRun) * 0.000_001f;
+            subscription.lastRun = frameTime;
+            subscription.nextDue = Math.max(subscription.nextDue + subscription.intervalNanos, frameTime);
+            try {
+                subscription.callback.doFrame(delta);
+            } catch (Exception e) {
+                Log.error("Frame callback failed: " + e);
+            }
+        }
+    }
+
+    private void flushRepaints() {
+        if (dirtyComponents.isEmpty() || !isRepaintPosted.compareAndSet(false, true))
+            return;
+        SwingUtilities.invokeLater(() -> {
+            isRepaintPosted.set(false);
+            Iterator<JComponent> iterator = dirtyComponents.iterator();
+            while (iterator.hasNext()) {
+                iterator.next().repaint();
+                iterator.remove();
+            }
+        });
+    }
+
+    public final class Subscription {
+        private final FrameCallback callback;
+        private volatile long intervalNanos;
+        private volatile boolean isRunning;
+        private long lastRun;
+        private long nextDue;
+
+        private Subscription(FrameCallback callback, long intervalNanos) {
+            this.callback = callback;
+            this.intervalNanos = intervalNanos;
+        }
+
+        public synchronized void start() {
+            if (isRunning)
+                return;
+            lastRun = System.nanoTime();
+            nextDue = lastRun + intervalNanos;
+            isRunning = true;
+            if (runningSubscriptions.incrementAndGet() == 1)
+                LockSupport.unpark(frameThread);
+        }
+
+        public synchronized void stop() {
+            if (!isRunning)
+                return;
+            isRunning = false;
+            runningSubscriptions.decrementAndGet();
+        }
+
+        public boolean isRunning() {
+            return isRunning;
+        }
+
+        /**
+         * Changes the interval, a running subscription is next due one new interval after its last run
+         */
+        public synchronized void setInterval(float intervalMs) {
+            intervalNanos = (long) (intervalMs * 1_000_000);
+            nextDue = lastRun + intervalNanos;
+        }
+
+        public void dispose() {
+            stop();
+            subscriptions.remove(this);
+        }
+    }
+}
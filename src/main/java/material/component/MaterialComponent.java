@@ -5,14 +5,18 @@ import material.animation.AnimationLibrary;
 import material.fonts.MaterialFonts;
 import material.listeners.SelectionListener;
 import material.theme.ThemeColors;
+import material.theme.ThemeListener;
 import material.theme.ThemeManager;
 import material.theme.enums.Elevation;
+import material.tools.RenderQuality;
 import material.utils.GraphicsUtils;
 import material.utils.Log;
+import material.utils.TextLayoutCache;
 import material.utils.structures.LanguageCompatibleString;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.HierarchyEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.font.TextAttribute;
@@ -36,6 +40,10 @@ public abstract class MaterialComponent extends JComponent implements Serializab
     private float fontSize = 14;
     boolean applyNewFont = false;
     private static MaterialComponent animatingComp = null;
+    // Held here because the theme manager only references it weakly
+    private final ThemeListener themeListener = this::themeChanged;
+    private int appliedThemeEpoch;
+    private boolean isApplyingThemeInstantly;
 
     static {
         Toolkit.getDefaultToolkit().addAWTEventListener(event -> {
@@ -90,19 +98,51 @@ public abstract class MaterialComponent extends JComponent implements Serializab
         if (GraphicsEnvironment.isHeadless()) {
             throw new HeadlessException();
         }
-        ThemeManager.getInstance().addThemeListener(this::updateTheme);
-        updateTheme();
+        ThemeManager.getInstance().addWeakThemeListener(themeListener);
+        applyThemeInstantly();
+        addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0 && isShowing())
+                applyThemeIfStale();
+        });
+    }
+
+    /**
+     * Only components with a visible part animate to the new theme. The others, such as tiles scrolled out of their
+     * viewport, stay stale and catch up without animating when they're added, shown or next painted. Called on the
+     * event dispatch thread by the theme manager.
+     */
+    private void themeChanged() {
+        int themeEpoch = ThemeManager.getInstance().getThemeEpoch();
+        if (appliedThemeEpoch != themeEpoch && isShowing() && !getVisibleRect().isEmpty()) {
+            appliedThemeEpoch = themeEpoch;
+            updateTheme();
+        }
+    }
+
+    private void applyThemeIfStale() {
+        if (appliedThemeEpoch != ThemeManager.getInstance().getThemeEpoch())
+            applyThemeInstantly();
+    }
+
+    /**
+     * Calls {@link #updateTheme()} with colour animations replaced by direct colour changes
+     */
+    private void applyThemeInstantly() {
+        appliedThemeEpoch = ThemeManager.getInstance().getThemeEpoch();
+        isApplyingThemeInstantly = true;
+        try {
+            updateTheme();
+        } finally {
+            isApplyingThemeInstantly = false;
+        }
     }
 
     @Override
     public void paint(Graphics g) {
+        // a component scrolled into view since the theme changed
+        applyThemeIfStale();
         Graphics2D g2d = (Graphics2D) g.create();
-        g2d.setRenderingHint(RenderingHints.KEY_RESOLUTION_VARIANT, RenderingHints.VALUE_RESOLUTION_VARIANT_DPI_FIT);
-        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_DEFAULT);
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
-        g2d.setRenderingHint(RenderingHints.KEY_DITHERING, RenderingHints.VALUE_DITHER_ENABLE);
+        RenderQuality.getInstance().applyHints(g2d, this);
 //        g2d.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_QUALITY);
 //        g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
         if (!isEnabled()) {
@@ -112,11 +152,19 @@ public abstract class MaterialComponent extends JComponent implements Serializab
     }
 
     public void animateFG(Color to) {
-        AnimationLibrary.animateForeground(this, to, MaterialParameters.COLOR_ANIMATION_DURATION.toMillis());
+        if (isApplyingThemeInstantly) {
+            AnimationLibrary.cancelAnimations(this);
+            setForeground(to);
+        } else
+            AnimationLibrary.animateForeground(this, to, MaterialParameters.COLOR_ANIMATION_DURATION.toMillis());
     }
 
     public void animateBG(Color to) {
-        AnimationLibrary.animateBackground(this, to, MaterialParameters.COLOR_ANIMATION_DURATION.toMillis());
+        if (isApplyingThemeInstantly) {
+            AnimationLibrary.cancelAnimations(this);
+            setBackground(to);
+        } else
+            AnimationLibrary.animateBackground(this, to, MaterialParameters.COLOR_ANIMATION_DURATION.toMillis());
     }
 
     protected abstract void animateMouseEnter();
@@ -231,6 +279,8 @@ public abstract class MaterialComponent extends JComponent implements Serializab
     @Override
     public void addNotify() {
         super.addNotify();
+        // before the first paint, a theme change while the component was detached wasn't applied
+        applyThemeIfStale();
         if (applyNewFont)
             setFontSize(fontSize);
         applyFontStyle();
@@ -267,7 +317,7 @@ public abstract class MaterialComponent extends JComponent implements Serializab
         }
         else {
             Iterator<LanguageCompatibleString.Node> i = languageCompatibleString.getIterator();
-            Font defaultFont = getDefaultFont().deriveFont(fontToUse.getStyle(), fontToUse.getSize());
+            Font defaultFont = TextLayoutCache.getInstance().getFallbackFont(getDefaultFont(), fontToUse);
             while (i.hasNext()) {
                 LanguageCompatibleString.Node node = i.next();
                 String sliceOfString = node.getCurr();
@@ -277,7 +327,7 @@ public abstract class MaterialComponent extends JComponent implements Serializab
                 else
                     g2d.setFont(defaultFont);
                 g2d.drawString(sliceOfString, x, y);
-                x += g2d.getFontMetrics().stringWidth(sliceOfString);
+                x += TextLayoutCache.getInstance().stringWidth(g2d, sliceOfString);
             }
         }
     }
@@ -6,6 +6,7 @@ import material.animation.MaterialFixedTimer;
 import material.theme.ThemeColors;
 import material.theme.ThemeManager;
 import material.theme.enums.Elevation;
+import material.tools.RenderQuality;
 import material.utils.Log;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.Range;
@@ -23,7 +24,6 @@ public class MaterialPanel extends JPanel implements Serializable {
     private boolean isFirstTimeLoaded = true;
     private boolean isColorChangeAnimated = true;
     private boolean isBackgroundNoiseEnabled = false;
-    private static BufferedImage imageWithNoise;
     private float noiseImageAlpha = 1f;
     private BufferedImage backgroundImg;
 
@@ -65,8 +65,6 @@ public class MaterialPanel extends JPanel implements Serializable {
             } else
                 animateBG(transparent);
         }
-        if (isBackgroundNoiseEnabled)
-            rewriteNoiseImage();
         repaint();
     }
 
@@ -87,18 +85,19 @@ public class MaterialPanel extends JPanel implements Serializable {
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
         Graphics2D g2d = (Graphics2D) g.create();
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        RenderQuality.getInstance().applyHints(g2d, this);
+        if (!RenderQuality.getInstance().isInMotion())
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
         if (getCornerRadius() > 0) {
             g2d.setPaint(getBackground());
             g2d.fill(new RoundRectangle2D.Double(0, 0, getWidth(), getHeight(), getCornerRadius(), getCornerRadius()));
         }
-        if (isBackgroundNoiseEnabled && imageWithNoise != null) {
-            Log.info("Rendering noise");
-            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
-            g2d.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_SPEED);
+        if (isBackgroundNoiseEnabled) {
+            // the tile of the current theme, repeated at its own size
             g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, noiseImageAlpha));
-            g2d.drawImage(imageWithNoise, 0, 0, getWidth(), getHeight(), null);
+            g2d.setPaint(ThemeManager.getInstance().getThemeBasedNoise());
+            g2d.fillRect(0, 0, getWidth(), getHeight());
+            g2d.setComposite(AlphaComposite.SrcOver);
         }
         if (backgroundImg != null) {
 //            g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1));
@@ -151,8 +150,6 @@ public class MaterialPanel extends JPanel implements Serializable {
             Log.warn("Background noise enabled");
         }
         isBackgroundNoiseEnabled = backgroundNoiseEnabled;
-        if (imageWithNoise == null)
-            rewriteNoiseImage();
         noiseImageAlpha = alpha;
         revalidate();
         repaint();
@@ -162,17 +159,6 @@ public class MaterialPanel extends JPanel implements Serializable {
         setBackgroundNoiseEnabled(backgroundNoiseEnabled, 1f);
     }
 
-    private void rewriteNoiseImage() {
-        if (isBackgroundNoiseEnabled) {
-            ThemeManager.getInstance().getThemeBasedNoiseImage(imageWithNoise -> {
-                SwingUtilities.invokeLater(() -> {
-                    MaterialPanel.imageWithNoise = imageWithNoise;
-                    repaint();
-                });
-            });
-        }
-    }
-
     MaterialFixedTimer animationTimer;
 
     public void setBackgroundImage(BufferedImage img) {
@@ -1,25 +1,22 @@
 package material.containers;
 
-import material.component.MaterialComponent;
 import material.theme.ThemeColors;
 import material.theme.ThemeManager;
 import material.theme.enums.Elevation;
 import material.theme.enums.ThemeType;
-import material.tools.ShadowGenerator;
+import material.tools.ShadowAtlas;
 import material.tools.SmoothScrolling;
 import material.ui.MaterialScrollbarUI;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.image.BufferedImage;
 
 public class MaterialScrollPane extends JScrollPane {
     private static final int SHADOW_SIZE = 30;
     private static final Color shadowColor = new Color(0x52000000, true);
-    //    private static final BufferedImage shadowYUp = ShadowGenerator.generateShadow(MaterialComponent.SCREEN_SIZE.width, SHADOW_SIZE, ShadowGenerator.Direction.UP,shadowColor);
-    private static final BufferedImage shadowYDown = ShadowGenerator.generateShadow(MaterialComponent.SCREEN_SIZE.width, SHADOW_SIZE, ShadowGenerator.Direction.DOWN, shadowColor);
-        private static final BufferedImage shadowXRight = ShadowGenerator.generateShadow(SHADOW_SIZE, MaterialComponent.SCREEN_SIZE.height, ShadowGenerator.Direction.RIGHT,shadowColor);
+    // Edge slices are stretched along the viewport, a blurred edge is half as dark as the shape casting it
+    private static final float SHADOW_OPACITY = Math.min(1f, 2 * shadowColor.getAlpha() / 255f);
     private static final boolean forceSmoothScrolling = true;
     private @Nullable Elevation elevation;
     private static final int SCROLLBAR_SIZE = 10;
@@ -108,18 +105,22 @@ public class MaterialScrollPane extends JScrollPane {
                 int maxY = Math.min(300, verticalScrollBar.getMaximum());
                 float proceduralAplhaY = Math.min(1f, (float) verticalScrollBar.getValue() / maxY);
                 g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, proceduralAplhaY * percent));
-                g2d.drawImage(shadowYDown, 0, 0, null);
+                g2d.drawImage(getScrollShadow().get(ShadowAtlas.Slice.BOTTOM), 0, 0, getWidth(), SHADOW_SIZE, null);
             }
             if(horizontalScrollBar.getValue() > 0) {
                 int maxX = Math.min(300, horizontalScrollBar.getMaximum());
                 float proceduralAplhaX = Math.min(1f, (float) verticalScrollBar.getValue() / maxX);
                 g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, proceduralAplhaX * percent));
-                g2d.drawImage(shadowXRight, 0, 0, null);
+                g2d.drawImage(getScrollShadow().get(ShadowAtlas.Slice.RIGHT), 0, 0, SHADOW_SIZE, getHeight(), null);
             }
         }
         g2d.dispose();
     }
 
+    private static ShadowAtlas.NinePatch getScrollShadow() {
+        return ShadowAtlas.getInstance().get(SHADOW_SIZE, SHADOW_OPACITY, shadowColor, 0);
+    }
+
     public boolean isEnableScrollShadows() {
         return enableScrollShadows;
     }
@@ -56,7 +56,7 @@ public class MaterialFonts {
         return null;
     }
 
-    public static MaterialFonts getInstance() {
+    public static synchronized MaterialFonts getInstance() {
         if (instance == null)
             instance = new MaterialFonts();
         return instance;
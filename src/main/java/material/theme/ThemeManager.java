@@ -5,20 +5,25 @@ import material.theme.colors.Light;
 import material.theme.colors.Themeable;
 import material.theme.enums.ThemeType;
 import material.tools.ColorUtils;
-import material.tools.ImageProcessing;
+import material.tools.NoiseTextures;
 import material.utils.Log;
 import org.jetbrains.annotations.Nullable;
 
 import java.awt.*;
-import java.awt.image.BufferedImage;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 public class ThemeManager {
-    private static @Nullable Color DarkerColorOfNoise;
-    private static BufferedImage imageWithNoise;
     private static ThemeManager instance;
     private final ArrayList<ThemeListener> _themeListeners = new ArrayList<>();
+    private final ArrayList<WeakReference<ThemeListener>> _weakThemeListeners = new ArrayList<>();
+    // dead weak listeners are purged on registration once the list reaches this size
+    private static final int MIN_WEAK_LISTENER_PURGE_SIZE = 64;
+    private final AtomicInteger themeEpoch = new AtomicInteger();
+    private int weakListenerPurgeSize = MIN_WEAK_LISTENER_PURGE_SIZE;
     private Themeable themeable;
     private static final Themeable[] _themes = {new Dark(), new Light()};
     private ThemeType ACTIVE_THEME_TYPE;
@@ -91,6 +96,7 @@ public class ThemeManager {
             ThemeColors.setIconButtonColors(themeable.getIconButtonColors());
             ThemeColors.setElevationColors(themeable.getElevationColors());
             ThemeColors.setSelectionColors(themeable.getSelectionColors());
+            themeEpoch.incrementAndGet();
             themeChangedCallback();
         }
     }
@@ -119,11 +125,56 @@ public class ThemeManager {
         _themeListeners.remove(listener);
     }
 
+    /**
+     * Registers a listener which is only referenced weakly, the caller has to keep it reachable for as long as it
+     * should be notified. Collected listeners are dropped on the next theme change, and on registration whenever the
+     * list has doubled since the last purge so components created and dropped between theme changes don't pile up.
+     */
+    public void addWeakThemeListener(ThemeListener listener) {
+        synchronized (_weakThemeListeners) {
+            if (_weakThemeListeners.size() >= weakListenerPurgeSize) {
+                _weakThemeListeners.removeIf(reference -> reference.get() == null);
+                weakListenerPurgeSize = Math.max(MIN_WEAK_LISTENER_PURGE_SIZE, _weakThemeListeners.size() * 2);
+            }
+            _weakThemeListeners.add(new WeakReference<>(listener));
+        }
+    }
+
+    /**
+     * Incremented on every theme or accent change, components compare it with the epoch they last applied to
+     * find out whether their colours are stale.
+     */
+    public int getThemeEpoch() {
+        return themeEpoch.get();
+    }
+
+    /**
+     * Notifies the listeners on the event dispatch thread, a change made on another thread is handed over once
+     */
     private void themeChangedCallback() {
+        if (!EventQueue.isDispatchThread()) {
+            EventQueue.invokeLater(this::themeChangedCallback);
+            return;
+        }
         try {
             for (ThemeListener listener : _themeListeners) {
                 listener.ThemeChanged();
             }
+            ArrayList<ThemeListener> weakListeners;
+            synchronized (_weakThemeListeners) {
+                weakListeners = new ArrayList<>(_weakThemeListeners.size());
+                Iterator<WeakReference<ThemeListener>> iterator = _weakThemeListeners.iterator();
+                while (iterator.hasNext()) {
+                    ThemeListener listener = iterator.next().get();
+                    if (listener == null)
+                        iterator.remove();
+                    else
+                        weakListeners.add(listener);
+                }
+            }
+            for (ThemeListener listener : weakListeners) {
+                listener.ThemeChanged();
+            }
         } catch (Exception e) {
             Log.error(e);
         }
@@ -136,27 +187,13 @@ public class ThemeManager {
     }
 
     /**
-     * returns an argb image filled with noise. Dark color of noise is a 10% darker variant of theme's background color while the other color is transparent.
-     * Must call this method everytime you need an themed image with noise.
-     *
-     * @param imageNoiseGenerationCompleted returns the image with noise after it has been generated.
+     * returns a tileable argb noise texture. Dark color of noise is a 10% darker variant of theme's background color while the other color is transparent.
+     * Tiles are cached per colour pair, so calling this on every paint only costs a lookup.
      */
-    public void getThemeBasedNoiseImage(ImageNoiseGenerationCompleted imageNoiseGenerationCompleted) {
-        //Generating noise image once asynchronously
-        if (themeable != null) {
-            if (DarkerColorOfNoise != themeable.getBackgroundColor()) {
-                Thread.startVirtualThread(() -> {
-                    Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
-                    imageWithNoise = ImageProcessing.getNoise(ColorUtils.darken(ThemeColors.getBackground(), 3), ThemeColors.TransparentColor, screenSize.width, screenSize.height);
-                    imageNoiseGenerationCompleted.handleNewImage(imageWithNoise);
-                    DarkerColorOfNoise = themeable.getBackgroundColor();
-                });
-            } else {
-                imageNoiseGenerationCompleted.handleNewImage(imageWithNoise);
-            }
-        } else {
+    public TexturePaint getThemeBasedNoise() {
+        if (themeable == null)
             throw new NullPointerException("Theme is null");
-        }
+        return NoiseTextures.getInstance().getNoise(ColorUtils.darken(ThemeColors.getBackground(), 3), ThemeColors.TransparentColor);
     }
 
     public void enableTintedBackground(boolean isTinted) {
@@ -179,7 +216,4 @@ public class ThemeManager {
         updateTheme();
     }
 
-    public interface ImageNoiseGenerationCompleted {
-        void handleNewImage(BufferedImage imageWithNoise);
-    }
 }
@@ -7,13 +7,7 @@ import java.awt.Insets;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
-import java.awt.geom.RoundRectangle2D;
-import java.awt.image.BufferedImage;
-import java.awt.image.ConvolveOp;
-import java.awt.image.Kernel;
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Map;
 
 import javax.swing.border.Border;
 
@@ -26,11 +20,8 @@ import javax.swing.border.Border;
  * Note: {@code DropShadowBorder} should usually be added to non-opaque
  * components, otherwise the background is likely to bleed through.</p>
  * <p>Note: Since generating drop shadows is relatively expensive operation,
- * {@code DropShadowBorder} keeps internal static cache that allows sharing
- * same border for multiple re-rendering and between different instances of the
- * class. Since this cache is shared at class level and never reset, it might
- * bleed your app memory in case you tend to create many different borders
- * rapidly.</p>
+ * the shadow images are taken from the {@link ShadowAtlas}, which shares them
+ * between borders and evicts the least recently used ones.</p>
  * @author rbair
  */
 public class DropShadowBorder implements Border, Serializable {
@@ -39,12 +30,6 @@ public class DropShadowBorder implements Border, Serializable {
      */
     private static final long serialVersionUID = 715287754750604058L;
 
-    private static enum Position {TOP, TOP_LEFT, LEFT, BOTTOM_LEFT,
-        BOTTOM, BOTTOM_RIGHT, RIGHT, TOP_RIGHT}
-
-    private static final Map<Double,Map<Position,BufferedImage>> CACHE
-            = new HashMap<Double,Map<Position,BufferedImage>>();
-
     private Color shadowColor;
     private int shadowSize;
     private float shadowOpacity;
@@ -88,7 +73,7 @@ public class DropShadowBorder implements Border, Serializable {
          * 1) Get images for this border
          * 2) Paint the images for each side of the border that should be painted
          */
-        Map<Position,BufferedImage> images = getImages((Graphics2D)graphics);
+        ShadowAtlas.NinePatch images = getImages();
 
         Graphics2D g2 = (Graphics2D)graphics.create();
 
@@ -161,7 +146,7 @@ public class DropShadowBorder implements Border, Serializable {
                                 topLeftShadowPoint.y + shadowSize,
                                 shadowSize,
                                 bottomLeftShadowPoint.y - topLeftShadowPoint.y - shadowSize);
-                g2.drawImage(images.get(Position.LEFT),
+                g2.drawImage(images.get(ShadowAtlas.Slice.LEFT),
                         leftShadowRect.x, leftShadowRect.y,
                         leftShadowRect.width, leftShadowRect.height, null);
             }
@@ -172,7 +157,7 @@ public class DropShadowBorder implements Border, Serializable {
                                 y + height - shadowSize,
                                 bottomRightShadowPoint.x - bottomLeftShadowPoint.x - shadowSize,
                                 shadowSize);
-                g2.drawImage(images.get(Position.BOTTOM),
+                g2.drawImage(images.get(ShadowAtlas.Slice.BOTTOM),
                         bottomShadowRect.x, bottomShadowRect.y,
                         bottomShadowRect.width, bottomShadowRect.height, null);
             }
@@ -183,7 +168,7 @@ public class DropShadowBorder implements Border, Serializable {
                                 topRightShadowPoint.y + shadowSize,
                                 shadowSize,
                                 bottomRightShadowPoint.y - topRightShadowPoint.y - shadowSize);
-                g2.drawImage(images.get(Position.RIGHT),
+                g2.drawImage(images.get(ShadowAtlas.Slice.RIGHT),
                         rightShadowRect.x, rightShadowRect.y,
                         rightShadowRect.width, rightShadowRect.height, null);
             }
@@ -194,25 +179,25 @@ public class DropShadowBorder implements Border, Serializable {
                                 y,
                                 topRightShadowPoint.x - topLeftShadowPoint.x - shadowSize,
                                 shadowSize);
-                g2.drawImage(images.get(Position.TOP),
+                g2.drawImage(images.get(ShadowAtlas.Slice.TOP),
                         topShadowRect.x, topShadowRect.y,
                         topShadowRect.width, topShadowRect.height, null);
             }
 
             if (showLeftShadow || showTopShadow) {
-                g2.drawImage(images.get(Position.TOP_LEFT),
+                g2.drawImage(images.get(ShadowAtlas.Slice.TOP_LEFT),
                         topLeftShadowPoint.x, topLeftShadowPoint.y, null);
             }
             if (showLeftShadow || showBottomShadow) {
-                g2.drawImage(images.get(Position.BOTTOM_LEFT),
+                g2.drawImage(images.get(ShadowAtlas.Slice.BOTTOM_LEFT),
                         bottomLeftShadowPoint.x, bottomLeftShadowPoint.y, null);
             }
             if (showRightShadow || showBottomShadow) {
-                g2.drawImage(images.get(Position.BOTTOM_RIGHT),
+                g2.drawImage(images.get(ShadowAtlas.Slice.BOTTOM_RIGHT),
                         bottomRightShadowPoint.x, bottomRightShadowPoint.y, null);
             }
             if (showRightShadow || showTopShadow) {
-                g2.drawImage(images.get(Position.TOP_RIGHT),
+                g2.drawImage(images.get(ShadowAtlas.Slice.TOP_RIGHT),
                         topRightShadowPoint.x, topRightShadowPoint.y, null);
             }
         } finally {
@@ -220,120 +205,8 @@ public class DropShadowBorder implements Border, Serializable {
         }
     }
 
-    private Map<Position,BufferedImage> getImages(Graphics2D g2) {
-        //first, check to see if an image for this size has already been rendered
-        //if so, use the cache. Else, draw and save
-        Map<Position,BufferedImage> images = CACHE.get(shadowSize + (shadowColor.hashCode() * .3) + (shadowOpacity * .12));//TODO do a real hash
-        if (images == null) {
-            images = new HashMap<Position,BufferedImage>();
-
-            /*
-             * To draw a drop shadow, I have to:
-             *  1) Create a rounded rectangle
-             *  2) Create a BufferedImage to draw the rounded rect in
-             *  3) Translate the graphics for the image, so that the rectangle
-             *     is centered in the drawn space. The border around the rectangle
-             *     needs to be shadowWidth wide, so that there is space for the
-             *     shadow to be drawn.
-             *  4) Draw the rounded rect as shadowColor, with an opacity of shadowOpacity
-             *  5) Create the BLUR_KERNEL
-             *  6) Blur the image
-             *  7) copy off the corners, sides, etc into images to be used for
-             *     drawing the Border
-             */
-            int rectWidth = cornerSize + 1;
-            RoundRectangle2D rect = new RoundRectangle2D.Double(0, 0, rectWidth, rectWidth, cornerSize, cornerSize);
-            int imageWidth = rectWidth + shadowSize * 2;
-            BufferedImage image = MaterialGraphics.createCompatibleTranslucentImage(imageWidth, imageWidth);
-            Graphics2D buffer = (Graphics2D)image.getGraphics();
-
-            try {
-                buffer.setPaint(new Color(shadowColor.getRed(), shadowColor.getGreen(),
-                        shadowColor.getBlue(), (int)(shadowOpacity * 255)));
-//                buffer.setColor(new Color(0.0f, 0.0f, 0.0f, shadowOpacity));
-                buffer.translate(shadowSize, shadowSize);
-                buffer.fill(rect);
-            } finally {
-                buffer.dispose();
-            }
-
-            float blurry = 1.0f / (shadowSize * shadowSize);
-            float[] blurKernel = new float[shadowSize * shadowSize];
-            for (int i=0; i<blurKernel.length; i++) {
-                blurKernel[i] = blurry;
-            }
-            ConvolveOp blur = new ConvolveOp(new Kernel(shadowSize, shadowSize, blurKernel));
-            BufferedImage targetImage = MaterialGraphics.createCompatibleTranslucentImage(imageWidth, imageWidth);
-            ((Graphics2D)targetImage.getGraphics()).drawImage(image, blur, -(shadowSize/2), -(shadowSize/2));
-
-            int x = 1;
-            int y = 1;
-            int w = shadowSize;
-            int h = shadowSize;
-            images.put(Position.TOP_LEFT, getSubImage(targetImage, x, y, w, h));
-            x = 1;
-            y = h;
-            w = shadowSize;
-            h = 1;
-            images.put(Position.LEFT, getSubImage(targetImage, x, y, w, h));
-            x = 1;
-            y = rectWidth;
-            w = shadowSize;
-            h = shadowSize;
-            images.put(Position.BOTTOM_LEFT, getSubImage(targetImage, x, y, w, h));
-            x = cornerSize + 1;
-            y = rectWidth;
-            w = 1;
-            h = shadowSize;
-            images.put(Position.BOTTOM, getSubImage(targetImage, x, y, w, h));
-            x = rectWidth;
-            y = x;
-            w = shadowSize;
-            h = shadowSize;
-            images.put(Position.BOTTOM_RIGHT, getSubImage(targetImage, x, y, w, h));
-            x = rectWidth;
-            y = cornerSize + 1;
-            w = shadowSize;
-            h = 1;
-            images.put(Position.RIGHT, getSubImage(targetImage, x, y, w, h));
-            x = rectWidth;
-            y = 1;
-            w = shadowSize;
-            h = shadowSize;
-            images.put(Position.TOP_RIGHT, getSubImage(targetImage, x, y, w, h));
-            x = shadowSize;
-            y = 1;
-            w = 1;
-            h = shadowSize;
-            images.put(Position.TOP, getSubImage(targetImage, x, y, w, h));
-
-            image.flush();
-            CACHE.put(shadowSize + (shadowColor.hashCode() * .3) + (shadowOpacity * .12), images); //TODO do a real hash
-        }
-        return images;
-    }
-
-    /**
-     * Returns a new BufferedImage that represents a subregion of the given
-     * BufferedImage.  (Note that this method does not use
-     * BufferedImage.getSubimage(), which will defeat image acceleration
-     * strategies on later JDKs.)
-     */
-    private BufferedImage getSubImage(BufferedImage img,
-                                      int x, int y, int w, int h) {
-        BufferedImage ret = MaterialGraphics.createCompatibleTranslucentImage(w, h);
-        Graphics2D g2 = ret.createGraphics();
-
-        try {
-            g2.drawImage(img,
-                    0, 0, w, h,
-                    x, y, x+w, y+h,
-                    null);
-        } finally {
-            g2.dispose();
-        }
-
-        return ret;
+    private ShadowAtlas.NinePatch getImages() {
+        return ShadowAtlas.getInstance().get(shadowSize, shadowOpacity, shadowColor, cornerSize / 2);
     }
 
     /**
@@ -0,0 +1,72 @@
+package material.tools;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small tileable noise textures, generated once per colour pair and painted with a {@link TexturePaint}. Filling
+ * any area with noise then costs a paint, not an image of the area's size, and switching back to a theme reuses
+ * its tile.
+ */
+public class NoiseTextures {
+    public static final int TILE_SIZE = 128;
+    private static final int MAX_TILES = 16;
+    private static NoiseTextures instance;
+    // colour pair -> noise tile, least recently used tiles are dropped
+    private final Map<Long, TexturePaint> tiles = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, TexturePaint> eldest) {
+            return size() > MAX_TILES;
+        }
+    };
+
+    private NoiseTextures() {
+    }
+
+    public static synchronized NoiseTextures getInstance() {
+        if (instance == null)
+            instance = new NoiseTextures();
+        return instance;
+    }
+
+    /**
+     * @return paint tiling noise where every pixel is one of the two colours
+     */
+    public synchronized @NotNull TexturePaint getNoise(@NotNull Color first, @NotNull Color second) {
+        long key = (long) first.getRGB() << 32 | (second.getRGB() & 0xFFFFFFFFL);
+        TexturePaint paint = tiles.get(key);
+        if (paint == null) {
+            BufferedImage tile = createNoise(first, second, TILE_SIZE, TILE_SIZE, key);
+            paint = new TexturePaint(tile, new Rectangle(0, 0, TILE_SIZE, TILE_SIZE));
+            tiles.put(key, paint);
+        }
+        return paint;
+    }
+
+    /**
+     * Fills an image with the two colours picked at random, white noise has no structure so any tile of it is
+     * seamless
+     */
+    static @NotNull BufferedImage createNoise(@NotNull Color first, @NotNull Color second, int width, int height, long seed) {
+        int firstRgb = first.getRGB(), secondRgb = second.getRGB();
+        int[] pixels = new int[width * height];
+        // xorshift64, a bit per pixel is enough to pick one of two colours
+        long state = seed == 0 ? 0x9E3779B97F4A7C15L : seed;
+        for (int i = 0; i < pixels.length; i += 64) {
+            state ^= state << 13;
+            state ^= state >>> 7;
+            state ^= state << 17;
+            long bits = state;
+            int end = Math.min(pixels.length, i + 64);
+            for (int j = i; j < end; j++, bits >>>= 1)
+                pixels[j] = (bits & 1) == 0 ? firstRgb : secondRgb;
+        }
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        image.getRaster().setDataElements(0, 0, width, height, pixels);
+        return image;
+    }
+}
@@ -0,0 +1,157 @@
+package material.tools;
+
+import material.animation.MaterialFixedTimer;
+import material.utils.Log;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Global render quality governor. While something is in motion (smooth scrolling, colour animations) components
+ * paint with speed hints, the difference isn't visible on moving content. Components painted that way are
+ * repainted at full quality once motion has settled.
+ * <p>
+ * Every paint pass of the RepaintManager is timed, separately for passes in motion and at rest, so the gain can
+ * be measured.
+ */
+public class RenderQuality {
+    private static final float SETTLE_DELAY_MS = 150;
+    private static RenderQuality instance;
+    private final AtomicInteger activeMotions = new AtomicInteger();
+    // Components painted with speed hints, only touched on the EDT
+    private final Set<Component> degradedComponents = Collections.newSetFromMap(new WeakHashMap<>());
+    private final FrameStats motionFrames = new FrameStats();
+    private final FrameStats restFrames = new FrameStats();
+    private final MaterialFixedTimer settleTimer;
+
+    public enum Motion {
+        SCROLLING, ANIMATION;
+
+        private int bit() {
+            return 1 << ordinal();
+        }
+    }
+
+    private RenderQuality() {
+        settleTimer = new MaterialFixedTimer(SETTLE_DELAY_MS) {
+            @Override
+            public void tick(float deltaMillis) {
+                stop();
+                if (!isInMotion())
+                    SwingUtilities.invokeLater(RenderQuality.this::settle);
+            }
+        };
+    }
+
+    public static synchronized RenderQuality getInstance() {
+        if (instance == null)
+            instance = new RenderQuality();
+        return instance;
+    }
+
+    /**
+     * Times every paint pass of the current RepaintManager, call on the EDT before the first window is shown
+     */
+    public void install() {
+        RepaintManager.setCurrentManager(new RepaintManager() {
+            @Override
+            public void paintDirtyRegions() {
+                boolean isInMotion = isInMotion();
+                long t1 = System.nanoTime();
+                super.paintDirtyRegions();
+                (isInMotion ? motionFrames : restFrames).add(System.nanoTime() - t1);
+            }
+        });
+    }
+
+    public void setMotion(@NotNull Motion motion, boolean isActive) {
+        int bit = motion.bit();
+        int previous = activeMotions.getAndUpdate(motions -> isActive ? motions | bit : motions & ~bit);
+        if (!isActive && previous == bit)
+            settleTimer.start();
+    }
+
+    public boolean isInMotion() {
+        return activeMotions.get() != 0;
+    }
+
+    /**
+     * Sets quality hints at rest and speed hints in motion, the component is repainted once motion settles
+     */
+    public void applyHints(@NotNull Graphics2D g2d, @NotNull Component component) {
+        g2d.setRenderingHint(RenderingHints.KEY_RESOLUTION_VARIANT, RenderingHints.VALUE_RESOLUTION_VARIANT_DPI_FIT);
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        if (isInMotion()) {
+            degradedComponents.add(component);
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+            g2d.setRenderingHint(RenderingHints.KEY_DITHERING, RenderingHints.VALUE_DITHER_DISABLE);
+            g2d.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_SPEED);
+        } else {
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_DEFAULT);
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g2d.setRenderingHint(RenderingHints.KEY_DITHERING, RenderingHints.VALUE_DITHER_ENABLE);
+        }
+    }
+
+    public @NotNull FrameStats getMotionFrameStats() {
+        return motionFrames;
+    }
+
+    public @NotNull FrameStats getRestFrameStats() {
+        return restFrames;
+    }
+
+    private void settle() {
+        if (isInMotion())
+            return;
+        Log.info("Settled after motion, repainting " + degradedComponents.size() + " components. Paint time in motion: "
+                + motionFrames + ", at rest: " + restFrames);
+        for (Component component : degradedComponents)
+            component.repaint();
+        degradedComponents.clear();
+    }
+
+    /**
+     * Paint time of RepaintManager passes
+     */
+    public static final class FrameStats {
+        private long frames;
+        private long totalNanos;
+        private long maxNanos;
+
+        private synchronized void add(long nanos) {
+            frames++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        public synchronized long getFrameCount() {
+            return frames;
+        }
+
+        public synchronized double getAverageMillis() {
+            return frames == 0 ? 0 : totalNanos / 1e6 / frames;
+        }
+
+        public synchronized double getMaxMillis() {
+            return maxNanos / 1e6;
+        }
+
+        public synchronized void reset() {
+            frames = totalNanos = maxNanos = 0;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "%d frames, avg %.2fms, max %.2fms".formatted(frames, getAverageMillis(), getMaxMillis());
+        }
+    }
+}
@@ -11,9 +11,10 @@ public class ScrollAnimationTimer extends MaterialFixedTimer {
     private final ArrayList<SmoothScrolling> scrollerList = new ArrayList<>(10);
 
     //    private final ArrayList<SmoothScrollingV2> scrollerList2 = new ArrayList<>(10);
+    private boolean isWakeRequested;
+
     public ScrollAnimationTimer() {
         super(DELAY);
-        start();
     }
 
     public static ScrollAnimationTimer getInstance() {
@@ -40,12 +41,35 @@ public class ScrollAnimationTimer extends MaterialFixedTimer {
     }
 
     private void paintersUpdated() {
-        if (!scrollerList.isEmpty())
-            start();
+        if (scrollerList.isEmpty()) {
+            stop();
+            RenderQuality.getInstance().setMotion(RenderQuality.Motion.SCROLLING, false);
+        }
+    }
+
+    /**
+     * Starts ticking until every scroller has come to rest
+     */
+    public synchronized void wake() {
+        isWakeRequested = true;
+        RenderQuality.getInstance().setMotion(RenderQuality.Motion.SCROLLING, true);
+        start();
     }
 
     @Override
     public void tick(float dt) {
-        scrollerList.forEach(SmoothScrolling::tick);
+        boolean isScrolling = false;
+        for (int i = scrollerList.size() - 1; i >= 0; i--)
+            isScrolling |= scrollerList.get(i).tick();
+        if (!isScrolling) {
+            synchronized (this) {
+                // a wheel event during this tick keeps the timer running for one more tick
+                if (!isWakeRequested) {
+                    stop();
+                    RenderQuality.getInstance().setMotion(RenderQuality.Motion.SCROLLING, false);
+                }
+                isWakeRequested = false;
+            }
+        }
     }
 }
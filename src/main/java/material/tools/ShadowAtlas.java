@@ -0,0 +1,158 @@
+package material.tools;
+
+import material.utils.Log;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shared cache of drop shadows. A shadow is blurred once per (size, opacity, colour, corner radius) and cut into
+ * nine-patch slices: four corners and four one pixel edges which are stretched to any length, so resizing or
+ * scrolling a shadowed component never blurs again.
+ * <p>
+ * Least recently used shadows are evicted once the slices take more than {@link #MAX_BYTES}.
+ */
+public class ShadowAtlas {
+    public static final long MAX_BYTES = 4L * 1024 * 1024;
+    private static ShadowAtlas instance;
+    private final LinkedHashMap<Key, NinePatch> patches = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    public enum Slice {TOP, TOP_LEFT, LEFT, BOTTOM_LEFT, BOTTOM, BOTTOM_RIGHT, RIGHT, TOP_RIGHT}
+
+    private record Key(int size, float opacity, int rgb, int cornerRadius) {
+    }
+
+    private ShadowAtlas() {
+    }
+
+    public static synchronized ShadowAtlas getInstance() {
+        if (instance == null)
+            instance = new ShadowAtlas();
+        return instance;
+    }
+
+    /**
+     * @param size         width of the shadow band around the shape
+     * @param opacity      opacity of the shadow below the shape
+     * @param color        shadow colour, its alpha is ignored
+     * @param cornerRadius corner radius of the shape casting the shadow
+     */
+    public synchronized @NotNull NinePatch get(int size, float opacity, @NotNull Color color, int cornerRadius) {
+        Key key = new Key(Math.max(1, size), opacity, color.getRGB() & 0xFFFFFF, Math.max(0, cornerRadius));
+        NinePatch patch = patches.get(key);
+        if (patch == null) {
+            patch = new NinePatch(key);
+            patches.put(key, patch);
+            cachedBytes += patch.bytes;
+            evict();
+        }
+        return patch;
+    }
+
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public synchronized void clear() {
+        patches.clear();
+        cachedBytes = 0;
+    }
+
+    private void evict() {
+        Iterator<NinePatch> iterator = patches.values().iterator();
+        // the newest patch always stays, even if it's larger than the budget on its own
+        while (cachedBytes > MAX_BYTES && patches.size() > 1) {
+            NinePatch eldest = iterator.next();
+            iterator.remove();
+            cachedBytes -= eldest.bytes;
+            Log.info("Evicted shadow of size " + eldest.size + ", shadow cache: " + cachedBytes / 1024 + "KB");
+        }
+    }
+
+    public static final class NinePatch {
+        private final Map<Slice, BufferedImage> slices = new EnumMap<>(Slice.class);
+        private final int size;
+        private final long bytes;
+
+        private NinePatch(Key key) {
+            size = key.size;
+            // the straight part of the edges is longer than the blur, so the middle pixel isn't affected by corners
+            int shapeSize = 2 * (key.cornerRadius + size) + 1;
+            BufferedImage shape = MaterialGraphics.createCompatibleTranslucentImage(shapeSize, shapeSize);
+            Graphics2D g = shape.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g.setColor(Color.BLACK);
+                g.fill(new RoundRectangle2D.Float(0, 0, shapeSize, shapeSize, key.cornerRadius * 2, key.cornerRadius * 2));
+            } finally {
+                g.dispose();
+            }
+            BufferedImage shadow = new ShadowRenderer(size, key.opacity, new Color(key.rgb)).createShadow(shape);
+            shape.flush();
+
+            int end = shadow.getWidth() - size;
+            int middle = shadow.getWidth() / 2;
+            slices.put(Slice.TOP_LEFT, copy(shadow, 0, 0, size, size));
+            slices.put(Slice.TOP, copy(shadow, middle, 0, 1, size));
+            slices.put(Slice.TOP_RIGHT, copy(shadow, end, 0, size, size));
+            slices.put(Slice.LEFT, copy(shadow, 0, middle, size, 1));
+            slices.put(Slice.RIGHT, copy(shadow, end, middle, size, 1));
+            slices.put(Slice.BOTTOM_LEFT, copy(shadow, 0, end, size, size));
+            slices.put(Slice.BOTTOM, copy(shadow, middle, end, 1, size));
+            slices.put(Slice.BOTTOM_RIGHT, copy(shadow, end, end, size, size));
+            shadow.flush();
+            bytes = 4L * (4L * size * size + 4L * size);
+        }
+
+        /**
+         * @return the slice, edges are one pixel long and meant to be stretched
+         */
+        public @NotNull BufferedImage get(@NotNull Slice slice) {
+            return slices.get(slice);
+        }
+
+        /**
+         * @return width of the shadow band
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * Paints the shadow band inside the given bounds, the area inside the band is left untouched
+         */
+        public void paint(@NotNull Graphics2D g, int x, int y, int width, int height) {
+            int corner = Math.min(size, Math.min(width, height) / 2);
+            int right = x + width - corner, bottom = y + height - corner;
+            g.drawImage(slices.get(Slice.TOP_LEFT), x, y, corner, corner, null);
+            g.drawImage(slices.get(Slice.TOP_RIGHT), right, y, corner, corner, null);
+            g.drawImage(slices.get(Slice.BOTTOM_LEFT), x, bottom, corner, corner, null);
+            g.drawImage(slices.get(Slice.BOTTOM_RIGHT), right, bottom, corner, corner, null);
+            g.drawImage(slices.get(Slice.TOP), x + corner, y, right - x - corner, corner, null);
+            g.drawImage(slices.get(Slice.BOTTOM), x + corner, bottom, right - x - corner, corner, null);
+            g.drawImage(slices.get(Slice.LEFT), x, y + corner, corner, bottom - y - corner, null);
+            g.drawImage(slices.get(Slice.RIGHT), right, y + corner, corner, bottom - y - corner, null);
+        }
+
+        /**
+         * Copies instead of using getSubimage, a sub image shares the raster and can't be accelerated
+         */
+        private static BufferedImage copy(BufferedImage image, int x, int y, int w, int h) {
+            BufferedImage slice = MaterialGraphics.createCompatibleTranslucentImage(w, h);
+            Graphics2D g = slice.createGraphics();
+            try {
+                g.drawImage(image, 0, 0, w, h, x, y, x + w, y + h, null);
+            } finally {
+                g.dispose();
+            }
+            return slice;
+        }
+    }
+}
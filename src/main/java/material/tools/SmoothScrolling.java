@@ -43,6 +43,7 @@ public class SmoothScrolling implements MouseWheelListener {
         }
         isHorizontalScrolling = e.isShiftDown();
         wheelDelta = newWheelDelta;
+        ScrollAnimationTimer.getInstance().wake();
     }
 
     private void removeListeners() {
@@ -52,7 +53,10 @@ public class SmoothScrolling implements MouseWheelListener {
         ScrollAnimationTimer.getInstance().remove(this);
     }
 
-    protected void tick() {
+    /**
+     * @return true while there is scroll left to animate
+     */
+    protected boolean tick() {
         float changeInPos;
         //I am not comparing float values with zero because that is a bad idea
         if (wheelDelta > 0 && totalScroll > 0.1) {
@@ -81,6 +85,7 @@ public class SmoothScrolling implements MouseWheelListener {
             });
             Toolkit.getDefaultToolkit().sync();
         }
+        return totalScroll > 0;
     }
 
     public void setEnabled(boolean b) {
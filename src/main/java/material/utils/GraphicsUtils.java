@@ -1,15 +1,18 @@
 package material.utils;
 
+import material.utils.filters.BlurEngine;
 import material.utils.structures.LanguageCompatibleString;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
 import java.awt.*;
 import java.awt.image.*;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class GraphicsUtils {
-    private static final ConcurrentHashMap<String, LanguageCompatibleString> LANGUAGE_COMPATIBLE_STRING_HASH_MAP = new ConcurrentHashMap<>();
+    // the engines hold the division tables of their radius and are immutable, so they're shared by every caller
+    private static final Map<Integer, BlurEngine> BLUR_ENGINES = new ConcurrentHashMap<>();
 
     public static GraphicsConfiguration getGraphicsConfiguration() {
         return GraphicsEnvironment.getLocalGraphicsEnvironment().
@@ -17,61 +20,12 @@ public class GraphicsUtils {
     }
 
     public static String clipString(Graphics2D g2d, String string, int availableWidth) {
-        FontMetrics fm = g2d.getFontMetrics();
-        var strWidth = fm.stringWidth(string);
-        if (availableWidth >= strWidth) {
-            return string;
-        } else {
-            int ellipseWidth = fm.stringWidth(StringUtils.ELLIPSIS);
-            StringBuilder sb = new StringBuilder();
-            int cWidth = 0; //string width
-            for (char c : string.toCharArray()) {
-                int charWidth = fm.charWidth(c);
-                if (cWidth + charWidth + ellipseWidth < availableWidth) {
-                    sb.append(c);
-                    cWidth += charWidth;
-                } else {
-                    break;
-                }
-            }
-            return sb + StringUtils.ELLIPSIS;
-        }
-
+        return TextLayoutCache.getInstance().clip(g2d, string, availableWidth);
     }
 
     public static LanguageCompatibleString getLanguageCompatibleString(String str, Font font) {
-        if(str != null && !str.isEmpty()) {
-            LanguageCompatibleString preloaded = LANGUAGE_COMPATIBLE_STRING_HASH_MAP.get(str);
-            if (preloaded == null) {
-                LanguageCompatibleString languageCompatibleString = new LanguageCompatibleString(str);
-                StringBuilder sb = new StringBuilder();
-                boolean isSbCompatible = font.canDisplay(str.charAt(0)); //flag to check if string builder contains compatible strings
-                for (char c : str.toCharArray()) {
-                    if (font.canDisplay(c)) {
-                        if (!sb.isEmpty() && !isSbCompatible) { // If the string builder was filled with incompatible strings then add it to the LanguageCompatibleString
-                            languageCompatibleString.addString(sb.toString(), false);
-                            sb.delete(0, sb.length()); //Empty string builder
-                            isSbCompatible = true;
-                        }
-                        sb.append(c);
-                    } else {
-                        if (!sb.isEmpty() && isSbCompatible) { // If the string builder was filled with compatible strings then add it to the LanguageCompatibleString
-                            languageCompatibleString.addString(sb.toString(), true);
-                            sb.delete(0, sb.length()); //then empty the builder
-                            isSbCompatible = false;
-                        }
-                        sb.append(c);
-                    }
-                }
-
-                if (!sb.isEmpty()) {
-                    languageCompatibleString.addString(sb.toString(), isSbCompatible);
-                }
-                LANGUAGE_COMPATIBLE_STRING_HASH_MAP.put(str, languageCompatibleString);
-                return languageCompatibleString;
-            } else
-                return preloaded;
-        }
+        if (str != null && !str.isEmpty())
+            return TextLayoutCache.getInstance().getRuns(str, font);
         return LanguageCompatibleString.EMPTY;
     }
 
@@ -255,8 +209,13 @@ public class GraphicsUtils {
         g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
     }
 
+    /**
+     * Box blurs the image in place, a radius of 0 or less leaves it as is
+     */
     @Contract("_, _ -> param1")
     public static @NotNull VolatileImage blur(@NotNull VolatileImage image, int blurRadius) {
+        if (blurRadius <= 0)
+            return image;
         // Create a compatible buffered image for blurring
         GraphicsConfiguration graphicsConfig = GraphicsEnvironment.getLocalGraphicsEnvironment()
                 .getDefaultScreenDevice().getDefaultConfiguration();
@@ -267,48 +226,7 @@ public class GraphicsUtils {
         g2d.drawImage(image, 0, 0, null);
         g2d.dispose();
 
-        // Get the data buffer of the buffered image
-        DataBuffer dataBuffer = bufferedImage.getRaster().getDataBuffer();
-
-        // Apply blurring by averaging pixel values
-        for (int y = 0; y < bufferedImage.getHeight(); y++) {
-            for (int x = 0; x < bufferedImage.getWidth(); x++) {
-                int redSum = 0;
-                int greenSum = 0;
-                int blueSum = 0;
-                int pixelCount = 0;
-
-                for (int blurY = -blurRadius; blurY <= blurRadius; blurY++) {
-                    int newY = y + blurY;
-
-                    if (newY >= 0 && newY < bufferedImage.getHeight()) {
-                        for (int blurX = -blurRadius; blurX <= blurRadius; blurX++) {
-                            int newX = x + blurX;
-
-                            if (newX >= 0 && newX < bufferedImage.getWidth()) {
-                                int pixel = dataBuffer.getElem(newY * bufferedImage.getWidth() + newX);
-
-                                int red = (pixel >> 16) & 0xFF;
-                                int green = (pixel >> 8) & 0xFF;
-                                int blue = pixel & 0xFF;
-
-                                redSum += red;
-                                greenSum += green;
-                                blueSum += blue;
-                                pixelCount++;
-                            }
-                        }
-                    }
-                }
-
-                int averagedRed = redSum / pixelCount;
-                int averagedGreen = greenSum / pixelCount;
-                int averagedBlue = blueSum / pixelCount;
-
-                int blurredPixel = (averagedRed << 16) | (averagedGreen << 8) | averagedBlue;
-                dataBuffer.setElem(y * bufferedImage.getWidth() + x, blurredPixel);
-            }
-        }
+        BLUR_ENGINES.computeIfAbsent(blurRadius, radius -> new BlurEngine(radius)).filter(bufferedImage, bufferedImage);
 
         // Draw the buffered image back onto the volatile image
         g2d = image.createGraphics();
@@ -16,7 +16,13 @@ public class OsInfo {
     private static final boolean WINDOWS_VISTA_OR_LATER = WINDOWS && versionNumberGreaterThanOrEqualTo(6.0f);
     private static final boolean WINDOWS_7_OR_LATER = WINDOWS && versionNumberGreaterThanOrEqualTo(6.1f);
     private static final boolean CUSTOM_WINDOW_SUPPORTED = OsInfo.isWindowsVistaOrLater();
-    private static final Rectangle screenRect = new Rectangle(Toolkit.getDefaultToolkit().getScreenSize());
+
+    /**
+     * Read on first use, so the OS can be checked without a display
+     */
+    private static final class Screen {
+        private static final Rectangle RECT = new Rectangle(Toolkit.getDefaultToolkit().getScreenSize());
+    }
 
     static {
         Log.warn("OS: " + os + "| Version: " + version);
@@ -62,11 +68,11 @@ public class OsInfo {
     }
 
     public static @NotNull Dimension getScreenSize() {
-        return screenRect.getSize();
+        return Screen.RECT.getSize();
     }
 
     public static Rectangle getScreenRect() {
-        return screenRect;
+        return Screen.RECT;
     }
 
     public static String getOsName() {
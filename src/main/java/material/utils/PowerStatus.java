@@ -0,0 +1,83 @@
+package material.utils;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.Structure;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Tells whether the machine runs on battery or in a battery saver mode. The answer is cached for a while since
+ * it's read from the OS, unknown platforms are treated as plugged in.
+ */
+public class PowerStatus {
+    private static final long CACHE_DURATION_MS = 30_000;
+    private static final Path POWER_SUPPLIES = Path.of("/sys/class/power_supply");
+    private static long lastCheck;
+    private static boolean isSavingPower;
+
+    public static synchronized boolean isSavingPower() {
+        long now = System.currentTimeMillis();
+        if (lastCheck == 0 || now - lastCheck > CACHE_DURATION_MS) {
+            lastCheck = now;
+            try {
+                isSavingPower = switch (OsInfo.getOsType()) {
+                    case WINDOWS -> isSavingPowerOnWindows();
+                    case LINUX -> isOnBatteryOnLinux();
+                    default -> false;
+                };
+            } catch (Throwable e) {
+                Log.warn("Couldn't read power status: " + e);
+                isSavingPower = false;
+            }
+        }
+        return isSavingPower;
+    }
+
+    private static boolean isSavingPowerOnWindows() {
+        SystemPowerStatus status = new SystemPowerStatus();
+        if (!Kernel32Power.INSTANCE.GetSystemPowerStatus(status))
+            return false;
+        return status.ACLineStatus == 0 || status.SystemStatusFlag == 1;
+    }
+
+    /**
+     * On battery when no mains supply reports being online
+     */
+    private static boolean isOnBatteryOnLinux() throws IOException {
+        if (!Files.isDirectory(POWER_SUPPLIES))
+            return false;
+        boolean hasMains = false;
+        try (DirectoryStream<Path> supplies = Files.newDirectoryStream(POWER_SUPPLIES)) {
+            for (Path supply : supplies) {
+                Path type = supply.resolve("type");
+                if (!Files.exists(type) || !Files.readString(type).trim().equals("Mains"))
+                    continue;
+                hasMains = true;
+                Path online = supply.resolve("online");
+                if (Files.exists(online) && Files.readString(online).trim().equals("1"))
+                    return false;
+            }
+        }
+        return hasMains;
+    }
+
+    private interface Kernel32Power extends Library {
+        Kernel32Power INSTANCE = Native.load("kernel32", Kernel32Power.class);
+
+        boolean GetSystemPowerStatus(SystemPowerStatus status);
+    }
+
+    @Structure.FieldOrder({"ACLineStatus", "BatteryFlag", "BatteryLifePercent", "SystemStatusFlag", "BatteryLifeTime", "BatteryFullLifeTime"})
+    public static class SystemPowerStatus extends Structure {
+        public byte ACLineStatus;
+        public byte BatteryFlag;
+        public byte BatteryLifePercent;
+        public byte SystemStatusFlag;
+        public int BatteryLifeTime;
+        public int BatteryFullLifeTime;
+    }
+}
@@ -0,0 +1,181 @@
+package material.utils;
+
+import material.utils.structures.LanguageCompatibleString;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches text measurement of painted labels. Widths and ellipsis clipped strings are kept per (string, font,
+ * render context, width bucket) and the runs a font can't display per (string, font), so repainting a list of
+ * tiles measures nothing. Available widths are rounded down to {@link #WIDTH_BUCKET} pixels, resizing a list only
+ * clips again every few pixels. The fallback font drawing the runs a font can't display is derived once per
+ * (font, style, point size).
+ * <p>
+ * Every cache drops its least recently used entries.
+ */
+public class TextLayoutCache {
+    public static final int WIDTH_BUCKET = 4;
+    private static final int MAX_LAYOUTS = 4096;
+    private static final int MAX_RUNS = 1024;
+    private static final int MAX_FALLBACK_FONTS = 64;
+    // bucket of a layout which isn't clipped, only measured
+    private static final int UNBOUNDED = -1;
+    private static TextLayoutCache instance;
+    private final Map<LayoutKey, Layout> layouts = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<LayoutKey, Layout> eldest) {
+            return size() > MAX_LAYOUTS;
+        }
+    };
+    private final Map<RunsKey, LanguageCompatibleString> runs = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<RunsKey, LanguageCompatibleString> eldest) {
+            return size() > MAX_RUNS;
+        }
+    };
+    private final Map<FallbackKey, Font> fallbackFonts = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<FallbackKey, Font> eldest) {
+            return size() > MAX_FALLBACK_FONTS;
+        }
+    };
+    private long hits;
+    private long misses;
+
+    private record LayoutKey(String text, Font font, FontRenderContext frc, int widthBucket) {
+    }
+
+    private record RunsKey(String text, Font font) {
+    }
+
+    private record FallbackKey(Font fallback, int style, int size) {
+    }
+
+    /**
+     * @param text  the string to draw, clipped with an ellipsis if it didn't fit
+     * @param width its advance in the font
+     */
+    private record Layout(String text, int width) {
+    }
+
+    private TextLayoutCache() {
+    }
+
+    public static synchronized TextLayoutCache getInstance() {
+        if (instance == null)
+            instance = new TextLayoutCache();
+        return instance;
+    }
+
+    /**
+     * @return advance of the string in the graphics' current font
+     */
+    public synchronized int stringWidth(@NotNull Graphics2D g2d, @NotNull String text) {
+        return measure(g2d, text).width;
+    }
+
+    /**
+     * @return the string itself if it fits the width in the graphics' current font, otherwise its longest prefix
+     * followed by an ellipsis that does
+     */
+    public synchronized @NotNull String clip(@NotNull Graphics2D g2d, @NotNull String text, int availableWidth) {
+        Layout measured = measure(g2d, text);
+        if (measured.width <= availableWidth)
+            return text;
+        int bucket = Math.max(0, availableWidth / WIDTH_BUCKET);
+        LayoutKey key = new LayoutKey(text, g2d.getFont(), g2d.getFontRenderContext(), bucket);
+        Layout layout = layouts.get(key);
+        if (layout == null) {
+            misses++;
+            layout = clip(g2d.getFontMetrics(), text, bucket * WIDTH_BUCKET);
+            layouts.put(key, layout);
+        } else
+            hits++;
+        return layout.text;
+    }
+
+    /**
+     * @return the string split in runs that the font can and can't display
+     */
+    public synchronized @NotNull LanguageCompatibleString getRuns(@NotNull String text, @NotNull Font font) {
+        RunsKey key = new RunsKey(text, font);
+        LanguageCompatibleString split = runs.get(key);
+        if (split == null) {
+            split = split(text, font);
+            runs.put(key, split);
+        }
+        return split;
+    }
+
+    /**
+     * @return the fallback font derived to the style and point size of the font it stands in for
+     */
+    public synchronized @NotNull Font getFallbackFont(@NotNull Font fallback, @NotNull Font font) {
+        return fallbackFonts.computeIfAbsent(new FallbackKey(fallback, font.getStyle(), font.getSize()),
+                key -> key.fallback.deriveFont(key.style, key.size));
+    }
+
+    public synchronized double getHitRate() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    public synchronized void clear() {
+        layouts.clear();
+        runs.clear();
+        fallbackFonts.clear();
+    }
+
+    private Layout measure(Graphics2D g2d, String text) {
+        LayoutKey key = new LayoutKey(text, g2d.getFont(), g2d.getFontRenderContext(), UNBOUNDED);
+        Layout layout = layouts.get(key);
+        if (layout == null) {
+            misses++;
+            layout = new Layout(text, g2d.getFontMetrics().stringWidth(text));
+            layouts.put(key, layout);
+        } else
+            hits++;
+        return layout;
+    }
+
+    /**
+     * Binary searches the longest prefix which fits with the ellipsis, prefix widths grow with their length
+     */
+    private static Layout clip(FontMetrics fm, String text, int availableWidth) {
+        int ellipsisWidth = fm.stringWidth(StringUtils.ELLIPSIS);
+        int low = 0, high = text.length();
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (fm.stringWidth(text.substring(0, mid)) + ellipsisWidth < availableWidth)
+                low = mid;
+            else
+                high = mid - 1;
+        }
+        // never split a surrogate pair
+        if (low > 0 && Character.isHighSurrogate(text.charAt(low - 1)))
+            low--;
+        String prefix = text.substring(0, low);
+        return new Layout(prefix + StringUtils.ELLIPSIS, fm.stringWidth(prefix) + ellipsisWidth);
+    }
+
+    private static LanguageCompatibleString split(String text, Font font) {
+        LanguageCompatibleString split = new LanguageCompatibleString(text);
+        int runStart = 0;
+        boolean isRunSupported = font.canDisplay(text.codePointAt(0));
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            boolean isSupported = font.canDisplay(codePoint);
+            if (isSupported != isRunSupported) {
+                split.addString(text.substring(runStart, i), isRunSupported);
+                runStart = i;
+                isRunSupported = isSupported;
+            }
+            i += Character.charCount(codePoint);
+        }
+        split.addString(text.substring(runStart), isRunSupported);
+        return split;
+    }
+}
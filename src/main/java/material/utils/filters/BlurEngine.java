@@ -0,0 +1,150 @@
+package material.utils.filters;
+
+import material.utils.GraphicsUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.image.BufferedImage;
+import java.util.stream.IntStream;
+
+/**
+ * Blur made of successive box blurs, three boxes of the right sizes are visually a gaussian blur at the cost of
+ * a box blur: every pass is O(w*h) no matter the radius.
+ * <p>
+ * A pass blurs the rows of the image and writes them transposed, so the next pass blurs the columns with the
+ * same row loop. Rows of large images are split across cores. Pixels are blurred in two scratch arrays which are
+ * kept per calling thread and reused, images are read and written once per call.
+ */
+public class BlurEngine {
+    private static final int PARALLEL_THRESHOLD = 128 * 128;
+    private static final int ROWS_PER_TASK = 32;
+    // scratch buffers above this size aren't kept after a call
+    private static final int MAX_RETAINED_PIXELS = 1920 * 1080;
+    private static final ThreadLocal<int[][]> scratch = ThreadLocal.withInitial(() -> new int[2][0]);
+    private final int[] boxRadii;
+    private final int[][] divideTables;
+
+    /**
+     * @param boxRadii radii of the box blurs applied in order, each is applied horizontally and vertically
+     */
+    public BlurEngine(int @NotNull ... boxRadii) {
+        this.boxRadii = boxRadii.clone();
+        this.divideTables = new int[boxRadii.length][];
+        for (int i = 0; i < boxRadii.length; i++) {
+            this.boxRadii[i] = Math.max(1, boxRadii[i]);
+            int windowSize = this.boxRadii[i] * 2 + 1;
+            int[] table = new int[256 * windowSize];
+            for (int sum = 0; sum < table.length; sum++)
+                table[sum] = sum / windowSize;
+            divideTables[i] = table;
+        }
+    }
+
+    /**
+     * Approximates a gaussian blur of the given standard deviation with box blurs
+     *
+     * @param passes number of box blurs, 3 is indistinguishable from a true gaussian
+     */
+    public static @NotNull BlurEngine gaussian(float sigma, int passes) {
+        // Box sizes whose variances add up to sigma^2, W. Jarosz, "Fast Image Convolutions"
+        double idealWidth = Math.sqrt(12 * sigma * sigma / passes + 1);
+        int lowerWidth = (int) Math.floor(idealWidth);
+        if (lowerWidth % 2 == 0)
+            lowerWidth--;
+        int upperWidth = lowerWidth + 2;
+        double idealLowerCount = (12 * sigma * sigma - passes * lowerWidth * lowerWidth - 4 * passes * lowerWidth - 3 * passes)
+                / (-4.0 * lowerWidth - 4);
+        long lowerCount = Math.round(idealLowerCount);
+        int[] radii = new int[passes];
+        for (int i = 0; i < passes; i++)
+            radii[i] = ((i < lowerCount ? lowerWidth : upperWidth) - 1) / 2;
+        return new BlurEngine(radii);
+    }
+
+    /**
+     * Blurs the image into dst, which may be the source itself
+     */
+    public void filter(@NotNull BufferedImage src, @NotNull BufferedImage dst) {
+        int width = src.getWidth(), height = src.getHeight();
+        int pixelCount = width * height;
+        if (pixelCount == 0)
+            return;
+        int[][] buffers = getScratch(pixelCount);
+        GraphicsUtils.getPixels(src, 0, 0, width, height, buffers[0]);
+        blur(buffers[0], buffers[1], width, height);
+        GraphicsUtils.setPixels(dst, 0, 0, width, height, buffers[0]);
+        if (pixelCount > MAX_RETAINED_PIXELS)
+            scratch.remove();
+    }
+
+    /**
+     * Blurs ARGB pixels in place
+     *
+     * @param temp scratch array at least as long as the pixels
+     */
+    public void blur(int @NotNull [] pixels, int @NotNull [] temp, int width, int height) {
+        for (int i = 0; i < boxRadii.length; i++) {
+            boxBlur(pixels, temp, width, height, boxRadii[i], divideTables[i]);
+            boxBlur(temp, pixels, height, width, boxRadii[i], divideTables[i]);
+        }
+    }
+
+    private static int[][] getScratch(int pixelCount) {
+        int[][] buffers = scratch.get();
+        if (buffers[0].length < pixelCount) {
+            buffers[0] = new int[pixelCount];
+            buffers[1] = new int[pixelCount];
+        }
+        return buffers;
+    }
+
+    /**
+     * Blurs every row of src and stores it as a column of dst
+     */
+    private static void boxBlur(int[] src, int[] dst, int width, int height, int radius, int[] divideTable) {
+        if (width * height < PARALLEL_THRESHOLD) {
+            boxBlurRows(src, dst, width, height, radius, divideTable, 0, height);
+            return;
+        }
+        int tasks = (height + ROWS_PER_TASK - 1) / ROWS_PER_TASK;
+        IntStream.range(0, tasks).parallel().forEach(task -> {
+            int firstRow = task * ROWS_PER_TASK;
+            boxBlurRows(src, dst, width, height, radius, divideTable, firstRow, Math.min(height, firstRow + ROWS_PER_TASK));
+        });
+    }
+
+    private static void boxBlurRows(int[] src, int[] dst, int width, int height, int radius, int[] divideTable,
+                                    int firstRow, int endRow) {
+        final int radiusPlusOne = radius + 1;
+        final int lastX = width - 1;
+        for (int y = firstRow; y < endRow; y++) {
+            final int rowStart = y * width;
+            int dstIndex = y;
+
+            // the window starts centered on the first pixel, pixels outside the row repeat the edge
+            int pixel = src[rowStart];
+            int sumAlpha = radiusPlusOne * ((pixel >>> 24) & 0xFF);
+            int sumRed = radiusPlusOne * ((pixel >> 16) & 0xFF);
+            int sumGreen = radiusPlusOne * ((pixel >> 8) & 0xFF);
+            int sumBlue = radiusPlusOne * (pixel & 0xFF);
+            for (int i = 1; i <= radius; i++) {
+                pixel = src[rowStart + Math.min(i, lastX)];
+                sumAlpha += (pixel >>> 24) & 0xFF;
+                sumRed += (pixel >> 16) & 0xFF;
+                sumGreen += (pixel >> 8) & 0xFF;
+                sumBlue += pixel & 0xFF;
+            }
+
+            for (int x = 0; x < width; x++) {
+                dst[dstIndex] = divideTable[sumAlpha] << 24 | divideTable[sumRed] << 16 | divideTable[sumGreen] << 8 | divideTable[sumBlue];
+                dstIndex += height;
+
+                int nextPixel = src[rowStart + Math.min(x + radiusPlusOne, lastX)];
+                int previousPixel = src[rowStart + Math.max(x - radius, 0)];
+                sumAlpha += ((nextPixel >>> 24) & 0xFF) - ((previousPixel >>> 24) & 0xFF);
+                sumRed += ((nextPixel >> 16) & 0xFF) - ((previousPixel >> 16) & 0xFF);
+                sumGreen += ((nextPixel >> 8) & 0xFF) - ((previousPixel >> 8) & 0xFF);
+                sumBlue += (nextPixel & 0xFF) - (previousPixel & 0xFF);
+            }
+        }
+    }
+}